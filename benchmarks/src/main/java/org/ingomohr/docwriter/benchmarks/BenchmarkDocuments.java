@@ -0,0 +1,79 @@
+package org.ingomohr.docwriter.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.SyntheticDocumentGenerator;
+
+/**
+ * Creates the documents the benchmarks work on.
+ * <p>
+ * Benchmarks that modify their document keep it as bytes and load a fresh copy
+ * before each invocation - see {@link #load(byte[])}.
+ * </p>
+ * 
+ * @since 6.1
+ */
+final class BenchmarkDocuments {
+
+	private static final long SEED = 42;
+
+	private BenchmarkDocuments() {
+	}
+
+	/**
+	 * Creates a generator for documents with the given number of paragraphs. Every
+	 * tenth paragraph is a heading, the text paragraphs are split into three runs
+	 * and there is one table per 100 paragraphs.
+	 * 
+	 * @param paragraphs the number of paragraphs.
+	 * @return new generator. Never <code>null</code>.
+	 */
+	static SyntheticDocumentGenerator createGenerator(int paragraphs) {
+		final SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator(SEED);
+		generator.setParagraphCount(paragraphs);
+		generator.setRunsPerParagraph(3);
+		generator.setTableCount(paragraphs / 100);
+		return generator;
+	}
+
+	/**
+	 * Creates a document with the given number of paragraphs - see
+	 * {@link #createGenerator(int)}.
+	 * 
+	 * @param paragraphs the number of paragraphs.
+	 * @return new document. Never <code>null</code>.
+	 * @throws DocWriterException if creating the document fails.
+	 */
+	static WordprocessingMLPackage create(int paragraphs) throws DocWriterException {
+		return createGenerator(paragraphs).createDocument();
+	}
+
+	/**
+	 * Saves the given document to bytes.
+	 * 
+	 * @param doc the document to save. Cannot be <code>null</code>.
+	 * @return saved document. Never <code>null</code>.
+	 * @throws Docx4JException if saving fails.
+	 */
+	static byte[] toBytes(WordprocessingMLPackage doc) throws Docx4JException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		doc.save(out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Loads a document from the given bytes.
+	 * 
+	 * @param bytes the saved document. Cannot be <code>null</code>.
+	 * @return loaded document. Never <code>null</code>.
+	 * @throws Docx4JException if loading fails.
+	 */
+	static WordprocessingMLPackage load(byte[] bytes) throws Docx4JException {
+		return WordprocessingMLPackage.load(new ByteArrayInputStream(bytes));
+	}
+
+}
@@ -0,0 +1,66 @@
+package org.ingomohr.docwriter.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.DocxWarmUp;
+import org.ingomohr.docwriter.docx.SimpleMarkdownDocxWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the first render in a fresh JVM - with and without a preceding
+ * {@link DocxWarmUp}.
+ * <p>
+ * Every fork measures a single render. The warm-up runs in the trial setup, so
+ * it isn't part of the measured time. Without warm-up, the setup doesn't touch
+ * docx4j at all.
+ * </p>
+ * 
+ * @since 6.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class FirstRenderBenchmark {
+
+	private static final String MARKDOWN = "# Report\n\nSome *emphasized* and **strong** text.\n\n"
+			+ "- first\n- second\n\n| Name | Value |\n|---|---|\n| a | 1 |\n";
+
+	/**
+	 * Whether {@link DocxWarmUp#warmUp()} runs before the render.
+	 */
+	@Param({ "false", "true" })
+	private boolean warmUp;
+
+	@Setup(Level.Trial)
+	public void setUp() throws DocWriterException {
+		if (warmUp) {
+			new DocxWarmUp().warmUp();
+		}
+	}
+
+	@Benchmark
+	public byte[] firstRender() throws DocWriterException {
+		final SimpleMarkdownDocxWriter writer = new SimpleMarkdownDocxWriter();
+		writer.setMarkDownContent(MARKDOWN);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(null, out);
+		return out.toByteArray();
+	}
+
+}
@@ -0,0 +1,67 @@
+package org.ingomohr.docwriter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures appending small and large markdown inputs with the
+ * {@link MarkdownAppenderRule}.
+ * 
+ * @since 6.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkdownAppenderBenchmark {
+
+	/**
+	 * The number of paragraphs in the markdown input - see
+	 * {@link BenchmarkDocuments#createGenerator(int)}.
+	 */
+	@Param({ "10", "2000" })
+	private int paragraphs;
+
+	private MarkdownAppenderRule rule;
+
+	private byte[] bytes;
+
+	private WordprocessingMLPackage doc;
+
+	@Setup(Level.Trial)
+	public void setUp() throws DocWriterException, Docx4JException {
+		final String markdown = BenchmarkDocuments.createGenerator(paragraphs).createMarkdown();
+		rule = new MarkdownAppenderRule(() -> markdown);
+		bytes = BenchmarkDocuments.toBytes(BenchmarkDocuments.create(0));
+	}
+
+	@Setup(Level.Invocation)
+	public void loadDocument() throws Docx4JException {
+		doc = BenchmarkDocuments.load(bytes);
+	}
+
+	@Benchmark
+	public WordprocessingMLPackage append() {
+		rule.apply(doc);
+		return doc;
+	}
+
+}
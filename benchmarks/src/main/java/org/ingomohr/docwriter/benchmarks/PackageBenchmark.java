@@ -0,0 +1,74 @@
+package org.ingomohr.docwriter.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.SyntheticDocumentGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading and saving a {@link WordprocessingMLPackage} at several
+ * document sizes.
+ * <p>
+ * Image-heavy documents can be measured by passing e.g.
+ * <code>-p images=100</code> - which adds about 500 MB of images.
+ * </p>
+ * 
+ * @since 6.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PackageBenchmark {
+
+	private static final int IMAGE_SIZE = 1300;
+
+	@Param({ "10", "1000", "10000" })
+	private int paragraphs;
+
+	@Param({ "0" })
+	private int images;
+
+	private WordprocessingMLPackage doc;
+
+	private byte[] bytes;
+
+	@Setup(Level.Trial)
+	public void setUp() throws DocWriterException, Docx4JException {
+		final SyntheticDocumentGenerator generator = BenchmarkDocuments.createGenerator(paragraphs);
+		generator.setImageCount(images);
+		generator.setImageSize(IMAGE_SIZE);
+		doc = generator.createDocument();
+		bytes = BenchmarkDocuments.toBytes(doc);
+	}
+
+	@Benchmark
+	public WordprocessingMLPackage load() throws Docx4JException {
+		return BenchmarkDocuments.load(bytes);
+	}
+
+	@Benchmark
+	public int save() throws Docx4JException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+		doc.save(out);
+		return out.size();
+	}
+
+}
@@ -0,0 +1,64 @@
+package org.ingomohr.docwriter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.SimpleDocxProcessor;
+import org.ingomohr.docwriter.docx.SyntheticDocumentGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SimpleDocxProcessor#replaceVariable(String, String)} on
+ * documents of several sizes. Every tenth text paragraph has a placeholder,
+ * split over several runs.
+ * 
+ * @since 6.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplaceVariableBenchmark {
+
+	@Param({ "10", "1000" })
+	private int paragraphs;
+
+	private final SimpleDocxProcessor processor = new SimpleDocxProcessor();
+
+	private byte[] bytes;
+
+	@Setup(Level.Trial)
+	public void setUp() throws DocWriterException, Docx4JException {
+		final SyntheticDocumentGenerator generator = BenchmarkDocuments.createGenerator(paragraphs);
+		generator.setPlaceholderDensity(0.1);
+		generator.setPlaceholderVariables(1);
+		bytes = BenchmarkDocuments.toBytes(generator.createDocument());
+	}
+
+	@Setup(Level.Invocation)
+	public void loadDocument() throws Docx4JException {
+		processor.setDocument(BenchmarkDocuments.load(bytes));
+	}
+
+	@Benchmark
+	public WordprocessingMLPackage replaceVariable() throws Docx4JException {
+		processor.replaceVariable("var.0", "DOC-562342");
+		return processor.getDocument();
+	}
+
+}
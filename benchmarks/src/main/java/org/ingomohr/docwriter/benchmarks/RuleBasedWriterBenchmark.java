@@ -0,0 +1,130 @@
+package org.ingomohr.docwriter.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.AbstractRuleBasedDocxWriter;
+import org.ingomohr.docwriter.docx.rules.DocumentRule;
+import org.ingomohr.docwriter.docx.rules.RegexReplacementRule;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link AbstractRuleBasedDocxWriter#modifyDoc(WordprocessingMLPackage)
+ * modifyDoc()} with a growing number of {@link RegexReplacementRule}s.
+ * <p>
+ * The document has 1000 plain paragraphs plus one paragraph with a variable
+ * per rule. After each invocation, the benchmark checks that all these
+ * variables have been replaced.
+ * </p>
+ * 
+ * @since 6.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleBasedWriterBenchmark {
+
+	private static final int PARAGRAPHS = 1000;
+
+	@Param({ "1", "10", "100" })
+	private int rules;
+
+	private BenchmarkWriter writer;
+
+	private byte[] bytes;
+
+	private WordprocessingMLPackage doc;
+
+	@Setup(Level.Trial)
+	public void setUp() throws DocWriterException, Docx4JException {
+		final WordprocessingMLPackage template = BenchmarkDocuments.create(PARAGRAPHS);
+		for (int i = 0; i < rules; i++) {
+			template.getMainDocumentPart().addParagraphOfText("${var." + i + "}");
+		}
+		bytes = BenchmarkDocuments.toBytes(template);
+		writer = new BenchmarkWriter(rules);
+	}
+
+	@Setup(Level.Invocation)
+	public void loadDocument() throws Docx4JException {
+		doc = BenchmarkDocuments.load(bytes);
+	}
+
+	@Benchmark
+	public WordprocessingMLPackage modifyDoc() {
+		writer.modifyDoc(doc);
+		return doc;
+	}
+
+	/**
+	 * Checks that the rules really replaced their variables - so that the
+	 * benchmark doesn't measure a loop that doesn't do anything.
+	 */
+	@TearDown(Level.Invocation)
+	public void checkReplaced() {
+		final List<Text> texts = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class);
+		for (Text text : texts) {
+			for (int i = 0; i < rules; i++) {
+				if (text.getValue() != null && text.getValue().contains("${var." + i + "}")) {
+					throw new IllegalStateException("Variable var." + i + " has not been replaced");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writer with a fixed number of regex replacement rules.
+	 */
+	static class BenchmarkWriter extends AbstractRuleBasedDocxWriter {
+
+		private final int ruleCount;
+
+		BenchmarkWriter(int ruleCount) {
+			this.ruleCount = ruleCount;
+			init();
+		}
+
+		@Override
+		protected List<DocumentRule> initRules() {
+			final List<DocumentRule> list = new ArrayList<>();
+			for (int i = 0; i < ruleCount; i++) {
+				final String value = "value " + i;
+				list.add(new RegexReplacementRule("\\$\\{var\\." + i + "\\}", () -> value));
+			}
+			return list;
+		}
+
+		@Override
+		protected boolean isInitializingAutomatically() {
+			return false;
+		}
+
+		@Override
+		protected void modifyDoc(WordprocessingMLPackage doc) {
+			super.modifyDoc(doc);
+		}
+
+	}
+
+}
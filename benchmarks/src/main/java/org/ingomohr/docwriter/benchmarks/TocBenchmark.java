@@ -0,0 +1,78 @@
+package org.ingomohr.docwriter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.rules.TocInsertionRule;
+import org.ingomohr.docwriter.docx.rules.TocUpdateRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures inserting a ToC with the {@link TocInsertionRule} and updating it
+ * with the {@link TocUpdateRule}.
+ * 
+ * @since 6.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TocBenchmark {
+
+	/**
+	 * The number of paragraphs in the document. Every tenth is a heading.
+	 */
+	@Param({ "100", "1000" })
+	private int paragraphs;
+
+	private byte[] bytesWithoutToc;
+
+	private byte[] bytesWithToc;
+
+	private WordprocessingMLPackage docWithoutToc;
+
+	private WordprocessingMLPackage docWithToc;
+
+	@Setup(Level.Trial)
+	public void setUp() throws DocWriterException, Docx4JException {
+		final WordprocessingMLPackage doc = BenchmarkDocuments.create(paragraphs);
+		bytesWithoutToc = BenchmarkDocuments.toBytes(doc);
+
+		new TocInsertionRule().apply(doc);
+		bytesWithToc = BenchmarkDocuments.toBytes(doc);
+	}
+
+	@Setup(Level.Invocation)
+	public void loadDocuments() throws Docx4JException {
+		docWithoutToc = BenchmarkDocuments.load(bytesWithoutToc);
+		docWithToc = BenchmarkDocuments.load(bytesWithToc);
+	}
+
+	@Benchmark
+	public WordprocessingMLPackage insertToc() {
+		new TocInsertionRule().apply(docWithoutToc);
+		return docWithoutToc;
+	}
+
+	@Benchmark
+	public WordprocessingMLPackage updateToc() {
+		new TocUpdateRule().apply(docWithToc);
+		return docWithToc;
+	}
+
+}
@@ -2,12 +2,16 @@ package org.ingomohr.docwriter;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import org.ingomohr.docwriter.metrics.DocWriterMetrics;
+import org.ingomohr.docwriter.metrics.InMemoryMetrics;
+
 /**
  * Base implementation of a {@link DocWriter}. Implements file access.
  * 
@@ -15,6 +19,10 @@ import java.nio.file.Path;
  */
 public abstract class AbstractDocWriter implements DocWriter {
 
+	private DocWriterMetrics metrics;
+
+	private TemplateRegistry templateRegistry;
+
 	@Override
 	public void write(Path input, Path target) throws DocWriterException {
 
@@ -31,6 +39,10 @@ public abstract class AbstractDocWriter implements DocWriter {
 
 	/**
 	 * Opens the {@link InputStream} for the given input path.
+	 * <p>
+	 * If a {@link #getTemplateRegistry() template registry} is set, the input is
+	 * read from the registry.
+	 * </p>
 	 * 
 	 * @param input the input path to open.
 	 * @return input stream or <code>null</code> if the given path is
@@ -38,10 +50,67 @@ public abstract class AbstractDocWriter implements DocWriter {
 	 * @throws IOException if stream cannot be opened from given path.
 	 */
 	protected InputStream openInputIfAvailable(Path input) throws IOException {
-		if (input != null) {
-			return Files.newInputStream(input);
+		if (input == null) {
+			return null;
 		}
-		return null;
+		final TemplateRegistry registry = getTemplateRegistry();
+		if (registry != null) {
+			try {
+				return new ByteArrayInputStream(registry.get(input));
+			} catch (DocWriterException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+		return Files.newInputStream(input);
+	}
+
+	/**
+	 * Returns the metrics the writer records its measurements to.
+	 * <p>
+	 * Default is {@link InMemoryMetrics#getDefault()}.
+	 * </p>
+	 * 
+	 * @return metrics. Never <code>null</code>.
+	 * @since 6.1
+	 */
+	public DocWriterMetrics getMetrics() {
+		return metrics != null ? metrics : InMemoryMetrics.getDefault();
+	}
+
+	/**
+	 * Sets the metrics the writer records its measurements to.
+	 * 
+	 * @param metrics the metrics to set. <code>null</code> for the default. Use
+	 *                {@link DocWriterMetrics#NOOP} to record nothing.
+	 * @since 6.1
+	 */
+	public void setMetrics(DocWriterMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the registry that inputs given as path are read from.
+	 * 
+	 * @return template registry. <code>null</code> if inputs are read from their
+	 *         files.
+	 * @since 6.1
+	 */
+	public TemplateRegistry getTemplateRegistry() {
+		return templateRegistry;
+	}
+
+	/**
+	 * Sets the registry that inputs given as path are read from.
+	 * <p>
+	 * The registry is not closed by the writer.
+	 * </p>
+	 * 
+	 * @param templateRegistry the registry to set. <code>null</code> to read
+	 *                         inputs from their files.
+	 * @since 6.1
+	 */
+	public void setTemplateRegistry(TemplateRegistry templateRegistry) {
+		this.templateRegistry = templateRegistry;
 	}
 
 }
@@ -3,6 +3,12 @@ package org.ingomohr.docwriter;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Writes a document based on a configuration.
@@ -51,4 +57,106 @@ public interface DocWriter {
 		write(null, target);
 	}
 
+	/**
+	 * Writes a document asynchronously on the default executor (see
+	 * {@link DocWriterExecutors#getDefault()}).
+	 * 
+	 * @param input  the input to read from. <i>Optional</i>.
+	 * @param target the target to write to. Cannot be <code>null</code>.
+	 * @return future that completes when the document has been written. Completes
+	 *         exceptionally with a {@link DocWriterException} if writing fails.
+	 * @since 6.1
+	 */
+	default CompletableFuture<Void> writeAsync(Path input, Path target) {
+		return writeAsync(input, target, DocWriterExecutors.getDefault());
+	}
+
+	/**
+	 * Writes a document asynchronously on the given executor.
+	 * 
+	 * @param input    the input to read from. <i>Optional</i>.
+	 * @param target   the target to write to. Cannot be <code>null</code>.
+	 * @param executor the executor to write on. Cannot be <code>null</code>.
+	 * @return future that completes when the document has been written. Completes
+	 *         exceptionally with a {@link DocWriterException} if writing fails.
+	 * @since 6.1
+	 */
+	default CompletableFuture<Void> writeAsync(Path input, Path target, Executor executor) {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				write(input, target);
+			} catch (DocWriterException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Writes a document asynchronously on the default executor (see
+	 * {@link DocWriterExecutors#getDefault()}).
+	 * <p>
+	 * The streams must not be used by the caller until the returned future is
+	 * done.
+	 * </p>
+	 * 
+	 * @param input  the input to read from. <i>Optional</i>.
+	 * @param target the target to write to. Cannot be <code>null</code>.
+	 * @return future that completes when the document has been written. Completes
+	 *         exceptionally with a {@link DocWriterException} if writing fails.
+	 * @since 6.1
+	 */
+	default CompletableFuture<Void> writeAsync(InputStream input, OutputStream target) {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				write(input, target);
+			} catch (DocWriterException e) {
+				throw new CompletionException(e);
+			}
+		}, DocWriterExecutors.getDefault());
+	}
+
+	/**
+	 * Writes several documents asynchronously on the default executor (see
+	 * {@link DocWriterExecutors#getDefault()}).
+	 * 
+	 * @param inputsByTarget the inputs to read from by the target to write to. A
+	 *                       <code>null</code> value stands for "no input". Cannot
+	 *                       be <code>null</code>.
+	 * @return future that completes when all documents have been written. If
+	 *         writing any of them fails, it completes exceptionally after all
+	 *         documents are done.
+	 * @see #writeAllAsync(Map, Executor)
+	 * @since 6.1
+	 */
+	default CompletableFuture<Void> writeAllAsync(Map<Path, Path> inputsByTarget) {
+		return writeAllAsync(inputsByTarget, DocWriterExecutors.getDefault());
+	}
+
+	/**
+	 * Writes several documents asynchronously on the given executor.
+	 * <p>
+	 * Each document is written as its own task. Implementations must therefore
+	 * support writing several documents at the same time.
+	 * </p>
+	 * <p>
+	 * The map is keyed by target - each target is written once, but one input can
+	 * be written to any number of targets.
+	 * </p>
+	 * 
+	 * @param inputsByTarget the inputs to read from by the target to write to. A
+	 *                       <code>null</code> value stands for "no input". Cannot
+	 *                       be <code>null</code>.
+	 * @param executor       the executor to write on. Cannot be
+	 *                       <code>null</code>.
+	 * @return future that completes when all documents have been written. If
+	 *         writing any of them fails, it completes exceptionally after all
+	 *         documents are done.
+	 * @since 6.1
+	 */
+	default CompletableFuture<Void> writeAllAsync(Map<Path, Path> inputsByTarget, Executor executor) {
+		final List<CompletableFuture<Void>> futures = new ArrayList<>(inputsByTarget.size());
+		inputsByTarget.forEach((target, input) -> futures.add(writeAsync(input, target, executor)));
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+	}
+
 }
@@ -0,0 +1,85 @@
+package org.ingomohr.docwriter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the executors used for asynchronous writing.
+ * <p>
+ * On JDKs with virtual threads (Java 21+), each task runs on its own virtual
+ * thread. Blocking I/O while reading the input and writing the target then
+ * doesn't tie up platform threads. On older JDKs, tasks run on a bounded pool of
+ * platform threads.
+ * </p>
+ * 
+ * @see DocWriter
+ * @since 6.1
+ */
+public final class DocWriterExecutors {
+
+	private DocWriterExecutors() {
+	}
+
+	/**
+	 * Returns the shared default executor.
+	 * <p>
+	 * The executor is created on first use and never shut down. Its threads are
+	 * daemon threads. It's shared by the whole JVM and therefore only exposed as
+	 * {@link Executor} - i.e. it cannot be shut down by callers.
+	 * </p>
+	 * 
+	 * @return default executor. Never <code>null</code>.
+	 */
+	public static Executor getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	/**
+	 * Creates a new executor that runs each task on a virtual thread.
+	 * 
+	 * @return new executor. <code>null</code> if the JDK doesn't support virtual
+	 *         threads.
+	 */
+	public static ExecutorService createVirtualThreadExecutor() {
+		try {
+			// Looked up reflectively so that the library still runs on Java 17.
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a new bounded pool of platform daemon threads.
+	 * 
+	 * @param threadCount the number of threads. Must be at least 1.
+	 * @return new executor. Never <code>null</code>.
+	 */
+	public static ExecutorService createPlatformThreadExecutor(int threadCount) {
+		final AtomicInteger count = new AtomicInteger();
+		final ThreadFactory factory = runnable -> {
+			Thread thread = new Thread(runnable, "docwriter-async-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		return Executors.newFixedThreadPool(threadCount, factory);
+	}
+
+	private static final class DefaultHolder {
+
+		// Wrapped so that the service cannot be cast to ExecutorService and shut down.
+		static final Executor INSTANCE = createDefault()::execute;
+
+		private static ExecutorService createDefault() {
+			final ExecutorService virtual = createVirtualThreadExecutor();
+			if (virtual != null) {
+				return virtual;
+			}
+			return createPlatformThreadExecutor(Math.max(2, 2 * Runtime.getRuntime().availableProcessors()));
+		}
+	}
+
+}
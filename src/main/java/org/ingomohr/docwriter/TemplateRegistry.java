@@ -0,0 +1,270 @@
+package org.ingomohr.docwriter;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps prepared templates in memory and reloads them in the background when
+ * their files change.
+ * <p>
+ * A template is read and {@link #prepare(Path) prepared} when it's first
+ * requested. Its directory is then watched with a {@link WatchService}. When the
+ * file is modified or replaced, the template is prepared again on a background
+ * thread and swapped in when done. Until then - and if preparing the new version
+ * fails - the previous version is returned. Threads requesting a template
+ * therefore only ever wait for its first load - and only for the first load of
+ * that template, not of others. A change during the first load is picked up by
+ * a reload as well.
+ * </p>
+ * <p>
+ * A prepared template is never modified. A render that got a version keeps
+ * using it until it's finished, even if a newer version is swapped in
+ * meanwhile.
+ * </p>
+ * <p>
+ * Set a registry on a writer (see
+ * {@link AbstractDocWriter#setTemplateRegistry(TemplateRegistry)}) to read its
+ * input paths from the registry. Close the registry to stop watching.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class TemplateRegistry implements Closeable {
+
+	private static final long RELOAD_DELAY_MILLIS = 200;
+
+	private final Map<Path, byte[]> templates = new ConcurrentHashMap<>();
+
+	private final Map<Path, ScheduledFuture<?>> pendingReloads = new ConcurrentHashMap<>();
+
+	private final Map<Path, Object> loadLocks = new ConcurrentHashMap<>();
+
+	/** The templates being read for the first time. */
+	private final Set<Path> loading = ConcurrentHashMap.newKeySet();
+
+	private final Set<Path> watchedDirectories = new HashSet<>();
+
+	private WatchService watchService;
+
+	private ScheduledExecutorService reloader;
+
+	private volatile boolean closed;
+
+	/**
+	 * Returns the prepared template at the given path.
+	 * <p>
+	 * The template is read and prepared on the calling thread if it's requested
+	 * for the first time. All other calls return the version in memory.
+	 * </p>
+	 * 
+	 * @param template the template path. Cannot be <code>null</code>.
+	 * @return the prepared template. Never <code>null</code>. Must not be
+	 *         modified.
+	 * @throws DocWriterException    if the template cannot be read or prepared.
+	 * @throws IllegalStateException if the registry has been closed.
+	 */
+	public byte[] get(Path template) throws DocWriterException {
+		final Path key = requireNonNull(template).toAbsolutePath().normalize();
+
+		final byte[] cached = templates.get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		// Only requests for the same template wait for each other.
+		synchronized (loadLocks.computeIfAbsent(key, path -> new Object())) {
+			final byte[] loaded = templates.get(key);
+			if (loaded != null) {
+				return loaded;
+			}
+
+			// Watched before reading, and changes while reading are reloaded - see
+			// processEvents. So no modification gets lost.
+			loading.add(key);
+			try {
+				watch(key.getParent());
+				final byte[] prepared = prepare(key);
+				templates.put(key, prepared);
+				return prepared;
+			} finally {
+				loading.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Reads and prepares the template at the given path.
+	 * <p>
+	 * Called on the first request for a template and in the background whenever
+	 * its file has changed. The default implementation just reads the file.
+	 * Subclasses can override this to parse or normalize the template once - so
+	 * that each render starts from the result.
+	 * </p>
+	 * 
+	 * @param template the absolute template path. Never <code>null</code>.
+	 * @return the prepared template. Never <code>null</code>.
+	 * @throws DocWriterException if the template cannot be read or prepared.
+	 */
+	protected byte[] prepare(Path template) throws DocWriterException {
+		try {
+			return Files.readAllBytes(template);
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot read template " + template, e);
+		}
+	}
+
+	/**
+	 * Called on the background thread if a changed template cannot be prepared -
+	 * e.g. because its file is still being written.
+	 * <p>
+	 * The previous version is kept. The template is prepared again with the next
+	 * change of its file. The default implementation does nothing.
+	 * </p>
+	 * 
+	 * @param template the absolute template path.
+	 * @param e        the exception thrown by {@link #prepare(Path)}.
+	 */
+	protected void reloadFailed(Path template, DocWriterException e) {
+		// The previous version is kept.
+	}
+
+	/**
+	 * Stops watching and reloading. Further calls to {@link #get(Path)} throw an
+	 * {@link IllegalStateException}.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (reloader != null) {
+			reloader.shutdownNow();
+		}
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				// Nothing left to do - the watcher stops either way.
+			}
+		}
+		templates.clear();
+	}
+
+	private synchronized void watch(Path directory) throws DocWriterException {
+		if (closed) {
+			throw new IllegalStateException("Registry has been closed");
+		}
+		if (watchedDirectories.contains(directory)) {
+			return;
+		}
+		try {
+			if (watchService == null) {
+				watchService = FileSystems.getDefault().newWatchService();
+				reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "docwriter-template-reload");
+					thread.setDaemon(true);
+					return thread;
+				});
+
+				final WatchService service = watchService;
+				final Thread watcher = new Thread(() -> processEvents(service), "docwriter-template-watch");
+				watcher.setDaemon(true);
+				watcher.start();
+			}
+			directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+			watchedDirectories.add(directory);
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot watch " + directory, e);
+		}
+	}
+
+	private void processEvents(WatchService service) {
+		while (!closed) {
+			final WatchKey key;
+			try {
+				key = service.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+
+			final Path directory = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW) {
+					// Events were lost - reload everything in the directory.
+					templates.keySet().stream().filter(path -> directory.equals(path.getParent()))
+							.forEach(this::scheduleReload);
+				} else {
+					final Path path = directory.resolve((Path) event.context());
+					if (templates.containsKey(path) || loading.contains(path)) {
+						scheduleReload(path);
+					}
+				}
+			}
+			key.reset();
+		}
+	}
+
+	private void scheduleReload(Path template) {
+		// A save usually fires several events. They're merged into one reload.
+		pendingReloads.compute(template, (path, pending) -> {
+			if (pending != null) {
+				pending.cancel(false);
+			}
+			try {
+				return reloader.schedule(() -> reload(path), RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// The registry has been closed.
+				return null;
+			}
+		});
+	}
+
+	private void reload(Path template) {
+		if (closed) {
+			return;
+		}
+		if (loading.contains(template)) {
+			// Changed while being read for the first time - reloaded once that's done.
+			scheduleReload(template);
+			return;
+		}
+		if (!templates.containsKey(template)) {
+			return;
+		}
+		if (!Files.exists(template)) {
+			// Requesting the template again fails - as it would without registry.
+			templates.remove(template);
+			return;
+		}
+		try {
+			final byte[] prepared = prepare(template);
+			templates.replace(template, prepared);
+		} catch (DocWriterException e) {
+			reloadFailed(template, e);
+		}
+	}
+
+}
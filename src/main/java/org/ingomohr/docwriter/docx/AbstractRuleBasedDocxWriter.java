@@ -2,22 +2,39 @@ package org.ingomohr.docwriter.docx;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.docx4j.TraversalUtil;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.Document;
 import org.ingomohr.docwriter.AbstractDocWriter;
 import org.ingomohr.docwriter.DocWriter;
 import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.cache.RenderCache;
 import org.ingomohr.docwriter.docx.rules.DocumentRule;
+import org.ingomohr.docwriter.docx.rules.TableRule;
+import org.ingomohr.docwriter.docx.rules.TextRule;
+import org.ingomohr.docwriter.docx.stream.StreamingRuleEngine;
+import org.ingomohr.docwriter.docx.stream.TableStreamingSaver;
+import org.ingomohr.docwriter.docx.util.ContentHash;
+import org.ingomohr.docwriter.docx.util.DeterministicZip;
 import org.ingomohr.docwriter.docx.util.DocxDataInspector;
-
-import com.vladsch.flexmark.docx.converter.DocxRenderer;
+import org.ingomohr.docwriter.jfr.RulePhaseEvent;
+import org.ingomohr.docwriter.jfr.SaveEvent;
+import org.ingomohr.docwriter.jfr.TemplateLoadEvent;
+import org.ingomohr.docwriter.metrics.CountingInputStream;
+import org.ingomohr.docwriter.metrics.CountingOutputStream;
+import org.ingomohr.docwriter.metrics.DocWriterMetrics;
+import org.ingomohr.docwriter.metrics.WritePhase;
 
 /**
  * Rule-based {@link DocWriter} for DOCX files.
@@ -33,6 +50,10 @@ public abstract class AbstractRuleBasedDocxWriter extends AbstractDocWriter {
 
 	private List<DocumentRule> rules = new ArrayList<DocumentRule>();
 
+	private boolean deterministic;
+
+	private RenderCache renderCache;
+
 	public AbstractRuleBasedDocxWriter() {
 
 		if (isInitializingAutomatically()) {
@@ -66,52 +87,241 @@ public abstract class AbstractRuleBasedDocxWriter extends AbstractDocWriter {
 	 */
 	protected abstract List<DocumentRule> initRules();
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Records the duration of each phase, the bytes read and written and the
+	 * written document to the {@link #getMetrics() metrics}. Emits a
+	 * {@link TemplateLoadEvent} and a {@link SaveEvent}.
+	 * </p>
+	 * <p>
+	 * If a {@link #getRenderCache() render cache} is set and all rules provide a
+	 * {@link DocumentRule#getCacheKey() cache key}, a document that was written
+	 * before from the same input with the same rules is copied from the cache
+	 * instead of being rendered again. Only the bytes read and written and the
+	 * document are recorded then.
+	 * </p>
+	 * <p>
+	 * All rules are notified via {@link DocumentRule#beginWrite()} and
+	 * {@link DocumentRule#endWrite()}, so that each value they insert is resolved
+	 * once per write.
+	 * </p>
+	 */
 	@Override
 	public void write(InputStream input, OutputStream target) throws DocWriterException {
+		requireNonNull(target);
+		final List<DocumentRule> writeRules = new ArrayList<>(getRules());
+		try {
+			writeRules.forEach(DocumentRule::beginWrite);
+			writeOrCopy(input, target);
+		} finally {
+			writeRules.forEach(DocumentRule::endWrite);
+		}
+	}
 
-		WordprocessingMLPackage doc = loadDocumentFromInput(input);
+	private void writeOrCopy(InputStream input, OutputStream target) throws DocWriterException {
+		final RenderCache cache = getRenderCache();
+		if (cache == null) {
+			render(input, target);
+			return;
+		}
+
+		final byte[] template = input != null ? readInput(input) : null;
+		final String key = computeRenderKey(template);
+		if (key == null) {
+			render(template != null ? new ByteArrayInputStream(template) : null, target);
+			return;
+		}
+
+		byte[] document = cache.get(key);
+		if (document == null) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			render(template != null ? new ByteArrayInputStream(template) : null, out);
+			document = out.toByteArray();
+			cache.put(key, document);
+		} else {
+			final DocWriterMetrics metrics = getMetrics();
+			if (template != null) {
+				metrics.recordBytesRead(template.length);
+			}
+			metrics.recordBytesWritten(document.length);
+			metrics.recordDocument();
+		}
+
+		try {
+			target.write(document);
+		} catch (IOException e) {
+			throw new DocWriterException("Error writing target", e);
+		}
+	}
+
+	private void render(InputStream input, OutputStream target) throws DocWriterException {
+		final DocWriterMetrics metrics = getMetrics();
+		final CountingInputStream countingInput = input != null ? new CountingInputStream(input) : null;
+		final CountingOutputStream countingTarget = new CountingOutputStream(requireNonNull(target));
+
+		final TemplateLoadEvent loadEvent = new TemplateLoadEvent();
+		loadEvent.begin();
+		final long start = System.nanoTime();
+		WordprocessingMLPackage doc = loadDocumentFromInput(countingInput);
 
 		if (doc == null) {
 			doc = createDefaultDocument();
 		}
+		final long loaded = System.nanoTime();
+		loadEvent.end();
+		if (loadEvent.shouldCommit()) {
+			loadEvent.setBytes(countingInput != null ? countingInput.getCount() : 0);
+			loadEvent.setElements(new DocxDataInspector().getContents(doc).size());
+			loadEvent.commit();
+		}
+		metrics.recordPhase(WritePhase.LOAD, loaded - start);
 
 		modifyDoc(doc);
+		final long modified = System.nanoTime();
+		metrics.recordPhase(WritePhase.MODIFY, modified - loaded);
 
-		save(doc, target);
+		final SaveEvent saveEvent = new SaveEvent();
+		saveEvent.begin();
+		save(doc, countingTarget);
+		metrics.recordPhase(WritePhase.SAVE, System.nanoTime() - modified);
+		saveEvent.end();
+		if (saveEvent.shouldCommit()) {
+			saveEvent.setBytes(countingTarget.getCount());
+			saveEvent.setElements(new DocxDataInspector().getContents(doc).size());
+			saveEvent.commit();
+		}
+
+		if (countingInput != null) {
+			metrics.recordBytesRead(countingInput.getCount());
+		}
+		metrics.recordBytesWritten(countingTarget.getCount());
+		metrics.recordDocument();
+	}
+
+	/**
+	 * Writes a document by streaming it through the rules - without loading it
+	 * into an object model.
+	 * <p>
+	 * Use this for documents too large to load comfortably. Only
+	 * {@link TextRule}s can be applied this way.
+	 * {@link #modifyDoc(WordprocessingMLPackage)} is not called.
+	 * </p>
+	 * 
+	 * @param input  the input to read from. Cannot be <code>null</code>.
+	 * @param target the target to write to. Cannot be <code>null</code>.
+	 * @throws DocWriterException       if there's a problem writing the document.
+	 * @throws IllegalArgumentException if any of the rules is no {@link TextRule}.
+	 * @see StreamingRuleEngine
+	 * @since 6.1
+	 */
+	public void writeStreaming(InputStream input, OutputStream target) throws DocWriterException {
+		final List<DocumentRule> writeRules = new ArrayList<>(getRules());
+		try {
+			writeRules.forEach(DocumentRule::beginWrite);
+			createStreamingRuleEngine().apply(input, target);
+		} finally {
+			writeRules.forEach(DocumentRule::endWrite);
+		}
+	}
+
+	/**
+	 * Creates the engine used by {@link #writeStreaming(InputStream, OutputStream)}.
+	 * 
+	 * @return new engine for the rules of this writer. Never <code>null</code>.
+	 * @throws IllegalArgumentException if any of the rules is no {@link TextRule}.
+	 * @since 6.1
+	 */
+	protected StreamingRuleEngine createStreamingRuleEngine() {
+		return new StreamingRuleEngine(getRules());
 	}
 
 	/**
 	 * Creates the default document to be used to write to.
 	 * <p>
 	 * The default implementation of the writer calls this method if no input
-	 * document was passed to the writer.
+	 * document was passed to the writer. It returns a copy of the
+	 * {@link DefaultTemplate}.
 	 * </p>
 	 * 
 	 * @return new default document to write to.
 	 */
 	protected WordprocessingMLPackage createDefaultDocument() {
-		return DocxRenderer.getDefaultTemplate();
+		return DefaultTemplate.createDocument();
 	}
 
 	/**
 	 * Modifies the given document by filing through all elements in the doc and
 	 * applying all matching rules that have been specified for this writer.
+	 * <p>
+	 * The rules are matched against the document, its main document part and all
+	 * elements below that part. The number of these elements is recorded in the
+	 * {@link #getMetrics() metrics} and in the {@link RulePhaseEvent} of the
+	 * elements phase.
+	 * </p>
 	 * 
 	 * @param doc the document to modify.
 	 */
 	protected void modifyDoc(WordprocessingMLPackage doc) {
 
+		final RulePhaseEvent documentEvent = new RulePhaseEvent();
+		documentEvent.begin();
 		applyAllMatchingRulesToElement(doc);
+		commitRulePhaseEvent(documentEvent, RulePhaseEvent.PHASE_DOCUMENT, 1);
 
+		final RulePhaseEvent partEvent = new RulePhaseEvent();
+		partEvent.begin();
 		final MainDocumentPart part = doc.getMainDocumentPart();
 		applyAllMatchingRulesToElement(part);
+		commitRulePhaseEvent(partEvent, RulePhaseEvent.PHASE_PART, 1);
 
-		final DocxDataInspector inspector = new DocxDataInspector();
-		final List<Object> docElements = inspector.getAllElements(part, Object.class);
+		final RulePhaseEvent elementsEvent = new RulePhaseEvent();
+		elementsEvent.begin();
+		final List<Object> docElements = getAllElementsBelow(part);
 
 		docElements.stream().forEach(elmt -> {
 			applyAllMatchingRulesToElement(elmt);
 		});
+		final int elementCount = docElements.size();
+		commitRulePhaseEvent(elementsEvent, RulePhaseEvent.PHASE_ELEMENTS, elementCount);
+
+		getMetrics().recordElements(elementCount);
+	}
+
+	/**
+	 * Returns all elements in the subtree of the given part - i.e. the document,
+	 * the body, all blocks, runs, texts etc. - but not the part itself.
+	 * <p>
+	 * {@link DocxDataInspector#getAllElements(Object, Class)} can't be used here:
+	 * it matches elements by their exact class, so <code>Object.class</code> only
+	 * finds the part itself.
+	 * </p>
+	 */
+	private static List<Object> getAllElementsBelow(MainDocumentPart part) {
+		final List<Object> elements = new ArrayList<>();
+		final Document document = part.getJaxbElement();
+		elements.add(document);
+		if (document.getBody() != null) {
+			elements.add(document.getBody());
+		}
+		TraversalUtil.visit(part, new TraversalUtil.CallbackImpl() {
+			@Override
+			public List<Object> apply(Object o) {
+				elements.add(o);
+				return null;
+			}
+		});
+		return elements;
+	}
+
+	private void commitRulePhaseEvent(RulePhaseEvent event, String phase, int elements) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.setPhase(phase);
+			event.setRules(getRules().size());
+			event.setElements(elements);
+			event.commit();
+		}
 	}
 
 	/**
@@ -164,12 +374,44 @@ public abstract class AbstractRuleBasedDocxWriter extends AbstractDocWriter {
 
 	/**
 	 * Writes the given document to the given target.
+	 * <p>
+	 * If any of the rules is a {@link TableRule} that streams its rows, the
+	 * document is saved with a {@link TableStreamingSaver}.
+	 * </p>
+	 * <p>
+	 * If the writer is {@link #isDeterministic() deterministic} or has a
+	 * {@link #getRenderCache() render cache}, the saved document is rewritten by
+	 * {@link DeterministicZip}.
+	 * </p>
 	 * 
 	 * @param doc    the document to write.
 	 * @param target the target to write to.
 	 * @throws DocWriterException if writing fails.
 	 */
 	protected void save(WordprocessingMLPackage doc, OutputStream target) throws DocWriterException {
+		requireNonNull(target);
+		if (!isDeterministic() && getRenderCache() == null) {
+			saveDocument(doc, target);
+			return;
+		}
+
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		saveDocument(doc, buffer);
+		try {
+			DeterministicZip.rewrite(buffer.toByteArray(), target);
+		} catch (IOException e) {
+			throw new DocWriterException("Error writing target", e);
+		}
+	}
+
+	private void saveDocument(WordprocessingMLPackage doc, OutputStream target) throws DocWriterException {
+		final List<TableRule> streamingTables = getRules().stream().filter(TableRule.class::isInstance)
+				.map(TableRule.class::cast).filter(TableRule::isStreamingRows).collect(Collectors.toList());
+		if (!streamingTables.isEmpty()) {
+			new TableStreamingSaver(streamingTables).save(doc, requireNonNull(target));
+			return;
+		}
+
 		try {
 			doc.save(requireNonNull(target));
 		} catch (Docx4JException e) {
@@ -177,6 +419,91 @@ public abstract class AbstractRuleBasedDocxWriter extends AbstractDocWriter {
 		}
 	}
 
+	/**
+	 * Computes the key to look up the document for the given input in the
+	 * {@link #getRenderCache() render cache}.
+	 * <p>
+	 * The default implementation hashes the class of the writer, the input and the
+	 * class and {@link DocumentRule#getCacheKey() cache key} of every rule.
+	 * Subclasses whose rendering depends on further state - e.g. a
+	 * {@link #createDefaultDocument() default document} chosen at runtime - must
+	 * override this method accordingly.
+	 * </p>
+	 * 
+	 * @param template the input. <code>null</code> if there is none.
+	 * @return key. <code>null</code> if the document must not be cached - e.g.
+	 *         because a rule has no cache key.
+	 * @since 6.1
+	 */
+	protected String computeRenderKey(byte[] template) {
+		final StringBuilder key = new StringBuilder(getClass().getName()).append('\n');
+		key.append(template != null ? ContentHash.of(template) : "-").append('\n');
+		for (DocumentRule rule : getRules()) {
+			final String ruleKey = rule.getCacheKey();
+			if (ruleKey == null) {
+				return null;
+			}
+			key.append(rule.getClass().getName()).append(' ').append(ContentHash.of(ruleKey)).append('\n');
+		}
+		return ContentHash.of(key.toString());
+	}
+
+	private static byte[] readInput(InputStream input) throws DocWriterException {
+		try {
+			return input.readAllBytes();
+		} catch (IOException e) {
+			throw new DocWriterException("Error reading input", e);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if documents are saved so that equal content gives
+	 * equal bytes - see {@link DeterministicZip}.
+	 * <p>
+	 * Default is <code>false</code>. Documents are always saved deterministically
+	 * if a {@link #getRenderCache() render cache} is set.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if saving deterministically.
+	 * @since 6.1
+	 */
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+
+	/**
+	 * Sets whether documents are saved so that equal content gives equal bytes.
+	 * 
+	 * @param deterministic <code>true</code> to save deterministically.
+	 * @since 6.1
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
+	}
+
+	/**
+	 * Returns the cache of rendered documents.
+	 * 
+	 * @return render cache. <code>null</code> if documents aren't cached.
+	 * @since 6.1
+	 */
+	public RenderCache getRenderCache() {
+		return renderCache;
+	}
+
+	/**
+	 * Sets the cache of rendered documents.
+	 * <p>
+	 * The cache can be shared by several writers.
+	 * </p>
+	 * 
+	 * @param renderCache the cache. <code>null</code> to not cache documents.
+	 * @since 6.1
+	 */
+	public void setRenderCache(RenderCache renderCache) {
+		this.renderCache = renderCache;
+	}
+
 	/**
 	 * Returns the rules to be applied to the document.
 	 * 
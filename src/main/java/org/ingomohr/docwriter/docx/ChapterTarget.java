@@ -0,0 +1,29 @@
+package org.ingomohr.docwriter.docx;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Provides the output to write a chapter of a split document to.
+ * 
+ * @see DocumentSplitter
+ * @since 6.1
+ */
+@FunctionalInterface
+public interface ChapterTarget {
+
+	/**
+	 * Opens the output for the given chapter. The stream is closed by the caller.
+	 * <p>
+	 * Implementations are called by several threads at the same time.
+	 * </p>
+	 * 
+	 * @param index the (0-based) position of the chapter in the document.
+	 * @param title the text of the chapter's heading. <code>null</code> for the
+	 *              content before the first heading.
+	 * @return output to write the chapter to. Cannot be <code>null</code>.
+	 * @throws IOException if the output cannot be opened.
+	 */
+	OutputStream open(int index, String title) throws IOException;
+
+}
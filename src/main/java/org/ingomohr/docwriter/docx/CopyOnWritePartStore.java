@@ -0,0 +1,157 @@
+package org.ingomohr.docwriter.docx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.docx4j.openpackaging.contenttype.ContentTypeManager;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.io3.stores.ZipPartStore;
+import org.docx4j.openpackaging.parts.CustomXmlDataStoragePart;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.XmlPart;
+
+/**
+ * Source part store of one document loaded from a shared, read-only part store.
+ * <p>
+ * docx4j only unmarshals a part when it's accessed. Parts that aren't accessed
+ * - e.g. the styles of a document that's only filled with content - are read
+ * from the shared store when the document is saved and are never copied.
+ * Renaming a part only changes this store - never the shared one. Saving the
+ * document writes to a new zip stream.
+ * </p>
+ * <p>
+ * This is no <code>ZipPartStore</code> on purpose: docx4j writes the results of
+ * some operations back into the source store if it is one.
+ * </p>
+ * <p>
+ * Usage: <code>new Load3(new CopyOnWritePartStore(shared)).get()</code> - with
+ * one new store per document.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class CopyOnWritePartStore implements PartStore {
+
+	private final PartStore shared;
+
+	private final Map<String, String> renamed = new HashMap<>();
+
+	private final Set<String> removed = new HashSet<>();
+
+	private ZipPartStore target;
+
+	/**
+	 * Creates a new store.
+	 * 
+	 * @param shared the shared store to read from. Must not be written to by
+	 *               anyone. Cannot be <code>null</code>.
+	 */
+	public CopyOnWritePartStore(PartStore shared) {
+		this.shared = requireNonNull(shared);
+	}
+
+	@Override
+	public InputStream loadPart(String partName) throws Docx4JException {
+		return shared.loadPart(resolve(partName));
+	}
+
+	@Override
+	public long getPartSize(String partName) throws Docx4JException {
+		return shared.getPartSize(resolve(partName));
+	}
+
+	@Override
+	public void rename(PartName oldName, PartName newName) {
+		final String oldKey = toKey(oldName);
+		final String newKey = toKey(newName);
+		renamed.put(newKey, renamed.getOrDefault(oldKey, oldKey));
+		renamed.remove(oldKey);
+		removed.add(oldKey);
+		removed.remove(newKey);
+	}
+
+	@Override
+	public void setSourcePartStore(PartStore partStore) {
+		// docx4j saves to the source store of a document, passing that store
+		// itself as source. The parts are always read from this store.
+	}
+
+	@Override
+	public void setOutputStream(OutputStream outputStream) throws Docx4JException {
+		target = new ZipPartStore();
+		target.setSourcePartStore(this);
+		target.setOutputStream(outputStream);
+	}
+
+	@Override
+	public void saveContentTypes(ContentTypeManager contentTypeManager) throws Docx4JException {
+		getTarget().saveContentTypes(contentTypeManager);
+	}
+
+	@Override
+	public void saveJaxbXmlPart(@SuppressWarnings("rawtypes") JaxbXmlPart part) throws Docx4JException {
+		getTarget().saveJaxbXmlPart(part);
+	}
+
+	@Override
+	public void saveCustomXmlDataStoragePart(CustomXmlDataStoragePart part) throws Docx4JException {
+		getTarget().saveCustomXmlDataStoragePart(part);
+	}
+
+	@Override
+	public void saveXmlPart(XmlPart part) throws Docx4JException {
+		getTarget().saveXmlPart(part);
+	}
+
+	@Override
+	public void saveBinaryPart(Part part) throws Docx4JException {
+		getTarget().saveBinaryPart(part);
+	}
+
+	@Override
+	public void finishSave() throws Docx4JException {
+		try {
+			getTarget().finishSave();
+		} finally {
+			target = null;
+		}
+	}
+
+	@Override
+	public void dispose() {
+		// The shared store outlives the documents loaded from it.
+	}
+
+	private ZipPartStore getTarget() {
+		if (target == null) {
+			throw new IllegalStateException("No save in progress");
+		}
+		return target;
+	}
+
+	private String resolve(String partName) throws Docx4JException {
+		final String source = renamed.get(partName);
+		if (source != null) {
+			return source;
+		}
+		if (removed.contains(partName)) {
+			throw new Docx4JException("Part was renamed: " + partName);
+		}
+		return partName;
+	}
+
+	private static String toKey(PartName partName) {
+		// Part stores address parts without the leading slash.
+		return partName.getName().substring(1);
+	}
+
+}
@@ -0,0 +1,69 @@
+package org.ingomohr.docwriter.docx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Load3;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.io3.stores.ZipPartStore;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+
+import com.vladsch.flexmark.docx.converter.DocxRenderer;
+
+/**
+ * Provides cheap copies of the default template of the markdown renderer (see
+ * {@link DocxRenderer#getDefaultTemplate()}).
+ * <p>
+ * The template is loaded from the classpath and unzipped only once. Each copy
+ * is loaded from the unzipped parts in memory. Its parts are unmarshalled when
+ * they're first accessed. Parts that are never accessed - typically the styles
+ * and settings - are saved from the shared bytes without being parsed.
+ * Modifying a copy never affects the template or other copies.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public final class DefaultTemplate {
+
+	private DefaultTemplate() {
+	}
+
+	/**
+	 * Creates a new copy of the default template.
+	 * <p>
+	 * Can be called concurrently.
+	 * </p>
+	 * 
+	 * @return new document. Never <code>null</code>.
+	 * @throws IllegalStateException if the template cannot be loaded.
+	 */
+	public static WordprocessingMLPackage createDocument() {
+		try {
+			return (WordprocessingMLPackage) new Load3(new CopyOnWritePartStore(SharedHolder.PARTS)).get();
+		} catch (Docx4JException e) {
+			throw new IllegalStateException("Cannot load the default template", e);
+		}
+	}
+
+	private static class SharedHolder {
+
+		static final PartStore PARTS = loadParts();
+
+		private static PartStore loadParts() {
+			final WordprocessingMLPackage template = DocxRenderer.getDefaultTemplate();
+			if (template == null) {
+				throw new IllegalStateException("Cannot load the default template");
+			}
+			try {
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				template.save(bytes);
+				return new ZipPartStore(new ByteArrayInputStream(bytes.toByteArray()));
+			} catch (Docx4JException e) {
+				throw new IllegalStateException("Cannot load the default template", e);
+			}
+		}
+
+	}
+
+}
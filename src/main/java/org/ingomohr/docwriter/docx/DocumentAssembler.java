@@ -0,0 +1,699 @@
+package org.ingomohr.docwriter.docx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.contenttype.ContentType;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.NumberingDefinitionsPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.StyleDefinitionsPart;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart.AddPartBehaviour;
+import org.docx4j.relationships.Relationship;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.Numbering;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.SectPr;
+import org.docx4j.wml.Style;
+import org.docx4j.wml.Styles;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.util.ContentHash;
+
+/**
+ * Assembles one document from many separately created documents (fragments).
+ * <p>
+ * The body of each appended fragment is added to the body of a base document.
+ * Fragments are processed one by one and can be dropped right after appending:
+ * their body content is written to a temporary file at once, and so are the
+ * images they use. Memory use is therefore bounded by the largest fragment
+ * rather than by the size of the assembled document.
+ * </p>
+ * <p>
+ * While appending, the following definitions of a fragment are merged into the
+ * base document:
+ * </p>
+ * <ul>
+ * <li>Styles - a style equal to an existing one is reused. A style whose ID is
+ * already taken by a different style is added with a new ID. Styles are
+ * compared with their references to other styles and to numbering already
+ * rewritten - so a style based on a renamed style is renamed as well.</li>
+ * <li>Numbering - equal abstract numbering definitions are reused. Each
+ * numbering instance of a fragment is added with a new ID, so that lists of
+ * different fragments are numbered separately.</li>
+ * <li>Images - equal images (by content hash) are stored once.</li>
+ * <li>Hyperlinks and other external relationships.</li>
+ * </ul>
+ * <p>
+ * All references to these definitions (style, numbering and relationship IDs)
+ * as well as bookmark IDs are rewritten in a single pass over the fragment's
+ * body XML.
+ * </p>
+ * <p>
+ * The section properties (page layout, headers and footers) of the base
+ * document are used for the whole document; those of the fragments are
+ * dropped. Fragments must not refer to other parts - e.g. comments, footnotes
+ * or charts. Appending a fragment with such references fails.
+ * </p>
+ * <p>
+ * The assembled document is written when the assembler is finished or closed.
+ * Assemblers are not thread-safe.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class DocumentAssembler implements Closeable {
+
+	private static final String MAIN_PART = "word/document.xml";
+
+	private static final String EXTERNAL = "External";
+
+	/**
+	 * The references in body XML that are rewritten: header and footer references
+	 * (removed), relationship IDs, style IDs, numbering IDs and bookmark IDs - and
+	 * the references to footnotes, endnotes and comments (rejected).
+	 */
+	private static final Pattern REFERENCES = Pattern.compile("<w:(?:headerReference|footerReference)\\b[^>]*/>"
+			+ "|\\b(r:(?:id|embed|link|pict))=\"([^\"]*)\"" + "|(<w:(?:pStyle|rStyle|tblStyle) w:val=)\"([^\"]*)\""
+			+ "|(<w:numId w:val=)\"(\\d+)\"" + "|(<w:bookmark(?:Start|End)\\b[^>]*? w:id=)\"(\\d+)\""
+			+ "|(<w:(?:footnoteReference|endnoteReference|commentReference)\\b[^>]*>)");
+
+	private static final Pattern BOOKMARK_ID = Pattern.compile("<w:bookmark(?:Start|End)\\b[^>]*? w:id=\"(\\d+)\"");
+
+	private static final Pattern NAMESPACES = Pattern.compile("\\s+xmlns:\\w+=\"[^\"]*\"");
+
+	private final WordprocessingMLPackage base;
+
+	private final OutputStream target;
+
+	private final String bodyMarker = "docwriter-assembly-" + UUID.randomUUID();
+
+	private final Path tempDirectory;
+
+	private final Writer body;
+
+	private final Map<String, String> styleIdsByHash = new HashMap<>();
+
+	private final Set<String> styleIds = new HashSet<>();
+
+	private final Map<String, BigInteger> abstractNumIdsByHash = new HashMap<>();
+
+	private BigInteger nextAbstractNumId = BigInteger.ZERO;
+
+	private BigInteger nextNumId = BigInteger.ONE;
+
+	private final Map<String, String> mediaRelationshipIdsByHash = new HashMap<>();
+
+	private final Map<String, Path> mediaFiles = new HashMap<>();
+
+	private final Map<String, String> externalRelationshipIds = new HashMap<>();
+
+	private long bookmarkOffset;
+
+	private int fragmentCount;
+
+	private boolean finished;
+
+	/**
+	 * Creates a new assembler with the default template as base document.
+	 * 
+	 * @param target the target to write the assembled document to. Cannot be
+	 *               <code>null</code>. Is not closed.
+	 * @throws DocWriterException if the temporary files cannot be created.
+	 */
+	public DocumentAssembler(OutputStream target) throws DocWriterException {
+		this(DefaultTemplate.createDocument(), target);
+	}
+
+	/**
+	 * Creates a new assembler.
+	 * <p>
+	 * The body content of the base document comes first in the assembled document.
+	 * The base document is modified while assembling and must not be used
+	 * otherwise.
+	 * </p>
+	 * 
+	 * @param base   the base document. Cannot be <code>null</code>.
+	 * @param target the target to write the assembled document to. Cannot be
+	 *               <code>null</code>. Is not closed.
+	 * @throws DocWriterException if the temporary files cannot be created.
+	 */
+	public DocumentAssembler(WordprocessingMLPackage base, OutputStream target) throws DocWriterException {
+		this.base = requireNonNull(base);
+		this.target = requireNonNull(target);
+
+		try {
+			tempDirectory = Files.createTempDirectory("docwriter-assembly");
+			body = Files.newBufferedWriter(tempDirectory.resolve("body.xml"), StandardCharsets.UTF_8);
+
+			final String baseBody = extractBody(base);
+			body.write(baseBody);
+			bookmarkOffset = getMaxBookmarkId(baseBody) + 1;
+		} catch (IOException e) {
+			throw new DocWriterException("Error creating temporary files", e);
+		}
+
+		final List<Object> contents = base.getMainDocumentPart().getContent();
+		contents.clear();
+		contents.add(createMarkerParagraph());
+
+		initStyles();
+		initNumbering();
+	}
+
+	/**
+	 * Loads the fragment at the given path and appends it.
+	 * 
+	 * @param fragment the fragment to append. Cannot be <code>null</code>.
+	 * @throws DocWriterException if loading or appending fails.
+	 * @see #append(WordprocessingMLPackage)
+	 */
+	public void append(Path fragment) throws DocWriterException {
+		requireNonNull(fragment);
+		try {
+			append(WordprocessingMLPackage.load(fragment.toFile()));
+		} catch (Docx4JException e) {
+			throw new DocWriterException("Error reading fragment " + fragment, e);
+		}
+	}
+
+	/**
+	 * Loads the fragment from the given stream and appends it.
+	 * 
+	 * @param fragment the fragment to append. Cannot be <code>null</code>. Is not
+	 *                 closed.
+	 * @throws DocWriterException if loading or appending fails.
+	 * @see #append(WordprocessingMLPackage)
+	 */
+	public void append(InputStream fragment) throws DocWriterException {
+		requireNonNull(fragment);
+		try {
+			append(WordprocessingMLPackage.load(fragment));
+		} catch (Docx4JException e) {
+			throw new DocWriterException("Error reading fragment", e);
+		}
+	}
+
+	/**
+	 * Appends the body content of the given fragment.
+	 * <p>
+	 * The fragment itself is not modified and not referenced after this method
+	 * returns.
+	 * </p>
+	 * 
+	 * @param fragment the fragment to append. Cannot be <code>null</code>.
+	 * @throws DocWriterException    if the fragment refers to unsupported parts or
+	 *                               writing the temporary files fails.
+	 * @throws IllegalStateException if the assembler is already finished.
+	 */
+	public void append(WordprocessingMLPackage fragment) throws DocWriterException {
+		requireNonNull(fragment);
+		if (finished) {
+			throw new IllegalStateException("Assembler is already finished");
+		}
+
+		final MainDocumentPart part = fragment.getMainDocumentPart();
+		final Map<String, String> numIds = mergeNumbering(part.getNumberingDefinitionsPart());
+		final Map<String, String> fragmentStyleIds = mergeStyles(part.getStyleDefinitionsPart(), numIds);
+		final Map<String, String> relationshipIds = mergeRelationships(part);
+
+		final String xml = rewriteReferences(extractBody(fragment), fragmentStyleIds, numIds, relationshipIds);
+		try {
+			body.write(xml);
+		} catch (IOException e) {
+			throw new DocWriterException("Error writing temporary files", e);
+		}
+		fragmentCount++;
+	}
+
+	/**
+	 * Writes the assembled document to the target.
+	 * <p>
+	 * Does nothing if the assembler is already finished.
+	 * </p>
+	 * 
+	 * @throws DocWriterException if writing fails.
+	 */
+	public void finish() throws DocWriterException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+
+		try {
+			body.close();
+
+			final Path saved = tempDirectory.resolve("base.docx");
+			base.save(saved.toFile());
+
+			try (ZipInputStream zipIn = new ZipInputStream(Files.newInputStream(saved))) {
+				final ZipOutputStream zipOut = new ZipOutputStream(target);
+				for (ZipEntry entry = zipIn.getNextEntry(); entry != null; entry = zipIn.getNextEntry()) {
+					zipOut.putNextEntry(new ZipEntry(entry.getName()));
+					if (MAIN_PART.equals(entry.getName())) {
+						writeMainPart(new String(zipIn.readAllBytes(), StandardCharsets.UTF_8), zipOut);
+					} else if (mediaFiles.containsKey(entry.getName())) {
+						Files.copy(mediaFiles.get(entry.getName()), zipOut);
+					} else {
+						zipIn.transferTo(zipOut);
+					}
+					zipOut.closeEntry();
+				}
+				zipOut.finish();
+			}
+		} catch (IOException | Docx4JException e) {
+			throw new DocWriterException("Error writing assembled document", e);
+		}
+	}
+
+	/**
+	 * Finishes the assembler (see {@link #finish()}) and deletes the temporary
+	 * files.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} catch (DocWriterException e) {
+			throw new IOException(e);
+		} finally {
+			deleteTempDirectory();
+		}
+	}
+
+	/**
+	 * Returns the number of fragments appended so far.
+	 * 
+	 * @return fragment count.
+	 */
+	public int getFragmentCount() {
+		return fragmentCount;
+	}
+
+	private void initStyles() {
+		for (Style style : getStyles().getStyle()) {
+			styleIdsByHash.put(ContentHash.of(toXml(style, "style")), style.getStyleId());
+			styleIds.add(style.getStyleId());
+		}
+	}
+
+	private void initNumbering() {
+		final NumberingDefinitionsPart part = base.getMainDocumentPart().getNumberingDefinitionsPart();
+		if (part == null) {
+			return;
+		}
+		for (Numbering.AbstractNum abstractNum : part.getJaxbElement().getAbstractNum()) {
+			nextAbstractNumId = nextAbstractNumId.max(abstractNum.getAbstractNumId().add(BigInteger.ONE));
+			abstractNumIdsByHash.put(hashAbstractNum(abstractNum), abstractNum.getAbstractNumId());
+		}
+		for (Numbering.Num num : part.getJaxbElement().getNum()) {
+			nextNumId = nextNumId.max(num.getNumId().add(BigInteger.ONE));
+		}
+	}
+
+	private Map<String, String> mergeNumbering(NumberingDefinitionsPart part) throws DocWriterException {
+		if (part == null) {
+			return Collections.emptyMap();
+		}
+		final Numbering numbering = getNumbering();
+
+		final Map<BigInteger, BigInteger> abstractNumIds = new HashMap<>();
+		for (Numbering.AbstractNum abstractNum : part.getJaxbElement().getAbstractNum()) {
+			final String hash = hashAbstractNum(abstractNum);
+			BigInteger id = abstractNumIdsByHash.get(hash);
+			if (id == null) {
+				id = nextAbstractNumId;
+				nextAbstractNumId = id.add(BigInteger.ONE);
+
+				final Numbering.AbstractNum copy = XmlUtils.deepCopy(abstractNum);
+				copy.setAbstractNumId(id);
+				numbering.getAbstractNum().add(copy);
+				abstractNumIdsByHash.put(hash, id);
+			}
+			abstractNumIds.put(abstractNum.getAbstractNumId(), id);
+		}
+
+		final Map<String, String> numIds = new HashMap<>();
+		for (Numbering.Num num : part.getJaxbElement().getNum()) {
+			final Numbering.Num copy = XmlUtils.deepCopy(num);
+			copy.setNumId(nextNumId);
+			nextNumId = nextNumId.add(BigInteger.ONE);
+			if (copy.getAbstractNumId() != null) {
+				final BigInteger abstractNumId = copy.getAbstractNumId().getVal();
+				copy.getAbstractNumId().setVal(abstractNumIds.getOrDefault(abstractNumId, abstractNumId));
+			}
+			numbering.getNum().add(copy);
+			numIds.put(num.getNumId().toString(), copy.getNumId().toString());
+		}
+		return numIds;
+	}
+
+	private static String hashAbstractNum(Numbering.AbstractNum abstractNum) {
+		// IDs and the random nsid/tmpl values don't make a definition different.
+		final Numbering.AbstractNum copy = XmlUtils.deepCopy(abstractNum);
+		copy.setAbstractNumId(null);
+		copy.setNsid(null);
+		copy.setTmpl(null);
+		return ContentHash.of(toXml(copy, "abstractNum"));
+	}
+
+	private Map<String, String> mergeStyles(StyleDefinitionsPart part, Map<String, String> numIds) {
+		if (part == null) {
+			return Collections.emptyMap();
+		}
+
+		final Map<String, String> ids = new HashMap<>();
+		final List<Style> added = new ArrayList<>();
+		final Set<String> addedIds = new HashSet<>();
+
+		// Styles are compared with rewritten references. Adding a style with a new ID
+		// changes the styles referring to it - so repeat until no more are added.
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Style style : part.getJaxbElement().getStyle()) {
+				final String styleId = style.getStyleId();
+				if (addedIds.contains(styleId)) {
+					continue;
+				}
+				final String existing = styleIdsByHash.get(hashStyle(style, ids, numIds));
+				final String previous = ids.get(styleId);
+				if (existing != null && (previous == null || previous.equals(existing))) {
+					ids.put(styleId, existing);
+				} else {
+					final String id = createStyleId(styleId);
+					styleIds.add(id);
+					ids.put(styleId, id);
+					addedIds.add(styleId);
+					added.add(style);
+					changed = true;
+				}
+			}
+		}
+
+		final Styles styles = getStyles();
+		for (Style style : added) {
+			final Style copy = rewriteReferences(style, ids, numIds);
+			styleIdsByHash.put(ContentHash.of(toXml(copy, "style")), ids.get(style.getStyleId()));
+			copy.setStyleId(ids.get(style.getStyleId()));
+			styles.getStyle().add(copy);
+		}
+		return ids;
+	}
+
+	private static String hashStyle(Style style, Map<String, String> ids, Map<String, String> numIds) {
+		return ContentHash.of(toXml(rewriteReferences(style, ids, numIds), "style"));
+	}
+
+	/**
+	 * Returns a copy of the given style with its references to other styles and to
+	 * numbering rewritten. The ID of the style itself is kept.
+	 */
+	private static Style rewriteReferences(Style style, Map<String, String> ids, Map<String, String> numIds) {
+		final Style copy = XmlUtils.deepCopy(style);
+		if (copy.getBasedOn() != null) {
+			copy.getBasedOn().setVal(ids.getOrDefault(copy.getBasedOn().getVal(), copy.getBasedOn().getVal()));
+		}
+		if (copy.getNext() != null) {
+			copy.getNext().setVal(ids.getOrDefault(copy.getNext().getVal(), copy.getNext().getVal()));
+		}
+		if (copy.getLink() != null) {
+			copy.getLink().setVal(ids.getOrDefault(copy.getLink().getVal(), copy.getLink().getVal()));
+		}
+		if (copy.getPPr() != null && copy.getPPr().getNumPr() != null && copy.getPPr().getNumPr().getNumId() != null) {
+			final BigInteger numId = copy.getPPr().getNumPr().getNumId().getVal();
+			final String mapped = numId != null ? numIds.get(numId.toString()) : null;
+			if (mapped != null) {
+				copy.getPPr().getNumPr().getNumId().setVal(new BigInteger(mapped));
+			}
+		}
+		return copy;
+	}
+
+	private String createStyleId(String id) {
+		if (!styleIds.contains(id)) {
+			return id;
+		}
+		for (int i = 2;; i++) {
+			final String candidate = id + "_" + i;
+			if (!styleIds.contains(candidate)) {
+				return candidate;
+			}
+		}
+	}
+
+	private Map<String, String> mergeRelationships(MainDocumentPart part) throws DocWriterException {
+		final RelationshipsPart relationships = part.getRelationshipsPart();
+		if (relationships == null) {
+			return Collections.emptyMap();
+		}
+
+		final Map<String, String> ids = new HashMap<>();
+		for (Relationship relationship : relationships.getRelationships().getRelationship()) {
+			if (EXTERNAL.equals(relationship.getTargetMode())) {
+				ids.put(relationship.getId(), addExternalRelationship(relationship));
+			} else if (Namespaces.IMAGE.equals(relationship.getType())) {
+				final Part target = relationships.getPart(relationship);
+				if (target instanceof BinaryPart) {
+					ids.put(relationship.getId(), addMedia((BinaryPart) target));
+				}
+			}
+		}
+		return ids;
+	}
+
+	private String addExternalRelationship(Relationship relationship) throws DocWriterException {
+		final String key = relationship.getType() + " " + relationship.getTarget();
+		String id = externalRelationshipIds.get(key);
+		if (id == null) {
+			final RelationshipsPart relationships = base.getMainDocumentPart().getRelationshipsPart();
+
+			final Relationship copy = new org.docx4j.relationships.ObjectFactory().createRelationship();
+			copy.setType(relationship.getType());
+			copy.setTarget(relationship.getTarget());
+			copy.setTargetMode(EXTERNAL);
+			id = relationships.getNextId();
+			copy.setId(id);
+			try {
+				relationships.addRelationship(copy);
+			} catch (Exception e) {
+				throw new DocWriterException("Cannot add relationship to " + relationship.getTarget(), e);
+			}
+			externalRelationshipIds.put(key, id);
+		}
+		return id;
+	}
+
+	private String addMedia(BinaryPart part) throws DocWriterException {
+		final byte[] bytes = part.getBytes();
+		final String hash = ContentHash.of(bytes);
+		final String existingId = mediaRelationshipIdsByHash.get(hash);
+		if (existingId != null) {
+			return existingId;
+		}
+
+		try {
+			// The part stays empty in the base document. Its content is copied from a
+			// temporary file when writing the assembled document.
+			final int number = mediaFiles.size() + 1;
+			final BinaryPart placeholder = new BinaryPart(
+					new PartName("/word/media/assembled" + number + "." + part.getPartName().getExtension()));
+			placeholder.setBinaryData(new byte[0]);
+			placeholder.setContentType(new ContentType(part.getContentType()));
+			placeholder.setRelationshipType(Namespaces.IMAGE);
+			final Relationship relationship = base.getMainDocumentPart().addTargetPart(placeholder,
+					AddPartBehaviour.RENAME_IF_NAME_EXISTS);
+
+			final Path file = tempDirectory.resolve("media" + number);
+			Files.write(file, bytes);
+			mediaFiles.put(placeholder.getPartName().getName().substring(1), file);
+			mediaRelationshipIdsByHash.put(hash, relationship.getId());
+			return relationship.getId();
+		} catch (IOException | Docx4JException e) {
+			throw new DocWriterException("Cannot add image " + part.getPartName(), e);
+		}
+	}
+
+	private String rewriteReferences(String xml, Map<String, String> fragmentStyleIds, Map<String, String> numIds,
+			Map<String, String> relationshipIds) throws DocWriterException {
+		final StringBuilder builder = new StringBuilder(xml.length());
+		long maxBookmarkId = -1;
+
+		final Matcher matcher = REFERENCES.matcher(xml);
+		int last = 0;
+		while (matcher.find()) {
+			builder.append(xml, last, matcher.start());
+			if (matcher.group(1) != null) {
+				final String id = relationshipIds.get(matcher.group(2));
+				if (id == null) {
+					throw new DocWriterException("Unsupported reference in fragment: " + matcher.group());
+				}
+				appendAttribute(builder, matcher.group(1) + "=", id);
+			} else if (matcher.group(3) != null) {
+				appendAttribute(builder, matcher.group(3), fragmentStyleIds.getOrDefault(matcher.group(4), matcher.group(4)));
+			} else if (matcher.group(5) != null) {
+				appendAttribute(builder, matcher.group(5), numIds.getOrDefault(matcher.group(6), matcher.group(6)));
+			} else if (matcher.group(7) != null) {
+				final long id = Long.parseLong(matcher.group(8));
+				maxBookmarkId = Math.max(maxBookmarkId, id);
+				appendAttribute(builder, matcher.group(7), String.valueOf(id + bookmarkOffset));
+			} else if (matcher.group(9) != null) {
+				throw new DocWriterException("Unsupported reference in fragment: " + matcher.group(9));
+			}
+			// Header and footer references are dropped.
+			last = matcher.end();
+		}
+		builder.append(xml, last, xml.length());
+
+		bookmarkOffset += maxBookmarkId + 1;
+		return builder.toString();
+	}
+
+	private static void appendAttribute(StringBuilder builder, String prefix, String value) {
+		builder.append(prefix).append('"').append(value).append('"');
+	}
+
+	private void writeMainPart(String xml, OutputStream out) throws IOException {
+		final int marker = xml.indexOf(bodyMarker);
+		final int start = Math.max(xml.lastIndexOf("<w:p>", marker), xml.lastIndexOf("<w:p ", marker));
+		final int end = xml.indexOf("</w:p>", marker);
+		if (marker == -1 || start == -1 || end == -1) {
+			throw new IllegalStateException("Body marker not found in main document part");
+		}
+
+		final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		writer.write(xml, 0, start);
+		try (Reader reader = Files.newBufferedReader(tempDirectory.resolve("body.xml"), StandardCharsets.UTF_8)) {
+			reader.transferTo(writer);
+		}
+		final int afterEnd = end + "</w:p>".length();
+		writer.write(xml, afterEnd, xml.length() - afterEnd);
+		writer.flush();
+	}
+
+	private P createMarkerParagraph() {
+		final Text text = Context.getWmlObjectFactory().createText();
+		text.setValue(bodyMarker);
+		final R run = Context.getWmlObjectFactory().createR();
+		run.getContent().add(text);
+		final P paragraph = Context.getWmlObjectFactory().createP();
+		paragraph.getContent().add(run);
+		return paragraph;
+	}
+
+	private Styles getStyles() {
+		final MainDocumentPart mainPart = base.getMainDocumentPart();
+		if (mainPart.getStyleDefinitionsPart() == null) {
+			try {
+				final StyleDefinitionsPart part = new StyleDefinitionsPart();
+				part.setJaxbElement(Context.getWmlObjectFactory().createStyles());
+				mainPart.addTargetPart(part);
+			} catch (Docx4JException e) {
+				throw new IllegalStateException("Cannot add styles to base document", e);
+			}
+		}
+		return mainPart.getStyleDefinitionsPart().getJaxbElement();
+	}
+
+	private Numbering getNumbering() throws DocWriterException {
+		final MainDocumentPart mainPart = base.getMainDocumentPart();
+		if (mainPart.getNumberingDefinitionsPart() == null) {
+			try {
+				final NumberingDefinitionsPart part = new NumberingDefinitionsPart();
+				part.setJaxbElement(Context.getWmlObjectFactory().createNumbering());
+				mainPart.addTargetPart(part);
+			} catch (Docx4JException e) {
+				throw new DocWriterException("Cannot add numbering to base document", e);
+			}
+		}
+		return mainPart.getNumberingDefinitionsPart().getJaxbElement();
+	}
+
+	private void deleteTempDirectory() throws IOException {
+		try (Stream<Path> paths = Files.walk(tempDirectory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	/**
+	 * Returns the XML of the body content of the given document - without section
+	 * properties.
+	 */
+	private static String extractBody(WordprocessingMLPackage doc) {
+		final Body body = doc.getMainDocumentPart().getJaxbElement().getBody();
+		final SectPr sectPr = body.getSectPr();
+
+		final String xml;
+		body.setSectPr(null);
+		try {
+			xml = XmlUtils.marshaltoString(doc.getMainDocumentPart().getJaxbElement(), true, false);
+		} finally {
+			body.setSectPr(sectPr);
+		}
+
+		final int start = xml.indexOf("<w:body");
+		final int startEnd = xml.indexOf('>', start);
+		final int end = xml.lastIndexOf("</w:body>");
+		if (start == -1 || end == -1) {
+			return "";
+		}
+		return xml.substring(startEnd + 1, end);
+	}
+
+	private static long getMaxBookmarkId(String xml) {
+		long max = -1;
+		final Matcher matcher = BOOKMARK_ID.matcher(xml);
+		while (matcher.find()) {
+			max = Math.max(max, Long.parseLong(matcher.group(1)));
+		}
+		return max;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static String toXml(Object object, String localName) {
+		final JAXBElement element = new JAXBElement(new QName(Namespaces.NS_WORD12, localName), object.getClass(),
+				object);
+		return NAMESPACES.matcher(XmlUtils.marshaltoString(element, true, false)).replaceAll("");
+	}
+
+}
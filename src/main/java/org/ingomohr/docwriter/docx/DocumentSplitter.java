@@ -0,0 +1,410 @@
+package org.ingomohr.docwriter.docx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.StyleDefinitionsPart;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.PPrBase;
+import org.docx4j.wml.SectPr;
+import org.docx4j.wml.Style;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.DocWriterExecutors;
+import org.ingomohr.docwriter.docx.util.BodyIndex;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+
+/**
+ * Splits a document into one document per chapter.
+ * <p>
+ * A chapter starts with a heading of the given level or above (e.g. level 1
+ * splits at every "Heading 1"). Content before the first such heading becomes a
+ * chapter of its own.
+ * </p>
+ * <p>
+ * The source document is saved once. All its parts but the main document part -
+ * styles, numbering, theme, settings, headers and footers - are then written to
+ * every chapter as they are, i.e. from the same bytes rather than from a copy
+ * per chapter. The main document part of a chapter holds only the chapter's
+ * body content and the section properties of the source. Images are only
+ * included in the chapters that reference them.
+ * </p>
+ * <p>
+ * The chapters are written in parallel - by default on
+ * {@link DocWriterExecutors#getDefault()}.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class DocumentSplitter {
+
+	private static final String MAIN_PART = "word/document.xml";
+
+	private static final String MAIN_PART_RELATIONSHIPS = "word/_rels/document.xml.rels";
+
+	private static final String CONTENT_TYPES = "[Content_Types].xml";
+
+	private static final Pattern HEADING_STYLE_NAME = Pattern.compile("(?i)heading\\s*([1-9])");
+
+	private static final Pattern RELATIONSHIP = Pattern.compile("<Relationship\\b[^>]*>");
+
+	private static final Pattern REFERENCE = Pattern.compile("\\br:(?:id|embed|link|pict)=\"([^\"]*)\"");
+
+	private static final Pattern NAMESPACES = Pattern.compile("\\s+xmlns:\\w+=\"[^\"]*\"");
+
+	private static final int MAX_STYLE_DEPTH = 16;
+
+	private final int level;
+
+	private Executor executor;
+
+	/**
+	 * Creates a new splitter.
+	 * 
+	 * @param level the heading level to split at - 1 to 9.
+	 */
+	public DocumentSplitter(int level) {
+		if (level < 1 || level > 9) {
+			throw new IllegalArgumentException("Heading level must be between 1 and 9: " + level);
+		}
+		this.level = level;
+	}
+
+	/**
+	 * Splits the given document and writes the chapters.
+	 * 
+	 * @param doc    the document to split. Cannot be <code>null</code>. Is not
+	 *               modified.
+	 * @param target the target to write the chapters to. Cannot be
+	 *               <code>null</code>.
+	 * @return the number of chapters written.
+	 * @throws DocWriterException if saving the source or writing a chapter fails.
+	 */
+	public int split(WordprocessingMLPackage doc, ChapterTarget target) throws DocWriterException {
+		requireNonNull(doc);
+		requireNonNull(target);
+
+		final List<Chapter> chapters = findChapters(doc);
+		if (chapters.isEmpty()) {
+			return 0;
+		}
+		final Source source = new Source(doc);
+
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (Chapter chapter : chapters) {
+			futures.add(CompletableFuture.runAsync(() -> writeChapter(source, chapter, target), getExecutor()));
+		}
+		try {
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		} catch (CompletionException e) {
+			throw new DocWriterException("Error writing chapter", e.getCause());
+		}
+		return chapters.size();
+	}
+
+	/**
+	 * Returns the chapters of the given document.
+	 * 
+	 * @param doc the document. Cannot be <code>null</code>.
+	 * @return chapters in document order. Never <code>null</code>, empty if the
+	 *         document has no content.
+	 */
+	List<Chapter> findChapters(WordprocessingMLPackage doc) {
+		final List<Object> contents = new DocxDataInspector().getContents(doc);
+		final HeadingLevels levels = new HeadingLevels(doc.getMainDocumentPart().getStyleDefinitionsPart());
+
+		final List<Chapter> chapters = new ArrayList<>();
+		Chapter current = null;
+		for (Object element : contents) {
+			final Object unwrapped = XmlUtils.unwrap(element);
+			final Integer headingLevel = unwrapped instanceof P ? levels.getLevel((P) unwrapped) : null;
+			if (current == null || headingLevel != null && headingLevel <= level) {
+				final String title = headingLevel != null && headingLevel <= level ? BodyIndex.getText(unwrapped) : null;
+				current = new Chapter(chapters.size(), title);
+				chapters.add(current);
+			}
+			current.elements.add(element);
+		}
+		return chapters;
+	}
+
+	private static void writeChapter(Source source, Chapter chapter, ChapterTarget target) {
+		final StringBuilder body = new StringBuilder();
+		for (Object element : chapter.elements) {
+			body.append(NAMESPACES.matcher(XmlUtils.marshaltoString(element, true, false)).replaceAll(""));
+		}
+
+		final Set<String> referencedIds = new HashSet<>();
+		final Matcher matcher = REFERENCE.matcher(body);
+		while (matcher.find()) {
+			referencedIds.add(matcher.group(1));
+		}
+		final Set<String> excludedParts = source.getExcludedMedia(referencedIds);
+
+		try (OutputStream out = target.open(chapter.index, chapter.title)) {
+			final ZipOutputStream zip = new ZipOutputStream(out);
+			for (Map.Entry<String, byte[]> entry : source.entries.entrySet()) {
+				final String name = entry.getKey();
+				if (excludedParts.contains(name)) {
+					continue;
+				}
+				zip.putNextEntry(new ZipEntry(name));
+				if (MAIN_PART.equals(name)) {
+					zip.write(source.documentPrefix);
+					zip.write(body.toString().getBytes(StandardCharsets.UTF_8));
+					zip.write(source.documentSuffix);
+				} else if (MAIN_PART_RELATIONSHIPS.equals(name) && !excludedParts.isEmpty()) {
+					zip.write(source.getRelationships(excludedParts));
+				} else if (CONTENT_TYPES.equals(name) && !excludedParts.isEmpty()) {
+					zip.write(source.getContentTypes(excludedParts));
+				} else {
+					zip.write(entry.getValue());
+				}
+				zip.closeEntry();
+			}
+			zip.finish();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the heading level to split at.
+	 * 
+	 * @return level - 1 to 9.
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Returns the executor to write the chapters on.
+	 * 
+	 * @return executor. Never <code>null</code>.
+	 */
+	public Executor getExecutor() {
+		return executor != null ? executor : DocWriterExecutors.getDefault();
+	}
+
+	/**
+	 * Sets the executor to write the chapters on.
+	 * 
+	 * @param executor the executor. If <code>null</code>,
+	 *                 {@link DocWriterExecutors#getDefault()} is used.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * A chapter: its heading and its top-level body elements.
+	 */
+	static final class Chapter {
+
+		final int index;
+		final String title;
+		final List<Object> elements = new ArrayList<>();
+
+		Chapter(int index, String title) {
+			this.index = index;
+			this.title = title;
+		}
+	}
+
+	/**
+	 * The saved source document - shared by all chapters.
+	 */
+	private static final class Source {
+
+		final Map<String, byte[]> entries = new LinkedHashMap<>();
+
+		final byte[] documentPrefix;
+
+		final byte[] documentSuffix;
+
+		/** The zip entry names of the images by relationship ID. */
+		final Map<String, String> mediaByRelationshipId = new HashMap<>();
+
+		final String relationships;
+
+		Source(WordprocessingMLPackage doc) throws DocWriterException {
+			final ByteArrayOutputStream saved = new ByteArrayOutputStream();
+			try {
+				doc.save(saved);
+				try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(saved.toByteArray()))) {
+					for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+						entries.put(entry.getName(), zip.readAllBytes());
+					}
+				}
+			} catch (Docx4JException | IOException e) {
+				throw new DocWriterException("Error saving document to split", e);
+			}
+
+			final String xml = new String(entries.get(MAIN_PART), StandardCharsets.UTF_8);
+			final int bodyStart = xml.indexOf('>', xml.indexOf("<w:body")) + 1;
+			final int bodyEnd = xml.lastIndexOf("</w:body>");
+			documentPrefix = xml.substring(0, bodyStart).getBytes(StandardCharsets.UTF_8);
+			documentSuffix = (getSectPrXml(doc) + xml.substring(bodyEnd)).getBytes(StandardCharsets.UTF_8);
+
+			final byte[] relationshipBytes = entries.get(MAIN_PART_RELATIONSHIPS);
+			relationships = relationshipBytes != null ? new String(relationshipBytes, StandardCharsets.UTF_8) : "";
+			final Matcher matcher = RELATIONSHIP.matcher(relationships);
+			while (matcher.find()) {
+				final String relationship = matcher.group();
+				if (Namespaces.IMAGE.equals(getAttribute(relationship, "Type"))
+						&& !"External".equals(getAttribute(relationship, "TargetMode"))) {
+					mediaByRelationshipId.put(getAttribute(relationship, "Id"),
+							resolve(getAttribute(relationship, "Target")));
+				}
+			}
+		}
+
+		/**
+		 * Returns the images that are not referenced by any of the given IDs.
+		 */
+		Set<String> getExcludedMedia(Set<String> referencedIds) {
+			final Set<String> included = new HashSet<>();
+			for (String id : referencedIds) {
+				final String media = mediaByRelationshipId.get(id);
+				if (media != null) {
+					included.add(media);
+				}
+			}
+			final Set<String> excluded = new HashSet<>(mediaByRelationshipId.values());
+			excluded.removeAll(included);
+			return excluded;
+		}
+
+		byte[] getRelationships(Set<String> excludedParts) {
+			final StringBuilder builder = new StringBuilder(relationships.length());
+			final Matcher matcher = RELATIONSHIP.matcher(relationships);
+			int last = 0;
+			while (matcher.find()) {
+				builder.append(relationships, last, matcher.start());
+				final String media = mediaByRelationshipId.get(getAttribute(matcher.group(), "Id"));
+				if (media == null || !excludedParts.contains(media)) {
+					builder.append(matcher.group());
+				}
+				last = matcher.end();
+			}
+			builder.append(relationships, last, relationships.length());
+			return builder.toString().getBytes(StandardCharsets.UTF_8);
+		}
+
+		byte[] getContentTypes(Set<String> excludedParts) {
+			String contentTypes = new String(entries.get(CONTENT_TYPES), StandardCharsets.UTF_8);
+			for (String part : excludedParts) {
+				contentTypes = contentTypes.replaceAll("<Override PartName=\"/" + Pattern.quote(part) + "\"[^>]*/>", "");
+			}
+			return contentTypes.getBytes(StandardCharsets.UTF_8);
+		}
+
+		private static String resolve(String target) {
+			return target.startsWith("/") ? target.substring(1) : "word/" + target;
+		}
+
+		private static String getAttribute(String element, String name) {
+			final Matcher matcher = Pattern.compile("\\b" + name + "=\"([^\"]*)\"").matcher(element);
+			return matcher.find() ? matcher.group(1) : null;
+		}
+
+		private static String getSectPrXml(WordprocessingMLPackage doc) {
+			final SectPr sectPr = doc.getMainDocumentPart().getJaxbElement().getBody().getSectPr();
+			if (sectPr == null) {
+				return "";
+			}
+			final JAXBElement<SectPr> element = new JAXBElement<>(new QName(Namespaces.NS_WORD12, "sectPr"),
+					SectPr.class, sectPr);
+			return NAMESPACES.matcher(XmlUtils.marshaltoString(element, true, false)).replaceAll("");
+		}
+	}
+
+	/**
+	 * Resolves the heading level of paragraphs - by outline level, or by the name
+	 * of the paragraph style (or the styles it is based on).
+	 */
+	private static final class HeadingLevels {
+
+		private final StyleDefinitionsPart stylesPart;
+
+		private final Map<String, Optional<Integer>> styleLevels = new HashMap<>();
+
+		HeadingLevels(StyleDefinitionsPart stylesPart) {
+			this.stylesPart = stylesPart;
+		}
+
+		Integer getLevel(P paragraph) {
+			final PPr pPr = paragraph.getPPr();
+			if (pPr == null) {
+				return null;
+			}
+			if (pPr.getOutlineLvl() != null) {
+				return toLevel(pPr.getOutlineLvl());
+			}
+			if (pPr.getPStyle() != null && pPr.getPStyle().getVal() != null) {
+				return styleLevels.computeIfAbsent(pPr.getPStyle().getVal(), this::resolveStyleLevel).orElse(null);
+			}
+			return null;
+		}
+
+		private Optional<Integer> resolveStyleLevel(String styleId) {
+			String currentId = styleId;
+			for (int depth = 0; currentId != null && depth < MAX_STYLE_DEPTH; depth++) {
+				final Style style = stylesPart != null ? stylesPart.getStyleById(currentId) : null;
+				if (style == null) {
+					break;
+				}
+				if (style.getPPr() != null && style.getPPr().getOutlineLvl() != null) {
+					return Optional.ofNullable(toLevel(style.getPPr().getOutlineLvl()));
+				}
+				if (style.getName() != null && style.getName().getVal() != null) {
+					final Matcher matcher = HEADING_STYLE_NAME.matcher(style.getName().getVal().trim());
+					if (matcher.matches()) {
+						return Optional.of(Integer.parseInt(matcher.group(1)));
+					}
+				}
+				currentId = style.getBasedOn() != null ? style.getBasedOn().getVal() : null;
+			}
+			return Optional.empty();
+		}
+
+		private static Integer toLevel(PPrBase.OutlineLvl outlineLvl) {
+			if (outlineLvl.getVal() == null) {
+				return null;
+			}
+			final int val = outlineLvl.getVal().intValue();
+			// Outline level 9 means "body text".
+			return val >= 0 && val < 9 ? val + 1 : null;
+		}
+	}
+
+}
@@ -0,0 +1,332 @@
+package org.ingomohr.docwriter.docx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.DocWriterException;
+
+/**
+ * Writes many documents with an {@link AbstractRuleBasedDocxWriter} in a staged
+ * pipeline.
+ * <p>
+ * {@link AbstractRuleBasedDocxWriter#write(InputStream, OutputStream)} loads,
+ * modifies and saves a document back to back. The pipeline runs these steps in
+ * three stages instead - each with its own bounded queue and its own threads.
+ * This way, reading and writing documents overlaps with applying the rules to
+ * other documents, and the throughput is only limited by the slowest stage.
+ * </p>
+ * <p>
+ * If a stage's queue is full, the previous stage waits until there is room
+ * again. The same applies to {@link #submit(InputStream, OutputStream)}, which
+ * blocks the caller while the load queue is full.
+ * </p>
+ * <p>
+ * The writer's rules are applied by the threads of the modify stage. Use more
+ * than one modify thread only if the rules can be applied to several documents
+ * at the same time.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class DocxPipeline implements Closeable {
+
+	/**
+	 * Default capacity of each stage queue.
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+	private static final Object END = new Object();
+
+	private final AbstractRuleBasedDocxWriter writer;
+
+	private final Stage loadStage;
+
+	private final Stage modifyStage;
+
+	private final Stage saveStage;
+
+	private boolean closed;
+
+	/**
+	 * Creates a new pipeline with one thread per stage and a queue capacity of
+	 * {@value #DEFAULT_QUEUE_CAPACITY}.
+	 * 
+	 * @param writer the writer to use. Cannot be <code>null</code>.
+	 */
+	public DocxPipeline(AbstractRuleBasedDocxWriter writer) {
+		this(writer, 1, 1, 1, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Creates a new pipeline.
+	 * 
+	 * @param writer        the writer to use. Cannot be <code>null</code>.
+	 * @param loadThreads   the number of threads loading documents. Must be at
+	 *                      least 1.
+	 * @param modifyThreads the number of threads applying rules. Must be at least
+	 *                      1.
+	 * @param saveThreads   the number of threads saving documents. Must be at
+	 *                      least 1.
+	 * @param queueCapacity the capacity of each stage queue. Must be at least 1.
+	 */
+	public DocxPipeline(AbstractRuleBasedDocxWriter writer, int loadThreads, int modifyThreads, int saveThreads,
+			int queueCapacity) {
+		this.writer = requireNonNull(writer);
+
+		saveStage = new Stage("save", saveThreads, queueCapacity, this::save, null);
+		modifyStage = new Stage("modify", modifyThreads, queueCapacity, this::modify, saveStage);
+		loadStage = new Stage("load", loadThreads, queueCapacity, this::load, modifyStage);
+
+		saveStage.start();
+		modifyStage.start();
+		loadStage.start();
+	}
+
+	/**
+	 * Submits a document to be written.
+	 * <p>
+	 * Blocks while the load queue is full. The streams are not closed by the
+	 * pipeline.
+	 * </p>
+	 * 
+	 * @param input  the input to read from. <i>Optional</i>.
+	 * @param target the target to write to. Cannot be <code>null</code>.
+	 * @return future that completes when the document has been written. Never
+	 *         <code>null</code>.
+	 * @throws DocWriterException    if interrupted while waiting for room in the
+	 *                               load queue.
+	 * @throws IllegalStateException if the pipeline is closed.
+	 */
+	public CompletableFuture<Void> submit(InputStream input, OutputStream target) throws DocWriterException {
+		requireNonNull(target);
+		return submit(new Job(() -> input, () -> target, false));
+	}
+
+	/**
+	 * Submits a document to be written.
+	 * <p>
+	 * Blocks while the load queue is full. The input is opened by the load stage,
+	 * the target by the save stage.
+	 * </p>
+	 * 
+	 * @param input  the input to read from. <i>Optional</i>.
+	 * @param target the target to write to. Cannot be <code>null</code>.
+	 * @return future that completes when the document has been written. Never
+	 *         <code>null</code>.
+	 * @throws DocWriterException    if interrupted while waiting for room in the
+	 *                               load queue.
+	 * @throws IllegalStateException if the pipeline is closed.
+	 */
+	public CompletableFuture<Void> submit(Path input, Path target) throws DocWriterException {
+		requireNonNull(target);
+		return submit(new Job(() -> input != null ? Files.newInputStream(input) : null,
+				() -> Files.newOutputStream(target), true));
+	}
+
+	private synchronized CompletableFuture<Void> submit(Job job) throws DocWriterException {
+		if (closed) {
+			throw new IllegalStateException("Pipeline is closed");
+		}
+		try {
+			loadStage.queue.put(job);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DocWriterException("Interrupted while waiting for the pipeline", e);
+		}
+		return job.result;
+	}
+
+	/**
+	 * Closes the pipeline.
+	 * <p>
+	 * Documents that have been submitted before are still written. The method
+	 * returns when all of them are done. Closing a closed pipeline has no effect.
+	 * </p>
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+
+		try {
+			loadStage.end();
+			saveStage.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void load(Job job) throws Exception {
+		final InputStream in = job.input.open();
+		try {
+			WordprocessingMLPackage doc = writer.loadDocumentFromInput(in);
+			if (doc == null) {
+				doc = writer.createDefaultDocument();
+			}
+			job.doc = doc;
+		} finally {
+			if (job.ownsStreams && in != null) {
+				in.close();
+			}
+		}
+	}
+
+	private void modify(Job job) {
+		writer.modifyDoc(job.doc);
+	}
+
+	private void save(Job job) throws Exception {
+		final OutputStream out = job.target.open();
+		try {
+			writer.save(job.doc, out);
+		} finally {
+			if (job.ownsStreams) {
+				out.close();
+			}
+		}
+		job.doc = null;
+		job.result.complete(null);
+	}
+
+	/**
+	 * Opens a stream.
+	 */
+	@FunctionalInterface
+	private interface StreamOpener<T> {
+		T open() throws IOException;
+	}
+
+	/**
+	 * A step of a stage.
+	 */
+	@FunctionalInterface
+	private interface StageTask {
+		void process(Job job) throws Exception;
+	}
+
+	/**
+	 * A document passing through the pipeline.
+	 */
+	private static final class Job {
+
+		final StreamOpener<InputStream> input;
+		final StreamOpener<OutputStream> target;
+		final boolean ownsStreams;
+		final CompletableFuture<Void> result = new CompletableFuture<>();
+
+		WordprocessingMLPackage doc;
+
+		Job(StreamOpener<InputStream> input, StreamOpener<OutputStream> target, boolean ownsStreams) {
+			this.input = input;
+			this.target = target;
+			this.ownsStreams = ownsStreams;
+		}
+	}
+
+	/**
+	 * A stage with its own queue and threads. Passes processed jobs on to the next
+	 * stage.
+	 */
+	private static final class Stage {
+
+		final BlockingQueue<Object> queue;
+		final List<Thread> threads = new ArrayList<>();
+		final AtomicInteger running;
+		final StageTask task;
+		final Stage next;
+
+		Stage(String name, int threadCount, int queueCapacity, StageTask task, Stage next) {
+			if (threadCount < 1) {
+				throw new IllegalArgumentException("Thread count of " + name + " stage must be at least 1");
+			}
+			if (queueCapacity < 1) {
+				throw new IllegalArgumentException("Queue capacity must be at least 1");
+			}
+			this.queue = new ArrayBlockingQueue<>(queueCapacity);
+			this.running = new AtomicInteger(threadCount);
+			this.task = task;
+			this.next = next;
+
+			for (int i = 1; i <= threadCount; i++) {
+				Thread thread = new Thread(this::run, "docwriter-" + name + "-" + i);
+				thread.setDaemon(true);
+				threads.add(thread);
+			}
+		}
+
+		void start() {
+			threads.forEach(Thread::start);
+		}
+
+		void end() throws InterruptedException {
+			for (int i = 0; i < threads.size(); i++) {
+				queue.put(END);
+			}
+		}
+
+		void join() throws InterruptedException {
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		}
+
+		private void run() {
+			try {
+				for (;;) {
+					final Object item = queue.take();
+					if (item == END) {
+						break;
+					}
+					process((Job) item);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				// The last thread of the stage ends the next stage - however it ends.
+				if (running.decrementAndGet() == 0 && next != null) {
+					endNext();
+				}
+			}
+		}
+
+		private void endNext() {
+			try {
+				next.end();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void process(Job job) throws InterruptedException {
+			try {
+				task.process(job);
+			} catch (Throwable e) {
+				// Any failure - even an error - completes the job, never the stage.
+				job.doc = null;
+				job.result.completeExceptionally(e);
+				return;
+			}
+			if (next != null) {
+				next.queue.put(job);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package org.ingomohr.docwriter.docx;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.TemplateRegistry;
+import org.ingomohr.docwriter.docx.util.RunNormalizer;
+
+/**
+ * A {@link TemplateRegistry} for docx templates.
+ * <p>
+ * Templates are normalized (see {@link RunNormalizer}): adjacent runs with
+ * equal formatting are merged and proofing marks and rsids are removed. So
+ * variables like <code>${name}</code> are contained in a single text element
+ * and rules scan far fewer elements. This is done once per version of a
+ * template - not for every document written from it.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class DocxTemplateRegistry extends TemplateRegistry {
+
+	@Override
+	protected byte[] prepare(Path template) throws DocWriterException {
+		final WordprocessingMLPackage doc;
+		try {
+			doc = WordprocessingMLPackage.load(template.toFile());
+		} catch (Docx4JException e) {
+			throw new DocWriterException("Cannot load template " + template, e);
+		}
+
+		try {
+			prepare(doc);
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			doc.save(out);
+			return out.toByteArray();
+		} catch (Exception e) {
+			throw new DocWriterException("Cannot prepare template " + template, e);
+		}
+	}
+
+	/**
+	 * Prepares the given loaded template in place.
+	 * <p>
+	 * The default implementation normalizes the runs of the template.
+	 * </p>
+	 * 
+	 * @param template the template. Never <code>null</code>.
+	 * @throws Exception if the template cannot be prepared.
+	 */
+	protected void prepare(WordprocessingMLPackage template) throws Exception {
+		new RunNormalizer().normalize(template);
+	}
+
+}
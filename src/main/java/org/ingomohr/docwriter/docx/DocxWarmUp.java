@@ -0,0 +1,189 @@
+package org.ingomohr.docwriter.docx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.docx4j.jaxb.Context;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.DocWriterExecutors;
+import org.ingomohr.docwriter.docx.rules.DocumentRule;
+import org.ingomohr.docwriter.docx.rules.RunNormalizationRule;
+import org.ingomohr.docwriter.docx.rules.TocInsertionRule;
+import org.ingomohr.docwriter.docx.rules.VariableReplacementRule;
+import org.ingomohr.docwriter.metrics.DocWriterMetrics;
+
+/**
+ * Warms up a JVM for writing documents.
+ * <p>
+ * The first document written in a fresh JVM takes much longer than the ones
+ * after it: docx4j creates its JAXB contexts, the default template of the
+ * markdown renderer is loaded and the classes along the render paths are loaded
+ * and initialized. Call {@link #warmUp()} at startup - e.g. before a service
+ * reports to be ready - to move that time out of the first request.
+ * </p>
+ * <p>
+ * The warm-up runs the {@link WarmUpStep steps} in order and reports how long
+ * each took. The representative renders are written to memory and recorded to
+ * {@link DocWriterMetrics#NOOP}, so they don't show up in the metrics of the
+ * application.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class DocxWarmUp {
+
+	private static final int PARAGRAPHS = 20;
+
+	private static final int PLACEHOLDER_VARIABLES = 5;
+
+	/**
+	 * Runs all warm-up steps.
+	 * <p>
+	 * Calling this more than once is allowed. Later calls just take less time.
+	 * </p>
+	 * 
+	 * @return report of the durations of the steps. Never <code>null</code>.
+	 * @throws DocWriterException if one of the representative renders fails.
+	 */
+	public WarmUpReport warmUp() throws DocWriterException {
+		final Map<WarmUpStep, Long> nanos = new EnumMap<>(WarmUpStep.class);
+		for (WarmUpStep step : WarmUpStep.values()) {
+			final long start = System.nanoTime();
+			runStep(step);
+			nanos.put(step, System.nanoTime() - start);
+		}
+		return new WarmUpReport(nanos);
+	}
+
+	/**
+	 * Runs all warm-up steps asynchronously on the default executor (see
+	 * {@link DocWriterExecutors#getDefault()}).
+	 * 
+	 * @return future of the report. Completes exceptionally with a
+	 *         {@link DocWriterException} if the warm-up fails.
+	 * @see #warmUp()
+	 */
+	public CompletableFuture<WarmUpReport> warmUpAsync() {
+		return warmUpAsync(DocWriterExecutors.getDefault());
+	}
+
+	/**
+	 * Runs all warm-up steps asynchronously on the given executor.
+	 * 
+	 * @param executor the executor to run on. Cannot be <code>null</code>.
+	 * @return future of the report. Completes exceptionally with a
+	 *         {@link DocWriterException} if the warm-up fails.
+	 * @see #warmUp()
+	 */
+	public CompletableFuture<WarmUpReport> warmUpAsync(Executor executor) {
+		requireNonNull(executor);
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return warmUp();
+			} catch (DocWriterException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Runs the given warm-up step.
+	 * <p>
+	 * Subclasses can override this to add work to a step - e.g. to render their
+	 * own templates in {@link WarmUpStep#RULE_ENGINE}.
+	 * </p>
+	 * 
+	 * @param step the step to run. Cannot be <code>null</code>.
+	 * @throws DocWriterException if the step fails.
+	 */
+	protected void runStep(WarmUpStep step) throws DocWriterException {
+		switch (requireNonNull(step)) {
+		case JAXB_CONTEXT:
+			initJaxbContexts();
+			break;
+		case DEFAULT_TEMPLATE:
+			DefaultTemplate.createDocument();
+			break;
+		case RULE_ENGINE:
+			renderRuleEngine();
+			break;
+		case MARKDOWN:
+			renderMarkdown();
+			break;
+		}
+	}
+
+	/**
+	 * Creates the generator of the representative document and markdown text.
+	 * 
+	 * @return new generator. Never <code>null</code>.
+	 */
+	protected SyntheticDocumentGenerator createGenerator() {
+		final SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator(0);
+		generator.setParagraphCount(PARAGRAPHS);
+		generator.setRunsPerParagraph(2);
+		generator.setPlaceholderDensity(0.5);
+		generator.setPlaceholderVariables(PLACEHOLDER_VARIABLES);
+		generator.setTableCount(1);
+		generator.setTableRows(3);
+		generator.setTableColumns(3);
+		return generator;
+	}
+
+	private static void initJaxbContexts() {
+		// Accessing the contexts runs the static initializer creating all of them.
+		requireNonNull(Context.jc);
+		requireNonNull(Context.jcRelationships);
+		requireNonNull(Context.jcContentTypes);
+		requireNonNull(Context.getWmlObjectFactory());
+	}
+
+	/**
+	 * Renders the representative document of {@link #createGenerator()} with the
+	 * rule engine: the runs are normalized, all placeholders are replaced and a
+	 * table of contents is inserted.
+	 * 
+	 * @return the rendered document. Never <code>null</code>.
+	 * @throws DocWriterException if rendering fails.
+	 */
+	protected byte[] renderRuleEngine() throws DocWriterException {
+		final ByteArrayOutputStream input = new ByteArrayOutputStream();
+		createGenerator().writeDocument(input);
+
+		final Map<String, String> values = new HashMap<>();
+		for (int i = 0; i < PLACEHOLDER_VARIABLES; i++) {
+			values.put(SyntheticDocumentGenerator.PLACEHOLDER_PREFIX + i, "value " + i);
+		}
+
+		final AbstractRuleBasedDocxWriter writer = new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return List.of(new RunNormalizationRule(), new VariableReplacementRule(values),
+						new TocInsertionRule());
+			}
+
+		};
+		writer.setMetrics(DocWriterMetrics.NOOP);
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		writer.write(new ByteArrayInputStream(input.toByteArray()), output);
+		return output.toByteArray();
+	}
+
+	private void renderMarkdown() throws DocWriterException {
+		final SimpleMarkdownDocxWriter writer = new SimpleMarkdownDocxWriter();
+		writer.setMetrics(DocWriterMetrics.NOOP);
+		writer.setMarkDownContent(createGenerator().createMarkdown());
+		writer.write(null, new ByteArrayOutputStream());
+	}
+
+}
@@ -2,12 +2,15 @@ package org.ingomohr.docwriter.docx;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import org.docx4j.jaxb.Context;
 import org.docx4j.model.datastorage.migration.VariablePrepare;
@@ -17,11 +20,18 @@ import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
 import org.docx4j.wml.Br;
 import org.docx4j.wml.P;
 import org.docx4j.wml.STBrType;
+import org.ingomohr.docwriter.DocWriterException;
 import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
 import org.ingomohr.docwriter.docx.rules.TocInsertionRule;
 import org.ingomohr.docwriter.docx.rules.TocUpdateRule;
-
-import com.vladsch.flexmark.docx.converter.DocxRenderer;
+import org.ingomohr.docwriter.docx.util.DeterministicZip;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.ingomohr.docwriter.docx.util.ElementIndex;
+import org.ingomohr.docwriter.jfr.SaveEvent;
+import org.ingomohr.docwriter.jfr.TemplateLoadEvent;
+import org.ingomohr.docwriter.metrics.DocWriterMetrics;
+import org.ingomohr.docwriter.metrics.InMemoryMetrics;
+import org.ingomohr.docwriter.metrics.WritePhase;
 
 /**
  * Simple Docx processor to open, modify and save docx files.
@@ -29,6 +39,11 @@ import com.vladsch.flexmark.docx.converter.DocxRenderer;
  * The processor provides a set of methods to load or create a document, to add
  * and modify content and to save the document.
  * </p>
+ * <p>
+ * Loading, modifying and saving are recorded to the {@link #getMetrics()
+ * metrics}. Loading and saving also emit a {@link TemplateLoadEvent} and a
+ * {@link SaveEvent}.
+ * </p>
  * 
  * @author Ingo Mohr
  * @since 2.1
@@ -37,14 +52,25 @@ public class SimpleDocxProcessor {
 
 	private WordprocessingMLPackage document;
 
+	private ElementIndex elementIndex;
+
+	private DocWriterMetrics metrics;
+
+	private boolean deterministic;
+
 	/**
 	 * Creates a new document.
 	 * <p>
-	 * This will replace the current document if there is one.
+	 * This will replace the current document if there is one. The new document
+	 * is a copy of the {@link DefaultTemplate}.
 	 * </p>
 	 */
 	public void createDocument() {
-		setDocument(DocxRenderer.getDefaultTemplate());
+		final TemplateLoadEvent event = new TemplateLoadEvent();
+		event.begin();
+		final long start = System.nanoTime();
+		setDocument(DefaultTemplate.createDocument());
+		documentLoaded(event, start, 0);
 	}
 
 	/**
@@ -66,11 +92,26 @@ public class SimpleDocxProcessor {
 	 */
 	public void loadDocument(File file) throws IOException {
 		requireNonNull(file);
+		final TemplateLoadEvent event = new TemplateLoadEvent();
+		event.begin();
+		final long start = System.nanoTime();
 		try {
 			setDocument(WordprocessingMLPackage.load(file));
 		} catch (Docx4JException e) {
 			throw new IOException(e);
 		}
+		documentLoaded(event, start, file.length());
+	}
+
+	private void documentLoaded(TemplateLoadEvent event, long start, long bytesRead) {
+		recordPhase(WritePhase.LOAD, start);
+		getMetrics().recordBytesRead(bytesRead);
+		event.end();
+		if (event.shouldCommit()) {
+			event.setBytes(bytesRead);
+			event.setElements(new DocxDataInspector().getContents(getDocument()).size());
+			event.commit();
+		}
 	}
 
 	/**
@@ -83,7 +124,10 @@ public class SimpleDocxProcessor {
 	 * @see #updateToc()
 	 */
 	public void addToc() {
+		final long start = System.nanoTime();
 		new TocInsertionRule().apply(assertedGetDocument());
+		invalidateElementIndex();
+		recordPhase(WritePhase.MODIFY, start);
 	}
 
 	/**
@@ -99,7 +143,10 @@ public class SimpleDocxProcessor {
 	 * @see #addToc()
 	 */
 	public void updateToc() {
+		final long start = System.nanoTime();
 		new TocUpdateRule().apply(assertedGetDocument());
+		invalidateElementIndex();
+		recordPhase(WritePhase.MODIFY, start);
 	}
 
 	/**
@@ -119,6 +166,8 @@ public class SimpleDocxProcessor {
 	 */
 	public void replaceVariable(String variable, String replacement) throws Docx4JException {
 		WordprocessingMLPackage mainPackage = assertedGetDocument();
+		invalidateElementIndex();
+		final long start = System.nanoTime();
 
 		try {
 			VariablePrepare.prepare(mainPackage);
@@ -136,6 +185,7 @@ public class SimpleDocxProcessor {
 		} catch (Exception e) {
 			throw new Docx4JException("Cannot replace placeholder", e);
 		}
+		recordPhase(WritePhase.MODIFY, start);
 	}
 
 	/**
@@ -146,7 +196,17 @@ public class SimpleDocxProcessor {
 	public void addMarkdown(String markDownContent) {
 		MarkdownAppenderRule rule = createMarkdownAppenderRule();
 		rule.setValueSupplier(() -> markDownContent);
-		rule.apply(assertedGetDocument());
+
+		final WordprocessingMLPackage doc = assertedGetDocument();
+		final List<Object> contents = new DocxDataInspector().getContents(doc);
+		final int sizeBefore = contents.size();
+		final long start = System.nanoTime();
+
+		rule.apply(doc);
+
+		recordPhase(WritePhase.MODIFY, start);
+		getMetrics().recordElements(Math.max(0, contents.size() - sizeBefore));
+		elementsAppended(contents, sizeBefore);
 	}
 
 	MarkdownAppenderRule createMarkdownAppenderRule() {
@@ -224,10 +284,65 @@ public class SimpleDocxProcessor {
 		P paragraph = Context.getWmlObjectFactory().createP();
 		paragraph.getContent().add(breakObj);
 		documentPart.getJaxbElement().getBody().getContent().add(paragraph);
+
+		if (elementIndex != null) {
+			elementIndex.elementsAppended(paragraph);
+		}
+	}
+
+	/**
+	 * Returns all elements of the given type in the main document part.
+	 * <p>
+	 * The elements are taken from an index that is built on the first call and
+	 * kept up to date by the methods of this processor. If the document is
+	 * modified by other means, call {@link #invalidateElementIndex()}.
+	 * </p>
+	 * 
+	 * @param type the type of the elements to return. Elements are matched by
+	 *             exact class. Cannot be <code>null</code>.
+	 * @return all elements of the given type in document order. Never
+	 *         <code>null</code>, possibly empty. The list is a copy that doesn't
+	 *         change when the document is modified later.
+	 * @see DocxDataInspector#getAllElements(Object, Class)
+	 * @since 6.1
+	 */
+	public <T> List<T> getElements(Class<T> type) {
+		final MainDocumentPart part = assertedGetDocument().getMainDocumentPart();
+		if (elementIndex == null || elementIndex.getRoot() != part) {
+			elementIndex = new DocxDataInspector().createElementIndex(part);
+		}
+		return elementIndex.getElements(type);
+	}
+
+	/**
+	 * Discards the element index of the document - see {@link #getElements(Class)}.
+	 * 
+	 * @since 6.1
+	 */
+	public void invalidateElementIndex() {
+		if (elementIndex != null) {
+			elementIndex.invalidate();
+		}
+	}
+
+	private void elementsAppended(List<Object> contents, int fromIndex) {
+		if (elementIndex == null) {
+			return;
+		}
+		if (contents.size() < fromIndex) {
+			elementIndex.invalidate();
+			return;
+		}
+		for (Object obj : contents.subList(fromIndex, contents.size())) {
+			elementIndex.elementsAppended(obj);
+		}
 	}
 
 	/**
 	 * Saves the document to the given path.
+	 * <p>
+	 * See {@link #isDeterministic()}.
+	 * </p>
 	 * 
 	 * @param targetPath the path to save to. Cannot be <code>null</code>.
 	 * @throws IOException if there's a problem saving the document.
@@ -235,15 +350,22 @@ public class SimpleDocxProcessor {
 	public void saveDocumentToPath(Path targetPath) throws IOException {
 		requireNonNull(targetPath);
 
+		final SaveEvent event = new SaveEvent();
+		event.begin();
+		final long start = System.nanoTime();
 		try (OutputStream out = Files.newOutputStream(targetPath)) {
-			assertedGetDocument().save(out);
+			saveDocument(out);
 		} catch (Docx4JException e) {
 			throw new IOException(e);
 		}
+		documentSaved(event, start, Files.size(targetPath));
 	}
 
 	/**
 	 * Saves the document to the given file.
+	 * <p>
+	 * See {@link #isDeterministic()}.
+	 * </p>
 	 * 
 	 * @param file the file to save to. Cannot be <code>null</code>.
 	 * @throws IOException if there's a problem saving the document.
@@ -251,11 +373,161 @@ public class SimpleDocxProcessor {
 	public void saveDocumentToPath(File file) throws IOException {
 		requireNonNull(file);
 
+		final SaveEvent event = new SaveEvent();
+		event.begin();
+		final long start = System.nanoTime();
 		try {
-			assertedGetDocument().save(file);
+			if (isDeterministic()) {
+				try (OutputStream out = Files.newOutputStream(file.toPath())) {
+					saveDocument(out);
+				}
+			} else {
+				assertedGetDocument().save(file);
+			}
 		} catch (Docx4JException e) {
 			throw new IOException(e);
 		}
+		documentSaved(event, start, file.length());
+	}
+
+	private void saveDocument(OutputStream out) throws Docx4JException, IOException {
+		if (!isDeterministic()) {
+			assertedGetDocument().save(out);
+			return;
+		}
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		assertedGetDocument().save(buffer);
+		DeterministicZip.rewrite(buffer.toByteArray(), out);
+	}
+
+	private void documentSaved(SaveEvent event, long start, long bytesWritten) {
+		recordPhase(WritePhase.SAVE, start);
+		final DocWriterMetrics currentMetrics = getMetrics();
+		currentMetrics.recordBytesWritten(bytesWritten);
+		currentMetrics.recordDocument();
+		event.end();
+		if (event.shouldCommit()) {
+			event.setBytes(bytesWritten);
+			event.setElements(new DocxDataInspector().getContents(getDocument()).size());
+			event.commit();
+		}
+	}
+
+	private void recordPhase(WritePhase phase, long start) {
+		getMetrics().recordPhase(phase, System.nanoTime() - start);
+	}
+
+	/**
+	 * Saves the document with the given fragments appended to the given path.
+	 * <p>
+	 * The fragments are loaded and appended one after the other by a
+	 * {@link DocumentAssembler}, so that only one of them is in memory at a time.
+	 * The document of this processor is left unchanged.
+	 * </p>
+	 * 
+	 * @param targetPath the path to save to. Cannot be <code>null</code>.
+	 * @param fragments  the documents to append. Cannot be <code>null</code>.
+	 * @throws IOException if loading a fragment or saving fails.
+	 * @since 6.1
+	 */
+	public void saveAssembledDocumentToPath(Path targetPath, Iterable<Path> fragments) throws IOException {
+		requireNonNull(targetPath);
+		requireNonNull(fragments);
+
+		final WordprocessingMLPackage base = (WordprocessingMLPackage) assertedGetDocument().clone();
+		try (OutputStream out = Files.newOutputStream(targetPath);
+				DocumentAssembler assembler = new DocumentAssembler(base, out)) {
+			for (Path fragment : fragments) {
+				assembler.append(fragment);
+			}
+		} catch (DocWriterException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Splits the document at the headings of the given level and saves one
+	 * document per chapter to the given directory.
+	 * <p>
+	 * The chapters are written in parallel by a {@link DocumentSplitter}. Their
+	 * files are named <code>chapter-001.docx</code>, <code>chapter-002.docx</code>
+	 * and so on. Content before the first heading becomes the first chapter.
+	 * </p>
+	 * 
+	 * @param level           the heading level to split at - 1 to 9.
+	 * @param targetDirectory the directory to save the chapters to. Cannot be
+	 *                        <code>null</code>. Must exist.
+	 * @return the paths of the saved chapters in document order. Never
+	 *         <code>null</code>.
+	 * @throws IOException if there's a problem saving a chapter.
+	 * @since 6.1
+	 */
+	public List<Path> splitDocumentToPaths(int level, Path targetDirectory) throws IOException {
+		requireNonNull(targetDirectory);
+
+		final List<Path> paths = new ArrayList<>();
+		try {
+			final int count = new DocumentSplitter(level).split(assertedGetDocument(),
+					(index, title) -> Files.newOutputStream(targetDirectory.resolve(getChapterFileName(index))));
+			for (int i = 0; i < count; i++) {
+				paths.add(targetDirectory.resolve(getChapterFileName(i)));
+			}
+		} catch (DocWriterException e) {
+			throw new IOException(e);
+		}
+		return paths;
+	}
+
+	private static String getChapterFileName(int index) {
+		return String.format("chapter-%03d.docx", index + 1);
+	}
+
+	/**
+	 * Returns the metrics the processor records its measurements to.
+	 * <p>
+	 * Default is {@link InMemoryMetrics#getDefault()}.
+	 * </p>
+	 * 
+	 * @return metrics. Never <code>null</code>.
+	 * @since 6.1
+	 */
+	public DocWriterMetrics getMetrics() {
+		return metrics != null ? metrics : InMemoryMetrics.getDefault();
+	}
+
+	/**
+	 * Sets the metrics the processor records its measurements to.
+	 * 
+	 * @param metrics the metrics to set. <code>null</code> for the default. Use
+	 *                {@link DocWriterMetrics#NOOP} to record nothing.
+	 * @since 6.1
+	 */
+	public void setMetrics(DocWriterMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns <code>true</code> if documents are saved so that equal content gives
+	 * equal bytes - see {@link DeterministicZip}.
+	 * <p>
+	 * Default is <code>false</code>.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if saving deterministically.
+	 * @since 6.1
+	 */
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+
+	/**
+	 * Sets whether documents are saved so that equal content gives equal bytes.
+	 * 
+	 * @param deterministic <code>true</code> to save deterministically.
+	 * @since 6.1
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
 	}
 
 	public WordprocessingMLPackage getDocument() {
@@ -270,6 +542,7 @@ public class SimpleDocxProcessor {
 
 	public void setDocument(WordprocessingMLPackage document) {
 		this.document = document;
+		this.elementIndex = null;
 	}
 
 }
@@ -11,8 +11,10 @@ import java.util.List;
 import org.ingomohr.docwriter.AbstractDocWriter;
 import org.ingomohr.docwriter.DocWriter;
 import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.cache.RenderCache;
 import org.ingomohr.docwriter.docx.rules.DocumentRule;
 import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
+import org.ingomohr.docwriter.metrics.DocWriterMetrics;
 
 /**
  * A simple writer to accept a markdown string and write it to a docx file.
@@ -35,6 +37,10 @@ public class SimpleMarkdownDocxWriter extends AbstractDocWriter {
 
 	private String markDownContent;
 
+	private boolean deterministic;
+
+	private RenderCache renderCache;
+
 	public SimpleMarkdownDocxWriter() {
 		writer = createWriter();
 	}
@@ -68,6 +74,21 @@ public class SimpleMarkdownDocxWriter extends AbstractDocWriter {
 				return Arrays
 						.asList(new MarkdownAppenderRule(() -> SimpleMarkdownDocxWriter.this.getMarkDownContent()));
 			}
+
+			@Override
+			public DocWriterMetrics getMetrics() {
+				return SimpleMarkdownDocxWriter.this.getMetrics();
+			}
+
+			@Override
+			public boolean isDeterministic() {
+				return SimpleMarkdownDocxWriter.this.isDeterministic();
+			}
+
+			@Override
+			public RenderCache getRenderCache() {
+				return SimpleMarkdownDocxWriter.this.getRenderCache();
+			}
 		};
 	}
 
@@ -94,6 +115,56 @@ public class SimpleMarkdownDocxWriter extends AbstractDocWriter {
 		this.writer = writer;
 	}
 
+	/**
+	 * Returns <code>true</code> if documents are saved so that equal content gives
+	 * equal bytes.
+	 * <p>
+	 * Applies to the default delegate-writer. Default is <code>false</code>.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if saving deterministically.
+	 * @see AbstractRuleBasedDocxWriter#isDeterministic()
+	 * @since 6.1
+	 */
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+
+	/**
+	 * Sets whether documents are saved so that equal content gives equal bytes.
+	 * 
+	 * @param deterministic <code>true</code> to save deterministically.
+	 * @since 6.1
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
+	}
+
+	/**
+	 * Returns the cache of rendered documents.
+	 * <p>
+	 * Applies to the default delegate-writer. Repeated writes of the same markdown
+	 * to the same input are then copied from the cache.
+	 * </p>
+	 * 
+	 * @return render cache. <code>null</code> if documents aren't cached.
+	 * @see AbstractRuleBasedDocxWriter#getRenderCache()
+	 * @since 6.1
+	 */
+	public RenderCache getRenderCache() {
+		return renderCache;
+	}
+
+	/**
+	 * Sets the cache of rendered documents.
+	 * 
+	 * @param renderCache the cache. <code>null</code> to not cache documents.
+	 * @since 6.1
+	 */
+	public void setRenderCache(RenderCache renderCache) {
+		this.renderCache = renderCache;
+	}
+
 	/**
 	 * Returns the markdown content that is to be written.
 	 * 
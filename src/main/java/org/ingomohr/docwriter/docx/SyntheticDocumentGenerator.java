@@ -0,0 +1,621 @@
+package org.ingomohr.docwriter.docx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.docx4j.dml.wordprocessingDrawing.Inline;
+import org.docx4j.jaxb.Context;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.wml.Drawing;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.PPrBase;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
+import org.ingomohr.docwriter.DocWriterException;
+
+/**
+ * Generates synthetic docx templates and markdown inputs of configurable size
+ * and shape - e.g. for benchmarks and scaling tests.
+ * <p>
+ * The output is deterministic: the same seed and parameters always produce the
+ * same content. Every call to {@link #createDocument()} or
+ * {@link #createMarkdown()} starts over with the seed.
+ * </p>
+ * <p>
+ * The generated content consists of:
+ * </p>
+ * <ul>
+ * <li>{@link #getParagraphCount()} paragraphs of random words. If the heading
+ * depth is greater than 0, every tenth paragraph is a heading.</li>
+ * <li>each text paragraph split into {@link #getRunsPerParagraph()} runs at
+ * random positions. In markdown, the paragraphs are only split at word
+ * boundaries and every second segment is bold.</li>
+ * <li>placeholders <code>${var.0}</code> to <code>${var.&lt;n-1&gt;}</code>
+ * (<code>n</code> = {@link #getPlaceholderVariables()}) in the given share of
+ * the text paragraphs. Run boundaries may split placeholders - as Word does.</li>
+ * <li>{@link #getTableCount()} tables, spread evenly over the paragraphs.</li>
+ * <li>{@link #getImageCount()} images of random pixels, spread evenly over the
+ * paragraphs. Images are only part of the docx, not of the markdown.</li>
+ * </ul>
+ * <p>
+ * The size of a saved document is mostly determined by the paragraph count
+ * (roughly 35 bytes per paragraph on top of 10 KB for the template) and the
+ * image volume (roughly <code>3 * size * size</code> bytes per image). E.g. 100
+ * paragraphs make a document of about 10 KB, 100 images of 1300 pixels add
+ * about 500 MB.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class SyntheticDocumentGenerator {
+
+	/**
+	 * The prefix of the placeholder variable names.
+	 */
+	public static final String PLACEHOLDER_PREFIX = "var.";
+
+	private static final String[] WORDS = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing",
+			"elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua",
+			"enim", "ad", "minim", "veniam", "quis", "nostrud", "exercitation", "ullamco", "laboris", "nisi",
+			"aliquip", "ex", "ea", "commodo", "consequat" };
+
+	private static final int MIN_WORDS = 8;
+
+	private static final int MAX_WORDS = 20;
+
+	private static final int HEADING_INTERVAL = 10;
+
+	private final long seed;
+
+	private int paragraphCount = 100;
+
+	private int runsPerParagraph = 1;
+
+	private double placeholderDensity;
+
+	private int placeholderVariables = 10;
+
+	private int tableCount;
+
+	private int tableRows = 10;
+
+	private int tableColumns = 4;
+
+	private int headingDepth = 3;
+
+	private int imageCount;
+
+	private int imageSize = 64;
+
+	/**
+	 * Creates a new generator.
+	 * 
+	 * @param seed the seed for all random choices.
+	 */
+	public SyntheticDocumentGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Creates a new document with the generated content.
+	 * <p>
+	 * The document is based on {@link DefaultTemplate#createDocument()}.
+	 * </p>
+	 * 
+	 * @return new document. Never <code>null</code>.
+	 * @throws DocWriterException if an image cannot be created.
+	 */
+	public WordprocessingMLPackage createDocument() throws DocWriterException {
+		final WordprocessingMLPackage doc = DefaultTemplate.createDocument();
+		final List<Object> contents = doc.getMainDocumentPart().getContent();
+		final ObjectFactory factory = Context.getWmlObjectFactory();
+		final Random random = new Random(seed);
+
+		int headingLevel = 0;
+		for (int i = 0; i < paragraphCount; i++) {
+			if (isHeading(i)) {
+				headingLevel = nextHeadingLevel(random, headingLevel);
+				contents.add(createHeading(factory, headingLevel, createWords(random)));
+			} else {
+				contents.add(createParagraph(factory, random));
+			}
+			for (int t = 0; t < countInsertionsAfter(i, tableCount); t++) {
+				contents.add(createTable(factory, random));
+			}
+			for (int m = 0; m < countInsertionsAfter(i, imageCount); m++) {
+				contents.add(createImageParagraph(doc, factory, random, contents.size() + 1));
+			}
+		}
+		return doc;
+	}
+
+	/**
+	 * Creates a new document with the generated content and saves it to the given
+	 * output.
+	 * 
+	 * @param target the output to save to. Cannot be <code>null</code>. Is not
+	 *               closed.
+	 * @throws DocWriterException if creating or saving the document fails.
+	 */
+	public void writeDocument(OutputStream target) throws DocWriterException {
+		requireNonNull(target);
+		try {
+			createDocument().save(target);
+		} catch (Docx4JException e) {
+			throw new DocWriterException("Error saving document", e);
+		}
+	}
+
+	/**
+	 * Creates markdown with the generated content.
+	 * 
+	 * @return markdown. Never <code>null</code>.
+	 */
+	public String createMarkdown() {
+		final StringBuilder builder = new StringBuilder();
+		try {
+			writeMarkdown(builder);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Writes markdown with the generated content to the given target.
+	 * 
+	 * @param target the target to write to. Cannot be <code>null</code>.
+	 * @throws IOException if writing fails.
+	 */
+	public void writeMarkdown(Appendable target) throws IOException {
+		requireNonNull(target);
+		final Random random = new Random(seed);
+
+		int headingLevel = 0;
+		for (int i = 0; i < paragraphCount; i++) {
+			if (isHeading(i)) {
+				headingLevel = nextHeadingLevel(random, headingLevel);
+				target.append("#".repeat(headingLevel)).append(' ').append(createWords(random));
+			} else {
+				final List<String> segments = createParagraphSegments(random, true);
+				for (int s = 0; s < segments.size(); s++) {
+					final String segment = segments.get(s);
+					if (s % 2 == 1) {
+						target.append(" **").append(segment.substring(1)).append("**");
+					} else {
+						target.append(segment);
+					}
+				}
+			}
+			target.append("\n\n");
+			for (int t = 0; t < countInsertionsAfter(i, tableCount); t++) {
+				appendMarkdownTable(target, random);
+			}
+		}
+	}
+
+	private boolean isHeading(int index) {
+		return headingDepth > 0 && index % HEADING_INTERVAL == 0;
+	}
+
+	private int nextHeadingLevel(Random random, int previousLevel) {
+		return 1 + random.nextInt(Math.min(headingDepth, previousLevel + 1));
+	}
+
+	/**
+	 * Returns how many of the given number of items to insert after the paragraph
+	 * with the given index - so that the items are spread evenly.
+	 */
+	private int countInsertionsAfter(int index, int items) {
+		final long before = (long) index * items / paragraphCount;
+		final long after = (long) (index + 1) * items / paragraphCount;
+		return (int) (after - before);
+	}
+
+	private String createWords(Random random) {
+		final int count = MIN_WORDS + random.nextInt(MAX_WORDS - MIN_WORDS + 1);
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				builder.append(' ');
+			}
+			builder.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Creates the text of a paragraph - including a placeholder depending on the
+	 * density - split into segments at random positions. If only splitting at word
+	 * boundaries, placeholders are never split.
+	 */
+	private List<String> createParagraphSegments(Random random, boolean wordBoundariesOnly) {
+		final List<String> words = new ArrayList<>(List.of(createWords(random).split(" ")));
+		if (placeholderVariables > 0 && random.nextDouble() < placeholderDensity) {
+			final String placeholder = "${" + PLACEHOLDER_PREFIX + random.nextInt(placeholderVariables) + "}";
+			words.add(random.nextInt(words.size() + 1), placeholder);
+		}
+		final String text = String.join(" ", words);
+
+		final List<Integer> positions = new ArrayList<>();
+		for (int i = 1; i < text.length(); i++) {
+			if (!wordBoundariesOnly || text.charAt(i) == ' ') {
+				positions.add(i);
+			}
+		}
+		final int cutCount = Math.min(runsPerParagraph - 1, positions.size());
+		final int[] cuts = new int[cutCount];
+		for (int c = 0; c < cutCount; c++) {
+			cuts[c] = positions.remove(random.nextInt(positions.size()));
+		}
+		Arrays.sort(cuts);
+
+		final List<String> segments = new ArrayList<>();
+		int start = 0;
+		for (int cut : cuts) {
+			segments.add(text.substring(start, cut));
+			start = cut;
+		}
+		segments.add(text.substring(start));
+		return segments;
+	}
+
+	private P createParagraph(ObjectFactory factory, Random random) {
+		final P paragraph = factory.createP();
+		for (String segment : createParagraphSegments(random, false)) {
+			paragraph.getContent().add(createRun(factory, segment));
+		}
+		return paragraph;
+	}
+
+	private P createHeading(ObjectFactory factory, int level, String text) {
+		final P paragraph = factory.createP();
+		final PPr properties = factory.createPPr();
+		final PPrBase.PStyle style = factory.createPPrBasePStyle();
+		style.setVal("Heading" + level);
+		properties.setPStyle(style);
+		final PPrBase.OutlineLvl outlineLevel = factory.createPPrBaseOutlineLvl();
+		outlineLevel.setVal(BigInteger.valueOf(level - 1));
+		properties.setOutlineLvl(outlineLevel);
+		paragraph.setPPr(properties);
+		paragraph.getContent().add(createRun(factory, text));
+		return paragraph;
+	}
+
+	private static R createRun(ObjectFactory factory, String text) {
+		final Text textElement = factory.createText();
+		textElement.setValue(text);
+		textElement.setSpace("preserve");
+		final R run = factory.createR();
+		run.getContent().add(textElement);
+		return run;
+	}
+
+	private Tbl createTable(ObjectFactory factory, Random random) {
+		final Tbl table = factory.createTbl();
+		for (int r = 0; r < tableRows; r++) {
+			final Tr row = factory.createTr();
+			for (int c = 0; c < tableColumns; c++) {
+				final Tc cell = factory.createTc();
+				final P paragraph = factory.createP();
+				paragraph.getContent().add(createRun(factory, WORDS[random.nextInt(WORDS.length)]));
+				cell.getContent().add(paragraph);
+				row.getContent().add(cell);
+			}
+			table.getContent().add(row);
+		}
+		return table;
+	}
+
+	private void appendMarkdownTable(Appendable target, Random random) throws IOException {
+		for (int r = 0; r < tableRows; r++) {
+			for (int c = 0; c < tableColumns; c++) {
+				target.append("| ").append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			}
+			target.append("|\n");
+			if (r == 0) {
+				target.append("|---".repeat(tableColumns)).append("|\n");
+			}
+		}
+		target.append('\n');
+	}
+
+	private P createImageParagraph(WordprocessingMLPackage doc, ObjectFactory factory, Random random, int id)
+			throws DocWriterException {
+		final BufferedImage image = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < imageSize; y++) {
+			for (int x = 0; x < imageSize; x++) {
+				image.setRGB(x, y, random.nextInt(0x1000000));
+			}
+		}
+
+		final Inline inline;
+		try {
+			final ByteArrayOutputStream png = new ByteArrayOutputStream();
+			ImageIO.write(image, "png", png);
+			final BinaryPartAbstractImage part = BinaryPartAbstractImage.createImagePart(doc, png.toByteArray());
+			inline = part.createImageInline("image", "image", id, id, false);
+		} catch (Exception e) {
+			throw new DocWriterException("Error creating image", e);
+		}
+
+		final Drawing drawing = factory.createDrawing();
+		drawing.getAnchorOrInline().add(inline);
+		final R run = factory.createR();
+		run.getContent().add(drawing);
+		final P paragraph = factory.createP();
+		paragraph.getContent().add(run);
+		return paragraph;
+	}
+
+	/**
+	 * Returns the seed for all random choices.
+	 * 
+	 * @return seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the number of paragraphs - including headings.
+	 * <p>
+	 * Default is 100.
+	 * </p>
+	 * 
+	 * @return paragraph count.
+	 */
+	public int getParagraphCount() {
+		return paragraphCount;
+	}
+
+	/**
+	 * Sets the number of paragraphs - including headings.
+	 * 
+	 * @param paragraphCount the paragraph count. Must not be negative.
+	 */
+	public void setParagraphCount(int paragraphCount) {
+		requireNotNegative(paragraphCount, "Paragraph count");
+		this.paragraphCount = paragraphCount;
+	}
+
+	/**
+	 * Returns the number of runs each text paragraph is split into.
+	 * <p>
+	 * Default is 1.
+	 * </p>
+	 * 
+	 * @return runs per paragraph.
+	 */
+	public int getRunsPerParagraph() {
+		return runsPerParagraph;
+	}
+
+	/**
+	 * Sets the number of runs each text paragraph is split into.
+	 * 
+	 * @param runsPerParagraph the runs per paragraph. Must be at least 1.
+	 */
+	public void setRunsPerParagraph(int runsPerParagraph) {
+		if (runsPerParagraph < 1) {
+			throw new IllegalArgumentException("Runs per paragraph must be at least 1: " + runsPerParagraph);
+		}
+		this.runsPerParagraph = runsPerParagraph;
+	}
+
+	/**
+	 * Returns the share of text paragraphs with a placeholder.
+	 * <p>
+	 * Default is 0.
+	 * </p>
+	 * 
+	 * @return placeholder density - 0 to 1.
+	 */
+	public double getPlaceholderDensity() {
+		return placeholderDensity;
+	}
+
+	/**
+	 * Sets the share of text paragraphs with a placeholder.
+	 * 
+	 * @param placeholderDensity the placeholder density - 0 to 1.
+	 */
+	public void setPlaceholderDensity(double placeholderDensity) {
+		if (placeholderDensity < 0 || placeholderDensity > 1) {
+			throw new IllegalArgumentException("Placeholder density must be between 0 and 1: " + placeholderDensity);
+		}
+		this.placeholderDensity = placeholderDensity;
+	}
+
+	/**
+	 * Returns the number of distinct placeholder variables.
+	 * <p>
+	 * Default is 10.
+	 * </p>
+	 * 
+	 * @return number of placeholder variables.
+	 */
+	public int getPlaceholderVariables() {
+		return placeholderVariables;
+	}
+
+	/**
+	 * Sets the number of distinct placeholder variables.
+	 * 
+	 * @param placeholderVariables the number of placeholder variables. Must not be
+	 *                             negative.
+	 */
+	public void setPlaceholderVariables(int placeholderVariables) {
+		requireNotNegative(placeholderVariables, "Placeholder variables");
+		this.placeholderVariables = placeholderVariables;
+	}
+
+	/**
+	 * Returns the number of tables.
+	 * <p>
+	 * Default is 0.
+	 * </p>
+	 * 
+	 * @return table count.
+	 */
+	public int getTableCount() {
+		return tableCount;
+	}
+
+	/**
+	 * Sets the number of tables.
+	 * 
+	 * @param tableCount the table count. Must not be negative.
+	 */
+	public void setTableCount(int tableCount) {
+		requireNotNegative(tableCount, "Table count");
+		this.tableCount = tableCount;
+	}
+
+	/**
+	 * Returns the number of rows per table - including the header row.
+	 * <p>
+	 * Default is 10.
+	 * </p>
+	 * 
+	 * @return table rows.
+	 */
+	public int getTableRows() {
+		return tableRows;
+	}
+
+	/**
+	 * Sets the number of rows per table - including the header row.
+	 * 
+	 * @param tableRows the table rows. Must be at least 1.
+	 */
+	public void setTableRows(int tableRows) {
+		if (tableRows < 1) {
+			throw new IllegalArgumentException("Table rows must be at least 1: " + tableRows);
+		}
+		this.tableRows = tableRows;
+	}
+
+	/**
+	 * Returns the number of columns per table.
+	 * <p>
+	 * Default is 4.
+	 * </p>
+	 * 
+	 * @return table columns.
+	 */
+	public int getTableColumns() {
+		return tableColumns;
+	}
+
+	/**
+	 * Sets the number of columns per table.
+	 * 
+	 * @param tableColumns the table columns. Must be at least 1.
+	 */
+	public void setTableColumns(int tableColumns) {
+		if (tableColumns < 1) {
+			throw new IllegalArgumentException("Table columns must be at least 1: " + tableColumns);
+		}
+		this.tableColumns = tableColumns;
+	}
+
+	/**
+	 * Returns the maximum heading level.
+	 * <p>
+	 * Default is 3.
+	 * </p>
+	 * 
+	 * @return heading depth - 0 for no headings.
+	 */
+	public int getHeadingDepth() {
+		return headingDepth;
+	}
+
+	/**
+	 * Sets the maximum heading level.
+	 * <p>
+	 * Headings use the styles <code>Heading1</code> to <code>Heading&lt;n&gt;</code>
+	 * - the default template only defines the first four of them.
+	 * </p>
+	 * 
+	 * @param headingDepth the heading depth - 0 for no headings, at most 9.
+	 */
+	public void setHeadingDepth(int headingDepth) {
+		if (headingDepth < 0 || headingDepth > 9) {
+			throw new IllegalArgumentException("Heading depth must be between 0 and 9: " + headingDepth);
+		}
+		this.headingDepth = headingDepth;
+	}
+
+	/**
+	 * Returns the number of images.
+	 * <p>
+	 * Default is 0.
+	 * </p>
+	 * 
+	 * @return image count.
+	 */
+	public int getImageCount() {
+		return imageCount;
+	}
+
+	/**
+	 * Sets the number of images.
+	 * 
+	 * @param imageCount the image count. Must not be negative.
+	 */
+	public void setImageCount(int imageCount) {
+		requireNotNegative(imageCount, "Image count");
+		this.imageCount = imageCount;
+	}
+
+	/**
+	 * Returns the width and height of the images in pixels.
+	 * <p>
+	 * Default is 64.
+	 * </p>
+	 * 
+	 * @return image size.
+	 */
+	public int getImageSize() {
+		return imageSize;
+	}
+
+	/**
+	 * Sets the width and height of the images in pixels.
+	 * 
+	 * @param imageSize the image size. Must be at least 1.
+	 */
+	public void setImageSize(int imageSize) {
+		if (imageSize < 1) {
+			throw new IllegalArgumentException("Image size must be at least 1: " + imageSize);
+		}
+		this.imageSize = imageSize;
+	}
+
+	private static void requireNotNegative(int value, String name) {
+		if (value < 0) {
+			throw new IllegalArgumentException(name + " must not be negative: " + value);
+		}
+	}
+
+}
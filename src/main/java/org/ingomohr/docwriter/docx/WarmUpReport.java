@@ -0,0 +1,56 @@
+package org.ingomohr.docwriter.docx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable report of the durations of the steps of a warm-up.
+ * 
+ * @see DocxWarmUp#warmUp()
+ * @since 6.1
+ */
+public class WarmUpReport {
+
+	private final Map<WarmUpStep, Long> nanos;
+
+	WarmUpReport(Map<WarmUpStep, Long> nanos) {
+		this.nanos = new EnumMap<>(nanos);
+	}
+
+	/**
+	 * Returns how long the given step took.
+	 * 
+	 * @param step the step. Cannot be <code>null</code>.
+	 * @return duration in nanoseconds. <code>0</code> if the step wasn't run.
+	 */
+	public long getNanos(WarmUpStep step) {
+		return nanos.getOrDefault(requireNonNull(step), 0L);
+	}
+
+	/**
+	 * Returns how long all steps took together.
+	 * 
+	 * @return duration in nanoseconds.
+	 */
+	public long getTotalNanos() {
+		return nanos.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	/**
+	 * Returns the durations of all steps in milliseconds - e.g. for logging.
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder("WarmUpReport[");
+		for (Map.Entry<WarmUpStep, Long> entry : nanos.entrySet()) {
+			builder.append(entry.getKey()).append('=').append(TimeUnit.NANOSECONDS.toMillis(entry.getValue()))
+					.append("ms, ");
+		}
+		return builder.append("total=").append(TimeUnit.NANOSECONDS.toMillis(getTotalNanos())).append("ms]")
+				.toString();
+	}
+
+}
@@ -0,0 +1,31 @@
+package org.ingomohr.docwriter.docx;
+
+/**
+ * The steps of a warm-up that are timed separately.
+ * 
+ * @see DocxWarmUp
+ * @since 6.1
+ */
+public enum WarmUpStep {
+
+	/**
+	 * Creating the JAXB contexts of docx4j.
+	 */
+	JAXB_CONTEXT,
+
+	/**
+	 * Loading the default template of the markdown renderer.
+	 */
+	DEFAULT_TEMPLATE,
+
+	/**
+	 * Loading, modifying and saving a small document with a rule-based writer.
+	 */
+	RULE_ENGINE,
+
+	/**
+	 * Rendering a small markdown text to a document.
+	 */
+	MARKDOWN
+
+}
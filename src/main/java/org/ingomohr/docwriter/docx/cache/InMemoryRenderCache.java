@@ -0,0 +1,127 @@
+package org.ingomohr.docwriter.docx.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link RenderCache} that keeps the documents in memory.
+ * <p>
+ * The total size of the stored documents is limited. If a new document would
+ * exceed the limit, the least recently used documents are dropped. Documents
+ * larger than the limit are not stored at all.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class InMemoryRenderCache implements RenderCache {
+
+	private final long maxBytes;
+
+	private final LinkedHashMap<String, byte[]> documents = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long bytes;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates a new cache.
+	 * 
+	 * @param maxBytes the maximum total size of the stored documents. Must be
+	 *                 positive.
+	 */
+	public InMemoryRenderCache(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	public byte[] get(String key) {
+		requireNonNull(key);
+		final byte[] document;
+		synchronized (documents) {
+			document = documents.get(key);
+		}
+		(document != null ? hits : misses).increment();
+		return document;
+	}
+
+	@Override
+	public void put(String key, byte[] document) {
+		requireNonNull(key);
+		requireNonNull(document);
+		if (document.length > maxBytes) {
+			return;
+		}
+		synchronized (documents) {
+			final byte[] previous = documents.put(key, document);
+			if (previous != null) {
+				bytes -= previous.length;
+			}
+			bytes += document.length;
+
+			final Iterator<byte[]> eldest = documents.values().iterator();
+			while (bytes > maxBytes) {
+				bytes -= eldest.next().length;
+				eldest.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all documents.
+	 */
+	public void clear() {
+		synchronized (documents) {
+			documents.clear();
+			bytes = 0;
+		}
+	}
+
+	/**
+	 * Returns the number of stored documents.
+	 * 
+	 * @return document count.
+	 */
+	public int size() {
+		synchronized (documents) {
+			return documents.size();
+		}
+	}
+
+	/**
+	 * Returns the total size of the stored documents.
+	 * 
+	 * @return size in bytes.
+	 */
+	public long getBytes() {
+		synchronized (documents) {
+			return bytes;
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that found a document.
+	 * 
+	 * @return hit count.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that found no document.
+	 * 
+	 * @return miss count.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+}
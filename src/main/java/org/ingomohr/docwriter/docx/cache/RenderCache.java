@@ -0,0 +1,33 @@
+package org.ingomohr.docwriter.docx.cache;
+
+/**
+ * Stores rendered documents by a key identifying everything they were rendered
+ * from.
+ * <p>
+ * Implementations must be thread-safe. They may drop entries at any time.
+ * </p>
+ * 
+ * @see org.ingomohr.docwriter.docx.AbstractRuleBasedDocxWriter#setRenderCache(RenderCache)
+ * @since 6.1
+ */
+public interface RenderCache {
+
+	/**
+	 * Returns the document stored for the given key.
+	 * 
+	 * @param key the key. Cannot be <code>null</code>.
+	 * @return stored document. <code>null</code> if there is none. Must not be
+	 *         modified by the caller.
+	 */
+	byte[] get(String key);
+
+	/**
+	 * Stores the given document for the given key.
+	 * 
+	 * @param key      the key. Cannot be <code>null</code>.
+	 * @param document the document. Cannot be <code>null</code>. Must not be
+	 *                 modified after storing it.
+	 */
+	void put(String key, byte[] document);
+
+}
@@ -0,0 +1,244 @@
+package org.ingomohr.docwriter.docx.daemon;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.ingomohr.docwriter.DocWriterException;
+
+/**
+ * Submits jobs to a {@link RenderDaemon} running on the same machine.
+ * <p>
+ * Can be used as API or - e.g. from batch scripts - as command line tool:
+ * </p>
+ * 
+ * <pre>
+ * java -cp docwriter-jar-with-dependencies.jar org.ingomohr.docwriter.docx.daemon.RenderClient
+ *     [--port &lt;port&gt;] [--token-file &lt;file&gt;] [--template &lt;file&gt;] [--markdown &lt;file&gt;] [--set &lt;name&gt;=&lt;value&gt;]... &lt;output&gt;
+ * java -cp docwriter-jar-with-dependencies.jar org.ingomohr.docwriter.docx.daemon.RenderClient
+ *     [--port &lt;port&gt;] [--token-file &lt;file&gt;] --shutdown
+ * </pre>
+ * <p>
+ * The command line tool exits with <code>0</code> if the document has been
+ * written and with <code>1</code> otherwise.
+ * </p>
+ * <p>
+ * Each request carries the token the daemon wrote to its token file. The file
+ * is read per request, so a client keeps working when the daemon is restarted.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class RenderClient {
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	private final int port;
+
+	private final Path tokenFile;
+
+	/**
+	 * Creates a new client for a daemon on the {@link RenderDaemon#DEFAULT_PORT}
+	 * that uses the default token file.
+	 */
+	public RenderClient() {
+		this(RenderDaemon.DEFAULT_PORT);
+	}
+
+	/**
+	 * Creates a new client that uses the default token file of the given port (see
+	 * {@link RenderDaemon#getDefaultTokenFile(int)}).
+	 * 
+	 * @param port the port the daemon listens on.
+	 */
+	public RenderClient(int port) {
+		this(port, RenderDaemon.getDefaultTokenFile(port));
+	}
+
+	/**
+	 * Creates a new client.
+	 * 
+	 * @param port      the port the daemon listens on.
+	 * @param tokenFile the token file of the daemon (see
+	 *                  {@link RenderDaemon#getTokenFile()}). Cannot be
+	 *                  <code>null</code>.
+	 */
+	public RenderClient(int port, Path tokenFile) {
+		this.port = port;
+		this.tokenFile = requireNonNull(tokenFile);
+	}
+
+	/**
+	 * Runs the command line tool.
+	 * 
+	 * @param args the arguments (see the class comment).
+	 */
+	public static void main(String[] args) {
+		try {
+			System.out.println(run(args));
+		} catch (DocWriterException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs the command line tool with the given arguments.
+	 * 
+	 * @param args the arguments.
+	 * @return the message of the daemon.
+	 * @throws DocWriterException       if the job fails.
+	 * @throws IllegalArgumentException if the arguments are invalid.
+	 */
+	static String run(String[] args) throws DocWriterException {
+		int port = RenderDaemon.DEFAULT_PORT;
+		Path tokenFile = null;
+		boolean shutdown = false;
+		final RenderJob job = new RenderJob();
+
+		for (int i = 0; i < args.length; i++) {
+			final String arg = args[i];
+			if ("--shutdown".equals(arg)) {
+				shutdown = true;
+			} else if (arg.startsWith("--")) {
+				if (i + 1 == args.length) {
+					throw new IllegalArgumentException("Missing value of " + arg);
+				}
+				final String value = args[++i];
+				switch (arg) {
+				case "--port":
+					port = Integer.parseInt(value);
+					break;
+				case "--token-file":
+					tokenFile = Paths.get(value);
+					break;
+				case "--template":
+					job.setTemplate(Paths.get(value).toAbsolutePath());
+					break;
+				case "--markdown":
+					job.setMarkdown(readFile(Paths.get(value)));
+					break;
+				case "--set":
+					final int separator = value.indexOf('=');
+					if (separator < 1) {
+						throw new IllegalArgumentException("Expected <name>=<value>: " + value);
+					}
+					job.getValues().put(value.substring(0, separator), value.substring(separator + 1));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + arg);
+				}
+			} else if (job.getOutput() == null) {
+				job.setOutput(Paths.get(arg).toAbsolutePath());
+			} else {
+				throw new IllegalArgumentException("More than one output: " + arg);
+			}
+		}
+
+		final RenderClient client = tokenFile != null ? new RenderClient(port, tokenFile) : new RenderClient(port);
+		if (shutdown) {
+			return client.shutdownDaemon();
+		}
+		if (job.getOutput() == null) {
+			throw new IllegalArgumentException("No output given");
+		}
+		return client.submit(job);
+	}
+
+	/**
+	 * Submits the given job and waits until the daemon has rendered it.
+	 * 
+	 * @param job the job. Cannot be <code>null</code>. Must have an output.
+	 * @return the message of the daemon. Never <code>null</code>.
+	 * @throws DocWriterException if the token file cannot be read, the daemon
+	 *                            cannot be reached or the job fails.
+	 */
+	public String submit(RenderJob job) throws DocWriterException {
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try {
+			// Escapes all characters beyond ISO 8859-1 - as Properties#load expects.
+			job.toProperties().store(body, null);
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot write job", e);
+		}
+		return post("/render", body.toByteArray());
+	}
+
+	/**
+	 * Stops the daemon.
+	 * 
+	 * @return the message of the daemon. Never <code>null</code>.
+	 * @throws DocWriterException if the token file cannot be read or the daemon
+	 *                            cannot be reached.
+	 * @see RenderDaemon#stop()
+	 */
+	public String shutdownDaemon() throws DocWriterException {
+		return post("/shutdown", new byte[0]);
+	}
+
+	private String post(String path, byte[] body) throws DocWriterException {
+		final HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+				.header(RenderDaemon.TOKEN_HEADER, readToken())
+				.header("Content-Type", "text/plain; charset=ISO-8859-1")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+
+		final HttpResponse<String> response;
+		try {
+			response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot reach render daemon on port " + port, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DocWriterException("Interrupted while waiting for render daemon", e);
+		}
+
+		if (response.statusCode() != 200) {
+			throw new DocWriterException(response.body());
+		}
+		return response.body();
+	}
+
+	private String readToken() throws DocWriterException {
+		try {
+			return Files.readString(tokenFile, StandardCharsets.US_ASCII).trim();
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot read token file " + tokenFile + " - is the daemon running?", e);
+		}
+	}
+
+	private static String readFile(Path path) throws DocWriterException {
+		try {
+			return Files.readString(path, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot read " + path, e);
+		}
+	}
+
+	/**
+	 * Returns the port the daemon listens on.
+	 * 
+	 * @return port.
+	 */
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * Returns the file the token of the daemon is read from.
+	 * 
+	 * @return token file. Never <code>null</code>.
+	 */
+	public Path getTokenFile() {
+		return tokenFile;
+	}
+
+}
@@ -0,0 +1,641 @@
+package org.ingomohr.docwriter.docx.daemon;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.TemplateRegistry;
+import org.ingomohr.docwriter.docx.DefaultTemplate;
+import org.ingomohr.docwriter.docx.DocxTemplateRegistry;
+import org.ingomohr.docwriter.docx.DocxWarmUp;
+import org.ingomohr.docwriter.docx.rules.DocumentRule;
+import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
+import org.ingomohr.docwriter.docx.rules.VariableReplacementRule;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.vladsch.flexmark.docx.converter.DocxRenderer;
+import com.vladsch.flexmark.parser.Parser;
+
+/**
+ * A long-running process that renders documents for {@link RenderClient
+ * clients}.
+ * <p>
+ * Starting a JVM per document means paying for the JVM startup, the JAXB
+ * contexts of docx4j and the class loading of every render path for every
+ * document. The daemon pays for them once and keeps warm what can be reused
+ * between jobs:
+ * </p>
+ * <ul>
+ * <li>Templates are loaded and prepared once and kept in memory (see
+ * {@link DocxTemplateRegistry}). When a template file changes, the template is
+ * prepared again in the background.</li>
+ * <li>The markdown parser and renderer are built once.</li>
+ * <li>The JVM is {@link DocxWarmUp warmed up} at start.</li>
+ * </ul>
+ * <p>
+ * The daemon listens on a local HTTP port - it's only reachable from the same
+ * machine. Jobs are posted to <code>/render</code> as {@link RenderJob}
+ * properties and run concurrently on a fixed number of threads. The response is
+ * sent when the document has been written: <code>200</code> if the job
+ * succeeded, <code>400</code> if the job is invalid and <code>500</code> with
+ * the error message if rendering failed. A post to <code>/shutdown</code> stops
+ * the daemon.
+ * </p>
+ * <p>
+ * As other users and web pages opened in a browser can reach the port as well,
+ * the daemon only accepts requests that
+ * </p>
+ * <ul>
+ * <li>carry the daemon's token in the {@link #TOKEN_HEADER} header
+ * (<code>401</code> otherwise). At start, the daemon creates a random token and
+ * writes it to its {@link #getTokenFile() token file}, which only the owner can
+ * read.</li>
+ * <li>have no <code>Origin</code> header - i.e. don't come from a browser
+ * (<code>403</code> otherwise) - and</li>
+ * <li>have a <code>text/plain</code> body (<code>415</code> otherwise).</li>
+ * </ul>
+ * <p>
+ * Documents are only written below the {@link #getOutputRoot() output root}.
+ * </p>
+ * <p>
+ * Run it via
+ * <code>java -cp docwriter-jar-with-dependencies.jar org.ingomohr.docwriter.docx.daemon.RenderDaemon [port [threads [output-root]]]</code>.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class RenderDaemon {
+
+	/**
+	 * The port the daemon listens on if no other port is given.
+	 */
+	public static final int DEFAULT_PORT = 7439;
+
+	/**
+	 * The request header that carries the token of the daemon.
+	 */
+	public static final String TOKEN_HEADER = "X-Docwriter-Token";
+
+	private static final int TOKEN_BYTES = 32;
+
+	private static final int STOP_TIMEOUT_SECONDS = 60;
+
+	private final int port;
+
+	private final int threadCount;
+
+	private final TemplateRegistry templates = createTemplateRegistry();
+
+	private final SharedMarkdownRule markdownRule = new SharedMarkdownRule(null, null);
+
+	private final CountDownLatch stopped = new CountDownLatch(1);
+
+	private boolean warmingUp = true;
+
+	private Path tokenFile;
+
+	private Path outputRoot;
+
+	private byte[] token;
+
+	private HttpServer server;
+
+	private ExecutorService executor;
+
+	/**
+	 * Creates a new daemon on the {@link #DEFAULT_PORT} that runs as many jobs in
+	 * parallel as there are available processors.
+	 */
+	public RenderDaemon() {
+		this(DEFAULT_PORT, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new daemon.
+	 * 
+	 * @param port        the port to listen on. <code>0</code> for any free port
+	 *                    (see {@link #getPort()}).
+	 * @param threadCount the number of jobs run in parallel. Must be at least 1.
+	 */
+	public RenderDaemon(int port, int threadCount) {
+		if (port < 0 || port > 0xFFFF) {
+			throw new IllegalArgumentException("Invalid port: " + port);
+		}
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("Thread count must be at least 1: " + threadCount);
+		}
+		this.port = port;
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Starts the daemon with the port, the thread count and the output root given
+	 * as optional arguments and waits until it has been shut down.
+	 * 
+	 * @param args <code>[port [threads [output-root]]]</code>.
+	 * @throws Exception if the daemon cannot be started.
+	 */
+	public static void main(String[] args) throws Exception {
+		final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		final int threads = args.length > 1 ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+
+		final RenderDaemon daemon = new RenderDaemon(port, threads);
+		if (args.length > 2) {
+			daemon.setOutputRoot(Paths.get(args[2]));
+		}
+		daemon.start();
+		System.out.println("Render daemon listening on port " + daemon.getPort() + ", writing below "
+				+ daemon.getOutputRoot() + ", token in " + daemon.getTokenFile());
+		daemon.awaitStop();
+	}
+
+	/**
+	 * Returns the file a daemon on the given port writes its token to if no other
+	 * token file is set: <code>~/.docwriter/render-daemon-&lt;port&gt;.token</code>.
+	 * 
+	 * @param port the port of the daemon.
+	 * @return token file. Never <code>null</code>.
+	 */
+	public static Path getDefaultTokenFile(int port) {
+		return Paths.get(System.getProperty("user.home"), ".docwriter", "render-daemon-" + port + ".token");
+	}
+
+	/**
+	 * Starts the daemon.
+	 * <p>
+	 * If {@link #isWarmingUp() warming up} is enabled, the JVM is warmed up before
+	 * the port is opened. Once the port is open, a new token is written to the
+	 * {@link #getTokenFile() token file}.
+	 * </p>
+	 * 
+	 * @throws DocWriterException if the warm-up fails, the port cannot be opened
+	 *                            or the token file cannot be written.
+	 * @throws IllegalStateException if the daemon has been started before.
+	 */
+	public synchronized void start() throws DocWriterException {
+		if (server != null || stopped.getCount() == 0) {
+			throw new IllegalStateException("Daemon has been started before");
+		}
+		if (isWarmingUp()) {
+			new DocxWarmUp().warmUp();
+		}
+
+		try {
+			server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot listen on port " + port, e);
+		}
+
+		token = createToken();
+		try {
+			writeTokenFile(getTokenFile(), token);
+		} catch (IOException e) {
+			server.stop(0);
+			server = null;
+			throw new DocWriterException("Cannot write token file " + getTokenFile(), e);
+		}
+
+		executor = Executors.newFixedThreadPool(threadCount, createThreadFactory());
+		server.setExecutor(executor);
+		server.createContext("/render", this::handleRender);
+		server.createContext("/shutdown", this::handleShutdown);
+		server.start();
+	}
+
+	/**
+	 * Stops the daemon.
+	 * <p>
+	 * No further jobs are accepted. Jobs that are running get up to a minute to
+	 * finish. The token file is deleted. Does nothing if the daemon is not
+	 * running.
+	 * </p>
+	 */
+	public synchronized void stop() {
+		if (server == null) {
+			return;
+		}
+		// The executor runs the exchanges. Once it's shut down, new exchanges are
+		// rejected while the running ones can still send their responses.
+		executor.shutdown();
+		try {
+			executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			deleteTokenFile();
+			server.stop(0);
+			server = null;
+			templates.close();
+			stopped.countDown();
+		}
+	}
+
+	/**
+	 * Waits until the daemon has been stopped.
+	 * 
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	public void awaitStop() throws InterruptedException {
+		stopped.await();
+	}
+
+	/**
+	 * Returns the port the daemon listens on.
+	 * 
+	 * @return port. The port given on creation if the daemon isn't running.
+	 */
+	public synchronized int getPort() {
+		return server != null ? server.getAddress().getPort() : port;
+	}
+
+	/**
+	 * Renders the given job.
+	 * <p>
+	 * If the output is a symbolic link, writing fails - the link isn't followed.
+	 * </p>
+	 * 
+	 * @param job the job to render. Cannot be <code>null</code>.
+	 * @throws DocWriterException       if the job cannot be rendered.
+	 * @throws IllegalArgumentException if the output is not below the
+	 *                                  {@link #getOutputRoot() output root}.
+	 */
+	public void render(RenderJob job) throws DocWriterException {
+		requireNonNull(job);
+		final Path output = requireNonNull(job.getOutput(), "Job has no output");
+		checkOutput(output);
+
+		final WordprocessingMLPackage doc = createDocument(job);
+		applyRules(doc, createRules(job));
+
+		try (OutputStream out = Files.newOutputStream(output, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, LinkOption.NOFOLLOW_LINKS)) {
+			doc.save(out);
+		} catch (IOException | Docx4JException e) {
+			throw new DocWriterException("Cannot write " + output, e);
+		}
+	}
+
+	/**
+	 * Checks that the given output is below the {@link #getOutputRoot() output
+	 * root}.
+	 * <p>
+	 * Symbolic links in the directories of the output are resolved - so a link
+	 * below the root can't point outside of it.
+	 * </p>
+	 * 
+	 * @param output the output to check. Cannot be <code>null</code>.
+	 * @throws IllegalArgumentException if the output is not below the root or its
+	 *                                  directory doesn't exist.
+	 */
+	protected void checkOutput(Path output) {
+		final Path absolute = output.toAbsolutePath().normalize();
+		final Path directory = absolute.getParent();
+		try {
+			final Path root = getOutputRoot().toRealPath();
+			if (directory == null || absolute.getFileName() == null || !directory.toRealPath().startsWith(root)) {
+				throw new IllegalArgumentException("Output is not below " + root + ": " + output);
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Cannot resolve output directory of " + output, e);
+		}
+	}
+
+	/**
+	 * Creates the document to fill for the given job.
+	 * <p>
+	 * The document is unpacked from the prepared template in memory - or copied
+	 * from the {@link DefaultTemplate} if the job has no template.
+	 * </p>
+	 * 
+	 * @param job the job.
+	 * @return new document. Never <code>null</code>.
+	 * @throws DocWriterException if the document cannot be created.
+	 */
+	protected WordprocessingMLPackage createDocument(RenderJob job) throws DocWriterException {
+		if (job.getTemplate() == null) {
+			return DefaultTemplate.createDocument();
+		}
+		try {
+			return WordprocessingMLPackage.load(new ByteArrayInputStream(templates.get(job.getTemplate())));
+		} catch (Docx4JException e) {
+			throw new DocWriterException("Cannot load template " + job.getTemplate(), e);
+		}
+	}
+
+	/**
+	 * Creates the registry the templates of the jobs are read from.
+	 * 
+	 * @return new registry. Never <code>null</code>.
+	 */
+	protected TemplateRegistry createTemplateRegistry() {
+		return new DocxTemplateRegistry();
+	}
+
+	/**
+	 * Creates the rules to apply for the given job.
+	 * <p>
+	 * The default implementation returns a {@link VariableReplacementRule} for the
+	 * job's values and - if the job has markdown - a {@link MarkdownAppenderRule}
+	 * that uses the daemon's markdown parser and renderer.
+	 * </p>
+	 * 
+	 * @param job the job.
+	 * @return rules. Never <code>null</code>.
+	 */
+	protected List<DocumentRule> createRules(RenderJob job) {
+		final List<DocumentRule> rules = new ArrayList<>();
+		if (!job.getValues().isEmpty()) {
+			rules.add(new VariableReplacementRule(job.getValues()));
+		}
+
+		final String markdown = job.getMarkdown();
+		if (markdown != null) {
+			rules.add(new SharedMarkdownRule(() -> markdown, markdownRule));
+		}
+		return rules;
+	}
+
+	/**
+	 * Applies the given rules to the given document.
+	 * <p>
+	 * Rules are applied to all text elements of the main document part first and
+	 * to the document and the main document part afterwards. This way, appended
+	 * markdown is not subject to variable replacement.
+	 * </p>
+	 * 
+	 * @param doc   the document.
+	 * @param rules the rules to apply.
+	 */
+	protected void applyRules(WordprocessingMLPackage doc, List<DocumentRule> rules) {
+		final MainDocumentPart part = doc.getMainDocumentPart();
+
+		for (Text text : new DocxDataInspector().getAllElements(part, Text.class)) {
+			for (DocumentRule rule : rules) {
+				if (rule.appliesTo(text)) {
+					rule.apply(text);
+				}
+			}
+		}
+
+		for (DocumentRule rule : rules) {
+			if (rule.appliesTo(doc)) {
+				rule.apply(doc);
+			}
+			if (rule.appliesTo(part)) {
+				rule.apply(part);
+			}
+		}
+	}
+
+	private void handleRender(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!checkRequest(exchange)) {
+				return;
+			}
+
+			final RenderJob job;
+			try {
+				final Properties properties = new Properties();
+				properties.load(exchange.getRequestBody());
+				job = RenderJob.fromProperties(properties);
+				checkOutput(job.getOutput());
+			} catch (IllegalArgumentException e) {
+				respond(exchange, 400, e.getMessage());
+				return;
+			}
+
+			try {
+				render(job);
+				respond(exchange, 200, "Written " + job.getOutput());
+			} catch (DocWriterException | RuntimeException e) {
+				respond(exchange, 500, getMessages(e));
+			}
+		}
+	}
+
+	private void handleShutdown(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!checkRequest(exchange)) {
+				return;
+			}
+			respond(exchange, 200, "Stopping");
+		}
+		// Stopping waits for the exchanges - so it must not run on their threads.
+		final Thread thread = new Thread(this::stop, "docwriter-daemon-stop");
+		thread.start();
+	}
+
+	/**
+	 * Checks method, origin, token and content type of the given request. Responds
+	 * with an error if the request is not accepted.
+	 * 
+	 * @return <code>true</code> if the request is accepted.
+	 */
+	private boolean checkRequest(HttpExchange exchange) throws IOException {
+		final Headers headers = exchange.getRequestHeaders();
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, "Use POST");
+			return false;
+		}
+		if (headers.containsKey("Origin")) {
+			respond(exchange, 403, "Requests from browsers are not accepted");
+			return false;
+		}
+		final String requestToken = headers.getFirst(TOKEN_HEADER);
+		if (requestToken == null
+				|| !MessageDigest.isEqual(token, requestToken.getBytes(StandardCharsets.US_ASCII))) {
+			respond(exchange, 401, "Missing or wrong token");
+			return false;
+		}
+		final String contentType = headers.getFirst("Content-Type");
+		if (contentType == null || !contentType.split(";", 2)[0].trim().equalsIgnoreCase("text/plain")) {
+			respond(exchange, 415, "Use Content-Type text/plain");
+			return false;
+		}
+		return true;
+	}
+
+	private static byte[] createToken() {
+		final byte[] bytes = new byte[TOKEN_BYTES];
+		new SecureRandom().nextBytes(bytes);
+		return Base64.getUrlEncoder().withoutPadding().encode(bytes);
+	}
+
+	/**
+	 * Writes the token to a new file that - on POSIX file systems - only the owner
+	 * can read. Elsewhere, the file is protected by the permissions of its
+	 * directory.
+	 */
+	private static void writeTokenFile(Path file, byte[] token) throws IOException {
+		final boolean posix = file.getFileSystem().supportedFileAttributeViews().contains("posix");
+		final Path directory = file.toAbsolutePath().getParent();
+		if (directory != null && Files.notExists(directory)) {
+			if (posix) {
+				Files.createDirectories(directory,
+						PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			} else {
+				Files.createDirectories(directory);
+			}
+		}
+
+		// A new file - so that no one else has opened it before.
+		Files.deleteIfExists(file);
+		if (posix) {
+			Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} else {
+			Files.createFile(file);
+		}
+		Files.write(file, token, StandardOpenOption.WRITE, LinkOption.NOFOLLOW_LINKS);
+	}
+
+	private void deleteTokenFile() {
+		try {
+			Files.deleteIfExists(getTokenFile());
+		} catch (IOException e) {
+			// A stale token is useless once the daemon is stopped.
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+		final byte[] body = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+	}
+
+	private static String getMessages(Throwable throwable) {
+		final StringBuilder builder = new StringBuilder(String.valueOf(throwable.getMessage()));
+		for (Throwable cause = throwable.getCause(); cause != null; cause = cause.getCause()) {
+			builder.append(": ").append(cause.getMessage());
+		}
+		return builder.toString();
+	}
+
+	private static ThreadFactory createThreadFactory() {
+		final AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "docwriter-daemon-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Returns the file the token of the daemon is written to.
+	 * 
+	 * @return token file. The {@link #getDefaultTokenFile(int) default token file}
+	 *         for the port of the daemon if not set.
+	 */
+	public synchronized Path getTokenFile() {
+		return tokenFile != null ? tokenFile : getDefaultTokenFile(getPort());
+	}
+
+	/**
+	 * Sets the file the token of the daemon is written to.
+	 * 
+	 * @param tokenFile the token file. <code>null</code> for the default token
+	 *                  file.
+	 * @throws IllegalStateException if the daemon is running.
+	 */
+	public synchronized void setTokenFile(Path tokenFile) {
+		if (server != null) {
+			throw new IllegalStateException("Daemon is running");
+		}
+		this.tokenFile = tokenFile;
+	}
+
+	/**
+	 * Returns the directory documents are written to or below.
+	 * 
+	 * @return output root. The working directory of the daemon if not set.
+	 */
+	public Path getOutputRoot() {
+		return outputRoot != null ? outputRoot : Paths.get("").toAbsolutePath();
+	}
+
+	/**
+	 * Sets the directory documents are written to or below. Jobs with other
+	 * outputs are rejected.
+	 * 
+	 * @param outputRoot the output root. <code>null</code> for the working
+	 *                   directory of the daemon.
+	 */
+	public void setOutputRoot(Path outputRoot) {
+		this.outputRoot = outputRoot;
+	}
+
+	/**
+	 * Returns whether the JVM is warmed up when the daemon starts.
+	 * 
+	 * @return <code>true</code> if warming up. Default is <code>true</code>.
+	 */
+	public boolean isWarmingUp() {
+		return warmingUp;
+	}
+
+	/**
+	 * Sets whether the JVM is warmed up when the daemon starts.
+	 * 
+	 * @param warmingUp <code>true</code> to warm up.
+	 */
+	public void setWarmingUp(boolean warmingUp) {
+		this.warmingUp = warmingUp;
+	}
+
+	/**
+	 * Markdown rule that uses the parser and the renderer of another rule - so
+	 * that they're built only once for all jobs.
+	 */
+	private static final class SharedMarkdownRule extends MarkdownAppenderRule {
+
+		private final SharedMarkdownRule shared;
+
+		SharedMarkdownRule(Supplier<String> valueSupplier, SharedMarkdownRule shared) {
+			super(valueSupplier);
+			this.shared = shared;
+		}
+
+		@Override
+		protected Parser getParser() {
+			return shared != null ? shared.getParser() : super.getParser();
+		}
+
+		@Override
+		protected DocxRenderer getRenderer() {
+			return shared != null ? shared.getRenderer() : super.getRenderer();
+		}
+	}
+
+}
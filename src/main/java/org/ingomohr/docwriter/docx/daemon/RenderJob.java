@@ -0,0 +1,173 @@
+package org.ingomohr.docwriter.docx.daemon;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * A document to be rendered by the {@link RenderDaemon}.
+ * <p>
+ * A job consists of an optional template, values for the template's
+ * <code>${...}</code> variables, optional markdown to append and the path to
+ * write the document to. Jobs are sent to the daemon as {@link Properties}:
+ * </p>
+ * 
+ * <pre>
+ * template=/path/to/template.docx
+ * output=/path/to/document.docx
+ * markdown=# Title\n\nSome text
+ * value.name=Jane Doe
+ * </pre>
+ * <p>
+ * Paths are resolved by the daemon. Use absolute paths if the client runs in
+ * another directory.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class RenderJob {
+
+	private static final String TEMPLATE = "template";
+
+	private static final String OUTPUT = "output";
+
+	private static final String MARKDOWN = "markdown";
+
+	private static final String VALUE_PREFIX = "value.";
+
+	private Path template;
+
+	private Path output;
+
+	private String markdown;
+
+	private final Map<String, String> values = new LinkedHashMap<>();
+
+	/**
+	 * Creates a job from the given properties.
+	 * 
+	 * @param properties the properties. Cannot be <code>null</code>.
+	 * @return new job. Never <code>null</code>.
+	 * @throws IllegalArgumentException if the properties have no output.
+	 * @see #toProperties()
+	 */
+	public static RenderJob fromProperties(Properties properties) {
+		requireNonNull(properties);
+
+		final String output = properties.getProperty(OUTPUT);
+		if (output == null || output.isEmpty()) {
+			throw new IllegalArgumentException("Job has no " + OUTPUT);
+		}
+
+		final RenderJob job = new RenderJob();
+		job.setOutput(Paths.get(output));
+
+		final String template = properties.getProperty(TEMPLATE);
+		if (template != null && !template.isEmpty()) {
+			job.setTemplate(Paths.get(template));
+		}
+		job.setMarkdown(properties.getProperty(MARKDOWN));
+
+		// Sorted so that the values have a stable order.
+		for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+			if (key.startsWith(VALUE_PREFIX)) {
+				job.getValues().put(key.substring(VALUE_PREFIX.length()), properties.getProperty(key));
+			}
+		}
+		return job;
+	}
+
+	/**
+	 * Returns the job as properties.
+	 * 
+	 * @return new properties. Never <code>null</code>.
+	 * @throws IllegalStateException if the job has no output.
+	 * @see #fromProperties(Properties)
+	 */
+	public Properties toProperties() {
+		if (output == null) {
+			throw new IllegalStateException("Job has no " + OUTPUT);
+		}
+
+		final Properties properties = new Properties();
+		properties.setProperty(OUTPUT, output.toString());
+		if (template != null) {
+			properties.setProperty(TEMPLATE, template.toString());
+		}
+		if (markdown != null) {
+			properties.setProperty(MARKDOWN, markdown);
+		}
+		values.forEach((name, value) -> properties.setProperty(VALUE_PREFIX + name, value));
+		return properties;
+	}
+
+	/**
+	 * Returns the template to fill.
+	 * 
+	 * @return template. <code>null</code> for the default template.
+	 */
+	public Path getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Sets the template to fill.
+	 * 
+	 * @param template the template. <code>null</code> for the default template.
+	 */
+	public void setTemplate(Path template) {
+		this.template = template;
+	}
+
+	/**
+	 * Returns the path to write the document to.
+	 * 
+	 * @return output. <code>null</code> if not set yet.
+	 */
+	public Path getOutput() {
+		return output;
+	}
+
+	/**
+	 * Sets the path to write the document to.
+	 * 
+	 * @param output the output. Cannot be <code>null</code>.
+	 */
+	public void setOutput(Path output) {
+		this.output = requireNonNull(output);
+	}
+
+	/**
+	 * Returns the markdown to append to the document.
+	 * 
+	 * @return markdown. <code>null</code> if nothing is appended.
+	 */
+	public String getMarkdown() {
+		return markdown;
+	}
+
+	/**
+	 * Sets the markdown to append to the document.
+	 * 
+	 * @param markdown the markdown. <code>null</code> to append nothing.
+	 */
+	public void setMarkdown(String markdown) {
+		this.markdown = markdown;
+	}
+
+	/**
+	 * Returns the values of the template's variables.
+	 * 
+	 * @return modifiable values by variable name (without the <code>${}</code>
+	 *         wrapper). Never <code>null</code>.
+	 */
+	public Map<String, String> getValues() {
+		return values;
+	}
+
+}
@@ -0,0 +1,280 @@
+package org.ingomohr.docwriter.docx.merge;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.docx4j.model.datastorage.migration.VariablePrepare;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.util.RecordValues;
+import org.ingomohr.docwriter.docx.util.XmlEscaping;
+
+/**
+ * A template whose <code>${...}</code> variables can be filled without loading
+ * the document into an object model.
+ * <p>
+ * Compiling a template analyzes it once: split runs are joined, and the raw XML
+ * of the main document part and of all headers and footers is cut into static
+ * segments and the variables between them. Variables are only recognized in the
+ * content of text elements (<code>w:t</code>) - not in attribute values. Text
+ * elements with variables keep their spaces (<code>xml:space="preserve"</code>),
+ * so that values can start or end with spaces. Filling the template then writes
+ * the static segments and the (XML-escaped) values straight into the output
+ * zip.
+ * All other parts of the package are copied as they are.
+ * </p>
+ * <p>
+ * Like {@link org.ingomohr.docwriter.docx.rules.VariableReplacementRule}, values
+ * are inserted literally and variables without value are left untouched.
+ * </p>
+ * <p>
+ * Compiled templates are immutable and can be filled by several threads at the
+ * same time.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public final class CompiledTemplate {
+
+	private static final Pattern VARIABLE = Pattern.compile("\\$\\{([^}<>]+)\\}");
+
+	/**
+	 * A text element (<code>w:t</code>) with its content - but no
+	 * <code>w:tab</code>, <code>w:tbl</code> etc. and no empty element.
+	 */
+	private static final Pattern TEXT = Pattern.compile("<w:t(?:\\s[^>]*)?(?<!/)>([^<]*)</w:t>");
+
+	private static final Pattern FILLED_PART = Pattern
+			.compile("word/(document|header[0-9]*|footer[0-9]*)\\.xml");
+
+	private final List<Entry> entries;
+
+	private final Set<String> variableNames;
+
+	private CompiledTemplate(List<Entry> entries, Set<String> variableNames) {
+		this.entries = entries;
+		this.variableNames = Collections.unmodifiableSet(variableNames);
+	}
+
+	/**
+	 * Compiles the template at the given path.
+	 * 
+	 * @param template the template path. Cannot be <code>null</code>.
+	 * @return compiled template. Never <code>null</code>.
+	 * @throws DocWriterException if the template cannot be read.
+	 */
+	public static CompiledTemplate compile(Path template) throws DocWriterException {
+		try (InputStream in = Files.newInputStream(requireNonNull(template))) {
+			return compile(in);
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot read template " + template, e);
+		}
+	}
+
+	/**
+	 * Compiles the template read from the given stream.
+	 * 
+	 * @param template the template. Cannot be <code>null</code>. Is not closed.
+	 * @return compiled template. Never <code>null</code>.
+	 * @throws DocWriterException if the template cannot be read.
+	 */
+	public static CompiledTemplate compile(InputStream template) throws DocWriterException {
+		try {
+			return compile(WordprocessingMLPackage.load(requireNonNull(template)));
+		} catch (Docx4JException e) {
+			throw new DocWriterException("Cannot load template", e);
+		}
+	}
+
+	/**
+	 * Compiles the given template.
+	 * <p>
+	 * The template is prepared in place (see <code>VariablePrepare</code> of
+	 * docx4j) so that variables are not split across runs.
+	 * </p>
+	 * 
+	 * @param template the template. Cannot be <code>null</code>.
+	 * @return compiled template. Never <code>null</code>.
+	 * @throws DocWriterException if the template cannot be prepared.
+	 */
+	public static CompiledTemplate compile(WordprocessingMLPackage template) throws DocWriterException {
+		requireNonNull(template);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			VariablePrepare.prepare(template);
+			template.save(out);
+		} catch (Exception e) {
+			throw new DocWriterException("Cannot prepare template", e);
+		}
+
+		try {
+			return compile(out.toByteArray());
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot compile template", e);
+		}
+	}
+
+	private static CompiledTemplate compile(byte[] docx) throws IOException {
+		final List<Entry> entries = new ArrayList<>();
+		final Set<String> variableNames = new LinkedHashSet<>();
+
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(docx))) {
+			for (ZipEntry zipEntry = zip.getNextEntry(); zipEntry != null; zipEntry = zip.getNextEntry()) {
+				final String name = zipEntry.getName();
+				final byte[] content = zip.readAllBytes();
+
+				if (FILLED_PART.matcher(name).matches()) {
+					entries.add(compilePart(name, new String(content, StandardCharsets.UTF_8), variableNames));
+				} else {
+					entries.add(new Entry(name, Collections.singletonList(content), Collections.emptyList(),
+							Collections.emptyList()));
+				}
+			}
+		}
+		return new CompiledTemplate(entries, variableNames);
+	}
+
+	private static Entry compilePart(String name, String xml, Set<String> variableNames) {
+		final List<byte[]> segments = new ArrayList<>();
+		final List<String> variables = new ArrayList<>();
+		final List<byte[]> placeholders = new ArrayList<>();
+
+		// Variables are only looked for in text content - never in attribute values.
+		final Matcher text = TEXT.matcher(xml);
+		final Matcher matcher = VARIABLE.matcher(xml);
+		int last = 0;
+		while (text.find()) {
+			matcher.region(text.start(1), text.end(1));
+			boolean preserved = false;
+			while (matcher.find()) {
+				final StringBuilder segment = new StringBuilder();
+				if (!preserved) {
+					// Values may start or end with spaces, which Word drops without xml:space.
+					segment.append(xml, last, text.start());
+					segment.append(withPreservedSpace(xml.substring(text.start(), text.start(1))));
+					last = text.start(1);
+					preserved = true;
+				}
+				segment.append(xml, last, matcher.start());
+				segments.add(segment.toString().getBytes(StandardCharsets.UTF_8));
+				variables.add(XmlEscaping.unescape(matcher.group(1)));
+				placeholders.add(matcher.group().getBytes(StandardCharsets.UTF_8));
+				last = matcher.end();
+			}
+		}
+		segments.add(xml.substring(last).getBytes(StandardCharsets.UTF_8));
+
+		variableNames.addAll(variables);
+		return new Entry(name, segments, variables, placeholders);
+	}
+
+	/**
+	 * Returns the given start tag of a text element with
+	 * <code>xml:space="preserve"</code> - unless it has an <code>xml:space</code>
+	 * attribute already.
+	 */
+	private static String withPreservedSpace(String startTag) {
+		if (startTag.contains("xml:space=")) {
+			return startTag;
+		}
+		return startTag.substring(0, startTag.length() - 1) + " xml:space=\"preserve\">";
+	}
+
+	/**
+	 * Fills the template with the values of the given record and writes the
+	 * resulting document.
+	 * 
+	 * @param record the record - a {@link Map} or a POJO (see
+	 *               {@link MailMergeEngine}).
+	 * @param target the target to write to. Cannot be <code>null</code>. Is not
+	 *               closed.
+	 * @throws IOException if writing fails.
+	 */
+	public void fill(Object record, OutputStream target) throws IOException {
+		fill(RecordValues.of(record), target);
+	}
+
+	/**
+	 * Fills the template with the given values and writes the resulting document.
+	 * 
+	 * @param values the values by variable name. Cannot be <code>null</code>.
+	 * @param target the target to write to. Cannot be <code>null</code>. Is not
+	 *               closed.
+	 * @throws IOException if writing fails.
+	 */
+	public void fill(Map<String, ?> values, OutputStream target) throws IOException {
+		requireNonNull(values);
+
+		final ZipOutputStream zip = new ZipOutputStream(requireNonNull(target), StandardCharsets.UTF_8);
+		for (Entry entry : entries) {
+			zip.putNextEntry(new ZipEntry(entry.name));
+			entry.write(values, zip);
+			zip.closeEntry();
+		}
+		zip.finish();
+	}
+
+	/**
+	 * Returns the names of all variables of the template.
+	 * 
+	 * @return variable names in order of their first occurrence. Never
+	 *         <code>null</code>.
+	 */
+	public Set<String> getVariableNames() {
+		return variableNames;
+	}
+
+	/**
+	 * A part of the package: static segments with variables between them. The
+	 * original placeholders are kept for variables without value.
+	 */
+	private static final class Entry {
+
+		final String name;
+		final List<byte[]> segments;
+		final List<String> variables;
+		final List<byte[]> placeholders;
+
+		Entry(String name, List<byte[]> segments, List<String> variables, List<byte[]> placeholders) {
+			this.name = name;
+			this.segments = segments;
+			this.variables = variables;
+			this.placeholders = placeholders;
+		}
+
+		void write(Map<String, ?> values, OutputStream out) throws IOException {
+			out.write(segments.get(0));
+			for (int i = 0; i < variables.size(); i++) {
+				final String variable = variables.get(i);
+				if (values.containsKey(variable)) {
+					out.write(XmlEscaping.escape(String.valueOf(values.get(variable))).getBytes(StandardCharsets.UTF_8));
+				} else {
+					out.write(placeholders.get(i));
+				}
+				out.write(segments.get(i + 1));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,387 @@
+package org.ingomohr.docwriter.docx.merge;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.docx4j.model.datastorage.migration.VariablePrepare;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Load3;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.io3.stores.ZipPartStore;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.CopyOnWritePartStore;
+import org.ingomohr.docwriter.docx.rules.DocumentRule;
+import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
+import org.ingomohr.docwriter.docx.rules.VariableReplacementRule;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.ingomohr.docwriter.docx.util.RecordValues;
+
+/**
+ * Renders one template against many records - e.g. for a nightly batch of
+ * letters.
+ * <p>
+ * The template is loaded and prepared once: split runs are joined (so that
+ * variables like <code>${name}</code> can be found) and the parts of the
+ * prepared template are kept in memory, unzipped. For every record, a fresh
+ * document is loaded from these shared parts (see
+ * {@link CopyOnWritePartStore}), filled and written to the output provided by a
+ * {@link MergeTarget}. Only the parts the rules access - typically just the
+ * main document part - are parsed per record; all others are written from the
+ * shared bytes.
+ * </p>
+ * <p>
+ * By default, every record - a {@link Map} or a POJO - fills the template's
+ * <code>${...}</code> variables with its values (see
+ * {@link VariableReplacementRule}). If a markdown field is set, the value of
+ * that field is appended as markdown (see {@link MarkdownAppenderRule}).
+ * Subclasses can override {@link #createRules(Object, Map)} to apply other
+ * rules.
+ * </p>
+ * <p>
+ * Records are processed by a configurable number of workers. At most
+ * {@link #getMaxInFlight()} records are read from the input and held in memory
+ * at the same time. A record that fails doesn't affect the others - the
+ * failure is reported in the {@link MergeReport}.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class MailMergeEngine {
+
+	private final PartStore preparedParts;
+
+	private int workerCount = Runtime.getRuntime().availableProcessors();
+
+	private int maxInFlight = 2 * workerCount;
+
+	private String markdownField;
+
+	/**
+	 * Creates a new engine for the template at the given path.
+	 * 
+	 * @param template the template path. Cannot be <code>null</code>.
+	 * @throws DocWriterException if the template cannot be loaded or prepared.
+	 */
+	public MailMergeEngine(Path template) throws DocWriterException {
+		this(loadTemplate(template));
+	}
+
+	/**
+	 * Creates a new engine for the template read from the given stream.
+	 * 
+	 * @param template the template. Cannot be <code>null</code>. Is not closed.
+	 * @throws DocWriterException if the template cannot be loaded or prepared.
+	 */
+	public MailMergeEngine(InputStream template) throws DocWriterException {
+		this(loadTemplate(template));
+	}
+
+	/**
+	 * Creates a new engine for the given template.
+	 * <p>
+	 * The template is prepared in place.
+	 * </p>
+	 * 
+	 * @param template the template. Cannot be <code>null</code>.
+	 * @throws DocWriterException if the template cannot be prepared.
+	 */
+	public MailMergeEngine(WordprocessingMLPackage template) throws DocWriterException {
+		this.preparedParts = prepare(requireNonNull(template));
+	}
+
+	/**
+	 * Merges all records of the given stream.
+	 * 
+	 * @param records the records. Cannot be <code>null</code>.
+	 * @param target  the target to write the documents to. Cannot be
+	 *                <code>null</code>.
+	 * @return report. Never <code>null</code>.
+	 * @throws DocWriterException if the merge is interrupted.
+	 * @see #merge(Iterator, MergeTarget)
+	 */
+	public <R> MergeReport merge(Stream<R> records, MergeTarget<? super R> target) throws DocWriterException {
+		return merge(requireNonNull(records).iterator(), target);
+	}
+
+	/**
+	 * Merges all records of the given iterator.
+	 * <p>
+	 * The iterator is only consumed by the calling thread. The method returns when
+	 * all records have been processed. If the iterator throws, the records in
+	 * progress are cancelled and the exception is passed on.
+	 * </p>
+	 * 
+	 * @param records the records. Cannot be <code>null</code>.
+	 * @param target  the target to write the documents to. Cannot be
+	 *                <code>null</code>.
+	 * @return report. Never <code>null</code>.
+	 * @throws DocWriterException if the merge is interrupted.
+	 */
+	public <R> MergeReport merge(Iterator<R> records, MergeTarget<? super R> target) throws DocWriterException {
+		requireNonNull(records);
+		requireNonNull(target);
+
+		final AtomicLong succeeded = new AtomicLong();
+		final List<MergeFailure> failures = new ArrayList<>();
+		final Semaphore inFlight = new Semaphore(Math.max(1, getMaxInFlight()));
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, getWorkerCount()),
+				createThreadFactory());
+		try {
+			long index = 0;
+			while (records.hasNext()) {
+				inFlight.acquire();
+
+				final R record = records.next();
+				final long recordIndex = index++;
+
+				executor.execute(() -> {
+					try {
+						mergeRecord(record, recordIndex, target);
+						succeeded.incrementAndGet();
+					} catch (Throwable e) {
+						// Any failure - even an error - is reported for its record.
+						synchronized (failures) {
+							failures.add(new MergeFailure(recordIndex, record, e));
+						}
+					} finally {
+						inFlight.release();
+					}
+				});
+			}
+
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				// Keep waiting - records are still being processed.
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DocWriterException("Merge was interrupted", e);
+		} finally {
+			// Stops the workers if reading the records fails.
+			executor.shutdownNow();
+		}
+
+		synchronized (failures) {
+			failures.sort(Comparator.comparingLong(MergeFailure::getIndex));
+			return new MergeReport(succeeded.get(), new ArrayList<>(failures));
+		}
+	}
+
+	/**
+	 * Merges one record and writes the result.
+	 * 
+	 * @param record the record.
+	 * @param index  the position of the record in the input.
+	 * @param target the target to write to.
+	 * @throws Exception if merging or writing fails.
+	 */
+	protected <R> void mergeRecord(R record, long index, MergeTarget<? super R> target) throws Exception {
+		final WordprocessingMLPackage doc = createDocument();
+
+		applyRules(doc, createRules(record, RecordValues.of(record)));
+
+		try (OutputStream out = requireNonNull(target.open(record, index), "No output for record " + index)) {
+			doc.save(out);
+		}
+	}
+
+	/**
+	 * Creates the rules to apply for the given record.
+	 * <p>
+	 * The default implementation returns a {@link VariableReplacementRule} for the
+	 * record values and - if a markdown field is set and the record has a value
+	 * for it - a {@link MarkdownAppenderRule} with that value.
+	 * </p>
+	 * 
+	 * @param record the record.
+	 * @param values the values of the record by name. Never <code>null</code>.
+	 * @return rules. Never <code>null</code>.
+	 */
+	protected List<DocumentRule> createRules(Object record, Map<String, ?> values) {
+		final List<DocumentRule> rules = new ArrayList<>();
+		rules.add(new VariableReplacementRule(values));
+
+		final String field = getMarkdownField();
+		if (field != null && values.get(field) != null) {
+			final String markdown = String.valueOf(values.get(field));
+			rules.add(new MarkdownAppenderRule(() -> markdown));
+		}
+		return rules;
+	}
+
+	/**
+	 * Applies the given rules to the given document.
+	 * <p>
+	 * Rules are applied to all text elements of the main document part first and
+	 * to the document and the main document part afterwards. This way, content
+	 * appended by document rules is not subject to text replacements.
+	 * </p>
+	 * 
+	 * @param doc   the document.
+	 * @param rules the rules to apply.
+	 */
+	protected void applyRules(WordprocessingMLPackage doc, List<DocumentRule> rules) {
+		final MainDocumentPart part = doc.getMainDocumentPart();
+
+		for (Text text : new DocxDataInspector().getAllElements(part, Text.class)) {
+			for (DocumentRule rule : rules) {
+				if (rule.appliesTo(text)) {
+					rule.apply(text);
+				}
+			}
+		}
+
+		for (DocumentRule rule : rules) {
+			if (rule.appliesTo(doc)) {
+				rule.apply(doc);
+			}
+			if (rule.appliesTo(part)) {
+				rule.apply(part);
+			}
+		}
+	}
+
+	/**
+	 * Creates a fresh document from the prepared template.
+	 * <p>
+	 * The document reads its parts from the parts of the prepared template, which
+	 * are shared by all documents. Modifying the document never affects the
+	 * template or other documents.
+	 * </p>
+	 * 
+	 * @return new document. Never <code>null</code>.
+	 * @throws Docx4JException if the document cannot be created.
+	 */
+	protected WordprocessingMLPackage createDocument() throws Docx4JException {
+		return (WordprocessingMLPackage) new Load3(new CopyOnWritePartStore(preparedParts)).get();
+	}
+
+	private static WordprocessingMLPackage loadTemplate(Path template) throws DocWriterException {
+		try (InputStream in = Files.newInputStream(requireNonNull(template))) {
+			return loadTemplate(in);
+		} catch (IOException e) {
+			throw new DocWriterException("Cannot read template " + template, e);
+		}
+	}
+
+	private static WordprocessingMLPackage loadTemplate(InputStream template) throws DocWriterException {
+		try {
+			return WordprocessingMLPackage.load(requireNonNull(template));
+		} catch (Docx4JException e) {
+			throw new DocWriterException("Cannot load template", e);
+		}
+	}
+
+	private static PartStore prepare(WordprocessingMLPackage template) throws DocWriterException {
+		try {
+			VariablePrepare.prepare(template);
+		} catch (Exception e) {
+			throw new DocWriterException("Cannot prepare template", e);
+		}
+
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			template.save(out);
+			return new ZipPartStore(new ByteArrayInputStream(out.toByteArray()));
+		} catch (Docx4JException e) {
+			throw new DocWriterException("Cannot prepare template", e);
+		}
+	}
+
+	private static ThreadFactory createThreadFactory() {
+		final AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "docwriter-merge-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Returns the number of records processed in parallel.
+	 * 
+	 * @return worker count. Default is the number of available processors.
+	 */
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	/**
+	 * Sets the number of records processed in parallel.
+	 * 
+	 * @param workerCount the worker count. Must be at least 1.
+	 */
+	public void setWorkerCount(int workerCount) {
+		if (workerCount < 1) {
+			throw new IllegalArgumentException("Worker count must be at least 1: " + workerCount);
+		}
+		this.workerCount = workerCount;
+	}
+
+	/**
+	 * Returns the maximum number of records that are read from the input but not
+	 * yet written - i.e. that are held in memory at the same time.
+	 * 
+	 * @return max in-flight records. Default is twice the default worker count.
+	 */
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Sets the maximum number of records that are read from the input but not yet
+	 * written.
+	 * 
+	 * @param maxInFlight the max in-flight records. Must be at least 1.
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("Max in-flight must be at least 1: " + maxInFlight);
+		}
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Returns the name of the record field whose value is appended as markdown.
+	 * 
+	 * @return markdown field. <code>null</code> if not set.
+	 */
+	public String getMarkdownField() {
+		return markdownField;
+	}
+
+	/**
+	 * Sets the name of the record field whose value is appended as markdown.
+	 * 
+	 * @param markdownField the markdown field. If <code>null</code>, no markdown is
+	 *                      appended.
+	 */
+	public void setMarkdownField(String markdownField) {
+		this.markdownField = markdownField;
+	}
+
+}
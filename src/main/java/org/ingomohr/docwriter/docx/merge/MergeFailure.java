@@ -0,0 +1,61 @@
+package org.ingomohr.docwriter.docx.merge;
+
+/**
+ * A record that couldn't be merged.
+ * 
+ * @since 6.1
+ */
+public class MergeFailure {
+
+	private final long index;
+
+	private final Object record;
+
+	private final Throwable cause;
+
+	/**
+	 * Creates a new failure.
+	 * 
+	 * @param index  the (0-based) position of the record in the input.
+	 * @param record the record.
+	 * @param cause  the cause.
+	 */
+	public MergeFailure(long index, Object record, Throwable cause) {
+		this.index = index;
+		this.record = record;
+		this.cause = cause;
+	}
+
+	/**
+	 * Returns the position of the record in the input.
+	 * 
+	 * @return 0-based index.
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the record that couldn't be merged.
+	 * 
+	 * @return record.
+	 */
+	public Object getRecord() {
+		return record;
+	}
+
+	/**
+	 * Returns the cause.
+	 * 
+	 * @return cause.
+	 */
+	public Throwable getCause() {
+		return cause;
+	}
+
+	@Override
+	public String toString() {
+		return "MergeFailure[index=" + index + ", cause=" + cause + "]";
+	}
+
+}
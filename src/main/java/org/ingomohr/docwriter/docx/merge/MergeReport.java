@@ -0,0 +1,57 @@
+package org.ingomohr.docwriter.docx.merge;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a merge run.
+ * 
+ * @since 6.1
+ */
+public class MergeReport {
+
+	private final long succeededCount;
+
+	private final List<MergeFailure> failures;
+
+	/**
+	 * Creates a new report.
+	 * 
+	 * @param succeededCount the number of records written successfully.
+	 * @param failures       the failed records - ordered by index. Cannot be
+	 *                       <code>null</code>.
+	 */
+	public MergeReport(long succeededCount, List<MergeFailure> failures) {
+		this.succeededCount = succeededCount;
+		this.failures = Collections.unmodifiableList(failures);
+	}
+
+	/**
+	 * Returns the number of records written successfully.
+	 * 
+	 * @return number of succeeded records.
+	 */
+	public long getSucceededCount() {
+		return succeededCount;
+	}
+
+	/**
+	 * Returns the records that couldn't be merged.
+	 * 
+	 * @return failures ordered by record index. Never <code>null</code>, possibly
+	 *         empty.
+	 */
+	public List<MergeFailure> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Returns <code>true</code> if all records were merged successfully.
+	 * 
+	 * @return <code>true</code> if there are no failures.
+	 */
+	public boolean isSuccessful() {
+		return failures.isEmpty();
+	}
+
+}
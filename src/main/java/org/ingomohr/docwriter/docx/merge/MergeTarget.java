@@ -0,0 +1,28 @@
+package org.ingomohr.docwriter.docx.merge;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Provides the output to write the document for a record to.
+ * 
+ * @param <R> the record type.
+ * @since 6.1
+ */
+@FunctionalInterface
+public interface MergeTarget<R> {
+
+	/**
+	 * Opens the output for the given record. The stream is closed by the caller.
+	 * <p>
+	 * Implementations are called by several worker threads at the same time.
+	 * </p>
+	 * 
+	 * @param record the record.
+	 * @param index  the (0-based) position of the record in the input.
+	 * @return output to write the document to. Cannot be <code>null</code>.
+	 * @throws IOException if the output cannot be opened.
+	 */
+	OutputStream open(R record, long index) throws IOException;
+
+}
@@ -0,0 +1,376 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static java.util.Objects.requireNonNull;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import javax.xml.bind.JAXBElement;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.CTMarkupRange;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.FldChar;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.STFldCharType;
+import org.docx4j.wml.SdtElement;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.BodyIndex;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+
+/**
+ * Rule to remove optional sections of a document based on conditions.
+ * <p>
+ * A section is marked by two paragraphs <code>${?name}</code> and
+ * <code>${/?name}</code> in the document body. If the condition for the name is
+ * not met, the section is removed - otherwise only the marker paragraphs are
+ * removed. Sections can be nested.
+ * </p>
+ * <p>
+ * All sections are processed at once: the body is traversed once to mark the
+ * elements to remove, and then compacted in a single pass. The cost therefore
+ * doesn't depend on the number of sections, other than removing elements one by
+ * one.
+ * </p>
+ * <p>
+ * Bookmarks that are cut in half by a removed section are removed completely,
+ * and so are ToC entries that refer to bookmarks of removed sections. The runs
+ * of the ToC field itself are kept, even if they share a paragraph with a
+ * removed entry.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class ConditionalSectionRule implements DocumentRule {
+
+	private static final String BEGIN_PREFIX = "${?";
+
+	private static final String END_PREFIX = "${/?";
+
+	private static final String BOOKMARK_START = "bookmarkStart";
+
+	private static final String BOOKMARK_END = "bookmarkEnd";
+
+	private final Predicate<String> condition;
+
+	private BodyIndex bodyIndex;
+
+	/**
+	 * Creates a new rule that keeps the sections whose flag is set to
+	 * <code>true</code>. Sections without flag are removed.
+	 * 
+	 * @param flags the flags by section name. Cannot be <code>null</code>.
+	 */
+	public ConditionalSectionRule(Map<String, Boolean> flags) {
+		this(keepIfTrue(requireNonNull(flags)));
+	}
+
+	/**
+	 * Creates a new rule.
+	 * 
+	 * @param condition the condition for keeping a section - tested with the
+	 *                  section name. Cannot be <code>null</code>.
+	 */
+	public ConditionalSectionRule(Predicate<String> condition) {
+		this.condition = requireNonNull(condition);
+	}
+
+	private static Predicate<String> keepIfTrue(Map<String, Boolean> flags) {
+		return name -> Boolean.TRUE.equals(flags.get(name));
+	}
+
+	@Override
+	public boolean appliesTo(Object object) {
+		return object instanceof WordprocessingMLPackage;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalStateException if the section markers are not balanced. The
+	 *                               document is not modified in that case.
+	 */
+	@Override
+	public void apply(Object object) {
+		final WordprocessingMLPackage doc = (WordprocessingMLPackage) object;
+		final List<Object> contents = new DocxDataInspector().getContents(doc);
+
+		final boolean[] removed = markRemovedElements(contents);
+
+		final RemovedBookmarks bookmarks = new RemovedBookmarks();
+		int kept = 0;
+		for (int i = 0; i < contents.size(); i++) {
+			final Object element = contents.get(i);
+			if (removed[i]) {
+				bookmarks.collect(element);
+			} else {
+				contents.set(kept++, element);
+			}
+		}
+		contents.subList(kept, contents.size()).clear();
+
+		if (!bookmarks.isEmpty()) {
+			bookmarks.fixUp(contents);
+		}
+
+		if (bodyIndex != null) {
+			bodyIndex.invalidate();
+		}
+	}
+
+	private boolean[] markRemovedElements(List<Object> contents) {
+		final boolean[] removed = new boolean[contents.size()];
+		final Deque<String> openSections = new ArrayDeque<>();
+		int removingDepth = 0;
+
+		for (int i = 0; i < contents.size(); i++) {
+			final String text = getMarkerText(contents.get(i));
+
+			if (text != null && text.startsWith(BEGIN_PREFIX) && text.endsWith("}")) {
+				final String name = text.substring(BEGIN_PREFIX.length(), text.length() - 1);
+				openSections.push(name);
+				if (removingDepth > 0 || !condition.test(name)) {
+					removingDepth++;
+				}
+				removed[i] = true;
+			} else if (text != null && text.startsWith(END_PREFIX) && text.endsWith("}")) {
+				final String name = text.substring(END_PREFIX.length(), text.length() - 1);
+				if (!name.equals(openSections.peek())) {
+					throw new IllegalStateException("Unexpected section end " + text);
+				}
+				openSections.pop();
+				if (removingDepth > 0) {
+					removingDepth--;
+				}
+				removed[i] = true;
+			} else {
+				removed[i] = removingDepth > 0;
+			}
+		}
+
+		if (!openSections.isEmpty()) {
+			throw new IllegalStateException("Section not closed: " + BEGIN_PREFIX + openSections.peek() + "}");
+		}
+		return removed;
+	}
+
+	private static String getMarkerText(Object element) {
+		final Object unwrapped = XmlUtils.unwrap(element);
+		if (!(unwrapped instanceof P)) {
+			return null;
+		}
+		// Markers are short - only compute the full text if the paragraph starts like one.
+		final Text first = findFirstText(((P) unwrapped).getContent());
+		if (first == null || first.getValue() == null || !first.getValue().startsWith("${")) {
+			return null;
+		}
+		return BodyIndex.getText(unwrapped).trim();
+	}
+
+	private static Text findFirstText(List<Object> content) {
+		for (Object child : content) {
+			final Object unwrapped = XmlUtils.unwrap(child);
+			if (unwrapped instanceof Text) {
+				return (Text) unwrapped;
+			}
+			if (unwrapped instanceof ContentAccessor) {
+				final Text text = findFirstText(((ContentAccessor) unwrapped).getContent());
+				if (text != null) {
+					return text;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the index to invalidate after modifying the body - shared with other
+	 * rules working on the same document.
+	 * 
+	 * @param bodyIndex the index. Can be <code>null</code>.
+	 */
+	public void setBodyIndex(BodyIndex bodyIndex) {
+		this.bodyIndex = bodyIndex;
+	}
+
+	/**
+	 * Returns the condition for keeping a section.
+	 * 
+	 * @return condition. Never <code>null</code>.
+	 */
+	public Predicate<String> getCondition() {
+		return condition;
+	}
+
+	/**
+	 * The bookmarks found in removed elements - and the fix-up of the remaining
+	 * elements.
+	 */
+	private static final class RemovedBookmarks {
+
+		private final Set<BigInteger> startIds = new HashSet<>();
+		private final Set<BigInteger> endIds = new HashSet<>();
+		private final Set<String> names = new HashSet<>();
+
+		boolean isEmpty() {
+			return startIds.isEmpty() && endIds.isEmpty();
+		}
+
+		void collect(Object element) {
+			if (element instanceof JAXBElement) {
+				final JAXBElement<?> jaxbElement = (JAXBElement<?>) element;
+				final String name = jaxbElement.getName().getLocalPart();
+				if (BOOKMARK_START.equals(name) || BOOKMARK_END.equals(name)) {
+					final CTMarkupRange range = (CTMarkupRange) jaxbElement.getValue();
+					if (BOOKMARK_START.equals(name)) {
+						startIds.add(range.getId());
+						names.add(((CTBookmark) range).getName());
+					} else {
+						endIds.add(range.getId());
+					}
+					return;
+				}
+			}
+			for (Object child : getChildren(element)) {
+				collect(child);
+			}
+		}
+
+		/**
+		 * Removes the other half of cut bookmarks and ToC entries referring to
+		 * removed bookmarks. Runs of fields spanning several ToC entries are kept.
+		 */
+		void fixUp(List<Object> content) {
+			content.removeIf(this::isToBeRemoved);
+			for (Object child : content) {
+				final List<Object> children = getChildren(child);
+				if (!children.isEmpty()) {
+					fixUp(children);
+				}
+			}
+		}
+
+		private boolean isToBeRemoved(Object element) {
+			if (element instanceof JAXBElement) {
+				final JAXBElement<?> jaxbElement = (JAXBElement<?>) element;
+				final String name = jaxbElement.getName().getLocalPart();
+				if (BOOKMARK_START.equals(name)) {
+					final BigInteger id = ((CTMarkupRange) jaxbElement.getValue()).getId();
+					return endIds.contains(id) && !startIds.contains(id);
+				}
+				if (BOOKMARK_END.equals(name)) {
+					final BigInteger id = ((CTMarkupRange) jaxbElement.getValue()).getId();
+					return startIds.contains(id) && !endIds.contains(id);
+				}
+			}
+
+			final Object unwrapped = XmlUtils.unwrap(element);
+			return unwrapped instanceof P && isTocEntryForRemovedBookmark((P) unwrapped)
+					&& stripTocEntry((P) unwrapped);
+		}
+
+		/**
+		 * Removes the entry from the given ToC entry paragraph - except for the runs
+		 * of fields that begin or end in other paragraphs. The first entry holds the
+		 * start of the ToC field itself, which must stay to match its end.
+		 * 
+		 * @return whether nothing is left of the paragraph.
+		 */
+		private static boolean stripTocEntry(P paragraph) {
+			final List<Object> content = paragraph.getContent();
+			final boolean[] kept = new boolean[content.size()];
+			final Deque<List<Integer>> openFields = new ArrayDeque<>();
+
+			for (int i = 0; i < content.size(); i++) {
+				final Object unwrapped = XmlUtils.unwrap(content.get(i));
+				if (!(unwrapped instanceof R)) {
+					continue;
+				}
+				for (Object runChild : ((R) unwrapped).getContent()) {
+					final Object value = XmlUtils.unwrap(runChild);
+					if (value instanceof FldChar) {
+						final STFldCharType type = ((FldChar) value).getFldCharType();
+						if (type == STFldCharType.BEGIN) {
+							openFields.push(new ArrayList<>(List.of(i)));
+						} else if (type == STFldCharType.END && openFields.isEmpty()) {
+							kept[i] = true;
+						} else if (type == STFldCharType.END) {
+							openFields.pop();
+						} else if (!openFields.isEmpty()) {
+							openFields.peek().add(i);
+						}
+					} else if (isInstrText(runChild) && !openFields.isEmpty()) {
+						openFields.peek().add(i);
+					}
+				}
+			}
+			for (List<Integer> field : openFields) {
+				for (int i : field) {
+					kept[i] = true;
+				}
+			}
+
+			int size = 0;
+			for (int i = 0; i < content.size(); i++) {
+				if (kept[i]) {
+					content.set(size++, content.get(i));
+				}
+			}
+			content.subList(size, content.size()).clear();
+			return size == 0;
+		}
+
+		private static boolean isInstrText(Object element) {
+			return element instanceof JAXBElement
+					&& "instrText".equals(((JAXBElement<?>) element).getName().getLocalPart());
+		}
+
+		private boolean isTocEntryForRemovedBookmark(P paragraph) {
+			if (names.isEmpty()) {
+				return false;
+			}
+			for (Object child : paragraph.getContent()) {
+				final Object unwrapped = XmlUtils.unwrap(child);
+				if (unwrapped instanceof P.Hyperlink) {
+					final String anchor = ((P.Hyperlink) unwrapped).getAnchor();
+					if (anchor != null && names.contains(anchor)) {
+						return true;
+					}
+				}
+			}
+			for (Object instr : new DocxDataInspector().getAllElements(paragraph, Text.class)) {
+				final Text text = (Text) instr;
+				if (text.getValue() != null && text.getValue().contains("PAGEREF ")) {
+					final String[] parts = text.getValue().trim().split("\\s+");
+					if (parts.length > 1 && "PAGEREF".equals(parts[0]) && names.contains(parts[1])) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		private static List<Object> getChildren(Object element) {
+			final Object unwrapped = XmlUtils.unwrap(element);
+			if (unwrapped instanceof ContentAccessor) {
+				return ((ContentAccessor) unwrapped).getContent();
+			}
+			if (unwrapped instanceof SdtElement && ((SdtElement) unwrapped).getSdtContent() != null) {
+				return ((SdtElement) unwrapped).getSdtContent().getContent();
+			}
+			return Collections.emptyList();
+		}
+	}
+
+}
@@ -27,4 +27,58 @@ public interface DocumentRule {
 	 */
 	boolean appliesTo(Object object);
 
+	/**
+	 * Returns a key describing how this rule changes a document - e.g. its
+	 * settings and the values it inserts.
+	 * <p>
+	 * Writers with a render cache combine the keys of all their rules with the
+	 * template to recognize repeated renders. Two rules of the same class with
+	 * equal keys must change any document in the same way. Values inserted by the
+	 * rule should be resolved in {@link #beginWrite()}, so that the key and
+	 * {@link #apply(Object)} use the same values.
+	 * </p>
+	 * <p>
+	 * The default implementation returns <code>null</code>. The rules of this
+	 * library return <code>null</code> for instances of subclasses - including
+	 * anonymous ones - as they can't know whether a subclass changes what the
+	 * rule does. Subclasses must override this method to be cached.
+	 * </p>
+	 * 
+	 * @return cache key. <code>null</code> if the rule cannot be described by a
+	 *         key - documents written with the rule are then never cached.
+	 * @see org.ingomohr.docwriter.docx.AbstractRuleBasedDocxWriter#setRenderCache(org.ingomohr.docwriter.docx.cache.RenderCache)
+	 * @since 6.1
+	 */
+	default String getCacheKey() {
+		return null;
+	}
+
+	/**
+	 * Called by writers before a document is written with this rule - i.e. before
+	 * {@link #getCacheKey()} and {@link #apply(Object)} are called for the
+	 * document.
+	 * <p>
+	 * Rules that insert values from suppliers resolve them here once, so that all
+	 * calls of the write use the same values. Writes on other threads are not
+	 * affected. The default implementation does nothing.
+	 * </p>
+	 * 
+	 * @see #endWrite()
+	 * @since 6.1
+	 */
+	default void beginWrite() {
+	}
+
+	/**
+	 * Called by writers after a document has been written with this rule - also if
+	 * writing failed. Discards the values resolved in {@link #beginWrite()}.
+	 * <p>
+	 * The default implementation does nothing.
+	 * </p>
+	 * 
+	 * @since 6.1
+	 */
+	default void endWrite() {
+	}
+
 }
@@ -1,10 +1,14 @@
 package org.ingomohr.docwriter.docx.rules;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.function.Supplier;
 
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.ingomohr.docwriter.jfr.MarkdownParseEvent;
+import org.ingomohr.docwriter.jfr.MarkdownRenderEvent;
 
 import com.vladsch.flexmark.docx.converter.DocxRenderer;
 import com.vladsch.flexmark.ext.definition.DefinitionExtension;
@@ -23,6 +27,10 @@ import com.vladsch.flexmark.util.data.MutableDataSet;
 
 /**
  * Appends content given as markdown to the document.
+ * <p>
+ * Parsing and rendering the markdown emit a {@link MarkdownParseEvent} and a
+ * {@link MarkdownRenderEvent}.
+ * </p>
  * 
  * @author Ingo Mohr
  */
@@ -30,6 +38,14 @@ public class MarkdownAppenderRule implements DocumentRule {
 
 	private Supplier<String> valueSupplier;
 
+	private final WriteScopedValue<String> newValue = new WriteScopedValue<>();
+
+	private volatile MutableDataSet options;
+
+	private volatile Parser parser;
+
+	private volatile DocxRenderer renderer;
+
 	public MarkdownAppenderRule() {
 		this(null);
 	}
@@ -51,19 +67,89 @@ public class MarkdownAppenderRule implements DocumentRule {
 
 		String rawMarkdown = getNewValue();
 
-		MutableDataSet options = createOptions();
-
-		Parser parser = Parser.builder(options).build();
-		DocxRenderer RENDERER = DocxRenderer.builder(options).build();
+		Parser parser = getParser();
+		DocxRenderer RENDERER = getRenderer();
 
+		final MarkdownParseEvent parseEvent = new MarkdownParseEvent();
+		parseEvent.begin();
 		Node document = parser.parse(rawMarkdown);
-
+		parseEvent.end();
+		if (parseEvent.shouldCommit()) {
+			parseEvent.setCharacters(rawMarkdown != null ? rawMarkdown.length() : 0);
+			int nodes = 0;
+			final Iterator<Node> descendants = document.getDescendants().iterator();
+			while (descendants.hasNext()) {
+				descendants.next();
+				nodes++;
+			}
+			parseEvent.setNodes(nodes);
+			parseEvent.commit();
+		}
+
+		final MarkdownRenderEvent renderEvent = new MarkdownRenderEvent();
+		final int sizeBefore = renderEvent.isEnabled() ? new DocxDataInspector().getContents(doc).size() : 0;
+		renderEvent.begin();
 		RENDERER.render(document, doc);
+		renderEvent.end();
+		if (renderEvent.shouldCommit()) {
+			renderEvent.setElements(new DocxDataInspector().getContents(doc).size() - sizeBefore);
+			renderEvent.commit();
+		}
+	}
+
+	/**
+	 * Returns the parser for the markdown content.
+	 * <p>
+	 * The parser is built from the {@link #createOptions() options} on first use
+	 * and reused for all further documents the rule is applied to.
+	 * </p>
+	 * 
+	 * @return parser. Never <code>null</code>.
+	 * @since 6.1
+	 */
+	protected Parser getParser() {
+		Parser result = parser;
+		if (result == null) {
+			result = Parser.builder(getOptions()).build();
+			parser = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the renderer that turns the parsed markdown into docx content.
+	 * <p>
+	 * The renderer is built from the {@link #createOptions() options} on first use
+	 * and reused for all further documents the rule is applied to.
+	 * </p>
+	 * 
+	 * @return renderer. Never <code>null</code>.
+	 * @since 6.1
+	 */
+	protected DocxRenderer getRenderer() {
+		DocxRenderer result = renderer;
+		if (result == null) {
+			result = DocxRenderer.builder(getOptions()).build();
+			renderer = result;
+		}
+		return result;
+	}
+
+	private MutableDataSet getOptions() {
+		MutableDataSet result = options;
+		if (result == null) {
+			result = createOptions();
+			options = result;
+		}
+		return result;
 	}
 
 	/**
 	 * Returns the options to be be applied to the transformation from markdown to
 	 * docx.
+	 * <p>
+	 * Called only once per rule - when the parser or the renderer is first needed.
+	 * </p>
 	 * 
 	 * @return options. Never <code>null</code>.
 	 */
@@ -104,11 +190,46 @@ public class MarkdownAppenderRule implements DocumentRule {
 	}
 
 	/**
-	 * Resolves the new value from the {@link #getValueSupplier()}.
+	 * {@inheritDoc}
+	 * <p>
+	 * The key is the markdown to append. Instances of subclasses have no key.
+	 * </p>
+	 */
+	@Override
+	public String getCacheKey() {
+		if (getClass() != MarkdownAppenderRule.class) {
+			return null;
+		}
+		return String.valueOf(getNewValue());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Resolves the markdown from the {@link #getValueSupplier()}.
+	 * </p>
+	 */
+	@Override
+	public void beginWrite() {
+		newValue.resolve(this::resolveNewValue);
+	}
+
+	@Override
+	public void endWrite() {
+		newValue.clear();
+	}
+
+	/**
+	 * Returns the markdown to append: the markdown resolved for the current write
+	 * - or the value from the {@link #getValueSupplier()} if there is no write.
 	 * 
 	 * @return new value.
 	 */
 	protected String getNewValue() {
+		return newValue.get(this::resolveNewValue);
+	}
+
+	private String resolveNewValue() {
 		Supplier<String> supplier = getValueSupplier();
 		String newVal = supplier != null ? supplier.get() : null;
 		return newVal;
@@ -20,12 +20,14 @@ import org.docx4j.wml.Text;
  * @author Ingo Mohr
  * @since 1.2
  */
-public class RegexReplacementRule implements DocumentRule {
+public class RegexReplacementRule implements TextRule {
 
 	private String regexToReplace;
 
 	private Supplier<String> valueSupplier;
 
+	private final WriteScopedValue<String> newValue = new WriteScopedValue<>();
+
 	public RegexReplacementRule() {
 		this(null, null);
 	}
@@ -91,11 +93,47 @@ public class RegexReplacementRule implements DocumentRule {
 	}
 
 	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The key consists of the regex to replace and the new value. Instances of
+	 * subclasses have no key.
+	 * </p>
+	 */
+	@Override
+	public String getCacheKey() {
+		if (getClass() != RegexReplacementRule.class) {
+			return null;
+		}
+		return getRegexToReplace() + '\0' + getNewValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
 	 * Resolves the new value from the {@link #getValueSupplier()}.
+	 * </p>
+	 */
+	@Override
+	public void beginWrite() {
+		newValue.resolve(this::resolveNewValue);
+	}
+
+	@Override
+	public void endWrite() {
+		newValue.clear();
+	}
+
+	/**
+	 * Returns the new value: the value resolved for the current write - or the
+	 * value from the {@link #getValueSupplier()} if there is no write.
 	 * 
 	 * @return new value.
 	 */
 	protected String getNewValue() {
+		return newValue.get(this::resolveNewValue);
+	}
+
+	private String resolveNewValue() {
 		Supplier<String> supplier = getValueSupplier();
 		String newVal = supplier != null ? supplier.get() : null;
 		return newVal;
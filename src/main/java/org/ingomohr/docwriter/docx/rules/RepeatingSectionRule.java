@@ -0,0 +1,432 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static java.util.Objects.requireNonNull;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.bind.JAXBElement;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.CTMarkup;
+import org.docx4j.wml.CTMarkupRange;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.SdtElement;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
+import org.ingomohr.docwriter.docx.util.BodyIndex;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.ingomohr.docwriter.docx.util.RecordValues;
+
+/**
+ * Rule to repeat a section of a document once per item of a collection.
+ * <p>
+ * The section is marked by two paragraphs <code>${#name}</code> and
+ * <code>${/name}</code> in the document body. Everything between them is
+ * repeated for every item, and the variables of each copy are filled with the
+ * values of the item - a {@link Map} or a POJO (see {@link RecordValues}).
+ * Variables the item has no value for are left untouched, so that other rules
+ * can fill them. The marker paragraphs are removed.
+ * </p>
+ * <p>
+ * The section is analyzed once: the positions of all variables are recorded in
+ * a prototype. Copies are created in a single traversal of the prototype that
+ * also fills the variables. Paragraphs, runs, texts, tables and all other
+ * elements with content (e.g. hyperlinks, fields, content controls) are copied
+ * element by element, so that variables and bookmarks within them are handled
+ * in every copy. Other elements are deep-copied.
+ * </p>
+ * <p>
+ * The properties of paragraphs, runs, tables, rows and cells (e.g.
+ * <code>w:pPr</code>, <code>w:rPr</code>) are not copied but shared by all
+ * copies and the section itself. Modifying such a property object in one copy
+ * modifies it in all of them - rules that change properties of repeated
+ * content have to set new property objects instead.
+ * </p>
+ * <p>
+ * Bookmarks within the section keep their names in the first copy. In all
+ * other copies, they get new ids and their names get the number of the copy as
+ * suffix (e.g. <code>_Toc123_2</code>) - so that bookmark ids and names stay
+ * unique and references like ToC entries point to the first copy. Halves of
+ * bookmarks that cross the section boundary are kept in the first copy only.
+ * </p>
+ * <p>
+ * Variables must not be split across runs (see <code>VariablePrepare</code> of
+ * docx4j). Nested sections are not supported.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class RepeatingSectionRule implements DocumentRule {
+
+	private static final Pattern VARIABLE = Pattern.compile("\\$\\{([^}]+)\\}");
+
+	private static final String BOOKMARK_START = "bookmarkStart";
+
+	private static final String BOOKMARK_END = "bookmarkEnd";
+
+	/** Word doesn't accept longer bookmark names. */
+	private static final int MAX_BOOKMARK_NAME_LENGTH = 40;
+
+	private final String name;
+
+	private final Iterable<?> items;
+
+	private BodyIndex bodyIndex;
+
+	/**
+	 * Creates a new rule.
+	 * 
+	 * @param name  the section name - i.e. <code>items</code> for a section between
+	 *              <code>${#items}</code> and <code>${/items}</code>. Cannot be
+	 *              <code>null</code>.
+	 * @param items the items to repeat the section for. Cannot be
+	 *              <code>null</code>.
+	 */
+	public RepeatingSectionRule(String name, Iterable<?> items) {
+		this.name = requireNonNull(name);
+		this.items = requireNonNull(items);
+	}
+
+	@Override
+	public boolean appliesTo(Object object) {
+		return object instanceof WordprocessingMLPackage;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Does nothing if the section markers are not found.
+	 * </p>
+	 * 
+	 * @throws IllegalStateException if the end marker comes before the start
+	 *                               marker.
+	 */
+	@Override
+	public void apply(Object object) {
+		final WordprocessingMLPackage doc = (WordprocessingMLPackage) object;
+		final List<Object> contents = new DocxDataInspector().getContents(doc);
+
+		final BodyIndex index = getBodyIndex(contents);
+		final int start = index.indexOfParagraph(getStartMarker());
+		final int end = index.indexOfParagraph(getEndMarker());
+		if (start == -1 || end == -1) {
+			return;
+		}
+		if (end < start) {
+			throw new IllegalStateException("Section end " + getEndMarker() + " before its start");
+		}
+
+		final List<Object> region = contents.subList(start, end + 1);
+		final Prototype prototype = new Prototype(new ArrayList<>(region.subList(1, region.size() - 1)),
+				findMaxBookmarkId(doc).add(BigInteger.ONE));
+		region.clear();
+
+		final List<Object> copies = new ArrayList<>();
+		for (Object item : items) {
+			prototype.copyInto(RecordValues.of(item), copies);
+		}
+		contents.addAll(start, copies);
+
+		if (bodyIndex != null) {
+			bodyIndex.invalidate();
+		}
+	}
+
+	private static BigInteger findMaxBookmarkId(WordprocessingMLPackage doc) {
+		final DocxDataInspector inspector = new DocxDataInspector();
+		final List<CTMarkup> bookmarks = new ArrayList<>();
+		bookmarks.addAll(inspector.getAllElements(doc.getMainDocumentPart(), CTBookmark.class));
+		bookmarks.addAll(inspector.getAllElements(doc.getMainDocumentPart(), CTMarkupRange.class));
+
+		BigInteger max = BigInteger.ZERO;
+		for (CTMarkup bookmark : bookmarks) {
+			if (bookmark.getId() != null) {
+				max = max.max(bookmark.getId());
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the index to look up the markers with.
+	 * 
+	 * @param contents the body contents. Cannot be <code>null</code>.
+	 * @return index for the given contents. Never <code>null</code>.
+	 * @see TocInsertionRule#getBodyIndex(List)
+	 */
+	protected BodyIndex getBodyIndex(final List<Object> contents) {
+		if (bodyIndex != null && bodyIndex.getContents() == contents) {
+			return bodyIndex;
+		}
+		return new BodyIndex(contents);
+	}
+
+	/**
+	 * Sets the index to share with other rules working on the same document.
+	 * 
+	 * @param bodyIndex the index. If <code>null</code>, a new index is created for
+	 *                  every lookup.
+	 */
+	public void setBodyIndex(BodyIndex bodyIndex) {
+		this.bodyIndex = bodyIndex;
+	}
+
+	/**
+	 * Returns the paragraph text that marks the start of the section.
+	 * 
+	 * @return start marker - e.g. <code>${#items}</code>.
+	 */
+	public String getStartMarker() {
+		return "${#" + name + "}";
+	}
+
+	/**
+	 * Returns the paragraph text that marks the end of the section.
+	 * 
+	 * @return end marker - e.g. <code>${/items}</code>.
+	 */
+	public String getEndMarker() {
+		return "${/" + name + "}";
+	}
+
+	/**
+	 * Returns the section name.
+	 * 
+	 * @return name. Never <code>null</code>.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * The section with the positions of its variables.
+	 */
+	private static final class Prototype {
+
+		private final List<Object> elements;
+
+		private final Map<Text, Slot> slots = new IdentityHashMap<>();
+
+		/** The ids of bookmarks that start and end within the section. */
+		private final Set<BigInteger> pairedBookmarkIds = new HashSet<>();
+
+		private BigInteger nextBookmarkId;
+
+		private int copyCount;
+
+		private Map<BigInteger, BigInteger> bookmarkIds;
+
+		Prototype(List<Object> elements, BigInteger nextBookmarkId) {
+			this.elements = elements;
+			this.nextBookmarkId = nextBookmarkId;
+
+			final Set<BigInteger> startIds = new HashSet<>();
+			final Set<BigInteger> endIds = new HashSet<>();
+			final DocxDataInspector inspector = new DocxDataInspector();
+			for (Object element : elements) {
+				for (Text text : inspector.getAllElements(element, Text.class)) {
+					final Slot slot = Slot.of(text.getValue());
+					if (slot != null) {
+						slots.put(text, slot);
+					}
+				}
+				final Object unwrapped = XmlUtils.unwrap(element);
+				inspector.getAllElements(unwrapped, CTBookmark.class).forEach(start -> startIds.add(start.getId()));
+				inspector.getAllElements(unwrapped, CTMarkupRange.class).forEach(end -> endIds.add(end.getId()));
+			}
+			startIds.retainAll(endIds);
+			pairedBookmarkIds.addAll(startIds);
+		}
+
+		void copyInto(Map<String, ?> values, List<Object> target) {
+			copyCount++;
+			bookmarkIds = new HashMap<>();
+			copyContents(elements, target, values);
+		}
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		private Object copy(Object object, Map<String, ?> values) {
+			if (object instanceof JAXBElement) {
+				final JAXBElement element = (JAXBElement) object;
+				final String name = element.getName().getLocalPart();
+				if (BOOKMARK_START.equals(name) || BOOKMARK_END.equals(name)) {
+					return copyBookmark(element);
+				}
+				if (isCopiedStructurally(element.getValue())) {
+					return new JAXBElement(element.getName(), element.getDeclaredType(), element.getScope(),
+							copy(element.getValue(), values));
+				}
+			} else if (object instanceof Text) {
+				final Text original = (Text) object;
+				final Slot slot = slots.get(original);
+
+				final Text text = new Text();
+				text.setSpace(original.getSpace());
+				text.setValue(slot != null ? slot.fill(values) : original.getValue());
+				return text;
+			} else if (object instanceof P) {
+				final P original = (P) object;
+				final P paragraph = new P();
+				paragraph.setPPr(original.getPPr());
+				paragraph.setRsidR(original.getRsidR());
+				paragraph.setRsidRDefault(original.getRsidRDefault());
+				paragraph.setRsidP(original.getRsidP());
+				copyContents(original.getContent(), paragraph.getContent(), values);
+				return paragraph;
+			} else if (object instanceof R) {
+				final R original = (R) object;
+				final R run = new R();
+				run.setRPr(original.getRPr());
+				copyContents(original.getContent(), run.getContent(), values);
+				return run;
+			} else if (object instanceof Tbl) {
+				final Tbl original = (Tbl) object;
+				final Tbl table = new Tbl();
+				table.setTblPr(original.getTblPr());
+				table.setTblGrid(original.getTblGrid());
+				copyContents(original.getContent(), table.getContent(), values);
+				return table;
+			} else if (object instanceof Tr) {
+				final Tr original = (Tr) object;
+				final Tr row = new Tr();
+				row.setTrPr(original.getTrPr());
+				row.setTblPrEx(original.getTblPrEx());
+				copyContents(original.getContent(), row.getContent(), values);
+				return row;
+			} else if (object instanceof Tc) {
+				final Tc original = (Tc) object;
+				final Tc cell = new Tc();
+				cell.setTcPr(original.getTcPr());
+				copyContents(original.getContent(), cell.getContent(), values);
+				return cell;
+			} else if (object instanceof ContentAccessor) {
+				final ContentAccessor copy = (ContentAccessor) XmlUtils.deepCopy(object);
+				copy.getContent().clear();
+				copyContents(((ContentAccessor) object).getContent(), copy.getContent(), values);
+				return copy;
+			} else if (object instanceof SdtElement && ((SdtElement) object).getSdtContent() != null) {
+				final SdtElement copy = (SdtElement) XmlUtils.deepCopy(object);
+				copy.getSdtContent().getContent().clear();
+				copyContents(((SdtElement) object).getSdtContent().getContent(), copy.getSdtContent().getContent(),
+						values);
+				return copy;
+			}
+			return XmlUtils.deepCopy(object);
+		}
+
+		private void copyContents(List<Object> source, List<Object> target, Map<String, ?> values) {
+			for (Object child : source) {
+				final Object copy = copy(child, values);
+				if (copy != null) {
+					target.add(copy);
+				}
+			}
+		}
+
+		/**
+		 * Copies a bookmark start or end. Returns <code>null</code> if the bookmark
+		 * is to be left out of the current copy.
+		 */
+		private Object copyBookmark(JAXBElement<?> element) {
+			final JAXBElement<?> copy = (JAXBElement<?>) XmlUtils.deepCopy(element);
+			if (copyCount == 1) {
+				return copy;
+			}
+
+			final CTMarkup range = (CTMarkup) copy.getValue();
+			if (!pairedBookmarkIds.contains(range.getId())) {
+				// Cut by the section boundary - the other half is there only once.
+				return null;
+			}
+			range.setId(bookmarkIds.computeIfAbsent(range.getId(), id -> {
+				final BigInteger newId = nextBookmarkId;
+				nextBookmarkId = nextBookmarkId.add(BigInteger.ONE);
+				return newId;
+			}));
+			if (range instanceof CTBookmark && ((CTBookmark) range).getName() != null) {
+				final CTBookmark bookmark = (CTBookmark) range;
+				final String suffix = "_" + copyCount;
+				final String name = bookmark.getName();
+				bookmark.setName(name.substring(0, Math.min(name.length(), MAX_BOOKMARK_NAME_LENGTH - suffix.length()))
+						+ suffix);
+			}
+			return copy;
+		}
+
+		private static boolean isCopiedStructurally(Object value) {
+			return value instanceof Text || value instanceof ContentAccessor || value instanceof SdtElement;
+		}
+	}
+
+	/**
+	 * A text with variables: static segments and the variable names between them.
+	 */
+	private static final class Slot {
+
+		private final String[] segments;
+
+		private final String[] variables;
+
+		private final String[] placeholders;
+
+		private Slot(List<String> segments, List<String> variables, List<String> placeholders) {
+			this.segments = segments.toArray(new String[segments.size()]);
+			this.variables = variables.toArray(new String[variables.size()]);
+			this.placeholders = placeholders.toArray(new String[placeholders.size()]);
+		}
+
+		static Slot of(String value) {
+			if (value == null || !value.contains("${")) {
+				return null;
+			}
+
+			final List<String> segments = new ArrayList<>();
+			final List<String> variables = new ArrayList<>();
+			final List<String> placeholders = new ArrayList<>();
+
+			final Matcher matcher = VARIABLE.matcher(value);
+			int last = 0;
+			while (matcher.find()) {
+				segments.add(value.substring(last, matcher.start()));
+				variables.add(matcher.group(1));
+				placeholders.add(matcher.group());
+				last = matcher.end();
+			}
+			if (variables.isEmpty()) {
+				return null;
+			}
+			segments.add(value.substring(last));
+			return new Slot(segments, variables, placeholders);
+		}
+
+		String fill(Map<String, ?> values) {
+			final StringBuilder builder = new StringBuilder();
+			builder.append(segments[0]);
+			for (int i = 0; i < variables.length; i++) {
+				if (values.containsKey(variables[i])) {
+					builder.append(String.valueOf(values.get(variables[i])));
+				} else {
+					builder.append(placeholders[i]);
+				}
+				builder.append(segments[i + 1]);
+			}
+			return builder.toString();
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.docx.util.RunNormalizer;
+
+/**
+ * Rule to remove editing noise from a document: merges adjacent runs with equal
+ * formatting and drops proofing marks and rsids - see {@link RunNormalizer}.
+ * <p>
+ * Add this rule before rules that scan the document's elements - e.g. before a
+ * {@link VariableReplacementRule}. If the template is read from a
+ * {@link org.ingomohr.docwriter.docx.DocxTemplateRegistry}, it's already
+ * normalized and the rule isn't needed.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class RunNormalizationRule implements DocumentRule {
+
+	@Override
+	public boolean appliesTo(Object object) {
+		return object instanceof WordprocessingMLPackage;
+	}
+
+	@Override
+	public void apply(Object object) {
+		createNormalizer().normalize((WordprocessingMLPackage) object);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The rule has no settings, so the key is constant. Instances of subclasses
+	 * have no key.
+	 * </p>
+	 */
+	@Override
+	public String getCacheKey() {
+		if (getClass() != RunNormalizationRule.class) {
+			return null;
+		}
+		return "";
+	}
+
+	/**
+	 * Creates the normalizer to apply.
+	 * 
+	 * @return new normalizer. Never <code>null</code>.
+	 */
+	protected RunNormalizer createNormalizer() {
+		return new RunNormalizer();
+	}
+
+}
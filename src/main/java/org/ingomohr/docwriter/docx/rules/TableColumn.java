@@ -0,0 +1,48 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A column of a table created by a {@link TableRule}.
+ * 
+ * @since 6.1
+ */
+public class TableColumn {
+
+	private final String header;
+
+	private final int width;
+
+	/**
+	 * Creates a new column.
+	 * 
+	 * @param header the header text. Cannot be <code>null</code>.
+	 * @param width  the width in twentieths of a point (twips). Must be positive.
+	 */
+	public TableColumn(String header, int width) {
+		if (width <= 0) {
+			throw new IllegalArgumentException("Width must be positive: " + width);
+		}
+		this.header = requireNonNull(header);
+		this.width = width;
+	}
+
+	/**
+	 * Returns the header text.
+	 * 
+	 * @return header text. Never <code>null</code>.
+	 */
+	public String getHeader() {
+		return header;
+	}
+
+	/**
+	 * Returns the width.
+	 * 
+	 * @return width in twips.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+}
@@ -0,0 +1,444 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.model.table.TblFactory;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.BooleanDefaultTrue;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.TblGridCol;
+import org.docx4j.wml.TblWidth;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.TcPr;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
+import org.docx4j.wml.TrPr;
+import org.ingomohr.docwriter.docx.util.BodyIndex;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.ingomohr.docwriter.docx.util.XmlEscaping;
+
+/**
+ * Rule to insert a table whose rows are read from an {@link Iterator}.
+ * <p>
+ * Like the {@link TocInsertionRule}, the rule replaces a placeholder paragraph
+ * or - if no placeholder is given or found - appends the table to the end of
+ * the document.
+ * </p>
+ * <p>
+ * The table consists of a header row (repeated on every page) and one row per
+ * row value list. The styling of the data rows is taken from a template row
+ * (see {@link #createRowTemplate()}) that is created once. Its properties are
+ * shared by all rows instead of being copied for each of them.
+ * </p>
+ * <p>
+ * For very large tables, the rows don't need to be created as docx4j objects at
+ * all: if {@link #isStreamingRows()} is set, the rule only inserts the table
+ * header and a marker. The rows are written when the document is saved - see
+ * {@link #writeRows(Writer)}.
+ * {@link org.ingomohr.docwriter.docx.AbstractRuleBasedDocxWriter} does this
+ * automatically.
+ * </p>
+ * <p>
+ * The rows are read once. The rule can therefore only be applied once.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class TableRule implements DocumentRule {
+
+	private static final AtomicLong MARKER_IDS = new AtomicLong();
+
+	private static final Pattern NAMESPACE_DECLARATION = Pattern.compile("\\s+xmlns:\\w+=\"[^\"]*\"");
+
+	private final String placeholder;
+
+	private final List<TableColumn> columns;
+
+	private final Iterator<? extends List<?>> rows;
+
+	private final String rowMarker;
+
+	private boolean streamingRows;
+
+	private BodyIndex bodyIndex;
+
+	private RowTemplate rowTemplate;
+
+	/**
+	 * Creates a new rule.
+	 * 
+	 * @param placeholder the placeholder paragraph to replace with the table. If
+	 *                    <code>null</code>, the table is appended to the end of
+	 *                    the document.
+	 * @param columns     the columns. Cannot be <code>null</code> or empty.
+	 * @param rows        the rows - one value per column each. Values are
+	 *                    converted via {@link String#valueOf(Object)};
+	 *                    <code>null</code> and missing values result in empty
+	 *                    cells. Cannot be <code>null</code>.
+	 */
+	public TableRule(String placeholder, List<TableColumn> columns, Iterator<? extends List<?>> rows) {
+		this(placeholder, columns, rows, "DOCWRITER-ROWS-" + MARKER_IDS.incrementAndGet());
+	}
+
+	/**
+	 * Creates a new rule with the given row marker - see {@link #getRowMarker()}.
+	 * 
+	 * @param placeholder the placeholder paragraph. Can be <code>null</code>.
+	 * @param columns     the columns. Cannot be <code>null</code> or empty.
+	 * @param rows        the rows. Cannot be <code>null</code>.
+	 * @param rowMarker   the row marker - unique within the document. Cannot be
+	 *                    <code>null</code>.
+	 */
+	TableRule(String placeholder, List<TableColumn> columns, Iterator<? extends List<?>> rows, String rowMarker) {
+		if (requireNonNull(columns).isEmpty()) {
+			throw new IllegalArgumentException("At least one column is required");
+		}
+		this.placeholder = placeholder;
+		this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+		this.rows = requireNonNull(rows);
+		this.rowMarker = requireNonNull(rowMarker);
+	}
+
+	@Override
+	public boolean appliesTo(Object object) {
+		return object instanceof WordprocessingMLPackage;
+	}
+
+	@Override
+	public void apply(Object object) {
+		final WordprocessingMLPackage doc = (WordprocessingMLPackage) object;
+		final List<Object> contents = new DocxDataInspector().getContents(doc);
+
+		int index = contents.size();
+		if (placeholder != null) {
+			final int placeholderIndex = getBodyIndex(contents).indexOfParagraph(placeholder);
+			if (placeholderIndex != -1) {
+				contents.remove(placeholderIndex);
+				index = placeholderIndex;
+			}
+		}
+
+		final Tbl table = createTable();
+		if (isStreamingRows()) {
+			table.getContent().add(createMarkerRow());
+		} else {
+			while (rows.hasNext()) {
+				table.getContent().add(createRow(rows.next()));
+			}
+		}
+		contents.add(index, table);
+
+		if (bodyIndex != null) {
+			bodyIndex.invalidate();
+		}
+	}
+
+	/**
+	 * Writes the rows as raw XML.
+	 * <p>
+	 * The XML of the template row is created once, and the values are spliced in
+	 * for every row. No docx4j objects are created per row.
+	 * </p>
+	 * 
+	 * @param out the writer to write to. Cannot be <code>null</code>.
+	 * @throws IOException if writing fails.
+	 */
+	public void writeRows(Writer out) throws IOException {
+		requireNonNull(out);
+
+		final List<String> segments = getRowTemplate().getXmlSegments();
+		while (rows.hasNext()) {
+			final List<?> values = rows.next();
+
+			out.write(segments.get(0));
+			for (int i = 0; i < columns.size(); i++) {
+				out.write(XmlEscaping.escape(toString(values, i)));
+				out.write(segments.get(i + 1));
+			}
+		}
+	}
+
+	/**
+	 * Creates the table with its grid and header row.
+	 * 
+	 * @return new table. Never <code>null</code>.
+	 */
+	protected Tbl createTable() {
+		final Tbl table = TblFactory.createTable(0, columns.size(), columns.get(0).getWidth());
+
+		final List<TblGridCol> gridCols = table.getTblGrid().getGridCol();
+		for (int i = 0; i < columns.size(); i++) {
+			gridCols.get(i).setW(BigInteger.valueOf(columns.get(i).getWidth()));
+		}
+
+		table.getContent().add(createHeaderRow());
+		return table;
+	}
+
+	/**
+	 * Creates the header row.
+	 * <p>
+	 * The default implementation creates a row with bold header texts that is
+	 * repeated on every page.
+	 * </p>
+	 * 
+	 * @return new header row. Never <code>null</code>.
+	 */
+	protected Tr createHeaderRow() {
+		final TrPr trPr = new TrPr();
+		trPr.getCnfStyleOrDivIdOrGridBefore()
+				.add(Context.getWmlObjectFactory().createCTTrPrBaseTblHeader(new BooleanDefaultTrue()));
+
+		final RPr rPr = new RPr();
+		rPr.setB(new BooleanDefaultTrue());
+
+		final Tr row = new Tr();
+		row.setTrPr(trPr);
+		for (TableColumn column : columns) {
+			row.getContent().add(createCell(createTcPr(column), null, rPr, column.getHeader()));
+		}
+		return row;
+	}
+
+	/**
+	 * Creates the template for the data rows.
+	 * <p>
+	 * The template is created once. The row properties and the cell, paragraph and
+	 * run properties of the first paragraph and run of each cell are used for all
+	 * data rows. The default implementation sets the column widths.
+	 * </p>
+	 * 
+	 * @return new template row with one cell per column. Never <code>null</code>.
+	 */
+	protected Tr createRowTemplate() {
+		final Tr row = new Tr();
+		for (TableColumn column : columns) {
+			row.getContent().add(createCell(createTcPr(column), null, null, ""));
+		}
+		return row;
+	}
+
+	private Tr createRow(List<?> values) {
+		final RowTemplate template = getRowTemplate();
+
+		final Tr row = new Tr();
+		row.setTrPr(template.trPr);
+		for (int i = 0; i < columns.size(); i++) {
+			row.getContent().add(createCell(template.tcPrs.get(i), template.pPrs.get(i), template.rPrs.get(i),
+					toString(values, i)));
+		}
+		return row;
+	}
+
+	private Tr createMarkerRow() {
+		final Tr row = new Tr();
+		row.getContent().add(createCell(null, null, null, rowMarker));
+		return row;
+	}
+
+	private static Tc createCell(TcPr tcPr, PPr pPr, RPr rPr, String value) {
+		final Text text = new Text();
+		text.setValue(value);
+		text.setSpace("preserve");
+
+		final R run = new R();
+		run.setRPr(rPr);
+		run.getContent().add(text);
+
+		final P paragraph = new P();
+		paragraph.setPPr(pPr);
+		paragraph.getContent().add(run);
+
+		final Tc cell = new Tc();
+		cell.setTcPr(tcPr);
+		cell.getContent().add(paragraph);
+		return cell;
+	}
+
+	private static TcPr createTcPr(TableColumn column) {
+		final TblWidth width = new TblWidth();
+		width.setW(BigInteger.valueOf(column.getWidth()));
+		width.setType(TblWidth.TYPE_DXA);
+
+		final TcPr tcPr = new TcPr();
+		tcPr.setTcW(width);
+		return tcPr;
+	}
+
+	private static String toString(List<?> values, int index) {
+		final Object value = values != null && index < values.size() ? values.get(index) : null;
+		return value != null ? String.valueOf(value) : "";
+	}
+
+	private RowTemplate getRowTemplate() {
+		if (rowTemplate == null) {
+			rowTemplate = new RowTemplate(createRowTemplate());
+		}
+		return rowTemplate;
+	}
+
+	/**
+	 * Returns the index to look up the placeholder with.
+	 * 
+	 * @param contents the body contents. Cannot be <code>null</code>.
+	 * @return index for the given contents. Never <code>null</code>.
+	 * @see TocInsertionRule#getBodyIndex(List)
+	 */
+	protected BodyIndex getBodyIndex(final List<Object> contents) {
+		if (bodyIndex != null && bodyIndex.getContents() == contents) {
+			return bodyIndex;
+		}
+		return new BodyIndex(contents);
+	}
+
+	/**
+	 * Sets the index to share with other rules working on the same document.
+	 * 
+	 * @param bodyIndex the index. If <code>null</code>, a new index is created for
+	 *                  every lookup.
+	 */
+	public void setBodyIndex(BodyIndex bodyIndex) {
+		this.bodyIndex = bodyIndex;
+	}
+
+	/**
+	 * Returns <code>true</code> if the rows are written when saving the document
+	 * rather than being inserted as docx4j objects.
+	 * 
+	 * @return <code>true</code> if rows are streamed. Default is
+	 *         <code>false</code>.
+	 */
+	public boolean isStreamingRows() {
+		return streamingRows;
+	}
+
+	/**
+	 * Sets whether the rows are written when saving the document rather than being
+	 * inserted as docx4j objects.
+	 * <p>
+	 * If set, the document has to be saved via {@link #writeRows(Writer)} - e.g.
+	 * with an {@link org.ingomohr.docwriter.docx.AbstractRuleBasedDocxWriter} or a
+	 * {@link org.ingomohr.docwriter.docx.stream.TableStreamingSaver}.
+	 * </p>
+	 * 
+	 * @param streamingRows <code>true</code> to stream the rows.
+	 */
+	public void setStreamingRows(boolean streamingRows) {
+		this.streamingRows = streamingRows;
+	}
+
+	/**
+	 * Returns the text of the marker row that stands in for the rows if
+	 * {@link #isStreamingRows()} is set.
+	 * 
+	 * @return row marker. Never <code>null</code>.
+	 */
+	public String getRowMarker() {
+		return rowMarker;
+	}
+
+	/**
+	 * Returns the placeholder as passed to the constructor.
+	 * 
+	 * @return placeholder. <code>null</code> if not set.
+	 */
+	public String getPlaceholder() {
+		return placeholder;
+	}
+
+	/**
+	 * Returns the columns.
+	 * 
+	 * @return columns. Never <code>null</code>.
+	 */
+	public List<TableColumn> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * The properties of the template row - shared by all data rows.
+	 */
+	private final class RowTemplate {
+
+		final TrPr trPr;
+		final List<TcPr> tcPrs = new ArrayList<>();
+		final List<PPr> pPrs = new ArrayList<>();
+		final List<RPr> rPrs = new ArrayList<>();
+
+		private List<String> xmlSegments;
+
+		RowTemplate(Tr template) {
+			trPr = template.getTrPr();
+
+			final List<Tc> cells = new DocxDataInspector().getAllElements(template, Tc.class);
+			if (cells.size() != columns.size()) {
+				throw new IllegalStateException(
+						"Template row must have " + columns.size() + " cells but has " + cells.size());
+			}
+			for (Tc cell : cells) {
+				tcPrs.add(cell.getTcPr());
+
+				final P paragraph = first(cell, P.class);
+				pPrs.add(paragraph != null ? paragraph.getPPr() : null);
+
+				final R run = paragraph != null ? first(paragraph, R.class) : null;
+				rPrs.add(run != null ? run.getRPr() : null);
+			}
+		}
+
+		List<String> getXmlSegments() {
+			if (xmlSegments == null) {
+				final List<String> markers = new ArrayList<>();
+				for (int i = 0; i < columns.size(); i++) {
+					markers.add(rowMarker + "-" + i);
+				}
+
+				String xml = XmlUtils.marshaltoString(createRow(markers), true, false);
+				// The row is written into a document that declares the namespaces already.
+				final int rootEnd = xml.indexOf('>');
+				xml = NAMESPACE_DECLARATION.matcher(xml.substring(0, rootEnd)).replaceAll("")
+						+ xml.substring(rootEnd);
+
+				final List<String> segments = new ArrayList<>();
+				int last = 0;
+				for (String marker : markers) {
+					// The whole text is matched - e.g. marker 1 is a prefix of marker 10.
+					final int index = xml.indexOf('>' + marker + '<', last) + 1;
+					segments.add(xml.substring(last, index));
+					last = index + marker.length();
+				}
+				segments.add(xml.substring(last));
+				xmlSegments = segments;
+			}
+			return xmlSegments;
+		}
+
+		private <T> T first(ContentAccessor parent, Class<T> type) {
+			for (Object child : parent.getContent()) {
+				final Object value = XmlUtils.unwrap(child);
+				if (type.isInstance(value)) {
+					return type.cast(value);
+				}
+			}
+			return null;
+		}
+	}
+
+}
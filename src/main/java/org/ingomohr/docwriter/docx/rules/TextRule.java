@@ -0,0 +1,18 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import org.docx4j.wml.Text;
+
+/**
+ * A {@link DocumentRule} that only applies to single {@link Text} elements and
+ * only reads and modifies their values.
+ * <p>
+ * Such rules don't need the document tree. They can therefore also be applied
+ * while streaming through a document (see
+ * {@link org.ingomohr.docwriter.docx.stream.StreamingRuleEngine}).
+ * </p>
+ * 
+ * @since 6.1
+ */
+public interface TextRule extends DocumentRule {
+
+}
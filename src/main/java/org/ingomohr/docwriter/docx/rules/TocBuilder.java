@@ -0,0 +1,828 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static java.util.Objects.requireNonNull;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.bind.JAXBElement;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.StyleDefinitionsPart;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.BooleanDefaultTrue;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.CTMarkupRange;
+import org.docx4j.wml.CTSdtDocPart;
+import org.docx4j.wml.CTTabStop;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.FldChar;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.PPrBase;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.STFldCharType;
+import org.docx4j.wml.STTabJc;
+import org.docx4j.wml.STTabTlc;
+import org.docx4j.wml.SdtBlock;
+import org.docx4j.wml.SdtElement;
+import org.docx4j.wml.SdtPr;
+import org.docx4j.wml.SectPr;
+import org.docx4j.wml.Style;
+import org.docx4j.wml.Styles;
+import org.docx4j.wml.Tabs;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.jfr.TocGenerationEvent;
+
+/**
+ * Builds a table-of-contents (ToC) without the help of the docx4j
+ * <code>TocGenerator</code>.
+ * <p>
+ * The builder collects all headings in one pass over the document body, adds
+ * <code>_Toc</code> bookmarks to headings that don't have one yet and writes
+ * the ToC as an SDT block with one (optionally hyperlinked) entry per heading.
+ * </p>
+ * <p>
+ * Unless page numbering is skipped, the page numbers of the entries are
+ * computed with a {@link TocPageLayout}. Without a layout, the ToC field is
+ * marked dirty and the page numbers are left for Word to compute.
+ * </p>
+ * <p>
+ * Inserting and updating a ToC emit a {@link TocGenerationEvent}.
+ * </p>
+ * <p>
+ * Heading text and ToC switches are held per instance. Instances are immutable
+ * and don't use any global state, so one builder can be used by many threads
+ * at the same time - as long as every thread works on its own document.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class TocBuilder {
+
+	/**
+	 * The default ToC heading text.
+	 */
+	public static final String DEFAULT_HEADING_TEXT = "Table of Contents";
+
+	/**
+	 * The default ToC switches.
+	 */
+	public static final String DEFAULT_TOC_SWITCHES = "TOC \\o \"1-3\" \\n 1-3 \\h \\z \\u";
+
+	static final String DOC_PART_GALLERY = "Table of Contents";
+
+	private static final String BOOKMARK_PREFIX = "_Toc";
+	private static final String STYLE_TOC_HEADING = "TOCHeading";
+	private static final String STYLE_TOC_PREFIX = "TOC";
+	private static final int MAX_STYLE_DEPTH = 16;
+	private static final BigInteger DEFAULT_TAB_POS = BigInteger.valueOf(9350);
+	private static final Pattern HEADING_STYLE_NAME = Pattern.compile("heading\\s*([1-9])",
+			Pattern.CASE_INSENSITIVE);
+
+	private final String headingText;
+
+	private final String tocSwitches;
+
+	private final boolean skippingPageNumbering;
+
+	private final TocPageLayout pageLayout;
+
+	/**
+	 * Creates a new builder with default heading text and switches, skipping page
+	 * numbering.
+	 */
+	public TocBuilder() {
+		this(DEFAULT_HEADING_TEXT, DEFAULT_TOC_SWITCHES, true);
+	}
+
+	/**
+	 * Creates a new builder.
+	 * 
+	 * @param headingText           the heading text to put above the entries. If
+	 *                              <code>null</code>, the ToC has no heading.
+	 * @param tocSwitches           the ToC field instruction - e.g.
+	 *                              <code>TOC \\o "1-3" \\h \\z \\u</code>. If
+	 *                              <code>null</code>, a plain <code>TOC</code>
+	 *                              instruction is used.
+	 * @param skippingPageNumbering <code>true</code> to write the entries without
+	 *                              page numbers.
+	 */
+	public TocBuilder(String headingText, String tocSwitches, boolean skippingPageNumbering) {
+		this(headingText, tocSwitches, skippingPageNumbering, TocPageLayout.getShared());
+	}
+
+	/**
+	 * Creates a new builder.
+	 * 
+	 * @param headingText           the heading text to put above the entries. If
+	 *                              <code>null</code>, the ToC has no heading.
+	 * @param tocSwitches           the ToC field instruction. If
+	 *                              <code>null</code>, a plain <code>TOC</code>
+	 *                              instruction is used.
+	 * @param skippingPageNumbering <code>true</code> to write the entries without
+	 *                              page numbers.
+	 * @param pageLayout            the layout to compute the page numbers with. If
+	 *                              <code>null</code>, the page numbers are left for
+	 *                              Word to compute.
+	 */
+	public TocBuilder(String headingText, String tocSwitches, boolean skippingPageNumbering,
+			TocPageLayout pageLayout) {
+		this.headingText = headingText;
+		this.tocSwitches = tocSwitches;
+		this.skippingPageNumbering = skippingPageNumbering;
+		this.pageLayout = pageLayout;
+	}
+
+	/**
+	 * Creates a new ToC for the given document and inserts it into the body.
+	 * 
+	 * @param doc   the document. Cannot be <code>null</code>.
+	 * @param index the index in the body contents to insert the ToC at. If out of
+	 *              range, the ToC is appended to the end of the document.
+	 * @return the inserted ToC. Never <code>null</code>.
+	 */
+	public SdtBlock insertToc(WordprocessingMLPackage doc, int index) {
+		final TocGenerationEvent event = new TocGenerationEvent();
+		event.begin();
+		final Body body = getBody(doc);
+
+		final TocSwitches switches = TocSwitches.parse(getTocSwitches());
+		final SdtBlock toc = createTocSdt();
+
+		// Insert first so that the ToC itself is taken into account for the page
+		// numbers.
+		final List<Object> contents = body.getContent();
+		if (index >= 0 && index <= contents.size()) {
+			contents.add(index, toc);
+		} else {
+			contents.add(toc);
+		}
+
+		final int entries = fillToc(doc, toc, null, switches);
+		commitEvent(event, false, body, entries);
+		return toc;
+	}
+
+	/**
+	 * Updates the first ToC found in the given document.
+	 * <p>
+	 * The ToC keeps its field instruction and its heading. Only if the existing ToC
+	 * has no instruction, the switches of this builder are used.
+	 * </p>
+	 * 
+	 * @param doc the document. Cannot be <code>null</code>.
+	 * @return the updated ToC. <code>null</code> if the document has no ToC.
+	 */
+	public SdtBlock updateToc(WordprocessingMLPackage doc) {
+		final TocGenerationEvent event = new TocGenerationEvent();
+		event.begin();
+		final Body body = getBody(doc);
+
+		final SdtBlock toc = findToc(body.getContent());
+		if (toc == null) {
+			return null;
+		}
+
+		final List<Object> existing = toc.getSdtContent() != null ? toc.getSdtContent().getContent()
+				: new ArrayList<>();
+
+		final String instruction = findTocInstruction(existing).orElse(getTocSwitches());
+		final P heading = findTocHeading(existing);
+
+		final int entries = fillToc(doc, toc, heading, TocSwitches.parse(instruction));
+		commitEvent(event, true, body, entries);
+		return toc;
+	}
+
+	private static void commitEvent(TocGenerationEvent event, boolean update, Body body, int entries) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.setUpdate(update);
+			event.setElements(body.getContent().size());
+			event.setEntries(entries);
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the first ToC among the given block-level contents.
+	 * 
+	 * @param contents the contents to search. Cannot be <code>null</code>.
+	 * @return ToC or <code>null</code> if there is none.
+	 */
+	public static SdtBlock findToc(List<Object> contents) {
+		for (Object obj : requireNonNull(contents)) {
+			Object unwrapped = XmlUtils.unwrap(obj);
+			if (unwrapped instanceof SdtBlock && isToc((SdtBlock) unwrapped)) {
+				return (SdtBlock) unwrapped;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given SDT is a ToC - i.e. a doc part of the
+	 * "Table of Contents" gallery.
+	 * 
+	 * @param sdt the SDT to check. Cannot be <code>null</code>.
+	 * @return <code>true</code> if the SDT is a ToC.
+	 */
+	public static boolean isToc(SdtElement sdt) {
+		SdtPr sdtPr = requireNonNull(sdt).getSdtPr();
+		if (sdtPr == null) {
+			return false;
+		}
+		for (Object obj : sdtPr.getRPrOrAliasOrLock()) {
+			Object unwrapped = XmlUtils.unwrap(obj);
+			if (unwrapped instanceof CTSdtDocPart) {
+				CTSdtDocPart docPart = (CTSdtDocPart) unwrapped;
+				return docPart.getDocPartGallery() != null
+						&& DOC_PART_GALLERY.equals(docPart.getDocPartGallery().getVal());
+			}
+		}
+		return false;
+	}
+
+	private int fillToc(WordprocessingMLPackage doc, SdtBlock toc, P existingHeading, TocSwitches switches) {
+		final Body body = getBody(doc);
+		final StyleDefinitionsPart stylesPart = doc.getMainDocumentPart().getStyleDefinitionsPart();
+
+		final HeadingCollector collector = new HeadingCollector(stylesPart, switches, toc);
+		collector.collect(body.getContent());
+		collector.assignBookmarks();
+
+		final ObjectFactory factory = Context.getWmlObjectFactory();
+
+		if (toc.getSdtContent() == null) {
+			toc.setSdtContent(factory.createSdtContentBlock());
+		}
+		final List<Object> content = toc.getSdtContent().getContent();
+		content.clear();
+
+		if (existingHeading != null) {
+			content.add(existingHeading);
+		} else if (getHeadingText() != null) {
+			content.add(createParagraph(factory, STYLE_TOC_HEADING, getHeadingText()));
+		}
+
+		final BigInteger tabPos = computeRightTabPosition(body);
+		final List<Heading> headings = collector.getHeadings();
+
+		final Map<P, Text> pageNumberTexts = new IdentityHashMap<>();
+
+		P first = null;
+		for (Heading heading : headings) {
+			final boolean withPageNumber = !isSkippingPageNumbering()
+					&& !switches.isOmittingPageNumber(heading.level);
+
+			P entry = createEntry(factory, heading, switches.isHyperlinked(), withPageNumber, tabPos,
+					pageNumberTexts);
+			if (first == null) {
+				first = entry;
+			}
+			content.add(entry);
+		}
+
+		final FldChar begin = createFldChar(factory, STFldCharType.BEGIN);
+
+		final List<Object> fieldStart = new ArrayList<>();
+		fieldStart.add(createRun(factory, begin));
+		fieldStart.add(createInstrTextRun(factory, " " + switches.getInstruction() + " "));
+		fieldStart.add(createRun(factory, createFldChar(factory, STFldCharType.SEPARATE)));
+
+		if (first != null) {
+			first.getContent().addAll(0, fieldStart);
+		} else {
+			P emptyP = createParagraph(factory, null, null);
+			emptyP.getContent().addAll(fieldStart);
+			emptyP.getContent().add(createTextRun(factory, "No table of contents entries found."));
+			content.add(emptyP);
+		}
+
+		P endP = factory.createP();
+		endP.getContent().add(createRun(factory, createFldChar(factory, STFldCharType.END)));
+		content.add(endP);
+
+		ensureStyles(stylesPart, collector.getMaxLevel());
+
+		if (!pageNumberTexts.isEmpty()) {
+			if (getPageLayout() != null) {
+				fillPageNumbers(doc, pageNumberTexts);
+			} else {
+				// Page numbers are left for Word to compute when the document is opened.
+				begin.setDirty(Boolean.TRUE);
+			}
+		}
+		return headings.size();
+	}
+
+	private void fillPageNumbers(WordprocessingMLPackage doc, Map<P, Text> pageNumberTexts) {
+		final Map<P, Integer> pageNumbers = getPageLayout().computePageNumbers(doc, pageNumberTexts.keySet());
+		for (Map.Entry<P, Text> entry : pageNumberTexts.entrySet()) {
+			Integer pageNumber = pageNumbers.get(entry.getKey());
+			entry.getValue().setValue(pageNumber != null ? pageNumber.toString() : "");
+		}
+	}
+
+	private SdtBlock createTocSdt() {
+		final ObjectFactory factory = Context.getWmlObjectFactory();
+
+		CTSdtDocPart docPart = factory.createCTSdtDocPart();
+		CTSdtDocPart.DocPartGallery gallery = factory.createCTSdtDocPartDocPartGallery();
+		gallery.setVal(DOC_PART_GALLERY);
+		docPart.setDocPartGallery(gallery);
+		docPart.setDocPartUnique(new BooleanDefaultTrue());
+
+		SdtPr sdtPr = factory.createSdtPr();
+		sdtPr.getRPrOrAliasOrLock().add(factory.createSdtPrDocPartObj(docPart));
+
+		SdtBlock sdt = factory.createSdtBlock();
+		sdt.setSdtPr(sdtPr);
+		sdt.setSdtContent(factory.createSdtContentBlock());
+		return sdt;
+	}
+
+	private P createEntry(ObjectFactory factory, Heading heading, boolean hyperlinked, boolean withPageNumber,
+			BigInteger tabPos, Map<P, Text> pageNumberTexts) {
+
+		P entry = createParagraph(factory, STYLE_TOC_PREFIX + heading.level, null);
+
+		List<Object> runs = new ArrayList<>();
+		runs.add(createTextRun(factory, heading.text));
+
+		if (withPageNumber) {
+			Tabs tabs = factory.createTabs();
+			CTTabStop tab = factory.createCTTabStop();
+			tab.setVal(STTabJc.RIGHT);
+			tab.setLeader(STTabTlc.DOT);
+			tab.setPos(tabPos);
+			tabs.getTab().add(tab);
+			entry.getPPr().setTabs(tabs);
+
+			R tabRun = factory.createR();
+			tabRun.getContent().add(factory.createRTab(factory.createRTab()));
+			runs.add(tabRun);
+
+			runs.add(createRun(factory, createFldChar(factory, STFldCharType.BEGIN)));
+			runs.add(createInstrTextRun(factory, " PAGEREF " + heading.bookmarkName + " \\h "));
+			runs.add(createRun(factory, createFldChar(factory, STFldCharType.SEPARATE)));
+			R pageNumberRun = createTextRun(factory, "");
+			pageNumberTexts.put(heading.paragraph, (Text) XmlUtils.unwrap(pageNumberRun.getContent().get(0)));
+			runs.add(pageNumberRun);
+			runs.add(createRun(factory, createFldChar(factory, STFldCharType.END)));
+		}
+
+		if (hyperlinked) {
+			P.Hyperlink link = factory.createPHyperlink();
+			link.setAnchor(heading.bookmarkName);
+			link.setHistory(Boolean.TRUE);
+			link.getContent().addAll(runs);
+			entry.getContent().add(factory.createPHyperlink(link));
+		} else {
+			entry.getContent().addAll(runs);
+		}
+		return entry;
+	}
+
+	private static P createParagraph(ObjectFactory factory, String styleId, String text) {
+		P p = factory.createP();
+		PPr pPr = factory.createPPr();
+		if (styleId != null) {
+			PPrBase.PStyle pStyle = factory.createPPrBasePStyle();
+			pStyle.setVal(styleId);
+			pPr.setPStyle(pStyle);
+		}
+		p.setPPr(pPr);
+		if (text != null) {
+			p.getContent().add(createTextRun(factory, text));
+		}
+		return p;
+	}
+
+	private static R createTextRun(ObjectFactory factory, String value) {
+		Text text = factory.createText();
+		text.setValue(value);
+		text.setSpace("preserve");
+
+		R run = factory.createR();
+		RPr rPr = factory.createRPr();
+		rPr.setNoProof(new BooleanDefaultTrue());
+		run.setRPr(rPr);
+		run.getContent().add(factory.createRT(text));
+		return run;
+	}
+
+	private static R createInstrTextRun(ObjectFactory factory, String instruction) {
+		Text text = factory.createText();
+		text.setValue(instruction);
+		text.setSpace("preserve");
+
+		R run = factory.createR();
+		run.getContent().add(factory.createRInstrText(text));
+		return run;
+	}
+
+	private static R createRun(ObjectFactory factory, FldChar fldChar) {
+		R run = factory.createR();
+		run.getContent().add(factory.createRFldChar(fldChar));
+		return run;
+	}
+
+	private static FldChar createFldChar(ObjectFactory factory, STFldCharType type) {
+		FldChar fldChar = factory.createFldChar();
+		fldChar.setFldCharType(type);
+		return fldChar;
+	}
+
+	private static BigInteger computeRightTabPosition(Body body) {
+		SectPr sectPr = body.getSectPr();
+		if (sectPr != null && sectPr.getPgSz() != null && sectPr.getPgSz().getW() != null
+				&& sectPr.getPgMar() != null) {
+			BigInteger pos = sectPr.getPgSz().getW();
+			if (sectPr.getPgMar().getLeft() != null) {
+				pos = pos.subtract(sectPr.getPgMar().getLeft());
+			}
+			if (sectPr.getPgMar().getRight() != null) {
+				pos = pos.subtract(sectPr.getPgMar().getRight());
+			}
+			if (pos.signum() > 0) {
+				return pos;
+			}
+		}
+		return DEFAULT_TAB_POS;
+	}
+
+	private static Optional<String> findTocInstruction(List<Object> tocContents) {
+		for (Object obj : tocContents) {
+			Object unwrapped = XmlUtils.unwrap(obj);
+			if (unwrapped instanceof P) {
+				for (Object pChild : ((P) unwrapped).getContent()) {
+					Object run = XmlUtils.unwrap(pChild);
+					if (run instanceof R) {
+						for (Object rChild : ((R) run).getContent()) {
+							if (isInstrText(rChild)) {
+								String instr = ((Text) XmlUtils.unwrap(rChild)).getValue();
+								if (instr != null && instr.trim().startsWith(STYLE_TOC_PREFIX)) {
+									return Optional.of(instr.trim());
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return Optional.empty();
+	}
+
+	private static P findTocHeading(List<Object> tocContents) {
+		if (tocContents.isEmpty()) {
+			return null;
+		}
+		Object first = XmlUtils.unwrap(tocContents.get(0));
+		if (first instanceof P) {
+			for (Object pChild : ((P) first).getContent()) {
+				Object run = XmlUtils.unwrap(pChild);
+				if (run instanceof R) {
+					for (Object rChild : ((R) run).getContent()) {
+						if (XmlUtils.unwrap(rChild) instanceof FldChar) {
+							return null;
+						}
+					}
+				} else if (run instanceof P.Hyperlink) {
+					return null;
+				}
+			}
+			return (P) first;
+		}
+		return null;
+	}
+
+	private static boolean isInstrText(Object obj) {
+		return obj instanceof JAXBElement && ((JAXBElement<?>) obj).getValue() instanceof Text
+				&& "instrText".equals(((JAXBElement<?>) obj).getName().getLocalPart());
+	}
+
+	private static boolean isText(Object obj) {
+		// Unwrapped Text objects are w:t elements as well.
+		return obj instanceof Text || obj instanceof JAXBElement && ((JAXBElement<?>) obj).getValue() instanceof Text
+				&& "t".equals(((JAXBElement<?>) obj).getName().getLocalPart());
+	}
+
+	private static void ensureStyles(StyleDefinitionsPart stylesPart, int maxLevel) {
+		if (stylesPart == null || stylesPart.getJaxbElement() == null) {
+			return;
+		}
+
+		final Styles styles = stylesPart.getJaxbElement();
+		final Set<String> present = new HashSet<>();
+		for (Style style : styles.getStyle()) {
+			present.add(style.getStyleId());
+		}
+
+		final List<String> required = new ArrayList<>();
+		required.add(STYLE_TOC_HEADING);
+		for (int level = 1; level <= maxLevel; level++) {
+			required.add(STYLE_TOC_PREFIX + level);
+		}
+
+		for (String styleId : required) {
+			if (!present.contains(styleId)) {
+				Style known = KnownStyles.STYLES.get(styleId);
+				if (known != null) {
+					styles.getStyle().add(XmlUtils.deepCopy(known));
+				}
+			}
+		}
+	}
+
+	private static Body getBody(WordprocessingMLPackage doc) {
+		MainDocumentPart documentPart = requireNonNull(doc).getMainDocumentPart();
+		return documentPart.getJaxbElement().getBody();
+	}
+
+	/**
+	 * Returns the ToC heading text.
+	 * 
+	 * @return ToC heading text. <code>null</code> if the ToC has no heading.
+	 */
+	public String getHeadingText() {
+		return headingText;
+	}
+
+	/**
+	 * Returns the ToC switches.
+	 * 
+	 * @return ToC switches. <code>null</code> if not set.
+	 */
+	public String getTocSwitches() {
+		return tocSwitches;
+	}
+
+	/**
+	 * Returns <code>true</code> if page numbering is being skipped.
+	 * 
+	 * @return <code>true</code> if the ToC entries have no page numbers.
+	 */
+	public boolean isSkippingPageNumbering() {
+		return skippingPageNumbering;
+	}
+
+	/**
+	 * Returns the layout to compute the page numbers with.
+	 * 
+	 * @return layout. <code>null</code> if the page numbers are left for Word to
+	 *         compute.
+	 */
+	public TocPageLayout getPageLayout() {
+		return pageLayout;
+	}
+
+	/**
+	 * Lazily initialized holder for the docx4j known styles.
+	 */
+	private static final class KnownStyles {
+		static final Map<String, Style> STYLES = StyleDefinitionsPart.getKnownStyles();
+	}
+
+	/**
+	 * A heading to be listed in the ToC.
+	 */
+	static final class Heading {
+
+		final P paragraph;
+		final int level;
+		final String text;
+		String bookmarkName;
+
+		Heading(P paragraph, int level, String text, String bookmarkName) {
+			this.paragraph = paragraph;
+			this.level = level;
+			this.text = text;
+			this.bookmarkName = bookmarkName;
+		}
+	}
+
+	/**
+	 * Collects headings and bookmark data in one pass. An instance is used for
+	 * exactly one build.
+	 */
+	private static final class HeadingCollector {
+
+		private final StyleDefinitionsPart stylesPart;
+		private final TocSwitches switches;
+		private final Object ignored;
+
+		private final List<Heading> headings = new ArrayList<>();
+		private final Map<String, Optional<Integer>> styleLevels = new HashMap<>();
+		private final Set<String> bookmarkNames = new HashSet<>();
+		private BigInteger maxBookmarkId = BigInteger.ZERO;
+		private int maxLevel;
+
+		HeadingCollector(StyleDefinitionsPart stylesPart, TocSwitches switches, Object ignored) {
+			this.stylesPart = stylesPart;
+			this.switches = switches;
+			this.ignored = ignored;
+		}
+
+		void collect(List<Object> contents) {
+			for (Object obj : contents) {
+				Object unwrapped = XmlUtils.unwrap(obj);
+				if (unwrapped == ignored) {
+					continue;
+				}
+				if (unwrapped instanceof P) {
+					collectParagraph((P) unwrapped);
+				} else if (unwrapped instanceof CTBookmark) {
+					registerBookmark((CTBookmark) unwrapped);
+				} else if (unwrapped instanceof SdtElement) {
+					if (((SdtElement) unwrapped).getSdtContent() != null) {
+						collect(((SdtElement) unwrapped).getSdtContent().getContent());
+					}
+				} else if (unwrapped instanceof ContentAccessor) {
+					collect(((ContentAccessor) unwrapped).getContent());
+				}
+			}
+		}
+
+		private void collectParagraph(P p) {
+			final StringBuilder text = new StringBuilder();
+			final String existingBookmark = collectInline(p.getContent(), text);
+
+			final Integer level = resolveLevel(p);
+			if (level == null) {
+				return;
+			}
+
+			final String entryText = text.toString().trim();
+			if (entryText.isEmpty()) {
+				return;
+			}
+
+			headings.add(new Heading(p, level, entryText, existingBookmark));
+			maxLevel = Math.max(maxLevel, level);
+		}
+
+		/**
+		 * Appends the visible text of the given inline content and registers its
+		 * bookmarks.
+		 * 
+		 * @return name of the first <code>_Toc</code> bookmark found or
+		 *         <code>null</code>.
+		 */
+		private String collectInline(List<Object> contents, StringBuilder text) {
+			String tocBookmark = null;
+			for (Object obj : contents) {
+				if (isText(obj)) {
+					String value = ((Text) XmlUtils.unwrap(obj)).getValue();
+					if (value != null) {
+						text.append(value);
+					}
+					continue;
+				}
+				Object unwrapped = XmlUtils.unwrap(obj);
+				if (unwrapped instanceof CTBookmark) {
+					CTBookmark bookmark = (CTBookmark) unwrapped;
+					registerBookmark(bookmark);
+					if (tocBookmark == null && bookmark.getName() != null
+							&& bookmark.getName().startsWith(BOOKMARK_PREFIX)) {
+						tocBookmark = bookmark.getName();
+					}
+				} else if (unwrapped instanceof R.Tab) {
+					text.append(' ');
+				} else if (unwrapped instanceof ContentAccessor) {
+					String nested = collectInline(((ContentAccessor) unwrapped).getContent(), text);
+					if (tocBookmark == null) {
+						tocBookmark = nested;
+					}
+				}
+			}
+			return tocBookmark;
+		}
+
+		private void registerBookmark(CTBookmark bookmark) {
+			if (bookmark.getId() != null && bookmark.getId().compareTo(maxBookmarkId) > 0) {
+				maxBookmarkId = bookmark.getId();
+			}
+			if (bookmark.getName() != null) {
+				bookmarkNames.add(bookmark.getName());
+			}
+		}
+
+		private Integer resolveLevel(P p) {
+			final PPr pPr = p.getPPr();
+			if (pPr == null) {
+				return null;
+			}
+
+			final String styleId = pPr.getPStyle() != null ? pPr.getPStyle().getVal() : null;
+
+			if (styleId != null) {
+				Integer styleLevel = switches.getLevelForStyleName(getStyleName(styleId));
+				if (styleLevel != null) {
+					return styleLevel;
+				}
+			}
+
+			Integer level = null;
+			if (switches.isUsingOutlineLevels() && pPr.getOutlineLvl() != null) {
+				level = toLevel(pPr.getOutlineLvl());
+			} else if (styleId != null) {
+				level = styleLevels.computeIfAbsent(styleId, this::resolveStyleLevel).orElse(null);
+			}
+
+			return level != null && switches.includesHeadingLevel(level) ? level : null;
+		}
+
+		private String getStyleName(String styleId) {
+			Style style = stylesPart != null ? stylesPart.getStyleById(styleId) : null;
+			return style != null && style.getName() != null ? style.getName().getVal() : null;
+		}
+
+		private Optional<Integer> resolveStyleLevel(String styleId) {
+			String currentId = styleId;
+			for (int depth = 0; currentId != null && depth < MAX_STYLE_DEPTH; depth++) {
+				Style style = stylesPart != null ? stylesPart.getStyleById(currentId) : null;
+				if (style == null) {
+					break;
+				}
+				if (style.getPPr() != null && style.getPPr().getOutlineLvl() != null) {
+					return Optional.ofNullable(toLevel(style.getPPr().getOutlineLvl()));
+				}
+				if (style.getName() != null && style.getName().getVal() != null) {
+					Matcher matcher = HEADING_STYLE_NAME.matcher(style.getName().getVal().trim());
+					if (matcher.matches()) {
+						return Optional.of(Integer.parseInt(matcher.group(1)));
+					}
+				}
+				currentId = style.getBasedOn() != null ? style.getBasedOn().getVal() : null;
+			}
+			return Optional.empty();
+		}
+
+		private static Integer toLevel(PPrBase.OutlineLvl outlineLvl) {
+			if (outlineLvl.getVal() == null) {
+				return null;
+			}
+			int val = outlineLvl.getVal().intValue();
+			// Outline level 9 means "body text".
+			return val >= 0 && val < 9 ? val + 1 : null;
+		}
+
+		/**
+		 * Adds a <code>_Toc</code> bookmark to every heading that doesn't have one
+		 * yet.
+		 */
+		void assignBookmarks() {
+			final ObjectFactory factory = Context.getWmlObjectFactory();
+			BigInteger nextId = maxBookmarkId;
+
+			for (Heading heading : headings) {
+				if (heading.bookmarkName != null) {
+					continue;
+				}
+				String name;
+				do {
+					nextId = nextId.add(BigInteger.ONE);
+					name = BOOKMARK_PREFIX + nextId;
+				} while (bookmarkNames.contains(name));
+				bookmarkNames.add(name);
+
+				CTBookmark start = factory.createCTBookmark();
+				start.setId(nextId);
+				start.setName(name);
+				CTMarkupRange end = factory.createCTMarkupRange();
+				end.setId(nextId);
+
+				List<Object> content = heading.paragraph.getContent();
+				content.add(0, factory.createPBookmarkStart(start));
+				content.add(factory.createPBookmarkEnd(end));
+
+				heading.bookmarkName = name;
+			}
+		}
+
+		List<Heading> getHeadings() {
+			return headings;
+		}
+
+		int getMaxLevel() {
+			return maxLevel;
+		}
+	}
+
+}
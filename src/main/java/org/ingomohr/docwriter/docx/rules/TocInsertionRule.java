@@ -5,10 +5,7 @@ import static java.util.Objects.requireNonNull;
 import java.util.List;
 
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
-import org.docx4j.toc.Toc;
-import org.docx4j.toc.TocException;
-import org.docx4j.toc.TocGenerator;
-import org.docx4j.wml.P;
+import org.ingomohr.docwriter.docx.util.BodyIndex;
 import org.ingomohr.docwriter.docx.util.DocxDataInspector;
 
 /**
@@ -20,7 +17,9 @@ import org.ingomohr.docwriter.docx.util.DocxDataInspector;
  * <li>ToC Switches: "TOC \\o \"1-3\" \\n 1-3 \\h \\z \\u"</li>
  * <li>skipPageNumbering: true</li>
  * </ul>
- * Subclasses can override the settings to their liking.
+ * Switches and page numbering can be set - see {@link #setTocSwitches(String)}
+ * and {@link #setSkippingPageNumbering(boolean)}. Subclasses can override the
+ * settings to their liking.
  * </p>
  * <p>
  * The rule can be used to insert a ToC by replacing a ToC-placeholder or to
@@ -29,6 +28,15 @@ import org.ingomohr.docwriter.docx.util.DocxDataInspector;
  * Subclasses can override computing the insertion index. See
  * {@link #computeTocInsertionIndex(WordprocessingMLPackage)}.
  * </p>
+ * <p>
+ * The ToC itself is created by a {@link TocBuilder} - see
+ * {@link #createTocBuilder()}.
+ * </p>
+ * <p>
+ * The placeholder is looked up via a {@link BodyIndex}. To share the index with
+ * other rules working on the same document, see
+ * {@link #setBodyIndex(BodyIndex)}.
+ * </p>
  * 
  * @since 1.3
  */
@@ -36,6 +44,12 @@ public class TocInsertionRule implements DocumentRule {
 
 	private final String tocPlaceholder;
 
+	private BodyIndex bodyIndex;
+
+	private String tocSwitches = TocBuilder.DEFAULT_TOC_SWITCHES;
+
+	private boolean skippingPageNumbering = true;
+
 	/**
 	 * Creates a new TocInsertionRule specifying no ToC placeholder to replace.
 	 */
@@ -75,19 +89,42 @@ public class TocInsertionRule implements DocumentRule {
 			contents.remove(insertionIndex);
 		}
 
-		final String headingText = getHeadingText();
-		final String switches = getTocSwitches();
-		final boolean skipPageNumbering = isSkippingPageNumbering();
+		createTocBuilder().insertToc(doc, insertionIndex);
 
-		try {
-			Toc.setTocHeadingText(headingText);
-			TocGenerator generator = new TocGenerator(doc);
+		if (bodyIndex != null) {
+			bodyIndex.invalidate();
+		}
+	}
 
-			generator.generateToc(insertionIndex, switches, skipPageNumbering);
-		} catch (TocException e) {
-			throw new RuntimeException("Cannot create table of contents", e);
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The key consists of the placeholder, the heading text, the switches and
+	 * whether page numbering is skipped. Instances of subclasses have no key.
+	 * </p>
+	 */
+	@Override
+	public String getCacheKey() {
+		if (getClass() != TocInsertionRule.class) {
+			return null;
 		}
+		return getTocPlaceholder() + '\0' + getHeadingText() + '\0' + getTocSwitches() + '\0'
+				+ isSkippingPageNumbering();
+	}
 
+	/**
+	 * Creates the builder to create the ToC with.
+	 * <p>
+	 * The default implementation creates a {@link TocBuilder} with
+	 * {@link #getHeadingText()}, {@link #getTocSwitches()} and
+	 * {@link #isSkippingPageNumbering()}.
+	 * </p>
+	 * 
+	 * @return new ToC builder. Never <code>null</code>.
+	 * @since 6.1
+	 */
+	protected TocBuilder createTocBuilder() {
+		return new TocBuilder(getHeadingText(), getTocSwitches(), isSkippingPageNumbering());
 	}
 
 	/**
@@ -110,13 +147,10 @@ public class TocInsertionRule implements DocumentRule {
 		int index;
 
 		if (placeholder != null) {
-			index = 0;
-			for (Object obj : contents) {
-				// The ToC placeholder is expected alone and in its own line - i.e. a paragraph
-				if (obj instanceof P && placeholder.equals(obj.toString())) {
-					break;
-				}
-				index++;
+			// The ToC placeholder is expected alone and in its own line - i.e. a paragraph
+			index = getBodyIndex(contents).indexOfParagraph(placeholder);
+			if (index == -1) {
+				index = contents.size();
 			}
 		} else {
 			index = contents.size();
@@ -125,13 +159,42 @@ public class TocInsertionRule implements DocumentRule {
 		return index;
 	}
 
+	/**
+	 * Returns the index to look up the placeholder with.
+	 * <p>
+	 * Returns the index set via {@link #setBodyIndex(BodyIndex)} if it indexes the
+	 * given contents. Otherwise, a new index is created.
+	 * </p>
+	 * 
+	 * @param contents the body contents. Cannot be <code>null</code>.
+	 * @return index for the given contents. Never <code>null</code>.
+	 * @since 6.1
+	 */
+	protected BodyIndex getBodyIndex(final List<Object> contents) {
+		if (bodyIndex != null && bodyIndex.getContents() == contents) {
+			return bodyIndex;
+		}
+		return new BodyIndex(contents);
+	}
+
+	/**
+	 * Sets the index to share with other rules working on the same document.
+	 * 
+	 * @param bodyIndex the index. If <code>null</code>, a new index is created for
+	 *                  every lookup.
+	 * @since 6.1
+	 */
+	public void setBodyIndex(BodyIndex bodyIndex) {
+		this.bodyIndex = bodyIndex;
+	}
+
 	/**
 	 * Returns the ToC heading text.
 	 * 
 	 * @return ToC heading text.
 	 */
 	protected String getHeadingText() {
-		return "Table of Contents";
+		return TocBuilder.DEFAULT_HEADING_TEXT;
 	}
 
 	/**
@@ -146,17 +209,50 @@ public class TocInsertionRule implements DocumentRule {
 	 * @return ToC switches.
 	 */
 	protected String getTocSwitches() {
-		return "TOC \\o \"1-3\" \\n 1-3 \\h \\z \\u";
+		return tocSwitches;
+	}
+
+	/**
+	 * Sets the ToC switches.
+	 * <p>
+	 * Default is {@link TocBuilder#DEFAULT_TOC_SWITCHES}, which omits the page
+	 * numbers of all levels (<code>\n 1-3</code>). Use switches without
+	 * <code>\n</code> to get page numbers - see
+	 * {@link #setSkippingPageNumbering(boolean)}.
+	 * </p>
+	 * 
+	 * @param tocSwitches the switches. Cannot be <code>null</code>.
+	 * @since 6.1
+	 */
+	public void setTocSwitches(String tocSwitches) {
+		this.tocSwitches = requireNonNull(tocSwitches);
 	}
 
 	/**
-	 * The default implementation returns <code>true</code> to skip page numbering.
+	 * Returns <code>true</code> if the ToC is created without page numbers.
+	 * <p>
+	 * Default is <code>true</code>.
+	 * </p>
 	 * 
 	 * @return <code>true</code> if page numbering is being skipped at creating the
 	 *         ToC.
 	 */
 	protected boolean isSkippingPageNumbering() {
-		return true;
+		return skippingPageNumbering;
+	}
+
+	/**
+	 * Sets whether the ToC is created without page numbers.
+	 * <p>
+	 * If not skipped, the page numbers are computed with the
+	 * {@link TocPageLayout} of the {@link #createTocBuilder() ToC builder}.
+	 * </p>
+	 * 
+	 * @param skippingPageNumbering <code>true</code> to skip page numbering.
+	 * @since 6.1
+	 */
+	public void setSkippingPageNumbering(boolean skippingPageNumbering) {
+		this.skippingPageNumbering = skippingPageNumbering;
 	}
 
 	/**
@@ -0,0 +1,842 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static java.util.Objects.requireNonNull;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.bind.JAXBElement;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.dml.wordprocessingDrawing.Anchor;
+import org.docx4j.dml.wordprocessingDrawing.Inline;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.StyleDefinitionsPart;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.BooleanDefaultTrue;
+import org.docx4j.wml.Br;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.Drawing;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.PPrBase;
+import org.docx4j.wml.ParaRPr;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.RPrAbstract;
+import org.docx4j.wml.STBrType;
+import org.docx4j.wml.STLineSpacingRule;
+import org.docx4j.wml.SdtElement;
+import org.docx4j.wml.SectPr;
+import org.docx4j.wml.Style;
+import org.docx4j.wml.Styles;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.TblWidth;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
+
+/**
+ * Computes the page numbers of paragraphs with a simple local layout engine -
+ * e.g. to fill in the page numbers of a ToC.
+ * <p>
+ * The layout runs offline (no Word process is involved). It wraps the text of
+ * each paragraph into lines using the metrics of the paragraph's font, stacks
+ * the lines onto pages of the size given by the document's section properties
+ * and honors explicit page breaks, <i>page break before</i>, <i>keep with
+ * next</i>, section breaks, table rows and inline images. The result is an
+ * estimate: font substitution, hyphenation, floating objects and the like are
+ * not taken into account.
+ * </p>
+ * <p>
+ * The layout stops as soon as all requested paragraphs have been placed.
+ * </p>
+ * <p>
+ * Font metrics and resolved paragraph styles are cached per instance and are
+ * reused across documents. Styles are cached per parsed styles part, so
+ * documents created from the same parsed template share the cache. Instances
+ * are thread-safe; use {@link #getShared()} to share the caches application
+ * wide.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class TocPageLayout {
+
+	private static final TocPageLayout SHARED = new TocPageLayout();
+
+	private static final int TWIPS_PER_POINT = 20;
+	private static final long EMU_PER_TWIP = 635;
+	private static final int DEFAULT_TAB_WIDTH = 720;
+	private static final int MAX_STYLE_DEPTH = 16;
+
+	private static final SectionLayout DEFAULT_SECTION = new SectionLayout(12240, 15840, 1440, 1440, 1440, 1440, 1);
+
+	private static final String DEFAULT_PARAGRAPH_STYLE_KEY = "\0default";
+
+	private final Map<String, FontWidths> fontCache = new ConcurrentHashMap<>();
+
+	private final Map<Styles, Map<String, ParagraphFormat>> styleCache = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Returns the application-wide instance.
+	 * 
+	 * @return shared layout. Never <code>null</code>.
+	 */
+	public static TocPageLayout getShared() {
+		return SHARED;
+	}
+
+	/**
+	 * Computes the (1-based) page numbers of the given paragraphs of the main
+	 * document part.
+	 * 
+	 * @param doc        the document. Cannot be <code>null</code>.
+	 * @param paragraphs the paragraphs to compute the page numbers for. Cannot be
+	 *                   <code>null</code>.
+	 * @return page number per paragraph. Paragraphs that couldn't be found in the
+	 *         document are not contained. Never <code>null</code>.
+	 */
+	public Map<P, Integer> computePageNumbers(WordprocessingMLPackage doc, Collection<P> paragraphs) {
+		requireNonNull(paragraphs);
+
+		final MainDocumentPart mainPart = requireNonNull(doc).getMainDocumentPart();
+		final Body body = mainPart.getJaxbElement().getBody();
+
+		final Set<P> targets = Collections.newSetFromMap(new IdentityHashMap<>());
+		targets.addAll(paragraphs);
+
+		final Map<P, Integer> result = new IdentityHashMap<>();
+		if (targets.isEmpty()) {
+			return result;
+		}
+
+		final SectionLayout section = SectionLayout.of(body.getSectPr());
+		final LayoutRun run = new LayoutRun(mainPart.getStyleDefinitionsPart(), section, targets, result);
+		run.layoutBlocks(body.getContent(), section.getTextWidth());
+		return result;
+	}
+
+	/**
+	 * Returns the cached paragraph formats for the given styles.
+	 */
+	private Map<String, ParagraphFormat> getStyleFormats(Styles styles) {
+		return styleCache.computeIfAbsent(styles, key -> new ConcurrentHashMap<>());
+	}
+
+	private FontWidths getFontWidths(String family, boolean bold, boolean italic) {
+		final String key = family + (bold ? "|b" : "|") + (italic ? "i" : "");
+		return fontCache.computeIfAbsent(key, k -> FontWidths.measure(family, bold, italic));
+	}
+
+	/**
+	 * The state of one layout - i.e. of one call to
+	 * {@link TocPageLayout#computePageNumbers(WordprocessingMLPackage, Collection)}.
+	 */
+	private final class LayoutRun {
+
+		private final StyleDefinitionsPart stylesPart;
+		private final Map<String, ParagraphFormat> formats;
+		private final SectionLayout section;
+		private final Set<P> targets;
+		private final Map<P, Integer> result;
+
+		private int page;
+		private int y;
+
+		LayoutRun(StyleDefinitionsPart stylesPart, SectionLayout section, Set<P> targets, Map<P, Integer> result) {
+			this.stylesPart = stylesPart;
+			this.section = section;
+			this.targets = targets;
+			this.result = result;
+
+			final Styles styles = stylesPart != null ? stylesPart.getJaxbElement() : null;
+			this.formats = styles != null ? getStyleFormats(styles) : new ConcurrentHashMap<>();
+			this.page = section.firstPageNumber;
+		}
+
+		/**
+		 * Lays out the given blocks.
+		 * 
+		 * @return <code>false</code> if all targets are placed and the layout can
+		 *         stop.
+		 */
+		boolean layoutBlocks(List<Object> blocks, int width) {
+			for (Object obj : blocks) {
+				Object unwrapped = XmlUtils.unwrap(obj);
+				if (unwrapped instanceof P) {
+					placeParagraph(measureParagraph((P) unwrapped, width), (P) unwrapped);
+				} else if (unwrapped instanceof Tbl) {
+					placeTable((Tbl) unwrapped, width);
+				} else if (unwrapped instanceof SdtElement) {
+					SdtElement sdt = (SdtElement) unwrapped;
+					if (sdt.getSdtContent() != null && !layoutBlocks(sdt.getSdtContent().getContent(), width)) {
+						return false;
+					}
+				} else if (unwrapped instanceof ContentAccessor) {
+					if (!layoutBlocks(((ContentAccessor) unwrapped).getContent(), width)) {
+						return false;
+					}
+				}
+				if (targets.isEmpty()) {
+					return false;
+				}
+			}
+			return !targets.isEmpty();
+		}
+
+		private void placeParagraph(ParagraphBox box, P p) {
+			if (box.pageBreakBefore && y > 0) {
+				newPage();
+			}
+
+			final int before = y > 0 ? box.before : 0;
+			final int firstLine = box.lines.isEmpty() ? 0 : Math.max(0, box.lines.get(0));
+			if (box.keepNext && y > 0 && y + before + firstLine + box.height() > section.getTextHeight()) {
+				// Headings are kept together with the next paragraph.
+				newPage();
+			}
+
+			y += y > 0 ? box.before : 0;
+
+			boolean placed = false;
+			for (int line : box.lines) {
+				if (line < 0) {
+					newPage();
+					continue;
+				}
+				if (y > 0 && y + line > section.getTextHeight()) {
+					newPage();
+				}
+				if (!placed) {
+					assign(p);
+					placed = true;
+				}
+				y += line;
+			}
+			if (!placed) {
+				assign(p);
+			}
+
+			y += box.after;
+			if (y > section.getTextHeight()) {
+				newPage();
+			}
+
+			if (box.sectionBreak) {
+				newPage();
+			}
+		}
+
+		private void placeTable(Tbl tbl, int width) {
+			for (Object rowObj : tbl.getContent()) {
+				Object unwrappedRow = XmlUtils.unwrap(rowObj);
+				if (!(unwrappedRow instanceof Tr)) {
+					continue;
+				}
+
+				final List<Object> cells = ((Tr) unwrappedRow).getContent();
+				final int cellCount = Math.max(1, cells.size());
+				final List<P> rowTargets = new ArrayList<>();
+
+				int rowHeight = 0;
+				for (Object cellObj : cells) {
+					Object unwrappedCell = XmlUtils.unwrap(cellObj);
+					if (unwrappedCell instanceof Tc) {
+						Tc cell = (Tc) unwrappedCell;
+						int cellWidth = getCellWidth(cell, width / cellCount);
+						rowHeight = Math.max(rowHeight, measureBlocks(cell.getContent(), cellWidth, rowTargets));
+					}
+				}
+
+				if (y > 0 && y + rowHeight > section.getTextHeight()) {
+					newPage();
+				}
+				for (P target : rowTargets) {
+					assign(target);
+				}
+
+				y += rowHeight;
+				while (y > section.getTextHeight()) {
+					y -= section.getTextHeight();
+					page++;
+				}
+
+				if (targets.isEmpty()) {
+					return;
+				}
+			}
+		}
+
+		private int getCellWidth(Tc cell, int fallback) {
+			if (cell.getTcPr() != null && cell.getTcPr().getTcW() != null) {
+				TblWidth tcW = cell.getTcPr().getTcW();
+				if (tcW.getW() != null && (tcW.getType() == null || "dxa".equals(tcW.getType()))
+						&& tcW.getW().signum() > 0) {
+					return tcW.getW().intValue();
+				}
+			}
+			return fallback;
+		}
+
+		/**
+		 * Measures the height of the given blocks without placing them on pages.
+		 */
+		private int measureBlocks(List<Object> blocks, int width, List<P> foundTargets) {
+			int height = 0;
+			for (Object obj : blocks) {
+				Object unwrapped = XmlUtils.unwrap(obj);
+				if (unwrapped instanceof P) {
+					P p = (P) unwrapped;
+					if (targets.contains(p)) {
+						foundTargets.add(p);
+					}
+					ParagraphBox box = measureParagraph(p, width);
+					height += box.before + box.height() + box.after;
+				} else if (unwrapped instanceof Tbl) {
+					for (Object rowObj : ((Tbl) unwrapped).getContent()) {
+						Object row = XmlUtils.unwrap(rowObj);
+						if (row instanceof Tr) {
+							int rowHeight = 0;
+							List<Object> cells = ((Tr) row).getContent();
+							for (Object cellObj : cells) {
+								Object cell = XmlUtils.unwrap(cellObj);
+								if (cell instanceof Tc) {
+									rowHeight = Math.max(rowHeight, measureBlocks(((Tc) cell).getContent(),
+											width / Math.max(1, cells.size()), foundTargets));
+								}
+							}
+							height += rowHeight;
+						}
+					}
+				} else if (unwrapped instanceof SdtElement) {
+					SdtElement sdt = (SdtElement) unwrapped;
+					if (sdt.getSdtContent() != null) {
+						height += measureBlocks(sdt.getSdtContent().getContent(), width, foundTargets);
+					}
+				} else if (unwrapped instanceof ContentAccessor) {
+					height += measureBlocks(((ContentAccessor) unwrapped).getContent(), width, foundTargets);
+				}
+			}
+			return height;
+		}
+
+		private ParagraphBox measureParagraph(P p, int width) {
+			final ParagraphFormat format = resolveFormat(p);
+			final ParagraphBox box = new ParagraphBox(format);
+
+			final int available = Math.max(TWIPS_PER_POINT, width - format.indLeft - format.indRight);
+			final LineBreaker breaker = new LineBreaker(box, format, available);
+			breaker.addInline(p.getContent(), format);
+			breaker.finish();
+
+			final PPr pPr = p.getPPr();
+			if (pPr != null && pPr.getSectPr() != null) {
+				SectPr.Type type = pPr.getSectPr().getType();
+				box.sectionBreak = type == null || !"continuous".equals(type.getVal());
+			}
+			return box;
+		}
+
+		private ParagraphFormat resolveFormat(P p) {
+			final PPr pPr = p.getPPr();
+			final String styleId = pPr != null && pPr.getPStyle() != null ? pPr.getPStyle().getVal() : null;
+
+			ParagraphFormat format = getStyleFormat(styleId);
+
+			if (pPr != null) {
+				format = format.with(pPr);
+				if (pPr.getRPr() != null) {
+					// The paragraph mark's run properties are the best guess for the whole line.
+					format = format.with(pPr.getRPr());
+				}
+			}
+
+			final RPr firstRPr = findFirstRunProperties(p.getContent());
+			return firstRPr != null ? format.with(firstRPr) : format;
+		}
+
+		private RPr findFirstRunProperties(List<Object> content) {
+			for (Object obj : content) {
+				Object unwrapped = XmlUtils.unwrap(obj);
+				if (unwrapped instanceof R) {
+					return ((R) unwrapped).getRPr();
+				}
+				if (unwrapped instanceof ContentAccessor) {
+					RPr nested = findFirstRunProperties(((ContentAccessor) unwrapped).getContent());
+					if (nested != null) {
+						return nested;
+					}
+				}
+			}
+			return null;
+		}
+
+		private ParagraphFormat getStyleFormat(String styleId) {
+			final String key = styleId != null ? styleId : DEFAULT_PARAGRAPH_STYLE_KEY;
+			ParagraphFormat cached = formats.get(key);
+			if (cached == null) {
+				cached = computeStyleFormat(styleId, 0);
+				formats.put(key, cached);
+			}
+			return cached;
+		}
+
+		private ParagraphFormat computeStyleFormat(String styleId, int depth) {
+			Style style = null;
+			if (stylesPart != null) {
+				style = styleId != null ? stylesPart.getStyleById(styleId) : stylesPart.getDefaultParagraphStyle();
+			}
+
+			if (style == null || depth > MAX_STYLE_DEPTH) {
+				return getDefaultsFormat();
+			}
+
+			final String basedOn = style.getBasedOn() != null ? style.getBasedOn().getVal() : null;
+			ParagraphFormat format = basedOn != null ? computeStyleFormat(basedOn, depth + 1) : getDefaultsFormat();
+
+			if (style.getPPr() != null) {
+				format = format.with(style.getPPr());
+			}
+			if (style.getRPr() != null) {
+				format = format.with(style.getRPr());
+			}
+			return format;
+		}
+
+		private ParagraphFormat getDefaultsFormat() {
+			ParagraphFormat format = ParagraphFormat.WORD_DEFAULTS;
+			Styles styles = stylesPart != null ? stylesPart.getJaxbElement() : null;
+			if (styles != null && styles.getDocDefaults() != null) {
+				if (styles.getDocDefaults().getPPrDefault() != null
+						&& styles.getDocDefaults().getPPrDefault().getPPr() != null) {
+					format = format.with(styles.getDocDefaults().getPPrDefault().getPPr());
+				}
+				if (styles.getDocDefaults().getRPrDefault() != null
+						&& styles.getDocDefaults().getRPrDefault().getRPr() != null) {
+					format = format.with(styles.getDocDefaults().getRPrDefault().getRPr());
+				}
+			}
+			return format;
+		}
+
+		private void assign(P p) {
+			if (targets.remove(p)) {
+				result.put(p, page);
+			}
+		}
+
+		private void newPage() {
+			page++;
+			y = 0;
+		}
+	}
+
+	/**
+	 * Wraps inline content into lines.
+	 */
+	private final class LineBreaker {
+
+		private final ParagraphBox box;
+		private final int available;
+		private final int lineHeight;
+
+		private float lineWidth;
+		private float wordWidth;
+		private int currentLineHeight;
+		private boolean lineHasContent;
+
+		LineBreaker(ParagraphBox box, ParagraphFormat format, int available) {
+			this.box = box;
+			this.available = available;
+			this.lineHeight = format.lineHeight(getFontWidths(format.font, format.bold, format.italic));
+			this.currentLineHeight = lineHeight;
+		}
+
+		void addInline(List<Object> content, ParagraphFormat format) {
+			for (Object obj : content) {
+				Object unwrapped = XmlUtils.unwrap(obj);
+				if (unwrapped instanceof R) {
+					R run = (R) unwrapped;
+					ParagraphFormat runFormat = run.getRPr() != null ? format.with(run.getRPr()) : format;
+					addRun(run, runFormat);
+				} else if (unwrapped instanceof ContentAccessor) {
+					addInline(((ContentAccessor) unwrapped).getContent(), format);
+				}
+			}
+		}
+
+		private void addRun(R run, ParagraphFormat format) {
+			final FontWidths widths = getFontWidths(format.font, format.bold, format.italic);
+			final float size = format.sizeHalfPoints / 2f;
+
+			for (Object obj : run.getContent()) {
+				if (obj instanceof Text || isNamed(obj, "t")) {
+					String value = ((Text) XmlUtils.unwrap(obj)).getValue();
+					if (value != null) {
+						addText(value, widths, size);
+					}
+					continue;
+				}
+				Object unwrapped = XmlUtils.unwrap(obj);
+				if (unwrapped instanceof Br) {
+					Br br = (Br) unwrapped;
+					endWord();
+					if (br.getType() == STBrType.PAGE) {
+						endLine();
+						box.lines.add(-1);
+					} else if (br.getType() != STBrType.COLUMN) {
+						endLine();
+					}
+				} else if (unwrapped instanceof R.Tab) {
+					endWord();
+					lineWidth = (float) (Math.floor(lineWidth / DEFAULT_TAB_WIDTH) + 1) * DEFAULT_TAB_WIDTH;
+					lineHasContent = true;
+				} else if (unwrapped instanceof Drawing) {
+					addDrawing((Drawing) unwrapped);
+				}
+			}
+		}
+
+		private void addText(String value, FontWidths widths, float size) {
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				float w = widths.width(c) * size * TWIPS_PER_POINT;
+				if (c == ' ') {
+					endWord();
+					lineWidth += w;
+				} else {
+					wordWidth += w;
+					if (wordWidth > available) {
+						// A word longer than the line is broken anywhere.
+						lineWidth = wordWidth;
+						endLine();
+						wordWidth = 0;
+					}
+				}
+				lineHasContent = true;
+			}
+		}
+
+		private void addDrawing(Drawing drawing) {
+			for (Object obj : drawing.getAnchorOrInline()) {
+				long cy = 0;
+				if (obj instanceof Inline && ((Inline) obj).getExtent() != null) {
+					cy = ((Inline) obj).getExtent().getCy();
+				} else if (obj instanceof Anchor && ((Anchor) obj).getExtent() != null) {
+					// Floating objects don't take part in the text flow. Skip.
+					continue;
+				}
+				int height = (int) (cy / EMU_PER_TWIP);
+				currentLineHeight = Math.max(currentLineHeight, height);
+				lineHasContent = true;
+			}
+		}
+
+		private void endWord() {
+			if (lineWidth + wordWidth > available && lineWidth > 0) {
+				endLine();
+			}
+			lineWidth += wordWidth;
+			wordWidth = 0;
+		}
+
+		private void endLine() {
+			box.lines.add(currentLineHeight);
+			lineWidth = 0;
+			currentLineHeight = lineHeight;
+			lineHasContent = false;
+		}
+
+		void finish() {
+			endWord();
+			if (lineHasContent || box.lines.isEmpty()) {
+				endLine();
+			}
+		}
+	}
+
+	private static boolean isNamed(Object obj, String localName) {
+		return obj instanceof JAXBElement
+				&& localName.equals(((JAXBElement<?>) obj).getName().getLocalPart());
+	}
+
+	/**
+	 * The measured lines of a paragraph. A line height of <code>-1</code> marks a
+	 * page break.
+	 */
+	private static final class ParagraphBox {
+
+		final List<Integer> lines = new ArrayList<>();
+		final int before;
+		final int after;
+		final boolean keepNext;
+		final boolean pageBreakBefore;
+		boolean sectionBreak;
+
+		ParagraphBox(ParagraphFormat format) {
+			this.before = format.spacingBefore;
+			this.after = format.spacingAfter;
+			this.keepNext = format.keepNext;
+			this.pageBreakBefore = format.pageBreakBefore;
+		}
+
+		int height() {
+			int height = 0;
+			for (int line : lines) {
+				height += Math.max(0, line);
+			}
+			return height;
+		}
+	}
+
+	/**
+	 * The page geometry of a section (in twips).
+	 */
+	private static final class SectionLayout {
+
+		final int pageWidth;
+		final int pageHeight;
+		final int top;
+		final int bottom;
+		final int left;
+		final int right;
+		final int firstPageNumber;
+
+		SectionLayout(int pageWidth, int pageHeight, int top, int bottom, int left, int right, int firstPageNumber) {
+			this.pageWidth = pageWidth;
+			this.pageHeight = pageHeight;
+			this.top = top;
+			this.bottom = bottom;
+			this.left = left;
+			this.right = right;
+			this.firstPageNumber = firstPageNumber;
+		}
+
+		static SectionLayout of(SectPr sectPr) {
+			if (sectPr == null) {
+				return DEFAULT_SECTION;
+			}
+			final SectionLayout d = DEFAULT_SECTION;
+
+			int width = d.pageWidth;
+			int height = d.pageHeight;
+			if (sectPr.getPgSz() != null) {
+				width = intValue(sectPr.getPgSz().getW(), width);
+				height = intValue(sectPr.getPgSz().getH(), height);
+			}
+
+			int top = d.top;
+			int bottom = d.bottom;
+			int left = d.left;
+			int right = d.right;
+			if (sectPr.getPgMar() != null) {
+				top = Math.abs(intValue(sectPr.getPgMar().getTop(), top));
+				bottom = Math.abs(intValue(sectPr.getPgMar().getBottom(), bottom));
+				left = intValue(sectPr.getPgMar().getLeft(), left);
+				right = intValue(sectPr.getPgMar().getRight(), right);
+			}
+
+			int start = d.firstPageNumber;
+			if (sectPr.getPgNumType() != null) {
+				start = intValue(sectPr.getPgNumType().getStart(), start);
+			}
+
+			return new SectionLayout(width, height, top, bottom, left, right, start);
+		}
+
+		int getTextWidth() {
+			return Math.max(TWIPS_PER_POINT, pageWidth - left - right);
+		}
+
+		int getTextHeight() {
+			return Math.max(TWIPS_PER_POINT, pageHeight - top - bottom);
+		}
+	}
+
+	private static int intValue(BigInteger value, int fallback) {
+		return value != null ? value.intValue() : fallback;
+	}
+
+	private static boolean isOn(BooleanDefaultTrue value) {
+		return value != null && value.isVal();
+	}
+
+	/**
+	 * The layout-relevant, resolved properties of a paragraph. Instances are
+	 * immutable.
+	 */
+	private static final class ParagraphFormat {
+
+		static final ParagraphFormat WORD_DEFAULTS = new ParagraphFormat("Times New Roman", false, false, 20, 0, 0,
+				240, STLineSpacingRule.AUTO, 0, 0, false, false);
+
+		final String font;
+		final boolean bold;
+		final boolean italic;
+		final int sizeHalfPoints;
+		final int spacingBefore;
+		final int spacingAfter;
+		final int line;
+		final STLineSpacingRule lineRule;
+		final int indLeft;
+		final int indRight;
+		final boolean keepNext;
+		final boolean pageBreakBefore;
+
+		ParagraphFormat(String font, boolean bold, boolean italic, int sizeHalfPoints, int spacingBefore,
+				int spacingAfter, int line, STLineSpacingRule lineRule, int indLeft, int indRight, boolean keepNext,
+				boolean pageBreakBefore) {
+			this.font = font;
+			this.bold = bold;
+			this.italic = italic;
+			this.sizeHalfPoints = sizeHalfPoints;
+			this.spacingBefore = spacingBefore;
+			this.spacingAfter = spacingAfter;
+			this.line = line;
+			this.lineRule = lineRule;
+			this.indLeft = indLeft;
+			this.indRight = indRight;
+			this.keepNext = keepNext;
+			this.pageBreakBefore = pageBreakBefore;
+		}
+
+		ParagraphFormat with(PPrBase pPr) {
+			int before = spacingBefore;
+			int after = spacingAfter;
+			int newLine = line;
+			STLineSpacingRule newRule = lineRule;
+			if (pPr.getSpacing() != null) {
+				PPrBase.Spacing spacing = pPr.getSpacing();
+				before = intValue(spacing.getBefore(), before);
+				after = intValue(spacing.getAfter(), after);
+				newLine = intValue(spacing.getLine(), newLine);
+				newRule = spacing.getLineRule() != null ? spacing.getLineRule() : newRule;
+			}
+
+			int left = indLeft;
+			int right = indRight;
+			if (pPr.getInd() != null) {
+				left = intValue(pPr.getInd().getLeft(), left);
+				right = intValue(pPr.getInd().getRight(), right);
+			}
+
+			boolean newKeepNext = pPr.getKeepNext() != null ? isOn(pPr.getKeepNext()) : keepNext;
+			boolean newPageBreakBefore = pPr.getPageBreakBefore() != null ? isOn(pPr.getPageBreakBefore())
+					: pageBreakBefore;
+
+			return new ParagraphFormat(font, bold, italic, sizeHalfPoints, before, after, newLine, newRule, left,
+					right, newKeepNext, newPageBreakBefore);
+		}
+
+		ParagraphFormat with(RPrAbstract rPr) {
+			String newFont = font;
+			if (rPr.getRFonts() != null) {
+				if (rPr.getRFonts().getAscii() != null) {
+					newFont = rPr.getRFonts().getAscii();
+				} else if (rPr.getRFonts().getHAnsi() != null) {
+					newFont = rPr.getRFonts().getHAnsi();
+				}
+			}
+			boolean newBold = rPr.getB() != null ? isOn(rPr.getB()) : bold;
+			boolean newItalic = rPr.getI() != null ? isOn(rPr.getI()) : italic;
+			int newSize = rPr.getSz() != null ? intValue(rPr.getSz().getVal(), sizeHalfPoints) : sizeHalfPoints;
+
+			if (newBold == bold && newItalic == italic && newSize == sizeHalfPoints && newFont.equals(font)) {
+				return this;
+			}
+			return new ParagraphFormat(newFont, newBold, newItalic, newSize, spacingBefore, spacingAfter, line,
+					lineRule, indLeft, indRight, keepNext, pageBreakBefore);
+		}
+
+		ParagraphFormat with(ParaRPr rPr) {
+			String newFont = font;
+			if (rPr.getRFonts() != null && rPr.getRFonts().getAscii() != null) {
+				newFont = rPr.getRFonts().getAscii();
+			}
+			boolean newBold = rPr.getB() != null ? isOn(rPr.getB()) : bold;
+			boolean newItalic = rPr.getI() != null ? isOn(rPr.getI()) : italic;
+			int newSize = rPr.getSz() != null ? intValue(rPr.getSz().getVal(), sizeHalfPoints) : sizeHalfPoints;
+			return new ParagraphFormat(newFont, newBold, newItalic, newSize, spacingBefore, spacingAfter, line,
+					lineRule, indLeft, indRight, keepNext, pageBreakBefore);
+		}
+
+		/**
+		 * Returns the line height in twips.
+		 */
+		int lineHeight(FontWidths widths) {
+			final float naturalHeight = widths.lineHeight * sizeHalfPoints / 2f * TWIPS_PER_POINT;
+			if (lineRule == STLineSpacingRule.EXACT) {
+				return line;
+			}
+			if (lineRule == STLineSpacingRule.AT_LEAST) {
+				return Math.max(line, Math.round(naturalHeight));
+			}
+			return Math.round(naturalHeight * line / 240f);
+		}
+	}
+
+	/**
+	 * Cached advance widths of a font - per point of font size.
+	 */
+	private static final class FontWidths {
+
+		private static final float FALLBACK_WIDTH = 0.5f;
+		private static final float FALLBACK_LINE_HEIGHT = 1.17f;
+		private static final float MEASURE_SIZE = 1000f;
+
+		final float[] widths;
+		final float averageWidth;
+		final float lineHeight;
+
+		private FontWidths(float[] widths, float averageWidth, float lineHeight) {
+			this.widths = widths;
+			this.averageWidth = averageWidth;
+			this.lineHeight = lineHeight;
+		}
+
+		static FontWidths measure(String family, boolean bold, boolean italic) {
+			try {
+				int style = (bold ? Font.BOLD : Font.PLAIN) | (italic ? Font.ITALIC : Font.PLAIN);
+				Font font = new Font(family, style, 1).deriveFont(MEASURE_SIZE);
+				FontRenderContext frc = new FontRenderContext(null, true, true);
+
+				float[] widths = new float[256];
+				float sum = 0;
+				int count = 0;
+				for (char c = 32; c < 256; c++) {
+					widths[c] = (float) font.getStringBounds(String.valueOf(c), frc).getWidth() / MEASURE_SIZE;
+					if (Character.isLetter(c)) {
+						sum += widths[c];
+						count++;
+					}
+				}
+				float lineHeight = font.getLineMetrics("Xg", frc).getHeight() / MEASURE_SIZE;
+				return new FontWidths(widths, count > 0 ? sum / count : FALLBACK_WIDTH, lineHeight);
+			} catch (RuntimeException | LinkageError e) {
+				// No font support available (e.g. minimal headless JRE) - estimate.
+				return new FontWidths(null, FALLBACK_WIDTH, FALLBACK_LINE_HEIGHT);
+			}
+		}
+
+		float width(char c) {
+			if (widths != null && c < widths.length && widths[c] > 0) {
+				return widths[c];
+			}
+			return averageWidth;
+		}
+	}
+
+}
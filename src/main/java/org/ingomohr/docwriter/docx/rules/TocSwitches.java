@@ -0,0 +1,229 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parsed form of a ToC field instruction such as
+ * <code>TOC \\o "1-3" \\n 1-3 \\h \\z \\u</code>.
+ * <p>
+ * Supported switches are <code>\\o</code> (heading levels), <code>\\t</code>
+ * (additional styles with their levels), <code>\\u</code> (use paragraph outline
+ * levels), <code>\\h</code> (hyperlinked entries) and <code>\\n</code> (omit page
+ * numbers). All other switches are kept in the instruction but have no effect
+ * on the generated entries.
+ * </p>
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ * </p>
+ * 
+ * @since 6.1
+ */
+final class TocSwitches {
+
+	private static final int MIN_LEVEL = 1;
+	private static final int MAX_LEVEL = 9;
+
+	private final String instruction;
+	private final int fromLevel;
+	private final int toLevel;
+	private final boolean usingOutlineLevels;
+	private final boolean hyperlinks;
+	private final int omitPageNumbersFrom;
+	private final int omitPageNumbersTo;
+	private final Map<String, Integer> styleNameToLevel;
+
+	private TocSwitches(String instruction, int fromLevel, int toLevel, boolean usingOutlineLevels,
+			boolean hyperlinks, int omitPageNumbersFrom, int omitPageNumbersTo, Map<String, Integer> styleNameToLevel) {
+		this.instruction = instruction;
+		this.fromLevel = fromLevel;
+		this.toLevel = toLevel;
+		this.usingOutlineLevels = usingOutlineLevels;
+		this.hyperlinks = hyperlinks;
+		this.omitPageNumbersFrom = omitPageNumbersFrom;
+		this.omitPageNumbersTo = omitPageNumbersTo;
+		this.styleNameToLevel = Collections.unmodifiableMap(styleNameToLevel);
+	}
+
+	/**
+	 * Parses the given field instruction.
+	 * 
+	 * @param instruction the instruction to parse. If <code>null</code> or blank,
+	 *                    a plain <code>TOC</code> instruction is assumed.
+	 * @return parsed switches. Never <code>null</code>.
+	 */
+	static TocSwitches parse(String instruction) {
+		String trimmed = instruction != null ? instruction.trim() : "";
+		if (trimmed.isEmpty()) {
+			trimmed = "TOC";
+		}
+
+		List<String> tokens = tokenize(trimmed);
+
+		int fromLevel = MIN_LEVEL;
+		int toLevel = MAX_LEVEL;
+		boolean outlineSwitch = false;
+		boolean usingOutlineLevels = false;
+		boolean hyperlinks = false;
+		int omitFrom = Integer.MAX_VALUE;
+		int omitTo = Integer.MIN_VALUE;
+		Map<String, Integer> styleNameToLevel = new HashMap<>();
+
+		for (int i = 0; i < tokens.size(); i++) {
+			final String token = tokens.get(i);
+			final String arg = i + 1 < tokens.size() && !tokens.get(i + 1).startsWith("\\") ? tokens.get(i + 1) : null;
+
+			switch (token.toLowerCase(Locale.ROOT)) {
+			case "\\o":
+				outlineSwitch = true;
+				if (arg != null) {
+					int[] range = parseRange(arg);
+					fromLevel = range[0];
+					toLevel = range[1];
+					i++;
+				}
+				break;
+			case "\\u":
+				usingOutlineLevels = true;
+				break;
+			case "\\h":
+				hyperlinks = true;
+				break;
+			case "\\n":
+				if (arg != null) {
+					int[] range = parseRange(arg);
+					omitFrom = range[0];
+					omitTo = range[1];
+					i++;
+				} else {
+					omitFrom = MIN_LEVEL;
+					omitTo = MAX_LEVEL;
+				}
+				break;
+			case "\\t":
+				if (arg != null) {
+					parseStyleLevels(arg, styleNameToLevel);
+					i++;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		if (!outlineSwitch && !usingOutlineLevels && !styleNameToLevel.isEmpty()) {
+			// With nothing but \\t only the explicitly given styles count.
+			fromLevel = MAX_LEVEL + 1;
+			toLevel = MAX_LEVEL + 1;
+		}
+
+		return new TocSwitches(trimmed, fromLevel, toLevel, usingOutlineLevels, hyperlinks, omitFrom, omitTo,
+				styleNameToLevel);
+	}
+
+	private static List<String> tokenize(String instruction) {
+		List<String> tokens = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		boolean quoted = false;
+
+		for (int i = 0; i < instruction.length(); i++) {
+			char c = instruction.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (Character.isWhitespace(c) && !quoted) {
+				if (current.length() > 0) {
+					tokens.add(current.toString());
+					current.setLength(0);
+				}
+			} else {
+				current.append(c);
+			}
+		}
+		if (current.length() > 0) {
+			tokens.add(current.toString());
+		}
+		return tokens;
+	}
+
+	private static int[] parseRange(String arg) {
+		String[] parts = arg.split("-");
+		try {
+			int from = Integer.parseInt(parts[0].trim());
+			int to = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : from;
+			return new int[] { clamp(from), clamp(to) };
+		} catch (NumberFormatException e) {
+			return new int[] { MIN_LEVEL, MAX_LEVEL };
+		}
+	}
+
+	private static void parseStyleLevels(String arg, Map<String, Integer> target) {
+		String[] parts = arg.split("[,;]");
+		for (int i = 0; i + 1 < parts.length; i += 2) {
+			try {
+				target.put(parts[i].trim().toLowerCase(Locale.ROOT), clamp(Integer.parseInt(parts[i + 1].trim())));
+			} catch (NumberFormatException e) {
+				// Ignore malformed pairs - Word does the same.
+			}
+		}
+	}
+
+	private static int clamp(int level) {
+		return Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, level));
+	}
+
+	/**
+	 * Returns the raw instruction as it is to be written into the ToC field.
+	 * 
+	 * @return instruction. Never <code>null</code>.
+	 */
+	String getInstruction() {
+		return instruction;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given outline level is covered by the
+	 * <code>\\o</code> switch (or by <code>\\u</code> if there is no
+	 * <code>\\o</code>).
+	 * 
+	 * @param level the level to check.
+	 * @return <code>true</code> if the level is to be included.
+	 */
+	boolean includesHeadingLevel(int level) {
+		return level >= fromLevel && level <= toLevel;
+	}
+
+	/**
+	 * Returns the level for the given style name as specified by the
+	 * <code>\\t</code> switch.
+	 * 
+	 * @param styleName the style name. Can be <code>null</code>.
+	 * @return level or <code>null</code> if the style is not listed.
+	 */
+	Integer getLevelForStyleName(String styleName) {
+		return styleName != null ? styleNameToLevel.get(styleName.toLowerCase(Locale.ROOT)) : null;
+	}
+
+	boolean isUsingOutlineLevels() {
+		return usingOutlineLevels;
+	}
+
+	boolean isHyperlinked() {
+		return hyperlinks;
+	}
+
+	/**
+	 * Returns <code>true</code> if entries of the given level are to be written
+	 * without page number.
+	 * 
+	 * @param level the entry level.
+	 * @return <code>true</code> if the page number is to be omitted.
+	 */
+	boolean isOmittingPageNumber(int level) {
+		return level >= omitPageNumbersFrom && level <= omitPageNumbersTo;
+	}
+
+}
@@ -1,25 +1,22 @@
 package org.ingomohr.docwriter.docx.rules;
 
-import org.docx4j.TraversalUtil;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
-import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
-import org.docx4j.toc.TocException;
-import org.docx4j.toc.TocFinder;
-import org.docx4j.toc.TocGenerator;
-import org.docx4j.wml.Body;
-import org.docx4j.wml.Document;
-import org.docx4j.wml.SdtBlock;
 
 /**
  * Rule to update an existing table-of-contents (ToC).
  * <p>
  * If there is no ToC in the document, this rule does nothing.
  * </p>
+ * <p>
+ * The ToC is updated by a {@link TocBuilder} - see {@link #createTocBuilder()}.
+ * </p>
  * 
  * @since 1.3
  */
 public class TocUpdateRule implements DocumentRule {
 
+	private boolean skippingPageNumbering = true;
+
 	@Override
 	public boolean appliesTo(Object pObject) {
 		return pObject instanceof WordprocessingMLPackage;
@@ -29,36 +26,67 @@ public class TocUpdateRule implements DocumentRule {
 	public void apply(Object pObject) {
 
 		WordprocessingMLPackage doc = (WordprocessingMLPackage) pObject;
-		MainDocumentPart documentPart = doc.getMainDocumentPart();
-		Document wmlDocumentEl = (Document) documentPart.getJaxbElement();
-		Body body = wmlDocumentEl.getBody();
-
-		TocFinder finder = new TocFinder();
-		new TraversalUtil(body.getContent(), finder);
-
-		SdtBlock toc = finder.getTocSDT();
 
-		if (toc != null) {
-			boolean skipPageNumbering = isSkippingPageNumbering();
+		createTocBuilder().updateToc(doc);
+	}
 
-			try {
-				TocGenerator generator = new TocGenerator(doc);
-				generator.updateToc(skipPageNumbering);
-			} catch (TocException e) {
-				throw new RuntimeException("Cannot update table of contents", e);
-			}
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The key reflects whether page numbering is skipped. Instances of subclasses
+	 * have no key.
+	 * </p>
+	 */
+	@Override
+	public String getCacheKey() {
+		if (getClass() != TocUpdateRule.class) {
+			return null;
 		}
+		return String.valueOf(isSkippingPageNumbering());
+	}
 
+	/**
+	 * Creates the builder to update the ToC with.
+	 * <p>
+	 * The existing ToC keeps its heading and switches. The default implementation
+	 * creates a {@link TocBuilder} with the default switches as fallback for ToCs
+	 * without an instruction.
+	 * </p>
+	 * 
+	 * @return new ToC builder. Never <code>null</code>.
+	 * @since 6.1
+	 */
+	protected TocBuilder createTocBuilder() {
+		return new TocBuilder(TocBuilder.DEFAULT_HEADING_TEXT, TocBuilder.DEFAULT_TOC_SWITCHES,
+				isSkippingPageNumbering());
 	}
 
 	/**
-	 * The default implementation returns <code>true</code> to skip page numbering.
+	 * Returns <code>true</code> if the ToC is updated without page numbers.
+	 * <p>
+	 * Default is <code>true</code>.
+	 * </p>
 	 * 
 	 * @return <code>true</code> if page numbering is being skipped at updating the
 	 *         ToC.
 	 */
 	protected boolean isSkippingPageNumbering() {
-		return true;
+		return skippingPageNumbering;
+	}
+
+	/**
+	 * Sets whether the ToC is updated without page numbers.
+	 * <p>
+	 * If not skipped, the page numbers are computed with the
+	 * {@link TocPageLayout} of the {@link #createTocBuilder() ToC builder} - for
+	 * all levels the switches of the existing ToC don't omit them for.
+	 * </p>
+	 * 
+	 * @param skippingPageNumbering <code>true</code> to skip page numbering.
+	 * @since 6.1
+	 */
+	public void setSkippingPageNumbering(boolean skippingPageNumbering) {
+		this.skippingPageNumbering = skippingPageNumbering;
 	}
 
 }
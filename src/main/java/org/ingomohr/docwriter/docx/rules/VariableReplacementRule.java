@@ -0,0 +1,151 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.docx4j.wml.Text;
+
+/**
+ * A rule to replace variables of the form <code>${name}</code> with values from
+ * a map.
+ * <p>
+ * All variables of a text are replaced in one pass. Values are inserted
+ * literally - i.e. other than with {@link RegexReplacementRule}, characters
+ * like <code>$</code> or <code>\\</code> have no special meaning. Variables
+ * without value are left untouched.
+ * </p>
+ * <p>
+ * The rule only finds variables that are contained in a single text element.
+ * Add a {@link RunNormalizationRule} before this rule - or use
+ * <code>VariablePrepare</code> of docx4j on the template - to join split runs
+ * first.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class VariableReplacementRule implements TextRule {
+
+	private static final Pattern VARIABLE = Pattern.compile("\\$\\{([^}]+)\\}");
+
+	private final Map<String, ?> values;
+
+	private final WriteScopedValue<Map<String, String>> resolvedValues = new WriteScopedValue<>();
+
+	/**
+	 * Creates a new rule.
+	 * 
+	 * @param values the values by variable name (without the <code>${}</code>
+	 *               wrapper). Values are converted via
+	 *               {@link String#valueOf(Object)}. Cannot be <code>null</code>.
+	 */
+	public VariableReplacementRule(Map<String, ?> values) {
+		this.values = requireNonNull(values);
+	}
+
+	@Override
+	public boolean appliesTo(Object object) {
+		if (object instanceof Text) {
+			final String value = ((Text) object).getValue();
+			return value != null && value.contains("${");
+		}
+		return false;
+	}
+
+	@Override
+	public void apply(Object object) {
+		final Text text = (Text) object;
+		final String oldValue = text.getValue();
+
+		final Map<String, String> resolved = resolvedValues.get(() -> null);
+		final Matcher matcher = VARIABLE.matcher(oldValue);
+		StringBuilder builder = null;
+		int last = 0;
+
+		while (matcher.find()) {
+			final String name = matcher.group(1);
+			// Within a write, only the values resolved at its beginning count.
+			final String value;
+			if (resolved != null) {
+				value = resolved.get(name);
+				if (value == null) {
+					continue;
+				}
+			} else if (values.containsKey(name)) {
+				value = String.valueOf(values.get(name));
+			} else {
+				continue;
+			}
+			if (builder == null) {
+				builder = new StringBuilder(oldValue.length() + 16);
+			}
+			builder.append(oldValue, last, matcher.start());
+			builder.append(value);
+			last = matcher.end();
+		}
+
+		if (builder != null) {
+			builder.append(oldValue, last, oldValue.length());
+			text.setValue(builder.toString());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The key consists of all variables and their values, ordered by name.
+	 * Instances of subclasses have no key.
+	 * </p>
+	 */
+	@Override
+	public String getCacheKey() {
+		if (getClass() != VariableReplacementRule.class) {
+			return null;
+		}
+		final StringBuilder key = new StringBuilder();
+		for (Map.Entry<String, String> entry : resolvedValues.get(this::resolveValues).entrySet()) {
+			key.append(entry.getKey()).append('\0').append(entry.getValue()).append('\0');
+		}
+		return key.toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Converts all values to strings.
+	 * </p>
+	 */
+	@Override
+	public void beginWrite() {
+		resolvedValues.resolve(this::resolveValues);
+	}
+
+	@Override
+	public void endWrite() {
+		resolvedValues.clear();
+	}
+
+	/**
+	 * Returns the values converted to strings, ordered by name.
+	 */
+	private Map<String, String> resolveValues() {
+		final Map<String, String> resolved = new TreeMap<>();
+		for (Map.Entry<String, ?> entry : values.entrySet()) {
+			resolved.put(entry.getKey(), String.valueOf(entry.getValue()));
+		}
+		return resolved;
+	}
+
+	/**
+	 * Returns the values by variable name.
+	 * 
+	 * @return values. Never <code>null</code>.
+	 */
+	public Map<String, ?> getValues() {
+		return values;
+	}
+
+}
@@ -0,0 +1,57 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import java.util.function.Supplier;
+
+/**
+ * Value of a rule that is resolved once per write - see
+ * {@link DocumentRule#beginWrite()}.
+ * <p>
+ * The value is held per thread, so a rule can be used by writes on several
+ * threads at the same time. Outside of a write, the value is resolved on every
+ * access.
+ * </p>
+ */
+final class WriteScopedValue<T> {
+
+	/**
+	 * Stands for a resolved <code>null</code> value.
+	 */
+	private static final Object NULL = new Object();
+
+	private final ThreadLocal<Object> resolved = new ThreadLocal<>();
+
+	/**
+	 * Resolves the value for the write on the current thread.
+	 * 
+	 * @param supplier the supplier to resolve the value with. Cannot be
+	 *                 <code>null</code>.
+	 */
+	void resolve(Supplier<? extends T> supplier) {
+		final T value = supplier.get();
+		resolved.set(value != null ? value : NULL);
+	}
+
+	/**
+	 * Returns the value resolved for the write on the current thread.
+	 * 
+	 * @param supplier the supplier to resolve the value with if there is no write
+	 *                 on the current thread. Cannot be <code>null</code>.
+	 * @return value. Can be <code>null</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	T get(Supplier<? extends T> supplier) {
+		final Object value = resolved.get();
+		if (value == null) {
+			return supplier.get();
+		}
+		return value != NULL ? (T) value : null;
+	}
+
+	/**
+	 * Discards the value resolved for the write on the current thread.
+	 */
+	void clear() {
+		resolved.remove();
+	}
+
+}
@@ -0,0 +1,262 @@
+package org.ingomohr.docwriter.docx.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.rules.DocumentRule;
+import org.ingomohr.docwriter.docx.rules.TextRule;
+
+/**
+ * Applies {@link TextRule}s to a DOCX file without loading it into an object
+ * model.
+ * <p>
+ * The main document part as well as all headers and footers are read as a
+ * stream of XML events. The content of every text element (<code>w:t</code>) is
+ * collected, passed to the rules as a {@link Text} and written back right away.
+ * All other events and all other parts are copied unchanged. Memory use is
+ * therefore bounded by the largest text element rather than by the size of the
+ * document.
+ * </p>
+ * <p>
+ * Rules that need the document tree - i.e. all rules that are no
+ * {@link TextRule}s - cannot be applied this way and are rejected.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class StreamingRuleEngine {
+
+	private static final String WML_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+	private static final QName TEXT = new QName(WML_NS, "t");
+
+	private static final QName SPACE = new QName(XMLConstants.XML_NS_URI, "space", "xml");
+
+	private static final Pattern STREAMED_PART = Pattern
+			.compile("word/(document|header[0-9]*|footer[0-9]*)\\.xml");
+
+	private final List<DocumentRule> rules;
+
+	private final XMLInputFactory inputFactory;
+
+	private final XMLOutputFactory outputFactory;
+
+	private final XMLEventFactory eventFactory;
+
+	/**
+	 * Creates a new engine.
+	 * 
+	 * @param rules the rules to apply (in their given order). Cannot be
+	 *              <code>null</code>.
+	 * @throws IllegalArgumentException if any of the rules is no {@link TextRule}.
+	 */
+	public StreamingRuleEngine(List<? extends DocumentRule> rules) {
+		requireNonNull(rules);
+		for (DocumentRule rule : rules) {
+			if (!(rule instanceof TextRule)) {
+				throw new IllegalArgumentException("Rule " + rule
+						+ " needs the document tree and cannot be applied in streaming mode. Only TextRules are supported.");
+			}
+		}
+		this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+
+		inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		outputFactory = XMLOutputFactory.newInstance();
+		eventFactory = XMLEventFactory.newInstance();
+	}
+
+	/**
+	 * Applies the rules to the document at the given path and writes the result.
+	 * 
+	 * @param input  the document to read. Cannot be <code>null</code>.
+	 * @param target the target to write to. Cannot be <code>null</code>.
+	 * @throws DocWriterException if reading or writing fails.
+	 */
+	public void apply(Path input, Path target) throws DocWriterException {
+		requireNonNull(input);
+		requireNonNull(target);
+
+		try (InputStream in = Files.newInputStream(input); OutputStream out = Files.newOutputStream(target)) {
+			apply(in, out);
+		} catch (IOException e) {
+			throw new DocWriterException("Error writing document", e);
+		}
+	}
+
+	/**
+	 * Applies the rules to the document read from the given stream and writes the
+	 * result.
+	 * 
+	 * @param input  the document to read. Cannot be <code>null</code>. Is not
+	 *               closed.
+	 * @param target the target to write to. Cannot be <code>null</code>. Is not
+	 *               closed.
+	 * @throws DocWriterException if reading or writing fails.
+	 */
+	public void apply(InputStream input, OutputStream target) throws DocWriterException {
+		requireNonNull(input);
+		requireNonNull(target);
+
+		try {
+			final ZipInputStream zipIn = new ZipInputStream(input);
+			final ZipOutputStream zipOut = new ZipOutputStream(target);
+
+			for (ZipEntry entry = zipIn.getNextEntry(); entry != null; entry = zipIn.getNextEntry()) {
+				zipOut.putNextEntry(new ZipEntry(entry.getName()));
+				if (isStreamedPart(entry.getName())) {
+					streamPart(new NonClosingInputStream(zipIn), zipOut);
+				} else {
+					zipIn.transferTo(zipOut);
+				}
+				zipOut.closeEntry();
+			}
+			zipOut.finish();
+		} catch (IOException e) {
+			throw new DocWriterException("Error writing document", e);
+		} catch (XMLStreamException e) {
+			throw new DocWriterException("Error parsing document", e);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the rules are to be applied to the part with the
+	 * given name.
+	 * <p>
+	 * By default, these are the main document part, headers and footers.
+	 * </p>
+	 * 
+	 * @param partName the part name - e.g. <code>word/document.xml</code>.
+	 * @return <code>true</code> to stream the part through the rules.
+	 */
+	protected boolean isStreamedPart(String partName) {
+		return STREAMED_PART.matcher(partName).matches();
+	}
+
+	private void streamPart(InputStream in, OutputStream out) throws XMLStreamException {
+		final XMLEventReader reader = inputFactory.createXMLEventReader(in);
+		final XMLEventWriter writer = outputFactory.createXMLEventWriter(out, "UTF-8");
+
+		try {
+			while (reader.hasNext()) {
+				final XMLEvent event = reader.nextEvent();
+				if (event.isStartElement() && TEXT.equals(event.asStartElement().getName())) {
+					streamText(event.asStartElement(), reader, writer);
+				} else {
+					writer.add(event);
+				}
+			}
+			writer.flush();
+		} finally {
+			reader.close();
+			writer.close();
+		}
+	}
+
+	private void streamText(StartElement start, XMLEventReader reader, XMLEventWriter writer)
+			throws XMLStreamException {
+		final StringBuilder value = new StringBuilder();
+
+		XMLEvent event = reader.nextEvent();
+		while (!event.isEndElement()) {
+			if (event.isCharacters()) {
+				value.append(event.asCharacters().getData());
+			}
+			event = reader.nextEvent();
+		}
+
+		final String oldValue = value.toString();
+		final Text text = new Text();
+		text.setValue(oldValue);
+		applyRules(text);
+
+		final String newValue = text.getValue() != null ? text.getValue() : "";
+		if (newValue.equals(oldValue)) {
+			writer.add(start);
+		} else {
+			writer.add(withPreservedSpace(start, newValue));
+		}
+		if (!newValue.isEmpty()) {
+			writer.add(eventFactory.createCharacters(newValue));
+		}
+		writer.add(event);
+	}
+
+	private void applyRules(Text text) {
+		for (DocumentRule rule : rules) {
+			if (rule.appliesTo(text)) {
+				rule.apply(text);
+			}
+		}
+	}
+
+	private StartElement withPreservedSpace(StartElement start, String value) {
+		final boolean needsPreserve = !value.isEmpty()
+				&& (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)));
+		if (!needsPreserve || start.getAttributeByName(SPACE) != null) {
+			return start;
+		}
+
+		final List<Attribute> attributes = new ArrayList<>();
+		for (Iterator<?> it = start.getAttributes(); it.hasNext();) {
+			attributes.add((Attribute) it.next());
+		}
+		attributes.add(eventFactory.createAttribute(SPACE, "preserve"));
+
+		return eventFactory.createStartElement(start.getName(), attributes.iterator(), start.getNamespaces());
+	}
+
+	/**
+	 * Returns the rules to apply.
+	 * 
+	 * @return rules. Never <code>null</code>.
+	 */
+	public List<DocumentRule> getRules() {
+		return rules;
+	}
+
+	/**
+	 * Keeps the XML reader from closing the zip stream.
+	 */
+	private static final class NonClosingInputStream extends FilterInputStream {
+
+		NonClosingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public void close() {
+			// The zip stream stays open for the next entry.
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package org.ingomohr.docwriter.docx.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.rules.TableRule;
+
+/**
+ * Saves a document whose {@link TableRule}s stream their rows.
+ * <p>
+ * The document - which contains only a marker row per table - is saved as
+ * usual first. While copying the result to the target, each marker row in the
+ * main document part is replaced with the rows written by its rule. The rows
+ * are therefore never held in memory as a whole.
+ * </p>
+ * 
+ * @see TableRule#setStreamingRows(boolean)
+ * @since 6.1
+ */
+public class TableStreamingSaver {
+
+	private static final String MAIN_PART = "word/document.xml";
+
+	private final List<TableRule> tables;
+
+	/**
+	 * Creates a new saver.
+	 * 
+	 * @param tables the table rules whose rows are to be written. Cannot be
+	 *               <code>null</code>.
+	 */
+	public TableStreamingSaver(List<TableRule> tables) {
+		this.tables = new ArrayList<>(requireNonNull(tables));
+	}
+
+	/**
+	 * Saves the given document to the given target.
+	 * 
+	 * @param doc    the document to save. Cannot be <code>null</code>.
+	 * @param target the target to write to. Cannot be <code>null</code>. Is not
+	 *               closed.
+	 * @throws DocWriterException if saving fails.
+	 */
+	public void save(WordprocessingMLPackage doc, OutputStream target) throws DocWriterException {
+		requireNonNull(doc);
+		requireNonNull(target);
+
+		final ByteArrayOutputStream saved = new ByteArrayOutputStream();
+		try {
+			doc.save(saved);
+		} catch (Docx4JException e) {
+			throw new DocWriterException("Error writing target", e);
+		}
+
+		try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(saved.toByteArray()))) {
+			final ZipOutputStream zipOut = new ZipOutputStream(target);
+			for (ZipEntry entry = zipIn.getNextEntry(); entry != null; entry = zipIn.getNextEntry()) {
+				zipOut.putNextEntry(new ZipEntry(entry.getName()));
+				if (MAIN_PART.equals(entry.getName())) {
+					writeMainPart(new String(zipIn.readAllBytes(), StandardCharsets.UTF_8), zipOut);
+				} else {
+					zipIn.transferTo(zipOut);
+				}
+				zipOut.closeEntry();
+			}
+			zipOut.finish();
+		} catch (IOException e) {
+			throw new DocWriterException("Error writing target", e);
+		}
+	}
+
+	private void writeMainPart(String xml, OutputStream out) throws IOException {
+		final List<MarkerRow> markerRows = new ArrayList<>();
+		for (TableRule table : tables) {
+			// The whole text is matched - a marker can be a prefix of another one.
+			final int marker = xml.indexOf('>' + table.getRowMarker() + "</w:t>");
+			if (marker != -1) {
+				markerRows.add(new MarkerRow(table, xml, marker));
+			}
+		}
+		markerRows.sort(Comparator.comparingInt(row -> row.start));
+
+		final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		int last = 0;
+		for (MarkerRow markerRow : markerRows) {
+			writer.write(xml, last, markerRow.start - last);
+			markerRow.table.writeRows(writer);
+			last = markerRow.end;
+		}
+		writer.write(xml, last, xml.length() - last);
+		writer.flush();
+	}
+
+	/**
+	 * The position of a marker row in the main document part.
+	 */
+	private static final class MarkerRow {
+
+		final TableRule table;
+		final int start;
+		final int end;
+
+		MarkerRow(TableRule table, String xml, int marker) {
+			this.table = table;
+			this.start = Math.max(xml.lastIndexOf("<w:tr>", marker), xml.lastIndexOf("<w:tr ", marker));
+			final int endTag = xml.indexOf("</w:tr>", marker);
+			if (start == -1 || endTag == -1) {
+				throw new IllegalStateException("Marker row not found: " + table.getRowMarker());
+			}
+			this.end = endTag + "</w:tr>".length();
+		}
+	}
+
+}
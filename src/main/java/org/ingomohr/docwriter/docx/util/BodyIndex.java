@@ -0,0 +1,242 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBElement;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.P;
+import org.docx4j.wml.Text;
+
+/**
+ * Index over the top-level contents of a document body - e.g. to find
+ * placeholder paragraphs and bookmarks without computing the text of every
+ * paragraph.
+ * <p>
+ * For every paragraph only the first text run is indexed. A paragraph can only
+ * consist of a given text if its first text run is a prefix of that text, so
+ * looking up a text requires one map lookup per prefix of the text and
+ * computing the full text of the few candidates only. The cost of a lookup
+ * therefore doesn't depend on the amount of text before the matching
+ * paragraph.
+ * </p>
+ * <p>
+ * The index is built lazily and can be shared between rules working on the
+ * same body. Whoever modifies the body - or the text of a top-level paragraph -
+ * must call {@link #invalidate()} afterwards. The rules of this library that
+ * take a shared index do so after every modification. Other modifications -
+ * e.g. by rules without access to the index - must be followed by an explicit
+ * call. As a safety net only, the index is also rebuilt if the number of
+ * top-level elements has changed. Replacements or text edits that keep the
+ * size are not detected.
+ * </p>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class BodyIndex {
+
+	private final List<Object> contents;
+
+	private Map<String, List<Integer>> firstTextToIndices;
+
+	private Map<String, Integer> bookmarkToIndex;
+
+	private int indexedSize = -1;
+
+	/**
+	 * Creates a new index for the given body contents.
+	 * 
+	 * @param contents the top-level body contents - see
+	 *                 {@link DocxDataInspector#getContents(org.docx4j.openpackaging.packages.WordprocessingMLPackage)}.
+	 *                 Cannot be <code>null</code>.
+	 */
+	public BodyIndex(List<Object> contents) {
+		this.contents = requireNonNull(contents);
+	}
+
+	/**
+	 * Returns the index of the first top-level paragraph whose text equals the
+	 * given text.
+	 * 
+	 * @param text the text to look for. Cannot be <code>null</code>.
+	 * @return index in the contents or <code>-1</code> if there is no such
+	 *         paragraph.
+	 */
+	public int indexOfParagraph(String text) {
+		requireNonNull(text);
+		ensureIndexed();
+
+		// Paragraphs without text are only candidates for the empty text.
+		int result = -1;
+		for (int length = text.isEmpty() ? 0 : 1; length <= text.length(); length++) {
+			List<Integer> candidates = firstTextToIndices.get(text.substring(0, length));
+			if (candidates == null) {
+				continue;
+			}
+			for (int index : candidates) {
+				if (result != -1 && index >= result) {
+					break;
+				}
+				if (text.equals(getText(contents.get(index)))) {
+					result = index;
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the index of the top-level paragraph that contains the start of the
+	 * bookmark with the given name.
+	 * 
+	 * @param bookmarkName the bookmark name. Cannot be <code>null</code>.
+	 * @return index in the contents or <code>-1</code> if there is no such
+	 *         bookmark on top-level.
+	 */
+	public int indexOfBookmark(String bookmarkName) {
+		requireNonNull(bookmarkName);
+		ensureIndexed();
+
+		if (bookmarkToIndex == null) {
+			bookmarkToIndex = new HashMap<>();
+			for (int i = 0; i < contents.size(); i++) {
+				Object unwrapped = XmlUtils.unwrap(contents.get(i));
+				if (unwrapped instanceof ContentAccessor) {
+					for (Object child : ((ContentAccessor) unwrapped).getContent()) {
+						Object unwrappedChild = XmlUtils.unwrap(child);
+						if (unwrappedChild instanceof CTBookmark) {
+							bookmarkToIndex.putIfAbsent(((CTBookmark) unwrappedChild).getName(), i);
+						}
+					}
+				}
+			}
+		}
+
+		Integer index = bookmarkToIndex.get(bookmarkName);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * Discards the index so that it is rebuilt on the next lookup.
+	 * <p>
+	 * Must be called after each modification of the indexed contents.
+	 * </p>
+	 */
+	public void invalidate() {
+		firstTextToIndices = null;
+		bookmarkToIndex = null;
+		indexedSize = -1;
+	}
+
+	/**
+	 * Returns the indexed contents.
+	 * 
+	 * @return contents as passed to the constructor. Never <code>null</code>.
+	 */
+	public List<Object> getContents() {
+		return contents;
+	}
+
+	/**
+	 * Returns the text of the given paragraph - i.e. the concatenated values of
+	 * all its texts.
+	 * 
+	 * @param obj the object to get the text for. Can be wrapped in a
+	 *            {@link JAXBElement}.
+	 * @return text of the paragraph. <code>null</code> if the object is no
+	 *         paragraph.
+	 */
+	public static String getText(Object obj) {
+		Object unwrapped = XmlUtils.unwrap(obj);
+		if (!(unwrapped instanceof P)) {
+			return null;
+		}
+		StringBuilder builder = new StringBuilder();
+		appendText(((P) unwrapped).getContent(), builder);
+		return builder.toString();
+	}
+
+	private static void appendText(List<Object> content, StringBuilder builder) {
+		for (Object obj : content) {
+			Text text = asText(obj);
+			if (text != null) {
+				if (text.getValue() != null) {
+					builder.append(text.getValue());
+				}
+				continue;
+			}
+			Object unwrapped = XmlUtils.unwrap(obj);
+			if (unwrapped instanceof ContentAccessor) {
+				appendText(((ContentAccessor) unwrapped).getContent(), builder);
+			}
+		}
+	}
+
+	private void ensureIndexed() {
+		if (firstTextToIndices != null && indexedSize == contents.size()) {
+			return;
+		}
+		invalidate();
+
+		firstTextToIndices = new HashMap<>();
+		for (int i = 0; i < contents.size(); i++) {
+			Object unwrapped = XmlUtils.unwrap(contents.get(i));
+			if (unwrapped instanceof P) {
+				String firstText = findFirstText(((P) unwrapped).getContent());
+				firstTextToIndices.computeIfAbsent(firstText, key -> new ArrayList<>(1)).add(i);
+			}
+		}
+		indexedSize = contents.size();
+	}
+
+	/**
+	 * Returns the value of the first non-empty text of the given paragraph
+	 * content or an empty string if there is none.
+	 */
+	private static String findFirstText(List<Object> content) {
+		for (Object obj : content) {
+			Text text = asText(obj);
+			if (text != null) {
+				if (text.getValue() != null && !text.getValue().isEmpty()) {
+					return text.getValue();
+				}
+				continue;
+			}
+			Object unwrapped = XmlUtils.unwrap(obj);
+			if (unwrapped instanceof ContentAccessor) {
+				String nested = findFirstText(((ContentAccessor) unwrapped).getContent());
+				if (!nested.isEmpty()) {
+					return nested;
+				}
+			}
+		}
+		return "";
+	}
+
+	/**
+	 * Returns the given object as text if it is a run text - either directly or
+	 * wrapped in a <code>w:t</code> element (but no instruction text).
+	 */
+	private static Text asText(Object obj) {
+		if (obj instanceof Text) {
+			return (Text) obj;
+		}
+		if (obj instanceof JAXBElement && ((JAXBElement<?>) obj).getValue() instanceof Text
+				&& "t".equals(((JAXBElement<?>) obj).getName().getLocalPart())) {
+			return (Text) ((JAXBElement<?>) obj).getValue();
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,58 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content hashes to identify equal content - e.g. duplicate media or styles.
+ * 
+ * @since 6.1
+ */
+public final class ContentHash {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private ContentHash() {
+	}
+
+	/**
+	 * Returns the SHA-256 hash of the given bytes.
+	 * 
+	 * @param bytes the bytes to hash. Cannot be <code>null</code>.
+	 * @return hash as lower-case hex string. Never <code>null</code>.
+	 */
+	public static String of(byte[] bytes) {
+		requireNonNull(bytes);
+		final byte[] digest = createDigest().digest(bytes);
+
+		final char[] hex = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Returns the SHA-256 hash of the UTF-8 bytes of the given text.
+	 * 
+	 * @param text the text to hash. Cannot be <code>null</code>.
+	 * @return hash as lower-case hex string. Never <code>null</code>.
+	 */
+	public static String of(String text) {
+		requireNonNull(text);
+		return of(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Rewrites zip files - e.g. saved documents - so that equal content gives equal
+ * bytes.
+ * <p>
+ * The entries are written in the order of their names. Each entry gets the same
+ * timestamp ({@link #ENTRY_TIME}) and no extra fields or comments. The content
+ * is compressed with the default level. This gives the same bytes for the same
+ * content on the same JDK - the compressed data may differ between JDKs.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public final class DeterministicZip {
+
+	/**
+	 * The timestamp of all entries.
+	 * <p>
+	 * Not 1980-01-01 - the earliest time a zip file can store - as the JDK adds a
+	 * time zone dependent extra field for that time.
+	 * </p>
+	 */
+	public static final LocalDateTime ENTRY_TIME = LocalDateTime.of(1980, 2, 1, 0, 0);
+
+	private DeterministicZip() {
+	}
+
+	/**
+	 * Rewrites the given zip file to the given target.
+	 * 
+	 * @param zip    the zip file to rewrite. Cannot be <code>null</code>.
+	 * @param target the target to write to. Cannot be <code>null</code>. Is not
+	 *               closed.
+	 * @throws IOException if the zip file cannot be read or the target cannot be
+	 *                     written.
+	 */
+	public static void rewrite(byte[] zip, OutputStream target) throws IOException {
+		requireNonNull(zip);
+		requireNonNull(target);
+
+		final Map<String, byte[]> entries = new TreeMap<>();
+		try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+			for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+				if (!entry.isDirectory()) {
+					entries.put(entry.getName(), in.readAllBytes());
+				}
+			}
+		}
+
+		final ZipOutputStream out = new ZipOutputStream(target);
+		out.setLevel(Deflater.DEFAULT_COMPRESSION);
+		for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			final ZipEntry zipEntry = new ZipEntry(entry.getKey());
+			// The local time is stored as it is - independent of the time zone.
+			zipEntry.setTimeLocal(ENTRY_TIME);
+			out.putNextEntry(zipEntry);
+			out.write(entry.getValue());
+			out.closeEntry();
+		}
+		out.finish();
+	}
+
+}
@@ -5,6 +5,8 @@ import static java.util.Objects.requireNonNull;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.docx4j.TraversalUtil;
 import org.docx4j.finders.ClassFinder;
@@ -49,6 +51,52 @@ public class DocxDataInspector {
 		return result;
 	}
 
+	/**
+	 * Returns a lazy stream of all elements of the given type that can be found in
+	 * the document starting at the given object.
+	 * <p>
+	 * Returns the same elements in the same order as
+	 * {@link #getAllElements(Object, Class)}. But the tree is only traversed as
+	 * far as the stream requests elements - e.g. <code>findFirst()</code> stops at
+	 * the first match.
+	 * </p>
+	 * <p>
+	 * A parallel stream is split along the children of the given object - i.e.
+	 * along the body-level blocks if the stream starts at the main document part.
+	 * The tree must not be modified while the stream is consumed.
+	 * </p>
+	 * 
+	 * @param startingObj the object to start at. Cannot be <code>null</code>.
+	 * @param type        the type to find the elements for. Cannot be
+	 *                    <code>null</code>.
+	 * @return sequential stream of all elements of given type in the subtree of
+	 *         given object. Never <code>null</code>.
+	 * @since 6.1
+	 */
+	public <T> Stream<T> streamElements(final Object startingObj, final Class<T> type) {
+		requireNonNull(startingObj);
+		requireNonNull(type);
+
+		return StreamSupport.stream(new ElementSpliterator<>(startingObj, type), false);
+	}
+
+	/**
+	 * Creates an index of all elements that can be found in the document starting
+	 * at the given object.
+	 * <p>
+	 * Use the index instead of {@link #getAllElements(Object, Class)} when querying
+	 * the same tree repeatedly - e.g. for several types. The index traverses the
+	 * tree only once.
+	 * </p>
+	 * 
+	 * @param startingObj the object to start at. Cannot be <code>null</code>.
+	 * @return new index. Never <code>null</code>.
+	 * @since 6.1
+	 */
+	public ElementIndex createElementIndex(final Object startingObj) {
+		return new ElementIndex(startingObj);
+	}
+
 	/**
 	 * Returns all contents from the given document's main part.
 	 * 
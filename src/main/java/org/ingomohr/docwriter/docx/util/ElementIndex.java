@@ -0,0 +1,164 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.docx4j.TraversalUtil;
+import org.docx4j.XmlUtils;
+
+/**
+ * Index of all elements in a document tree by their type.
+ * <p>
+ * The index collects all elements in one traversal and then answers queries for
+ * any number of types without traversing the tree again. Like
+ * {@link DocxDataInspector#getAllElements(Object, Class)}, elements are matched
+ * by their exact class and the root itself is contained in the results if it is
+ * an instance of the requested type.
+ * </p>
+ * <p>
+ * The index is built lazily on the first query. If the tree is modified, the
+ * index can either be patched - see {@link #elementsAppended(Object)} and
+ * {@link #elementsRemoved(Object)} - or be discarded via {@link #invalidate()}.
+ * </p>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class ElementIndex {
+
+	private final Object root;
+
+	private Map<Class<?>, List<Object>> elementsByType;
+
+	/**
+	 * Creates a new index for the tree starting at the given root.
+	 * 
+	 * @param root the object to start at. Cannot be <code>null</code>.
+	 */
+	public ElementIndex(Object root) {
+		this.root = requireNonNull(root);
+	}
+
+	/**
+	 * Returns all elements of the given type in the tree - in document order.
+	 * 
+	 * @param type the type to return the elements for. Cannot be
+	 *             <code>null</code>.
+	 * @return all elements of the given type. Never <code>null</code>, possibly
+	 *         empty. The list is not modifiable. It's a copy - i.e. it doesn't
+	 *         change when the index is patched later.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> getElements(Class<T> type) {
+		requireNonNull(type);
+		ensureIndexed();
+
+		final List<Object> elements = elementsByType.getOrDefault(type, Collections.emptyList());
+
+		if (type != root.getClass() && type.isInstance(root)) {
+			// The root is matched like in DocxDataInspector - i.e. by assignability.
+			final List<Object> result = new ArrayList<>(elements.size() + 1);
+			result.add(root);
+			result.addAll(elements);
+			return (List<T>) Collections.unmodifiableList(result);
+		}
+		return (List<T>) List.copyOf(elements);
+	}
+
+	/**
+	 * Adds the given subtree - which has been appended to the end of the tree - to
+	 * the index.
+	 * <p>
+	 * If the subtree has been inserted anywhere else, the elements are still
+	 * indexed but are returned in the wrong order. Use {@link #invalidate()} in
+	 * that case.
+	 * </p>
+	 * 
+	 * @param subtree the added subtree. Cannot be <code>null</code>.
+	 */
+	public void elementsAppended(Object subtree) {
+		requireNonNull(subtree);
+		if (elementsByType == null) {
+			// Not built yet. Will pick up the subtree anyway.
+			return;
+		}
+		collect(subtree, elementsByType);
+	}
+
+	/**
+	 * Removes the given subtree - which has been removed from the tree - from the
+	 * index.
+	 * 
+	 * @param subtree the removed subtree. Cannot be <code>null</code>.
+	 */
+	public void elementsRemoved(Object subtree) {
+		requireNonNull(subtree);
+		if (elementsByType == null) {
+			return;
+		}
+
+		final Map<Class<?>, List<Object>> removed = new HashMap<>();
+		collect(subtree, removed);
+
+		for (Map.Entry<Class<?>, List<Object>> entry : removed.entrySet()) {
+			List<Object> elements = elementsByType.get(entry.getKey());
+			if (elements != null) {
+				final Set<Object> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+				toRemove.addAll(entry.getValue());
+				elements.removeIf(toRemove::contains);
+			}
+		}
+	}
+
+	/**
+	 * Discards the index so that it is rebuilt on the next query.
+	 */
+	public void invalidate() {
+		elementsByType = null;
+	}
+
+	/**
+	 * Returns the root of the indexed tree.
+	 * 
+	 * @return root as passed to the constructor. Never <code>null</code>.
+	 */
+	public Object getRoot() {
+		return root;
+	}
+
+	private void ensureIndexed() {
+		if (elementsByType == null) {
+			final Map<Class<?>, List<Object>> map = new HashMap<>();
+			collect(root, map);
+			elementsByType = map;
+		}
+	}
+
+	/**
+	 * Adds the given subtree - including the subtree root - to the given map.
+	 */
+	private static void collect(Object subtree, Map<Class<?>, List<Object>> map) {
+		add(XmlUtils.unwrap(subtree), map);
+		TraversalUtil.visit(subtree, new TraversalUtil.CallbackImpl() {
+			@Override
+			public List<Object> apply(Object o) {
+				add(o, map);
+				return null;
+			}
+		});
+	}
+
+	private static void add(Object element, Map<Class<?>, List<Object>> map) {
+		map.computeIfAbsent(element.getClass(), key -> new ArrayList<>()).add(element);
+	}
+
+}
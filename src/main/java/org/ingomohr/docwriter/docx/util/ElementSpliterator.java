@@ -0,0 +1,159 @@
+package org.ingomohr.docwriter.docx.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import javax.xml.bind.JAXBElement;
+
+import org.docx4j.TraversalUtil;
+
+/**
+ * Lazy depth-first traversal of a document tree - as a {@link Spliterator}.
+ * <p>
+ * The traversal visits the same elements in the same order as
+ * {@link TraversalUtil} does, but only as far as the consumer requests
+ * elements. Elements are matched like in
+ * {@link DocxDataInspector#getAllElements(Object, Class)}.
+ * </p>
+ * <p>
+ * Splitting happens at the granularity of the root's children - i.e. the
+ * body-level blocks if the traversal starts at the main document part or the
+ * body. A split never divides a block.
+ * </p>
+ * 
+ * @param <T> the type of the elements to return.
+ * @since 6.1
+ */
+final class ElementSpliterator<T> implements Spliterator<T> {
+
+	private static final int MIN_SPLIT_SIZE = 2;
+
+	private final Class<T> type;
+
+	/**
+	 * The children of the root. Only the range [topIndex, topEnd) is traversed by
+	 * this spliterator.
+	 */
+	private final List<Object> topLevel;
+	private int topIndex;
+	private final int topEnd;
+
+	/**
+	 * Iterators over the children of the elements below the current top-level
+	 * block.
+	 */
+	private final Deque<Iterator<Object>> stack = new ArrayDeque<>();
+
+	private Object pendingRoot;
+
+	/**
+	 * Creates a new spliterator for the tree starting at the given root.
+	 * 
+	 * @param root the root. The root is returned as well if it is an instance of
+	 *             the given type.
+	 * @param type the type of the elements to return.
+	 */
+	ElementSpliterator(Object root, Class<T> type) {
+		this.type = type;
+		this.pendingRoot = type.isInstance(root) ? root : null;
+
+		final List<Object> children = TraversalUtil.getChildrenImpl(root);
+		this.topLevel = children;
+		this.topIndex = 0;
+		this.topEnd = children != null ? children.size() : 0;
+	}
+
+	private ElementSpliterator(Class<T> type, List<Object> topLevel, int topIndex, int topEnd) {
+		this.type = type;
+		this.topLevel = topLevel;
+		this.topIndex = topIndex;
+		this.topEnd = topEnd;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (pendingRoot != null) {
+			T root = type.cast(pendingRoot);
+			pendingRoot = null;
+			action.accept(root);
+			return true;
+		}
+
+		while (true) {
+			final Object next = nextElement();
+			if (next == null) {
+				return false;
+			}
+			if (next.getClass() == type) {
+				action.accept(type.cast(next));
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the next element of the traversal (regardless of its type) and
+	 * pushes its children. Returns <code>null</code> at the end.
+	 */
+	private Object nextElement() {
+		while (!stack.isEmpty()) {
+			final Iterator<Object> iterator = stack.peek();
+			if (iterator.hasNext()) {
+				return visit(iterator.next());
+			}
+			stack.pop();
+		}
+		if (topIndex < topEnd) {
+			return visit(topLevel.get(topIndex++));
+		}
+		return null;
+	}
+
+	private Object visit(Object child) {
+		final Object element = child instanceof JAXBElement ? ((JAXBElement<?>) child).getValue() : child;
+		final List<Object> children = TraversalUtil.getChildrenImpl(element);
+		if (children != null && !children.isEmpty()) {
+			stack.push(children.iterator());
+		}
+		return element;
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		// Only the untouched top-level range can be split off.
+		final int remaining = topEnd - topIndex;
+		if (remaining < MIN_SPLIT_SIZE || !(topLevel instanceof RandomAccess)) {
+			return null;
+		}
+
+		final int mid = topIndex + remaining / 2;
+		final ElementSpliterator<T> prefix = new ElementSpliterator<>(type, topLevel, topIndex, mid);
+		prefix.pendingRoot = pendingRoot;
+
+		// Keep the encounter order: the current block (on the stack) comes first.
+		if (!stack.isEmpty()) {
+			prefix.stack.addAll(stack);
+			stack.clear();
+		}
+		pendingRoot = null;
+		topIndex = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		// The number of remaining blocks - the best guess without traversing them.
+		return (topEnd - topIndex) + stack.size() + (pendingRoot != null ? 1 : 0);
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+}
@@ -0,0 +1,108 @@
+package org.ingomohr.docwriter.docx.util;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts records - maps or POJOs - into values by variable name.
+ * <p>
+ * POJO properties are resolved via their getters, Java record properties via
+ * their accessors. The accessors are looked up once per class.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public final class RecordValues {
+
+	private static final Map<Class<?>, List<Property>> PROPERTIES = new ConcurrentHashMap<>();
+
+	private RecordValues() {
+	}
+
+	/**
+	 * Returns the values of the given record.
+	 * 
+	 * @param record the record - a {@link Map} or a POJO.
+	 * @return values by name. Never <code>null</code>.
+	 * @throws IllegalArgumentException if the properties of the record cannot be
+	 *                                  read.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, ?> of(Object record) {
+		if (record == null) {
+			return Collections.emptyMap();
+		}
+		if (record instanceof Map) {
+			Map<Object, ?> map = (Map<Object, ?>) record;
+			Map<String, Object> result = new HashMap<>();
+			map.forEach((key, value) -> result.put(String.valueOf(key), value));
+			return result;
+		}
+
+		final Map<String, Object> result = new HashMap<>();
+		for (Property property : getProperties(record.getClass())) {
+			try {
+				result.put(property.name, property.getter.invoke(record));
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalArgumentException("Cannot read property " + property.name + " of " + record, e);
+			}
+		}
+		return result;
+	}
+
+	private static List<Property> getProperties(Class<?> type) {
+		return PROPERTIES.computeIfAbsent(type, RecordValues::findProperties);
+	}
+
+	private static List<Property> findProperties(Class<?> type) {
+		final List<Property> properties = new ArrayList<>();
+
+		if (type.isRecord()) {
+			for (RecordComponent component : type.getRecordComponents()) {
+				properties.add(new Property(component.getName(), component.getAccessor()));
+			}
+			return properties;
+		}
+
+		try {
+			for (PropertyDescriptor property : Introspector.getBeanInfo(type, Object.class).getPropertyDescriptors()) {
+				if (property.getReadMethod() != null) {
+					properties.add(new Property(property.getName(), property.getReadMethod()));
+				}
+			}
+		} catch (IntrospectionException e) {
+			throw new IllegalArgumentException("Cannot introspect " + type, e);
+		}
+		return properties;
+	}
+
+	/**
+	 * A readable property of a record class.
+	 */
+	private static final class Property {
+
+		final String name;
+		final Method getter;
+
+		Property(String name, Method getter) {
+			this.name = name;
+			this.getter = getter;
+			try {
+				// Allows reading public getters of non-public classes.
+				getter.setAccessible(true);
+			} catch (RuntimeException e) {
+				// Not accessible from here - keep the default access checks.
+			}
+		}
+	}
+
+}
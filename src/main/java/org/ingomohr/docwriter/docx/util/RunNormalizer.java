@@ -0,0 +1,253 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+
+import javax.xml.bind.JAXBElement;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.WordprocessingML.FooterPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.HeaderPart;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.Br;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.Document;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.ProofErr;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.RunDel;
+import org.docx4j.wml.RunIns;
+import org.docx4j.wml.SdtElement;
+import org.docx4j.wml.SectPr;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
+
+/**
+ * Removes editing noise from documents - typically from templates edited in
+ * Word.
+ * <p>
+ * Word writes every word it has spell-checked into its own run and marks every
+ * editing session with revision ids (rsids). A normalized document
+ * </p>
+ * <ul>
+ * <li>has adjacent text runs with equal formatting merged into one run,</li>
+ * <li>has no proofing marks (<code>w:proofErr</code>) and</li>
+ * <li>has no rsid attributes on paragraphs, runs, table rows and sections.</li>
+ * </ul>
+ * <p>
+ * This keeps variables like <code>${name}</code> in a single text element and
+ * reduces the number of elements every rule has to scan. Each content list is
+ * visited and compacted exactly once. The formatting of each run is compared
+ * by its marshalled run properties, which are computed once per run.
+ * </p>
+ * <p>
+ * Other than <code>VariablePrepare</code> of docx4j, content controls and
+ * bookmarks are kept. Runs containing anything but text, tabs and breaks - e.g.
+ * field characters or drawings - are never merged.
+ * </p>
+ * <p>
+ * Instances are stateless and thread-safe.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class RunNormalizer {
+
+	private static final String TEXT = "t";
+
+	private static final String PRESERVE = "preserve";
+
+	/**
+	 * Normalizes the main document part and all header and footer parts of the
+	 * given document in place.
+	 * 
+	 * @param doc the document. Cannot be <code>null</code>.
+	 * @return the number of removed elements - i.e. merged runs and proofing
+	 *         marks.
+	 */
+	public int normalize(WordprocessingMLPackage doc) {
+		requireNonNull(doc);
+
+		int removed = normalize(doc.getMainDocumentPart());
+		for (Part part : doc.getParts().getParts().values()) {
+			if (part instanceof HeaderPart || part instanceof FooterPart) {
+				removed += normalize(part);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Normalizes the given element and all its descendants in place.
+	 * 
+	 * @param object the element - e.g. a part, a body or a paragraph. Cannot be
+	 *               <code>null</code>.
+	 * @return the number of removed elements - i.e. merged runs and proofing
+	 *         marks.
+	 */
+	public int normalize(Object object) {
+		requireNonNull(object);
+
+		final Object element = XmlUtils.unwrap(object);
+		if (element instanceof Document) {
+			final Body body = ((Document) element).getBody();
+			return body == null ? 0 : normalize(body);
+		}
+
+		clearRsids(element);
+
+		if (element instanceof ContentAccessor) {
+			return normalizeContents(((ContentAccessor) element).getContent());
+		}
+		if (element instanceof SdtElement && ((SdtElement) element).getSdtContent() != null) {
+			return normalizeContents(((SdtElement) element).getSdtContent().getContent());
+		}
+		if (element instanceof RunIns) {
+			return normalizeContents(((RunIns) element).getCustomXmlOrSmartTagOrSdt());
+		}
+		if (element instanceof RunDel) {
+			return normalizeContents(((RunDel) element).getCustomXmlOrSmartTagOrSdt());
+		}
+		return 0;
+	}
+
+	private int normalizeContents(List<Object> contents) {
+		int removed = 0;
+		int size = 0;
+
+		// The run that the next run is merged into - if formatted equally.
+		R previous = null;
+		String previousKey = null;
+
+		for (int i = 0; i < contents.size(); i++) {
+			final Object object = contents.get(i);
+			final Object element = XmlUtils.unwrap(object);
+
+			if (element instanceof ProofErr) {
+				removed++;
+				continue;
+			}
+
+			if (element instanceof R && isMergeable((R) element)) {
+				final R run = (R) element;
+				clearRsids(run);
+				final String key = getFormattingKey(run);
+				if (previous != null && previousKey.equals(key)) {
+					merge(previous, run);
+					removed++;
+					continue;
+				}
+				previous = run;
+				previousKey = key;
+			} else {
+				previous = null;
+				removed += normalize(element);
+			}
+
+			contents.set(size++, object);
+		}
+
+		contents.subList(size, contents.size()).clear();
+		return removed;
+	}
+
+	private static boolean isMergeable(R run) {
+		for (Object child : run.getContent()) {
+			final Object element = XmlUtils.unwrap(child);
+			if (element instanceof Text) {
+				if (!TEXT.equals(getKind(child))) {
+					return false;
+				}
+			} else if (!(element instanceof R.Tab || element instanceof Br)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String getFormattingKey(R run) {
+		final RPr properties = run.getRPr();
+		return properties == null ? "" : XmlUtils.marshaltoString(properties, true, false);
+	}
+
+	private static void merge(R target, R source) {
+		final List<Object> targetContent = target.getContent();
+		final List<Object> sourceContent = source.getContent();
+		int first = 0;
+
+		// Adjacent texts become one text - so that variables are not split.
+		if (!targetContent.isEmpty() && !sourceContent.isEmpty()) {
+			final Object last = XmlUtils.unwrap(targetContent.get(targetContent.size() - 1));
+			final Object next = XmlUtils.unwrap(sourceContent.get(0));
+			if (last instanceof Text && next instanceof Text) {
+				final Text text = (Text) last;
+				text.setValue(valueOf(text) + valueOf((Text) next));
+				if (!text.getValue().equals(text.getValue().strip())) {
+					text.setSpace(PRESERVE);
+				}
+				first = 1;
+			}
+		}
+
+		for (int i = first; i < sourceContent.size(); i++) {
+			final Object child = sourceContent.get(i);
+			final Object element = XmlUtils.unwrap(child);
+			if (element instanceof Text) {
+				((Text) element).setParent(target);
+			}
+			targetContent.add(child);
+		}
+	}
+
+	private static String getKind(Object child) {
+		if (child instanceof JAXBElement) {
+			return ((JAXBElement<?>) child).getName().getLocalPart();
+		}
+		// Texts added without wrapper are written as w:t.
+		return TEXT;
+	}
+
+	private static String valueOf(Text text) {
+		return text.getValue() == null ? "" : text.getValue();
+	}
+
+	private static void clearRsids(Object element) {
+		if (element instanceof P) {
+			final P paragraph = (P) element;
+			paragraph.setRsidR(null);
+			paragraph.setRsidRDefault(null);
+			paragraph.setRsidP(null);
+			paragraph.setRsidRPr(null);
+			paragraph.setRsidDel(null);
+			final PPr properties = paragraph.getPPr();
+			if (properties != null) {
+				clearRsids(properties.getSectPr());
+			}
+		} else if (element instanceof R) {
+			final R run = (R) element;
+			run.setRsidR(null);
+			run.setRsidRPr(null);
+			run.setRsidDel(null);
+		} else if (element instanceof Tr) {
+			final Tr row = (Tr) element;
+			row.setRsidR(null);
+			row.setRsidRPr(null);
+			row.setRsidDel(null);
+			row.setRsidTr(null);
+		} else if (element instanceof Body) {
+			clearRsids(((Body) element).getSectPr());
+		} else if (element instanceof SectPr) {
+			final SectPr section = (SectPr) element;
+			section.setRsidR(null);
+			section.setRsidRPr(null);
+			section.setRsidDel(null);
+			section.setRsidSect(null);
+		}
+	}
+
+}
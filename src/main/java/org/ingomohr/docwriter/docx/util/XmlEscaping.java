@@ -0,0 +1,100 @@
+package org.ingomohr.docwriter.docx.util;
+
+/**
+ * Escapes values to be written into raw XML - e.g. when splicing values into a
+ * part without an object model.
+ * 
+ * @since 6.1
+ */
+public final class XmlEscaping {
+
+	private XmlEscaping() {
+	}
+
+	/**
+	 * Escapes the given value for use in XML text or attribute values.
+	 * <p>
+	 * Characters that are not allowed in XML 1.0 - e.g. control characters other
+	 * than tab, line feed and carriage return or unpaired surrogates - are
+	 * dropped. Otherwise the document couldn't be opened.
+	 * </p>
+	 * 
+	 * @param value the value to escape. Cannot be <code>null</code>.
+	 * @return escaped value. The given value if there's nothing to escape.
+	 */
+	public static String escape(String value) {
+		StringBuilder builder = null;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			final String replacement;
+			switch (c) {
+			case '&':
+				replacement = "&amp;";
+				break;
+			case '<':
+				replacement = "&lt;";
+				break;
+			case '>':
+				replacement = "&gt;";
+				break;
+			case '"':
+				replacement = "&quot;";
+				break;
+			case '\'':
+				replacement = "&apos;";
+				break;
+			default:
+				replacement = isValid(value, i) ? null : "";
+			}
+
+			if (replacement != null && builder == null) {
+				builder = new StringBuilder(value.length() + 16).append(value, 0, i);
+			}
+			if (builder != null) {
+				if (replacement != null) {
+					builder.append(replacement);
+				} else {
+					builder.append(c);
+				}
+			}
+		}
+		return builder != null ? builder.toString() : value;
+	}
+
+	/**
+	 * Returns <code>true</code> if the character at the given index may occur in
+	 * an XML 1.0 document.
+	 */
+	private static boolean isValid(String value, int index) {
+		final char c = value.charAt(index);
+		if (c >= 0x20 && c <= 0xD7FF || c >= 0xE000 && c <= 0xFFFD) {
+			return true;
+		}
+		if (c == '\t' || c == '\n' || c == '\r') {
+			return true;
+		}
+		// Surrogates are valid in pairs only.
+		if (Character.isHighSurrogate(c)) {
+			return index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1));
+		}
+		if (Character.isLowSurrogate(c)) {
+			return index > 0 && Character.isHighSurrogate(value.charAt(index - 1));
+		}
+		return false;
+	}
+
+	/**
+	 * Reverts {@link #escape(String)} for the predefined XML entities.
+	 * 
+	 * @param value the value to unescape. Cannot be <code>null</code>.
+	 * @return unescaped value.
+	 */
+	public static String unescape(String value) {
+		if (value.indexOf('&') < 0) {
+			return value;
+		}
+		return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'")
+				.replace("&amp;", "&");
+	}
+
+}
@@ -0,0 +1,21 @@
+package org.ingomohr.docwriter.jfr;
+
+/**
+ * Constants shared by the Flight Recorder events of this package.
+ * <p>
+ * The events are emitted with the usual
+ * <code>begin()</code>/<code>shouldCommit()</code>/<code>commit()</code>
+ * pattern. Their fields are only computed if the event is committed, so that
+ * they cost next to nothing while no recording is running.
+ * </p>
+ * 
+ * @since 6.1
+ */
+final class DocWriterEvents {
+
+	static final String CATEGORY = "DocWriter";
+
+	private DocWriterEvents() {
+	}
+
+}
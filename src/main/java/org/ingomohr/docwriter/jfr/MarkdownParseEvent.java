@@ -0,0 +1,51 @@
+package org.ingomohr.docwriter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for parsing markdown content.
+ * 
+ * @see MarkdownRenderEvent
+ * @since 6.1
+ */
+@Name(MarkdownParseEvent.NAME)
+@Label("Markdown Parse")
+@Description("Parsing markdown content into a node tree")
+@Category(DocWriterEvents.CATEGORY)
+@StackTrace(false)
+public final class MarkdownParseEvent extends Event {
+
+	static final String NAME = "org.ingomohr.docwriter.MarkdownParse";
+
+	@Label("Characters")
+	@Description("Length of the markdown content")
+	private int characters;
+
+	@Label("Nodes")
+	@Description("Number of nodes of the parsed markdown")
+	private int nodes;
+
+	/**
+	 * Sets the length of the markdown content.
+	 * 
+	 * @param characters the number of characters.
+	 */
+	public void setCharacters(int characters) {
+		this.characters = characters;
+	}
+
+	/**
+	 * Sets the number of nodes of the parsed markdown.
+	 * 
+	 * @param nodes the number of nodes.
+	 */
+	public void setNodes(int nodes) {
+		this.nodes = nodes;
+	}
+
+}
@@ -0,0 +1,38 @@
+package org.ingomohr.docwriter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for rendering parsed markdown into a document.
+ * 
+ * @see MarkdownParseEvent
+ * @since 6.1
+ */
+@Name(MarkdownRenderEvent.NAME)
+@Label("Markdown Render")
+@Description("Rendering parsed markdown into a document")
+@Category(DocWriterEvents.CATEGORY)
+@StackTrace(false)
+public final class MarkdownRenderEvent extends Event {
+
+	static final String NAME = "org.ingomohr.docwriter.MarkdownRender";
+
+	@Label("Elements")
+	@Description("Number of block-level elements added to the body of the document")
+	private int elements;
+
+	/**
+	 * Sets the number of block-level elements added to the body of the document.
+	 * 
+	 * @param elements the number of elements.
+	 */
+	public void setElements(int elements) {
+		this.elements = elements;
+	}
+
+}
@@ -0,0 +1,80 @@
+package org.ingomohr.docwriter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a phase of applying the rules of a writer to a
+ * document - i.e. applying them to the document itself, to its main document
+ * part or to the elements of the main document part.
+ * 
+ * @since 6.1
+ */
+@Name(RulePhaseEvent.NAME)
+@Label("Rule Phase")
+@Description("Applying the rules of a writer to a document")
+@Category(DocWriterEvents.CATEGORY)
+@StackTrace(false)
+public final class RulePhaseEvent extends Event {
+
+	/**
+	 * Phase of applying the rules to the document itself.
+	 */
+	public static final String PHASE_DOCUMENT = "document";
+
+	/**
+	 * Phase of applying the rules to the main document part.
+	 */
+	public static final String PHASE_PART = "part";
+
+	/**
+	 * Phase of applying the rules to the elements of the main document part.
+	 */
+	public static final String PHASE_ELEMENTS = "elements";
+
+	static final String NAME = "org.ingomohr.docwriter.RulePhase";
+
+	@Label("Phase")
+	@Description("What the rules were applied to - document, part or elements")
+	private String phase;
+
+	@Label("Rules")
+	@Description("Number of rules of the writer")
+	private int rules;
+
+	@Label("Elements")
+	@Description("Number of elements the rules were matched against")
+	private int elements;
+
+	/**
+	 * Sets the phase.
+	 * 
+	 * @param phase the phase - one of the <code>PHASE_</code> constants.
+	 */
+	public void setPhase(String phase) {
+		this.phase = phase;
+	}
+
+	/**
+	 * Sets the number of rules of the writer.
+	 * 
+	 * @param rules the number of rules.
+	 */
+	public void setRules(int rules) {
+		this.rules = rules;
+	}
+
+	/**
+	 * Sets the number of elements the rules were matched against.
+	 * 
+	 * @param elements the number of elements.
+	 */
+	public void setElements(int elements) {
+		this.elements = elements;
+	}
+
+}
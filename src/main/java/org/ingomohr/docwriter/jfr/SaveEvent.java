@@ -0,0 +1,52 @@
+package org.ingomohr.docwriter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for saving a document.
+ * 
+ * @since 6.1
+ */
+@Name(SaveEvent.NAME)
+@Label("Save")
+@Description("Saving a document")
+@Category(DocWriterEvents.CATEGORY)
+@StackTrace(false)
+public final class SaveEvent extends Event {
+
+	static final String NAME = "org.ingomohr.docwriter.Save";
+
+	@Label("Document Size")
+	@Description("Bytes written")
+	@DataAmount
+	private long bytes;
+
+	@Label("Body Elements")
+	@Description("Number of block-level elements in the body of the saved document")
+	private int elements;
+
+	/**
+	 * Sets the number of bytes written.
+	 * 
+	 * @param bytes the number of bytes.
+	 */
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Sets the number of block-level elements in the body of the saved document.
+	 * 
+	 * @param elements the number of elements.
+	 */
+	public void setElements(int elements) {
+		this.elements = elements;
+	}
+
+}
@@ -0,0 +1,53 @@
+package org.ingomohr.docwriter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for loading the template of a document - or creating
+ * the default document if there is no template.
+ * 
+ * @since 6.1
+ */
+@Name(TemplateLoadEvent.NAME)
+@Label("Template Load")
+@Description("Loading the template of a document")
+@Category(DocWriterEvents.CATEGORY)
+@StackTrace(false)
+public final class TemplateLoadEvent extends Event {
+
+	static final String NAME = "org.ingomohr.docwriter.TemplateLoad";
+
+	@Label("Document Size")
+	@Description("Bytes read from the template. 0 for the default document")
+	@DataAmount
+	private long bytes;
+
+	@Label("Body Elements")
+	@Description("Number of block-level elements in the body of the loaded document")
+	private int elements;
+
+	/**
+	 * Sets the number of bytes read from the template.
+	 * 
+	 * @param bytes the number of bytes.
+	 */
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Sets the number of block-level elements in the body of the loaded document.
+	 * 
+	 * @param elements the number of elements.
+	 */
+	public void setElements(int elements) {
+		this.elements = elements;
+	}
+
+}
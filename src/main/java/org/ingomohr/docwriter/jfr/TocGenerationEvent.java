@@ -0,0 +1,64 @@
+package org.ingomohr.docwriter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for inserting or updating a table-of-contents (ToC).
+ * 
+ * @since 6.1
+ */
+@Name(TocGenerationEvent.NAME)
+@Label("ToC Generation")
+@Description("Inserting or updating a table-of-contents")
+@Category(DocWriterEvents.CATEGORY)
+@StackTrace(false)
+public final class TocGenerationEvent extends Event {
+
+	static final String NAME = "org.ingomohr.docwriter.TocGeneration";
+
+	@Label("Update")
+	@Description("Whether an existing ToC was updated rather than a new one inserted")
+	private boolean update;
+
+	@Label("Body Elements")
+	@Description("Number of block-level elements in the body of the document")
+	private int elements;
+
+	@Label("Entries")
+	@Description("Number of headings listed in the ToC")
+	private int entries;
+
+	/**
+	 * Sets whether an existing ToC was updated.
+	 * 
+	 * @param update <code>true</code> for an update, <code>false</code> for an
+	 *               insertion.
+	 */
+	public void setUpdate(boolean update) {
+		this.update = update;
+	}
+
+	/**
+	 * Sets the number of block-level elements in the body of the document.
+	 * 
+	 * @param elements the number of elements.
+	 */
+	public void setElements(int elements) {
+		this.elements = elements;
+	}
+
+	/**
+	 * Sets the number of headings listed in the ToC.
+	 * 
+	 * @param entries the number of entries.
+	 */
+	public void setEntries(int entries) {
+		this.entries = entries;
+	}
+
+}
@@ -0,0 +1,59 @@
+package org.ingomohr.docwriter.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes read from the wrapped stream.
+ * 
+ * @since 6.1
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	private long count;
+
+	/**
+	 * Creates a new stream.
+	 * 
+	 * @param in the stream to read from. Cannot be <code>null</code>.
+	 */
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = super.read();
+		if (b != -1) {
+			count++;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		final int read = super.read(b, off, len);
+		if (read > 0) {
+			count += read;
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		final long skipped = super.skip(n);
+		count += skipped;
+		return skipped;
+	}
+
+	/**
+	 * Returns the number of bytes read so far.
+	 * 
+	 * @return byte count.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,46 @@
+package org.ingomohr.docwriter.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that counts the bytes written to the wrapped stream.
+ * 
+ * @since 6.1
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+	private long count;
+
+	/**
+	 * Creates a new stream.
+	 * 
+	 * @param out the stream to write to. Cannot be <code>null</code>.
+	 */
+	public CountingOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		count += len;
+	}
+
+	/**
+	 * Returns the number of bytes written so far.
+	 * 
+	 * @return byte count.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,67 @@
+package org.ingomohr.docwriter.metrics;
+
+/**
+ * Receives the measurements of writers and processors.
+ * <p>
+ * Implement this to forward the measurements to the metrics registry of the
+ * host application. All methods do nothing by default, so implementations only
+ * override what they are interested in. {@link InMemoryMetrics} keeps the
+ * measurements in memory and is used by default.
+ * </p>
+ * <p>
+ * Implementations are called by several threads at the same time. They should
+ * return quickly - they are called on the writing thread.
+ * </p>
+ * 
+ * @see InMemoryMetrics#getDefault()
+ * @since 6.1
+ */
+public interface DocWriterMetrics {
+
+	/**
+	 * Metrics that ignore all measurements.
+	 */
+	DocWriterMetrics NOOP = new DocWriterMetrics() {
+	};
+
+	/**
+	 * Records the duration of one phase of writing a document.
+	 * 
+	 * @param phase the phase. Cannot be <code>null</code>.
+	 * @param nanos the duration in nanoseconds.
+	 */
+	default void recordPhase(WritePhase phase, long nanos) {
+	}
+
+	/**
+	 * Records the number of bytes read from an input.
+	 * 
+	 * @param bytes the number of bytes.
+	 */
+	default void recordBytesRead(long bytes) {
+	}
+
+	/**
+	 * Records the number of bytes written to a target.
+	 * 
+	 * @param bytes the number of bytes.
+	 */
+	default void recordBytesWritten(long bytes) {
+	}
+
+	/**
+	 * Records the number of elements a document was processed for - e.g. the
+	 * number of elements the rules were matched against.
+	 * 
+	 * @param count the number of elements.
+	 */
+	default void recordElements(long count) {
+	}
+
+	/**
+	 * Records that a document has been written completely.
+	 */
+	default void recordDocument() {
+	}
+
+}
@@ -0,0 +1,109 @@
+package org.ingomohr.docwriter.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DocWriterMetrics} that keep all measurements in memory.
+ * <p>
+ * Durations are kept in a histogram per {@link WritePhase}, so that
+ * {@link #snapshot()} can provide percentiles. Memory use is constant - i.e.
+ * independent of the number of recorded measurements.
+ * </p>
+ * <p>
+ * Writers and processors record to the shared instance returned by
+ * {@link #getDefault()} unless other metrics are set.
+ * </p>
+ * 
+ * @since 6.1
+ */
+public class InMemoryMetrics implements DocWriterMetrics {
+
+	private final Map<WritePhase, LatencyHistogram> histograms = new EnumMap<>(WritePhase.class);
+
+	private final LongAdder bytesRead = new LongAdder();
+
+	private final LongAdder bytesWritten = new LongAdder();
+
+	private final LongAdder elements = new LongAdder();
+
+	private final LongAdder documents = new LongAdder();
+
+	private volatile long startNanos = System.nanoTime();
+
+	public InMemoryMetrics() {
+		for (WritePhase phase : WritePhase.values()) {
+			histograms.put(phase, new LatencyHistogram());
+		}
+	}
+
+	/**
+	 * Returns the shared default metrics.
+	 * 
+	 * @return default metrics. Never <code>null</code>.
+	 */
+	public static InMemoryMetrics getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	@Override
+	public void recordPhase(WritePhase phase, long nanos) {
+		histograms.get(requireNonNull(phase)).record(nanos);
+	}
+
+	@Override
+	public void recordBytesRead(long bytes) {
+		bytesRead.add(bytes);
+	}
+
+	@Override
+	public void recordBytesWritten(long bytes) {
+		bytesWritten.add(bytes);
+	}
+
+	@Override
+	public void recordElements(long count) {
+		elements.add(count);
+	}
+
+	@Override
+	public void recordDocument() {
+		documents.increment();
+	}
+
+	/**
+	 * Returns a snapshot of the measurements recorded so far.
+	 * 
+	 * @return new snapshot. Never <code>null</code>.
+	 */
+	public MetricsSnapshot snapshot() {
+		final Map<WritePhase, LatencySnapshot> latencies = new EnumMap<>(WritePhase.class);
+		for (Map.Entry<WritePhase, LatencyHistogram> entry : histograms.entrySet()) {
+			latencies.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return new MetricsSnapshot(latencies, bytesRead.sum(), bytesWritten.sum(), elements.sum(), documents.sum(),
+				System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Clears all measurements and restarts the elapsed time.
+	 */
+	public void reset() {
+		histograms.values().forEach(LatencyHistogram::reset);
+		bytesRead.reset();
+		bytesWritten.reset();
+		elements.reset();
+		documents.reset();
+		startNanos = System.nanoTime();
+	}
+
+	private static final class DefaultHolder {
+
+		static final InMemoryMetrics INSTANCE = new InMemoryMetrics();
+
+	}
+
+}
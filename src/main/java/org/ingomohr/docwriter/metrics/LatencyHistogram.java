@@ -0,0 +1,87 @@
+package org.ingomohr.docwriter.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of durations with a fixed number of buckets.
+ * <p>
+ * Each power of two is divided into {@value #SUB_BUCKETS} buckets, so that a
+ * recorded value is off by at most 12.5% in the percentiles.
+ * </p>
+ * 
+ * @since 6.1
+ */
+class LatencyHistogram {
+
+	static final int SUB_BUCKETS = 8;
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - SUB_BUCKET_BITS + 1);
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder sum = new LongAdder();
+
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records the given value.
+	 * 
+	 * @param nanos the value. Negative values are recorded as 0.
+	 */
+	void record(long nanos) {
+		final long value = Math.max(0, nanos);
+		counts.incrementAndGet(getBucket(value));
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Returns a snapshot of the recorded values.
+	 * 
+	 * @return new snapshot. Never <code>null</code>.
+	 */
+	LatencySnapshot snapshot() {
+		final long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = counts.get(i);
+		}
+		return new LatencySnapshot(copy, sum.sum(), max.get());
+	}
+
+	/**
+	 * Clears all recorded values.
+	 */
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		sum.reset();
+		max.reset();
+	}
+
+	static int getBucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the highest value that falls into the given bucket.
+	 */
+	static long getUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int shift = bucket / SUB_BUCKETS - 1;
+		final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+}
@@ -0,0 +1,99 @@
+package org.ingomohr.docwriter.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the durations recorded for a {@link WritePhase}.
+ * 
+ * @see MetricsSnapshot#getLatency(WritePhase)
+ * @since 6.1
+ */
+public class LatencySnapshot {
+
+	private final long[] counts;
+
+	private final long count;
+
+	private final long sum;
+
+	private final long max;
+
+	LatencySnapshot(long[] counts, long sum, long max) {
+		this.counts = counts;
+		long total = 0;
+		for (long c : counts) {
+			total += c;
+		}
+		this.count = total;
+		this.sum = sum;
+		this.max = max;
+	}
+
+	/**
+	 * Returns the number of recorded durations.
+	 * 
+	 * @return count.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the mean duration.
+	 * 
+	 * @return mean in nanoseconds. 0 if nothing was recorded.
+	 */
+	public long getMean() {
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * Returns the longest duration.
+	 * 
+	 * @return maximum in nanoseconds. 0 if nothing was recorded.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the duration that the given share of the recorded durations don't
+	 * exceed.
+	 * <p>
+	 * The value is exact to 12.5% and never greater than {@link #getMax()}.
+	 * </p>
+	 * 
+	 * @param percentile the percentile - between 0 and 100, e.g. 99 for the p99.
+	 * @return duration in nanoseconds. 0 if nothing was recorded.
+	 * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+		}
+		if (count == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(LatencyHistogram.getUpperBound(i), max);
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + count + ", mean=" + toMillis(getMean()) + "ms, p50=" + toMillis(getPercentile(50))
+				+ "ms, p90=" + toMillis(getPercentile(90)) + "ms, p99=" + toMillis(getPercentile(99)) + "ms, max="
+				+ toMillis(max) + "ms";
+	}
+
+	private static String toMillis(long nanos) {
+		return String.format("%.3f", (double) nanos / TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+}
@@ -0,0 +1,121 @@
+package org.ingomohr.docwriter.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the measurements of an {@link InMemoryMetrics}.
+ * 
+ * @see InMemoryMetrics#snapshot()
+ * @since 6.1
+ */
+public class MetricsSnapshot {
+
+	private final Map<WritePhase, LatencySnapshot> latencies;
+
+	private final long bytesRead;
+
+	private final long bytesWritten;
+
+	private final long elements;
+
+	private final long documents;
+
+	private final long elapsedNanos;
+
+	MetricsSnapshot(Map<WritePhase, LatencySnapshot> latencies, long bytesRead, long bytesWritten, long elements,
+			long documents, long elapsedNanos) {
+		this.latencies = new EnumMap<>(latencies);
+		this.bytesRead = bytesRead;
+		this.bytesWritten = bytesWritten;
+		this.elements = elements;
+		this.documents = documents;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the durations recorded for the given phase.
+	 * 
+	 * @param phase the phase. Cannot be <code>null</code>.
+	 * @return latency snapshot. Never <code>null</code>.
+	 */
+	public LatencySnapshot getLatency(WritePhase phase) {
+		return latencies.get(requireNonNull(phase));
+	}
+
+	/**
+	 * Returns the number of bytes read.
+	 * 
+	 * @return bytes read.
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Returns the number of bytes written.
+	 * 
+	 * @return bytes written.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Returns the number of elements processed.
+	 * 
+	 * @return element count.
+	 */
+	public long getElements() {
+		return elements;
+	}
+
+	/**
+	 * Returns the number of documents written.
+	 * 
+	 * @return document count.
+	 */
+	public long getDocuments() {
+		return documents;
+	}
+
+	/**
+	 * Returns the time between the creation (or reset) of the metrics and this
+	 * snapshot.
+	 * 
+	 * @return elapsed time in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of documents written per second over the elapsed time.
+	 * 
+	 * @return documents per second. 0 if no time has elapsed.
+	 */
+	public double getDocumentsPerSecond() {
+		if (elapsedNanos <= 0) {
+			return 0;
+		}
+		return documents * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("documents=").append(documents);
+		builder.append(String.format(" (%.2f/s)", getDocumentsPerSecond()));
+		builder.append(", bytesRead=").append(bytesRead);
+		builder.append(", bytesWritten=").append(bytesWritten);
+		builder.append(", elements=").append(elements);
+		for (Map.Entry<WritePhase, LatencySnapshot> entry : latencies.entrySet()) {
+			builder.append("\n").append(entry.getKey()).append(": ").append(entry.getValue());
+		}
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,26 @@
+package org.ingomohr.docwriter.metrics;
+
+/**
+ * The phases of writing a document that are timed separately.
+ * 
+ * @see DocWriterMetrics
+ * @since 6.1
+ */
+public enum WritePhase {
+
+	/**
+	 * Loading the input - or creating the default document if there is no input.
+	 */
+	LOAD,
+
+	/**
+	 * Modifying the loaded document - e.g. applying the rules of a writer.
+	 */
+	MODIFY,
+
+	/**
+	 * Saving the document to the target.
+	 */
+	SAVE
+
+}
@@ -0,0 +1,121 @@
+package org.ingomohr.docwriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestDocWriterAsync {
+
+	private Path dir;
+
+	private DocWriter objUT;
+
+	@BeforeEach
+	void prep() throws IOException {
+		dir = Files.createTempDirectory("docwriter");
+
+		objUT = new AbstractDocWriter() {
+
+			@Override
+			public void write(InputStream input, OutputStream target) throws DocWriterException {
+				try {
+					if (input == null) {
+						target.write("default".getBytes(StandardCharsets.UTF_8));
+					} else {
+						target.write(input.readAllBytes());
+					}
+				} catch (IOException e) {
+					throw new DocWriterException(e);
+				}
+			}
+		};
+	}
+
+	@Test
+	void writeAsync_Paths_DocumentIsWritten() throws Exception {
+		Path input = Files.writeString(dir.resolve("in"), "content");
+		Path target = dir.resolve("out");
+
+		objUT.writeAsync(input, target).get(30, TimeUnit.SECONDS);
+
+		assertEquals("content", Files.readString(target));
+	}
+
+	@Test
+	void writeAsync_Streams_DocumentIsWritten() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		objUT.writeAsync((InputStream) null, out).get(30, TimeUnit.SECONDS);
+
+		assertEquals("default", out.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void writeAsync_WritingFails_CompletesWithDocWriterException() {
+		CompletableFuture<Void> result = objUT.writeAsync(dir.resolve("missing"), dir.resolve("out"));
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(30, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof DocWriterException);
+	}
+
+	@Test
+	void writeAllAsync_AllDocumentsAreWritten() throws Exception {
+		Map<Path, Path> inputsByTarget = new LinkedHashMap<>();
+		for (int i = 0; i < 5; i++) {
+			inputsByTarget.put(dir.resolve("out" + i), Files.writeString(dir.resolve("in" + i), "doc" + i));
+		}
+		inputsByTarget.put(dir.resolve("out-default"), null);
+
+		objUT.writeAllAsync(inputsByTarget).get(30, TimeUnit.SECONDS);
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals("doc" + i, Files.readString(dir.resolve("out" + i)));
+		}
+		assertEquals("default", Files.readString(dir.resolve("out-default")));
+	}
+
+	@Test
+	void writeAllAsync_SameInputForSeveralTargets_AllTargetsAreWritten() throws Exception {
+		Path input = Files.writeString(dir.resolve("in"), "doc");
+		Map<Path, Path> inputsByTarget = new LinkedHashMap<>();
+		for (int i = 0; i < 3; i++) {
+			inputsByTarget.put(dir.resolve("out" + i), input);
+			inputsByTarget.put(dir.resolve("out-default" + i), null);
+		}
+
+		objUT.writeAllAsync(inputsByTarget).get(30, TimeUnit.SECONDS);
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals("doc", Files.readString(dir.resolve("out" + i)));
+			assertEquals("default", Files.readString(dir.resolve("out-default" + i)));
+		}
+	}
+
+	@Test
+	void getDefault_IsShared() {
+		assertNotNull(DocWriterExecutors.getDefault());
+		assertSame(DocWriterExecutors.getDefault(), DocWriterExecutors.getDefault());
+		assertFalse(DocWriterExecutors.getDefault() instanceof ExecutorService);
+	}
+
+}
@@ -0,0 +1,240 @@
+package org.ingomohr.docwriter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestTemplateRegistry {
+
+	private Path dir;
+
+	private Path template;
+
+	private List<String> prepareThreads;
+
+	private List<Path> failedReloads;
+
+	private volatile Runnable afterRead;
+
+	private TemplateRegistry objUT;
+
+	@BeforeEach
+	void prep() throws IOException {
+		dir = Files.createTempDirectory("docwriter");
+		template = Files.writeString(dir.resolve("template.txt"), "v1");
+		prepareThreads = new CopyOnWriteArrayList<>();
+		failedReloads = new CopyOnWriteArrayList<>();
+
+		objUT = new TemplateRegistry() {
+
+			@Override
+			protected byte[] prepare(Path path) throws DocWriterException {
+				prepareThreads.add(Thread.currentThread().getName());
+				final byte[] bytes = super.prepare(path);
+				final Runnable hook = afterRead;
+				if (hook != null) {
+					afterRead = null;
+					hook.run();
+				}
+				if (new String(bytes, StandardCharsets.UTF_8).startsWith("invalid")) {
+					throw new DocWriterException("Invalid template");
+				}
+				return bytes;
+			}
+
+			@Override
+			protected void reloadFailed(Path path, DocWriterException e) {
+				failedReloads.add(path);
+			}
+
+		};
+	}
+
+	@AfterEach
+	void tearDown() {
+		objUT.close();
+	}
+
+	@Test
+	void get_CalledTwice_PreparedOnceOnCallingThread() throws Exception {
+		byte[] first = objUT.get(template);
+
+		assertSame(first, objUT.get(template));
+		assertSame(first, objUT.get(dir.resolve("sub/../template.txt")));
+		assertEquals("v1", new String(first, StandardCharsets.UTF_8));
+		assertEquals(List.of(Thread.currentThread().getName()), prepareThreads);
+	}
+
+	@Test
+	void get_FileModified_ReloadedInBackground() throws Exception {
+		byte[] first = objUT.get(template);
+
+		Files.writeString(template, "v2");
+
+		waitFor(() -> getText().equals("v2"));
+		assertEquals("v1", new String(first, StandardCharsets.UTF_8));
+		assertEquals("docwriter-template-reload", prepareThreads.get(prepareThreads.size() - 1));
+	}
+
+	@Test
+	void get_FileModifiedDuringFirstLoad_ReloadedInBackground() throws Exception {
+		afterRead = () -> {
+			try {
+				Files.writeString(template, "v2");
+				// Gives the watcher time to see the change while the template is loading.
+				Thread.sleep(500);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+
+		assertEquals("v1", getText());
+
+		waitFor(() -> getText().equals("v2"));
+	}
+
+	@Test
+	void get_OtherTemplateLoading_DoesNotWait() throws Exception {
+		Path other = Files.writeString(dir.resolve("other.txt"), "other");
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		afterRead = () -> {
+			reading.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		Thread slow = new Thread(() -> getText());
+		slow.start();
+		try {
+			assertTrue(reading.await(30, TimeUnit.SECONDS));
+
+			CompletableFuture<byte[]> result = CompletableFuture.supplyAsync(() -> {
+				try {
+					return objUT.get(other);
+				} catch (DocWriterException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			assertEquals("other", new String(result.get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+		} finally {
+			release.countDown();
+			slow.join();
+		}
+	}
+
+	@Test
+	void get_FileReplaced_ReloadedInBackground() throws Exception {
+		objUT.get(template);
+
+		Path temp = Files.writeString(dir.resolve("template.tmp"), "v2");
+		Files.move(temp, template, StandardCopyOption.REPLACE_EXISTING);
+
+		waitFor(() -> getText().equals("v2"));
+	}
+
+	@Test
+	void get_ReloadFails_PreviousVersionIsKept() throws Exception {
+		objUT.get(template);
+
+		Files.writeString(template, "invalid");
+
+		waitFor(() -> !failedReloads.isEmpty());
+		assertEquals("v1", getText());
+		assertEquals(template, failedReloads.get(0));
+	}
+
+	@Test
+	void get_FileDeleted_Throws() throws Exception {
+		objUT.get(template);
+
+		Files.delete(template);
+
+		waitFor(() -> {
+			try {
+				objUT.get(template);
+				return false;
+			} catch (DocWriterException e) {
+				return true;
+			}
+		});
+	}
+
+	@Test
+	void get_MissingFile_Throws() {
+		assertThrows(DocWriterException.class, () -> objUT.get(dir.resolve("missing.txt")));
+	}
+
+	@Test
+	void get_Closed_Throws() throws Exception {
+		objUT.close();
+
+		assertThrows(IllegalStateException.class, () -> objUT.get(template));
+	}
+
+	@Test
+	void write_WriterWithRegistry_InputIsReadFromRegistry() throws Exception {
+		AbstractDocWriter writer = new AbstractDocWriter() {
+
+			@Override
+			public void write(InputStream input, OutputStream target) throws DocWriterException {
+				try {
+					input.transferTo(target);
+				} catch (IOException e) {
+					throw new DocWriterException(e);
+				}
+			}
+		};
+		writer.setTemplateRegistry(objUT);
+		objUT.get(template);
+		Path target = dir.resolve("out.txt");
+
+		writer.write(template, target);
+
+		assertArrayEquals(objUT.get(template), Files.readAllBytes(target));
+		assertEquals(1, prepareThreads.size());
+	}
+
+	private String getText() {
+		try {
+			return new String(objUT.get(template), StandardCharsets.UTF_8);
+		} catch (DocWriterException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Timed out");
+			Thread.sleep(50);
+		}
+	}
+
+}
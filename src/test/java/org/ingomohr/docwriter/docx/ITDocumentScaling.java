@@ -0,0 +1,218 @@
+package org.ingomohr.docwriter.docx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.rules.DocumentRule;
+import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
+import org.ingomohr.docwriter.docx.rules.RunNormalizationRule;
+import org.ingomohr.docwriter.docx.rules.TocInsertionRule;
+import org.ingomohr.docwriter.docx.rules.TocUpdateRule;
+import org.ingomohr.docwriter.docx.rules.VariableReplacementRule;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+import com.vladsch.flexmark.docx.converter.DocxRenderer;
+
+/**
+ * Checks that time and allocated memory of the main rule paths grow about
+ * linearly with the document size.
+ * <p>
+ * Each path is measured on documents of {@link #SMALL} and
+ * <code>SMALL * FACTOR</code> paragraphs. The larger document may take at most
+ * <code>FACTOR * TOLERANCE</code> times as long and allocate at most as many
+ * times the memory - i.e. half of what quadratic growth would give.
+ * </p>
+ */
+class ITDocumentScaling {
+
+	private static final int SMALL = 1000;
+
+	private static final int FACTOR = 4;
+
+	private static final int TOLERANCE = 2;
+
+	private static final int REPETITIONS = 5;
+
+	@Test
+	void loadAndSave_ScalesLinearly() throws Exception {
+		assertNearLinear("load/save", paragraphs -> {
+			byte[] bytes = createDocumentBytes(paragraphs);
+			return () -> WordprocessingMLPackage.load(new ByteArrayInputStream(bytes))
+					.save(new ByteArrayOutputStream());
+		});
+	}
+
+	@Test
+	void modifyDocWithVariableReplacementRule_ScalesLinearly() throws Exception {
+		assertNearLinear("modifyDoc", paragraphs -> {
+			WordprocessingMLPackage doc = createGenerator(paragraphs).createDocument();
+			VariableReplacementWriter writer = new VariableReplacementWriter();
+			return new Operation() {
+
+				@Override
+				public void run() {
+					writer.modifyDoc(doc);
+				}
+
+				@Override
+				public void verify() {
+					assertEquals(List.of(), getTextsWithPlaceholders(doc));
+				}
+
+			};
+		});
+	}
+
+	@Test
+	void replaceVariable_ScalesLinearly() throws Exception {
+		assertNearLinear("replaceVariable", paragraphs -> {
+			SimpleDocxProcessor processor = new SimpleDocxProcessor();
+			processor.setDocument(createGenerator(paragraphs).createDocument());
+			return () -> processor.replaceVariable("var.0", "value");
+		});
+	}
+
+	@Test
+	void markdownAppender_ScalesLinearly() throws Exception {
+		assertNearLinear("markdown", paragraphs -> {
+			String markdown = createGenerator(paragraphs).createMarkdown();
+			WordprocessingMLPackage doc = DocxRenderer.getDefaultTemplate();
+			return () -> new MarkdownAppenderRule(() -> markdown).apply(doc);
+		});
+	}
+
+	@Test
+	void tocInsertionAndUpdate_ScalesLinearly() throws Exception {
+		assertNearLinear("toc", paragraphs -> {
+			WordprocessingMLPackage doc = createGenerator(paragraphs).createDocument();
+			return () -> {
+				new TocInsertionRule().apply(doc);
+				new TocUpdateRule().apply(doc);
+			};
+		});
+	}
+
+	private void assertNearLinear(String name, Preparation preparation) throws Exception {
+		// Warm up class loading and JIT on the small size.
+		measure(preparation, SMALL);
+
+		final Measurement small = measure(preparation, SMALL);
+		final Measurement large = measure(preparation, SMALL * FACTOR);
+
+		final long maxRatio = FACTOR * TOLERANCE;
+		assertTrue(large.nanos <= small.nanos * maxRatio,
+				name + ": time grew from " + small.nanos + "ns to " + large.nanos + "ns");
+		if (small.bytes > 0) {
+			assertTrue(large.bytes <= small.bytes * maxRatio,
+					name + ": allocation grew from " + small.bytes + " to " + large.bytes + " bytes");
+		}
+	}
+
+	/**
+	 * Returns the best time and allocation of several runs of the prepared
+	 * operation.
+	 */
+	private static Measurement measure(Preparation preparation, int paragraphs) throws Exception {
+		final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final boolean allocationSupported = threads.isThreadAllocatedMemorySupported()
+				&& threads.isThreadAllocatedMemoryEnabled();
+
+		final Measurement best = new Measurement(Long.MAX_VALUE, allocationSupported ? Long.MAX_VALUE : 0);
+		for (int i = 0; i < REPETITIONS; i++) {
+			final Operation operation = preparation.prepare(paragraphs);
+
+			final long bytesBefore = allocationSupported ? threads.getCurrentThreadAllocatedBytes() : 0;
+			final long start = System.nanoTime();
+			operation.run();
+			final long nanos = System.nanoTime() - start;
+			final long bytes = allocationSupported ? threads.getCurrentThreadAllocatedBytes() - bytesBefore : 0;
+			operation.verify();
+
+			best.nanos = Math.min(best.nanos, nanos);
+			best.bytes = Math.min(best.bytes, bytes);
+		}
+		return best;
+	}
+
+	private static SyntheticDocumentGenerator createGenerator(int paragraphs) {
+		final SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator(paragraphs);
+		generator.setParagraphCount(paragraphs);
+		generator.setRunsPerParagraph(3);
+		generator.setPlaceholderDensity(0.1);
+		generator.setTableCount(paragraphs / 100);
+		return generator;
+	}
+
+	private static byte[] createDocumentBytes(int paragraphs) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		createGenerator(paragraphs).writeDocument(out);
+		return out.toByteArray();
+	}
+
+	private static List<String> getTextsWithPlaceholders(WordprocessingMLPackage doc) {
+		return new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).filter(value -> value != null && value.contains("${"))
+				.collect(Collectors.toList());
+	}
+
+	private interface Operation {
+
+		void run() throws Exception;
+
+		/**
+		 * Checks - outside of the measurement - that the operation did its work.
+		 */
+		default void verify() {
+		}
+
+	}
+
+	private interface Preparation {
+
+		Operation prepare(int paragraphs) throws Exception;
+
+	}
+
+	private static class Measurement {
+
+		long nanos;
+
+		long bytes;
+
+		Measurement(long nanos, long bytes) {
+			this.nanos = nanos;
+			this.bytes = bytes;
+		}
+
+	}
+
+	/**
+	 * Writer that joins the generated runs and then replaces all placeholders of
+	 * the generated document.
+	 */
+	private static class VariableReplacementWriter extends AbstractRuleBasedDocxWriter {
+
+		@Override
+		protected List<DocumentRule> initRules() {
+			final Map<String, String> values = new HashMap<>();
+			for (int i = 0; i < 10; i++) {
+				values.put(SyntheticDocumentGenerator.PLACEHOLDER_PREFIX + i, "value " + i);
+			}
+			return List.of(new RunNormalizationRule(), new VariableReplacementRule(values));
+		}
+
+	}
+
+}
@@ -1,6 +1,10 @@
 package org.ingomohr.docwriter.docx;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.BufferedReader;
@@ -11,12 +15,29 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
 import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.cache.InMemoryRenderCache;
 import org.ingomohr.docwriter.docx.rules.DocumentRule;
 import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
+import org.ingomohr.docwriter.docx.rules.RegexReplacementRule;
+import org.ingomohr.docwriter.docx.util.DeterministicZip;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.ingomohr.docwriter.metrics.InMemoryMetrics;
+import org.ingomohr.docwriter.metrics.MetricsSnapshot;
+import org.ingomohr.docwriter.metrics.WritePhase;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -62,6 +83,235 @@ class TestAbstractRuleBasedDocxWriter {
 		assertNotNull(lastExportedContent);
 	}
 
+	@Test
+	void write_RecordsMetrics() throws Exception {
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		objUT.setMetrics(metrics);
+
+		ByteArrayOutputStream template = new ByteArrayOutputStream();
+		objUT.write(null, template);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		objUT.write(new ByteArrayInputStream(template.toByteArray()), out);
+
+		MetricsSnapshot snapshot = metrics.snapshot();
+		assertEquals(2, snapshot.getDocuments());
+		assertEquals(template.size(), snapshot.getBytesRead());
+		assertEquals(template.size() + out.size(), snapshot.getBytesWritten());
+		assertTrue(snapshot.getElements() > 0);
+		for (WritePhase phase : WritePhase.values()) {
+			assertEquals(2, snapshot.getLatency(phase).getCount());
+		}
+	}
+
+	@Test
+	void modifyDoc_TextRule_IsAppliedToAllTexts() throws Exception {
+		AbstractRuleBasedDocxWriter writer = new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(new RegexReplacementRule("\\$\\{name\\}", () -> "Jane"));
+			}
+
+		};
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("${name}");
+		doc.getMainDocumentPart().addParagraphOfText("Other text");
+		doc.getMainDocumentPart().addParagraphOfText("${name}");
+
+		writer.modifyDoc(doc);
+
+		List<String> texts = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).collect(Collectors.toList());
+		assertEquals(List.of("Jane", "Other text", "Jane"), texts);
+	}
+
+	@Test
+	void modifyDoc_RecordsNumberOfElements() throws Exception {
+		AbstractRuleBasedDocxWriter writer = new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(new RegexReplacementRule("first", () -> "1st"));
+			}
+
+		};
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		writer.setMetrics(metrics);
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("first");
+		doc.getMainDocumentPart().addParagraphOfText("second");
+
+		writer.modifyDoc(doc);
+
+		// Document and body plus paragraph, run and text per paragraph.
+		assertEquals(2 + 2 * 3, metrics.snapshot().getElements());
+	}
+
+	@Test
+	void modifyDoc_TextInTableCell_RuleIsApplied() throws Exception {
+		AbstractRuleBasedDocxWriter writer = new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(new RegexReplacementRule("\\$\\{name\\}", () -> "Jane"));
+			}
+
+		};
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		ObjectFactory factory = new ObjectFactory();
+		Tc cell = factory.createTc();
+		cell.getContent().add(doc.getMainDocumentPart().createParagraphOfText("${name}"));
+		Tr row = factory.createTr();
+		row.getContent().add(cell);
+		Tbl table = factory.createTbl();
+		table.getContent().add(row);
+		doc.getMainDocumentPart().getContent().add(table);
+
+		writer.modifyDoc(doc);
+
+		List<String> texts = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).collect(Collectors.toList());
+		assertEquals(List.of("Jane"), texts);
+	}
+
+	@Test
+	void write_Deterministic_EntriesHaveFixedTimeAndOrder() throws Exception {
+		objUT.setDeterministic(true);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		objUT.write(null, out);
+
+		List<String> names = new ArrayList<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+			for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+				assertEquals(DeterministicZip.ENTRY_TIME, entry.getTimeLocal());
+				names.add(entry.getName());
+			}
+		}
+		List<String> sorted = new ArrayList<>(names);
+		Collections.sort(sorted);
+		assertEquals(sorted, names);
+		assertEquals("[Content_Types].xml", names.get(0));
+	}
+
+	@Test
+	void write_RenderCache_RepeatIsCopiedFromCache() throws Exception {
+		InMemoryRenderCache cache = new InMemoryRenderCache(1 << 20);
+		objUT.setRenderCache(cache);
+
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		objUT.write(null, first);
+		assertNotNull(lastExportedContent);
+		clearCallBackData();
+
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		objUT.write(null, second);
+
+		assertNull(lastExportedContent);
+		assertArrayEquals(first.toByteArray(), second.toByteArray());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void write_RenderCache_ValueSuppliersAreCalledOncePerWrite() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		AbstractRuleBasedDocxWriter writer = new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(new RegexReplacementRule("\\$\\{name\\}", () -> {
+					calls.incrementAndGet();
+					return "Jane";
+				}));
+			}
+
+		};
+		writer.setRenderCache(new InMemoryRenderCache(1 << 20));
+		WordprocessingMLPackage template = WordprocessingMLPackage.createPackage();
+		template.getMainDocumentPart().addParagraphOfText("${name}");
+		template.getMainDocumentPart().addParagraphOfText("${name}");
+		ByteArrayOutputStream input = new ByteArrayOutputStream();
+		template.save(input);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(new ByteArrayInputStream(input.toByteArray()), out);
+
+		assertEquals(1, calls.get());
+		WordprocessingMLPackage doc = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+		List<String> texts = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).collect(Collectors.toList());
+		assertEquals(List.of("Jane", "Jane"), texts);
+
+		writer.write(new ByteArrayInputStream(input.toByteArray()), new ByteArrayOutputStream());
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void write_RenderCache_OtherInputIsRendered() throws Exception {
+		InMemoryRenderCache cache = new InMemoryRenderCache(1 << 20);
+		objUT.setRenderCache(cache);
+		ByteArrayOutputStream template = new ByteArrayOutputStream();
+		objUT.write(null, template);
+		clearCallBackData();
+
+		objUT.write(new ByteArrayInputStream(template.toByteArray()), new ByteArrayOutputStream());
+
+		assertNotNull(lastExportedContent);
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void write_RenderCache_RuleWithoutCacheKeyIsNeverCached() throws Exception {
+		AbstractRuleBasedDocxWriter writer = new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(new MarkdownAppenderRule(() -> "Text"), new DocumentRule() {
+
+					@Override
+					public void apply(Object object) {
+					}
+
+					@Override
+					public boolean appliesTo(Object object) {
+						return false;
+					}
+
+				});
+			}
+
+		};
+		InMemoryRenderCache cache = new InMemoryRenderCache(1 << 20);
+		writer.setRenderCache(cache);
+
+		writer.write(null, new ByteArrayOutputStream());
+		writer.write(null, new ByteArrayOutputStream());
+
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits() + cache.getMisses());
+	}
+
+	@Test
+	void computeRenderKey_DependsOnRuleInput() {
+		String[] markdown = { "first" };
+		AbstractRuleBasedDocxWriter writer = new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(new MarkdownAppenderRule(() -> markdown[0]));
+			}
+
+		};
+
+		String key = writer.computeRenderKey(null);
+		assertEquals(key, writer.computeRenderKey(null));
+
+		markdown[0] = "second";
+		assertNotEquals(key, writer.computeRenderKey(null));
+		assertNotEquals(writer.computeRenderKey(null), writer.computeRenderKey(new byte[] { 1 }));
+	}
+
 	private List<String> getAllLinesFromOutput(ByteArrayOutputStream out) throws IOException {
 		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
 		BufferedReader reader = new BufferedReader(new InputStreamReader(in));
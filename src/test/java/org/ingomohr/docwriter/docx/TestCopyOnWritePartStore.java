@@ -0,0 +1,74 @@
+package org.ingomohr.docwriter.docx;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.stores.ZipPartStore;
+import org.docx4j.openpackaging.parts.PartName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestCopyOnWritePartStore {
+
+	private static final byte[] CONTENT = { 1, 2, 3 };
+
+	private ZipPartStore shared;
+
+	private CopyOnWritePartStore objUT;
+
+	@BeforeEach
+	void prep() throws Exception {
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		try (ZipOutputStream out = new ZipOutputStream(zip)) {
+			out.putNextEntry(new ZipEntry("word/a.xml"));
+			out.write(CONTENT);
+			out.closeEntry();
+		}
+		shared = new ZipPartStore(new ByteArrayInputStream(zip.toByteArray()));
+		objUT = new CopyOnWritePartStore(shared);
+	}
+
+	@Test
+	void loadPart_ReadsFromSharedStore() throws Exception {
+		assertArrayEquals(CONTENT, read(objUT.loadPart("word/a.xml")));
+	}
+
+	@Test
+	void rename_OnlyThisStoreSeesNewName() throws Exception {
+		objUT.rename(new PartName("/word/a.xml"), new PartName("/word/b.xml"));
+
+		assertArrayEquals(CONTENT, read(objUT.loadPart("word/b.xml")));
+		assertThrows(Docx4JException.class, () -> objUT.loadPart("word/a.xml"));
+
+		assertArrayEquals(CONTENT, read(shared.loadPart("word/a.xml")));
+		assertArrayEquals(CONTENT, read(new CopyOnWritePartStore(shared).loadPart("word/a.xml")));
+	}
+
+	@Test
+	void rename_Twice_ResolvesToOriginalPart() throws Exception {
+		objUT.rename(new PartName("/word/a.xml"), new PartName("/word/b.xml"));
+		objUT.rename(new PartName("/word/b.xml"), new PartName("/word/c.xml"));
+
+		assertArrayEquals(CONTENT, read(objUT.loadPart("word/c.xml")));
+		assertThrows(Docx4JException.class, () -> objUT.loadPart("word/b.xml"));
+	}
+
+	@Test
+	void finishSave_NoSaveInProgress_Throws() {
+		assertThrows(IllegalStateException.class, () -> objUT.finishSave());
+	}
+
+	private static byte[] read(InputStream in) throws Exception {
+		try (InputStream stream = in) {
+			return stream.readAllBytes();
+		}
+	}
+
+}
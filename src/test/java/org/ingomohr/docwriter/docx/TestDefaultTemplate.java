@@ -0,0 +1,92 @@
+package org.ingomohr.docwriter.docx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.StyleDefinitionsPart;
+import org.docx4j.wml.Style;
+import org.junit.jupiter.api.Test;
+
+import com.vladsch.flexmark.docx.converter.DocxRenderer;
+
+class TestDefaultTemplate {
+
+	@Test
+	void createDocument_HasContentOfDefaultTemplate() throws Exception {
+		WordprocessingMLPackage expected = DocxRenderer.getDefaultTemplate();
+
+		WordprocessingMLPackage doc = DefaultTemplate.createDocument();
+
+		assertEquals(getStylesXml(expected), getStylesXml(doc));
+		assertEquals(expected.getMainDocumentPart().getContent().size(), doc.getMainDocumentPart().getContent().size());
+	}
+
+	@Test
+	void createDocument_StylesAreNotParsedUntilAccessed() throws Exception {
+		WordprocessingMLPackage doc = DefaultTemplate.createDocument();
+		MainDocumentPart mainPart = doc.getMainDocumentPart();
+		mainPart.getContent().add(mainPart.createParagraphOfText("Text"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		doc.save(out);
+
+		assertFalse(mainPart.getStyleDefinitionsPart().isUnmarshalled());
+		assertFalse(mainPart.getDocumentSettingsPart().isUnmarshalled());
+		WordprocessingMLPackage saved = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(getStylesXml(DocxRenderer.getDefaultTemplate()), getStylesXml(saved));
+		assertEquals(1, saved.getMainDocumentPart().getContent().size());
+	}
+
+	@Test
+	void createDocument_ModifyingCopyDoesNotAffectOtherCopies() throws Exception {
+		WordprocessingMLPackage first = DefaultTemplate.createDocument();
+		first.getMainDocumentPart().addParagraphOfText("Text");
+		Style style = new Style();
+		style.setStyleId("Custom");
+		first.getMainDocumentPart().getStyleDefinitionsPart().getContents().getStyle().add(style);
+
+		WordprocessingMLPackage second = DefaultTemplate.createDocument();
+
+		assertNotSame(first, second);
+		assertTrue(second.getMainDocumentPart().getContent().isEmpty());
+		assertEquals(getStylesXml(DocxRenderer.getDefaultTemplate()), getStylesXml(second));
+	}
+
+	@Test
+	void createDocument_Concurrently_AllCopiesAreComplete() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Callable<String>> tasks = IntStream.range(0, 16)
+					.<Callable<String>>mapToObj(i -> () -> getStylesXml(DefaultTemplate.createDocument()))
+					.collect(Collectors.toList());
+
+			String expected = getStylesXml(DocxRenderer.getDefaultTemplate());
+			for (Future<String> result : executor.invokeAll(tasks)) {
+				assertEquals(expected, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static String getStylesXml(WordprocessingMLPackage doc) throws Exception {
+		StyleDefinitionsPart part = doc.getMainDocumentPart().getStyleDefinitionsPart();
+		return XmlUtils.marshaltoString(part.getContents(), true, false);
+	}
+
+}
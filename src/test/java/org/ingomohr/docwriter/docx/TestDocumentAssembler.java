@@ -0,0 +1,300 @@
+package org.ingomohr.docwriter.docx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.imageio.ImageIO;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.dml.CTBlip;
+import org.docx4j.dml.wordprocessingDrawing.Inline;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.openpackaging.parts.WordprocessingML.NumberingDefinitionsPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.StyleDefinitionsPart;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.CTFtnEdnRef;
+import org.docx4j.wml.CTMarkupRange;
+import org.docx4j.wml.Drawing;
+import org.docx4j.wml.Numbering;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.PPrBase;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Style;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestDocumentAssembler {
+
+	private final ObjectFactory factory = new ObjectFactory();
+
+	private ByteArrayOutputStream out;
+
+	private DocumentAssembler objUT;
+
+	@BeforeEach
+	void prep() throws Exception {
+		out = new ByteArrayOutputStream();
+		WordprocessingMLPackage base = WordprocessingMLPackage.createPackage();
+		base.getMainDocumentPart().addParagraphOfText("Cover");
+		objUT = new DocumentAssembler(base, out);
+	}
+
+	@Test
+	void append_FragmentsAreAppendedInOrder() throws Exception {
+		objUT.append(createFragment("One"));
+		objUT.append(createFragment("Two", "Three"));
+		objUT.close();
+
+		assertEquals(Arrays.asList("Cover", "One", "Two", "Three"), getParagraphTexts(load()));
+		assertEquals(2, objUT.getFragmentCount());
+	}
+
+	@Test
+	void append_EqualStyles_AreNotDuplicated() throws Exception {
+		int styleCount = countStyles(WordprocessingMLPackage.createPackage());
+
+		objUT.append(createFragment("One"));
+		objUT.append(createFragment("Two"));
+		objUT.close();
+
+		assertEquals(styleCount, countStyles(load()));
+	}
+
+	@Test
+	void append_DifferentStyleWithSameId_IsRenamedAndReferencesAreRewritten() throws Exception {
+		WordprocessingMLPackage fragment = createFragment("Styled");
+		Style style = fragment.getMainDocumentPart().getStyleDefinitionsPart().getStyleById("Heading1");
+		style.getName().setVal("Changed heading");
+		setStyle(fragment, "Heading1");
+
+		objUT.append(fragment);
+		objUT.close();
+
+		WordprocessingMLPackage result = load();
+		Style renamed = result.getMainDocumentPart().getStyleDefinitionsPart().getStyleById("Heading1_2");
+		assertEquals("Changed heading", renamed.getName().getVal());
+		P paragraph = (P) result.getMainDocumentPart().getContent().get(1);
+		assertEquals("Heading1_2", paragraph.getPPr().getPStyle().getVal());
+	}
+
+	@Test
+	void append_StyleBasedOnRenamedStyle_IsRenamedToo() throws Exception {
+		WordprocessingMLPackage fragment = createFragment("Indented");
+		fragment.getMainDocumentPart().getStyleDefinitionsPart().getStyleById("Normal").getName().setVal("Changed");
+		setStyle(fragment, "NormalIndent");
+
+		objUT.append(fragment);
+		objUT.close();
+
+		WordprocessingMLPackage result = load();
+		Style renamed = result.getMainDocumentPart().getStyleDefinitionsPart().getStyleById("NormalIndent_2");
+		assertEquals("Normal_2", renamed.getBasedOn().getVal());
+		P paragraph = (P) result.getMainDocumentPart().getContent().get(1);
+		assertEquals("NormalIndent_2", paragraph.getPPr().getPStyle().getVal());
+	}
+
+	@Test
+	void append_StyleLinkedToRenamedStyle_IsRenamedToo() throws Exception {
+		WordprocessingMLPackage fragment = createFragment("Styled");
+		fragment.getMainDocumentPart().getStyleDefinitionsPart().getStyleById("Heading1").getName()
+				.setVal("Changed heading");
+
+		objUT.append(fragment);
+		objUT.close();
+
+		StyleDefinitionsPart styles = load().getMainDocumentPart().getStyleDefinitionsPart();
+		assertEquals("Heading1Char_2", styles.getStyleById("Heading1_2").getLink().getVal());
+		assertEquals("Heading1_2", styles.getStyleById("Heading1Char_2").getLink().getVal());
+		assertEquals("Heading1", styles.getStyleById("Heading1Char").getLink().getVal());
+	}
+
+	@Test
+	void append_FootnoteReference_Throws() throws Exception {
+		WordprocessingMLPackage fragment = createFragment("Noted");
+		CTFtnEdnRef reference = factory.createCTFtnEdnRef();
+		reference.setId(BigInteger.ONE);
+		R run = factory.createR();
+		run.getContent().add(factory.createRFootnoteReference(reference));
+		((P) fragment.getMainDocumentPart().getContent().get(0)).getContent().add(run);
+
+		assertThrows(DocWriterException.class, () -> objUT.append(fragment));
+	}
+
+	@Test
+	void append_SameImageInSeveralFragments_IsStoredOnce() throws Exception {
+		byte[] image = createPng();
+		objUT.append(createFragmentWithImage(image));
+		objUT.append(createFragmentWithImage(image));
+		objUT.close();
+
+		List<String> media = getEntryNames().stream().filter(name -> name.startsWith("word/media/"))
+				.collect(Collectors.toList());
+		assertEquals(1, media.size());
+
+		List<String> embeds = new ArrayList<>();
+		for (CTBlip blip : new DocxDataInspector().getAllElements(load().getMainDocumentPart(), CTBlip.class)) {
+			embeds.add(blip.getEmbed());
+		}
+		assertEquals(2, embeds.size());
+		assertEquals(embeds.get(0), embeds.get(1));
+	}
+
+	@Test
+	void append_BookmarkIdsOfFragments_AreMadeUnique() throws Exception {
+		objUT.append(createFragmentWithBookmark("a"));
+		objUT.append(createFragmentWithBookmark("b"));
+		objUT.close();
+
+		List<CTBookmark> bookmarks = new DocxDataInspector().getAllElements(load().getMainDocumentPart(),
+				CTBookmark.class);
+		assertEquals(2, bookmarks.size());
+		assertNotEquals(bookmarks.get(0).getId(), bookmarks.get(1).getId());
+	}
+
+	@Test
+	void append_NumberingOfFragments_AbstractDefinitionIsSharedAndListsAreSeparate() throws Exception {
+		objUT.append(createFragmentWithList());
+		objUT.append(createFragmentWithList());
+		objUT.close();
+
+		WordprocessingMLPackage result = load();
+		Numbering numbering = result.getMainDocumentPart().getNumberingDefinitionsPart().getJaxbElement();
+		Numbering fragmentNumbering = new NumberingDefinitionsPart().unmarshalDefaultNumbering();
+		assertEquals(fragmentNumbering.getAbstractNum().size(), numbering.getAbstractNum().size());
+		assertEquals(2 * fragmentNumbering.getNum().size(), numbering.getNum().size());
+
+		P first = (P) result.getMainDocumentPart().getContent().get(1);
+		P second = (P) result.getMainDocumentPart().getContent().get(2);
+		assertNotEquals(first.getPPr().getNumPr().getNumId().getVal(), second.getPPr().getNumPr().getNumId().getVal());
+	}
+
+	@Test
+	void append_FragmentSectionProperties_AreDropped() throws Exception {
+		objUT.append(createFragment("One"));
+		objUT.close();
+
+		String xml = XmlUtils.marshaltoString(load().getMainDocumentPart().getJaxbElement(), true, false);
+		assertEquals(xml.indexOf("<w:sectPr"), xml.lastIndexOf("<w:sectPr"));
+		assertTrue(xml.contains("One"));
+	}
+
+	@Test
+	void append_AfterFinish_Throws() throws Exception {
+		objUT.finish();
+
+		WordprocessingMLPackage fragment = createFragment("Late");
+		assertThrows(IllegalStateException.class, () -> objUT.append(fragment));
+	}
+
+	private WordprocessingMLPackage createFragment(String... texts) throws Exception {
+		WordprocessingMLPackage fragment = WordprocessingMLPackage.createPackage();
+		for (String text : texts) {
+			fragment.getMainDocumentPart().addParagraphOfText(text);
+		}
+		return fragment;
+	}
+
+	private WordprocessingMLPackage createFragmentWithImage(byte[] image) throws Exception {
+		WordprocessingMLPackage fragment = WordprocessingMLPackage.createPackage();
+		BinaryPartAbstractImage part = BinaryPartAbstractImage.createImagePart(fragment, image);
+		Inline inline = part.createImageInline("image", "image", 1, 2, false);
+
+		Drawing drawing = factory.createDrawing();
+		drawing.getAnchorOrInline().add(inline);
+		R run = factory.createR();
+		run.getContent().add(drawing);
+		P paragraph = factory.createP();
+		paragraph.getContent().add(run);
+		fragment.getMainDocumentPart().getContent().add(paragraph);
+		return fragment;
+	}
+
+	private WordprocessingMLPackage createFragmentWithBookmark(String name) throws Exception {
+		WordprocessingMLPackage fragment = createFragment(name);
+		P paragraph = (P) fragment.getMainDocumentPart().getContent().get(0);
+
+		CTBookmark bookmark = factory.createCTBookmark();
+		bookmark.setId(BigInteger.ZERO);
+		bookmark.setName(name);
+		CTMarkupRange end = factory.createCTMarkupRange();
+		end.setId(BigInteger.ZERO);
+		paragraph.getContent().add(0, factory.createPBookmarkStart(bookmark));
+		paragraph.getContent().add(factory.createPBookmarkEnd(end));
+		return fragment;
+	}
+
+	private WordprocessingMLPackage createFragmentWithList() throws Exception {
+		WordprocessingMLPackage fragment = createFragment("Item");
+		NumberingDefinitionsPart numbering = new NumberingDefinitionsPart();
+		numbering.setJaxbElement(numbering.unmarshalDefaultNumbering());
+		fragment.getMainDocumentPart().addTargetPart(numbering);
+
+		PPrBase.NumPr numPr = factory.createPPrBaseNumPr();
+		PPrBase.NumPr.NumId numId = factory.createPPrBaseNumPrNumId();
+		numId.setVal(BigInteger.ONE);
+		numPr.setNumId(numId);
+		PPr pPr = factory.createPPr();
+		pPr.setNumPr(numPr);
+		((P) fragment.getMainDocumentPart().getContent().get(0)).setPPr(pPr);
+		return fragment;
+	}
+
+	private void setStyle(WordprocessingMLPackage fragment, String styleId) {
+		PPr pPr = factory.createPPr();
+		PPrBase.PStyle pStyle = factory.createPPrBasePStyle();
+		pStyle.setVal(styleId);
+		pPr.setPStyle(pStyle);
+		((P) fragment.getMainDocumentPart().getContent().get(0)).setPPr(pPr);
+	}
+
+	private static byte[] createPng() throws Exception {
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB), "png", png);
+		return png.toByteArray();
+	}
+
+	private static int countStyles(WordprocessingMLPackage doc) {
+		return doc.getMainDocumentPart().getStyleDefinitionsPart().getJaxbElement().getStyle().size();
+	}
+
+	private WordprocessingMLPackage load() throws Exception {
+		return WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	private List<String> getEntryNames() throws Exception {
+		List<String> names = new ArrayList<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+			for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+				names.add(entry.getName());
+			}
+		}
+		return names;
+	}
+
+	private static List<String> getParagraphTexts(WordprocessingMLPackage doc) {
+		return doc.getMainDocumentPart().getContent().stream().map(XmlUtils::unwrap).filter(P.class::isInstance)
+				.map(p -> new DocxDataInspector().getAllElements(p, Text.class).stream().map(Text::getValue)
+						.collect(Collectors.joining()))
+				.collect(Collectors.toList());
+	}
+
+}
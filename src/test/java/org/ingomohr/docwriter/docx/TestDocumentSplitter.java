@@ -0,0 +1,164 @@
+package org.ingomohr.docwriter.docx;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.imageio.ImageIO;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.dml.wordprocessingDrawing.Inline;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.wml.Drawing;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestDocumentSplitter {
+
+	private WordprocessingMLPackage doc;
+
+	private final Map<Integer, ByteArrayOutputStream> outputs = new ConcurrentHashMap<>();
+
+	private final Map<Integer, String> titles = new ConcurrentHashMap<>();
+
+	@BeforeEach
+	void prep() throws Exception {
+		doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("Preface");
+		doc.getMainDocumentPart().addStyledParagraphOfText("Heading1", "Chapter A");
+		doc.getMainDocumentPart().addParagraphOfText("A text");
+		doc.getMainDocumentPart().addStyledParagraphOfText("Heading2", "Section A.1");
+		doc.getMainDocumentPart().addParagraphOfText("A.1 text");
+		doc.getMainDocumentPart().addStyledParagraphOfText("Heading1", "Chapter B");
+		doc.getMainDocumentPart().addParagraphOfText("B text");
+	}
+
+	@Test
+	void split_Level1_OneDocumentPerChapter() throws Exception {
+		int count = new DocumentSplitter(1).split(doc, this::open);
+
+		assertEquals(3, count);
+		assertEquals(Arrays.asList("Preface"), getParagraphTexts(0));
+		assertEquals(Arrays.asList("Chapter A", "A text", "Section A.1", "A.1 text"), getParagraphTexts(1));
+		assertEquals(Arrays.asList("Chapter B", "B text"), getParagraphTexts(2));
+
+		assertNull(titles.get(0));
+		assertEquals("Chapter A", titles.get(1));
+		assertEquals("Chapter B", titles.get(2));
+	}
+
+	@Test
+	void split_Level2_SubsectionsStartChaptersToo() throws Exception {
+		int count = new DocumentSplitter(2).split(doc, this::open);
+
+		assertEquals(4, count);
+		assertEquals(Arrays.asList("Section A.1", "A.1 text"), getParagraphTexts(2));
+	}
+
+	@Test
+	void split_SharedPartsAreWrittenUnchanged() throws Exception {
+		new DocumentSplitter(1).split(doc, this::open);
+
+		byte[] styles = getEntries(0).get("word/styles.xml");
+		assertArrayEquals(styles, getEntries(1).get("word/styles.xml"));
+		assertArrayEquals(styles, getEntries(2).get("word/styles.xml"));
+	}
+
+	@Test
+	void split_ImagesAreOnlyInChaptersReferencingThem() throws Exception {
+		addImageParagraph(6);
+
+		new DocumentSplitter(1).split(doc, this::open);
+
+		assertTrue(getMediaNames(0).isEmpty());
+		assertTrue(getMediaNames(1).isEmpty());
+		assertEquals(1, getMediaNames(2).size());
+		// Chapters without the image can still be loaded.
+		assertEquals(Arrays.asList("Preface"), getParagraphTexts(0));
+	}
+
+	@Test
+	void split_SourceDocumentIsNotModified() throws Exception {
+		String before = XmlUtils.marshaltoString(doc.getMainDocumentPart().getJaxbElement(), true, false);
+
+		new DocumentSplitter(1).split(doc, this::open);
+
+		assertEquals(before, XmlUtils.marshaltoString(doc.getMainDocumentPart().getJaxbElement(), true, false));
+	}
+
+	@Test
+	void new_InvalidLevel_Throws() {
+		assertThrows(IllegalArgumentException.class, () -> new DocumentSplitter(0));
+		assertThrows(IllegalArgumentException.class, () -> new DocumentSplitter(10));
+	}
+
+	private ByteArrayOutputStream open(int index, String title) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		outputs.put(index, out);
+		if (title != null) {
+			titles.put(index, title);
+		}
+		return out;
+	}
+
+	private void addImageParagraph(int index) throws Exception {
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB), "png", png);
+		BinaryPartAbstractImage part = BinaryPartAbstractImage.createImagePart(doc, png.toByteArray());
+		Inline inline = part.createImageInline("image", "image", 1, 2, false);
+
+		ObjectFactory factory = new ObjectFactory();
+		Drawing drawing = factory.createDrawing();
+		drawing.getAnchorOrInline().add(inline);
+		R run = factory.createR();
+		run.getContent().add(drawing);
+		P paragraph = factory.createP();
+		paragraph.getContent().add(run);
+		doc.getMainDocumentPart().getContent().add(index, paragraph);
+	}
+
+	private List<String> getMediaNames(int index) throws Exception {
+		return getEntries(index).keySet().stream().filter(name -> name.startsWith("word/media/"))
+				.collect(Collectors.toList());
+	}
+
+	private Map<String, byte[]> getEntries(int index) throws Exception {
+		Map<String, byte[]> entries = new HashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputs.get(index).toByteArray()))) {
+			for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+				entries.put(entry.getName(), zip.readAllBytes());
+			}
+		}
+		return entries;
+	}
+
+	private List<String> getParagraphTexts(int index) throws Exception {
+		WordprocessingMLPackage chapter = WordprocessingMLPackage
+				.load(new ByteArrayInputStream(outputs.get(index).toByteArray()));
+		return chapter.getMainDocumentPart().getContent().stream().map(XmlUtils::unwrap).filter(P.class::isInstance)
+				.map(p -> new DocxDataInspector().getAllElements(p, Text.class).stream().map(Text::getValue)
+						.collect(Collectors.joining()))
+				.filter(text -> !text.isEmpty()).collect(Collectors.toList());
+	}
+
+}
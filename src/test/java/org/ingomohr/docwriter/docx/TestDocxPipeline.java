@@ -0,0 +1,198 @@
+package org.ingomohr.docwriter.docx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.rules.DocumentRule;
+import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestDocxPipeline {
+
+	private CountDownLatch modifyGate;
+
+	private AtomicInteger loadCount;
+
+	private DocxPipeline objUT;
+
+	@BeforeEach
+	void prep() {
+		modifyGate = new CountDownLatch(0);
+		loadCount = new AtomicInteger();
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (objUT != null) {
+			objUT.close();
+		}
+	}
+
+	@Test
+	void submit_DocumentsAreWritten() throws Exception {
+		objUT = new DocxPipeline(createWriter(), 2, 1, 2, 2);
+
+		List<ByteArrayOutputStream> outputs = new ArrayList<>();
+		List<CompletableFuture<Void>> results = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			outputs.add(out);
+			results.add(objUT.submit((InputStream) null, out));
+		}
+		objUT.close();
+
+		for (int i = 0; i < 5; i++) {
+			assertTrue(results.get(i).isDone());
+			assertEquals("Hello", getText(outputs.get(i)));
+		}
+	}
+
+	@Test
+	void submit_Paths_InputIsLoadedAndTargetIsWritten() throws Exception {
+		objUT = new DocxPipeline(createWriter());
+
+		Path dir = Files.createTempDirectory("docwriter");
+		Path input = dir.resolve("in.docx");
+		Path target = dir.resolve("out.docx");
+
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("Input");
+		doc.save(input.toFile());
+
+		objUT.submit(input, target).get(30, TimeUnit.SECONDS);
+
+		assertEquals("InputHello", getText(Files.readAllBytes(target)));
+	}
+
+	@Test
+	void submit_FailingDocument_OthersAreWritten() throws Exception {
+		objUT = new DocxPipeline(createWriter());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompletableFuture<Void> failing = objUT.submit(new ByteArrayInputStream(new byte[] { 1, 2, 3 }),
+				new ByteArrayOutputStream());
+		CompletableFuture<Void> succeeding = objUT.submit((InputStream) null, out);
+
+		assertThrows(ExecutionException.class, () -> failing.get(30, TimeUnit.SECONDS));
+		succeeding.get(30, TimeUnit.SECONDS);
+		assertEquals("Hello", getText(out));
+	}
+
+	@Test
+	void submit_StageThrowsError_JobFailsAndPipelineCloses() throws Exception {
+		objUT = new DocxPipeline(new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return new ArrayList<>();
+			}
+
+			@Override
+			protected void modifyDoc(WordprocessingMLPackage doc) {
+				throw new StackOverflowError();
+			}
+		}, 1, 1, 1, 1);
+
+		CompletableFuture<Void> first = objUT.submit((InputStream) null, new ByteArrayOutputStream());
+		CompletableFuture<Void> second = objUT.submit((InputStream) null, new ByteArrayOutputStream());
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(30, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof StackOverflowError);
+		assertThrows(ExecutionException.class, () -> second.get(30, TimeUnit.SECONDS));
+
+		CompletableFuture.runAsync(objUT::close).get(30, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void submit_FullQueues_LoadIsThrottled() throws Exception {
+		modifyGate = new CountDownLatch(1);
+		objUT = new DocxPipeline(createWriter(), 1, 1, 1, 1);
+
+		CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+			try {
+				for (int i = 0; i < 10; i++) {
+					objUT.submit((InputStream) null, new ByteArrayOutputStream());
+				}
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		Thread.sleep(500);
+
+		// 1 document in modify, 1 in the modify queue, 1 in the load stage.
+		assertTrue(loadCount.get() <= 3, "documents loaded: " + loadCount.get());
+		assertTrue(!producer.isDone());
+
+		modifyGate.countDown();
+		producer.get(30, TimeUnit.SECONDS);
+		objUT.close();
+		assertEquals(10, loadCount.get());
+	}
+
+	@Test
+	void submit_Closed_Throws() {
+		objUT = new DocxPipeline(createWriter());
+		objUT.close();
+
+		assertThrows(IllegalStateException.class, () -> objUT.submit((InputStream) null, new ByteArrayOutputStream()));
+	}
+
+	private AbstractRuleBasedDocxWriter createWriter() {
+		return new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(new MarkdownAppenderRule(() -> "Hello"));
+			}
+
+			@Override
+			protected WordprocessingMLPackage createDefaultDocument() {
+				loadCount.incrementAndGet();
+				return super.createDefaultDocument();
+			}
+
+			@Override
+			protected void modifyDoc(WordprocessingMLPackage doc) {
+				try {
+					modifyGate.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.modifyDoc(doc);
+			}
+		};
+	}
+
+	private static String getText(ByteArrayOutputStream out) throws Exception {
+		return getText(out.toByteArray());
+	}
+
+	private static String getText(byte[] bytes) throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.load(new ByteArrayInputStream(bytes));
+		return new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).collect(Collectors.joining());
+	}
+
+}
@@ -0,0 +1,68 @@
+package org.ingomohr.docwriter.docx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestDocxTemplateRegistry {
+
+	private Path dir;
+
+	private DocxTemplateRegistry objUT;
+
+	@BeforeEach
+	void prep() throws Exception {
+		dir = Files.createTempDirectory("docwriter");
+		objUT = new DocxTemplateRegistry();
+	}
+
+	@AfterEach
+	void tearDown() {
+		objUT.close();
+	}
+
+	@Test
+	void get_SplitVariable_RunsAreJoined() throws Exception {
+		Path template = dir.resolve("template.docx");
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		P paragraph = new ObjectFactory().createP();
+		paragraph.getContent().add(createRun("Hello ${na"));
+		paragraph.getContent().add(createRun("me}"));
+		doc.getMainDocumentPart().getContent().add(paragraph);
+		doc.save(template.toFile());
+
+		WordprocessingMLPackage prepared = WordprocessingMLPackage
+				.load(new ByteArrayInputStream(objUT.get(template)));
+
+		List<String> texts = new DocxDataInspector().getAllElements(prepared.getMainDocumentPart(), Text.class)
+				.stream().map(Text::getValue).collect(Collectors.toList());
+		assertEquals(List.of("Hello ${name}"), texts);
+	}
+
+	private static R createRun(String value) {
+		ObjectFactory factory = new ObjectFactory();
+		R run = factory.createR();
+		// Equal but separate run properties - as Word writes them.
+		run.setRPr(new RPr());
+		Text text = factory.createText();
+		text.setValue(value);
+		run.getContent().add(text);
+		return run;
+	}
+
+}
@@ -0,0 +1,92 @@
+package org.ingomohr.docwriter.docx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.ingomohr.docwriter.metrics.InMemoryMetrics;
+import org.ingomohr.docwriter.metrics.WritePhase;
+import org.junit.jupiter.api.Test;
+
+class TestDocxWarmUp {
+
+	@Test
+	void warmUp_AllStepsAreRunAndTimedInOrder() throws Exception {
+		List<WarmUpStep> steps = new ArrayList<>();
+		DocxWarmUp objUT = new DocxWarmUp() {
+
+			@Override
+			protected void runStep(WarmUpStep step) throws DocWriterException {
+				steps.add(step);
+				super.runStep(step);
+			}
+
+		};
+
+		WarmUpReport report = objUT.warmUp();
+
+		assertEquals(List.of(WarmUpStep.values()), steps);
+		long sum = 0;
+		for (WarmUpStep step : WarmUpStep.values()) {
+			assertTrue(report.getNanos(step) > 0, step.name());
+			sum += report.getNanos(step);
+		}
+		assertEquals(sum, report.getTotalNanos());
+		assertTrue(report.toString().contains("RULE_ENGINE="), report.toString());
+	}
+
+	@Test
+	void warmUp_DefaultMetricsAreNotTouched() throws Exception {
+		long documents = InMemoryMetrics.getDefault().snapshot().getDocuments();
+		long loads = InMemoryMetrics.getDefault().snapshot().getLatency(WritePhase.LOAD).getCount();
+
+		new DocxWarmUp().warmUp();
+
+		assertEquals(documents, InMemoryMetrics.getDefault().snapshot().getDocuments());
+		assertEquals(loads, InMemoryMetrics.getDefault().snapshot().getLatency(WritePhase.LOAD).getCount());
+	}
+
+	@Test
+	void renderRuleEngine_PlaceholdersAreReplaced() throws Exception {
+		byte[] output = new DocxWarmUp().renderRuleEngine();
+
+		WordprocessingMLPackage doc = WordprocessingMLPackage.load(new ByteArrayInputStream(output));
+		String text = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).collect(Collectors.joining("\n"));
+		assertFalse(text.contains("${"), text);
+		assertTrue(text.contains("value "), text);
+	}
+
+	@Test
+	void warmUpAsync_FailingStep_CompletesExceptionally() {
+		DocxWarmUp objUT = new DocxWarmUp() {
+
+			@Override
+			protected void runStep(WarmUpStep step) throws DocWriterException {
+				throw new DocWriterException("expected");
+			}
+
+		};
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> objUT.warmUpAsync().get());
+		assertTrue(e.getCause() instanceof DocWriterException);
+	}
+
+	@Test
+	void getNanos_StepNotRun_Zero() {
+		assertEquals(0, new WarmUpReport(new EnumMap<>(WarmUpStep.class)).getNanos(WarmUpStep.MARKDOWN));
+	}
+
+}
@@ -2,6 +2,7 @@ package org.ingomohr.docwriter.docx;
 
 import static java.util.Objects.requireNonNull;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -14,6 +15,7 @@ import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -29,6 +31,9 @@ import org.docx4j.wml.Text;
 import org.hamcrest.CoreMatchers;
 import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
 import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.ingomohr.docwriter.metrics.InMemoryMetrics;
+import org.ingomohr.docwriter.metrics.MetricsSnapshot;
+import org.ingomohr.docwriter.metrics.WritePhase;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -61,15 +66,15 @@ class TestSimpleDocxProcessor {
 	void createDocument_DefaultDocumentWasCreated() {
 		WordprocessingMLPackage doc = mock(WordprocessingMLPackage.class);
 
-		try (MockedStatic<DocxRenderer> renderer = mockStatic(DocxRenderer.class)) {
-			renderer.when(() -> DocxRenderer.getDefaultTemplate()).thenReturn(doc);
+		try (MockedStatic<DefaultTemplate> template = mockStatic(DefaultTemplate.class)) {
+			template.when(() -> DefaultTemplate.createDocument()).thenReturn(doc);
 
 			objUT.createDocument();
 
 			assertSame(doc, objUT.getDocument());
 
-			renderer.verify(() -> DocxRenderer.getDefaultTemplate());
-			renderer.verifyNoMoreInteractions();
+			template.verify(() -> DefaultTemplate.createDocument());
+			template.verifyNoMoreInteractions();
 		}
 	}
 
@@ -269,6 +274,60 @@ class TestSimpleDocxProcessor {
 		assertContainsTextElementInMainPart(newProcessor, "Hey Joe by path");
 	}
 
+	@Test
+	void saveAssembledDocument_FragmentsWereAppended() throws Exception {
+		SimpleDocxProcessor fragmentProcessor = new SimpleDocxProcessor();
+		fragmentProcessor.createDocument();
+		fragmentProcessor.addMarkdown("Fragment content");
+		Path fragment = Paths.get(System.getProperty("java.io.tmpdir") + "/assemblyFragment.docx");
+		fragment.toFile().deleteOnExit();
+		fragmentProcessor.saveDocumentToPath(fragment);
+
+		objUT.createDocument();
+		objUT.addMarkdown("Main content");
+		int sizeBefore = objUT.getDocument().getMainDocumentPart().getContent().size();
+
+		Path path = Paths.get(System.getProperty("java.io.tmpdir") + "/saveAssembledDocument.docx");
+		path.toFile().deleteOnExit();
+
+		objUT.saveAssembledDocumentToPath(path, List.of(fragment, fragment));
+
+		assertEquals(sizeBefore, objUT.getDocument().getMainDocumentPart().getContent().size());
+
+		SimpleDocxProcessor newProcessor = new SimpleDocxProcessor();
+		newProcessor.loadDocument(path);
+
+		assertContainsTextElementInMainPart(newProcessor, "Main content");
+		List<Text> texts = newProcessor.getElements(Text.class);
+		assertEquals(2, texts.stream().filter(text -> "Fragment content".equals(text.getValue())).count());
+	}
+
+	@Test
+	void splitDocument_OneFilePerChapterWasSaved() throws Exception {
+		objUT.createDocument();
+		objUT.addHeadlineH1("First");
+		objUT.addMarkdown("First content");
+		objUT.addHeadlineH1("Second");
+		objUT.addMarkdown("Second content");
+
+		Path directory = Files.createTempDirectory("splitDocument");
+		List<Path> paths = objUT.splitDocumentToPaths(1, directory);
+
+		assertEquals(2, paths.size());
+		assertEquals("chapter-001.docx", paths.get(0).getFileName().toString());
+
+		SimpleDocxProcessor newProcessor = new SimpleDocxProcessor();
+		newProcessor.loadDocument(paths.get(1));
+		assertContainsTextElementInMainPart(newProcessor, "Second content");
+		assertEquals(0, newProcessor.getElements(Text.class).stream()
+				.filter(text -> "First content".equals(text.getValue())).count());
+
+		for (Path path : paths) {
+			Files.delete(path);
+		}
+		Files.delete(directory);
+	}
+
 	@Test
 	void saveDocument_ToFile_DocumentWasSaved() throws Exception {
 		objUT.createDocument();
@@ -286,6 +345,64 @@ class TestSimpleDocxProcessor {
 		assertContainsTextElementInMainPart(newProcessor, "Hey Joe by file");
 	}
 
+	@Test
+	void saveDocument_Deterministic_PathAndFileGiveSameBytes() throws Exception {
+		objUT.setDeterministic(true);
+		objUT.createDocument();
+		objUT.addMarkdown("Hey Joe deterministic");
+
+		Path path = Files.createTempFile("saveDocumentDeterministic", ".docx");
+		Path file = Files.createTempFile("saveDocumentDeterministic", ".docx");
+		path.toFile().deleteOnExit();
+		file.toFile().deleteOnExit();
+
+		objUT.saveDocumentToPath(path);
+		Thread.sleep(2000);
+		objUT.saveDocumentToPath(file.toFile());
+
+		assertArrayEquals(Files.readAllBytes(path), Files.readAllBytes(file));
+	}
+
+	@Test
+	void saveDocument_MetricsWereRecorded() throws Exception {
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		objUT.setMetrics(metrics);
+
+		objUT.createDocument();
+		objUT.addMarkdown("Hey Joe with metrics");
+		objUT.addToc();
+
+		Path path = Paths.get(System.getProperty("java.io.tmpdir") + "/saveDocumentWithMetrics.docx");
+		path.toFile().deleteOnExit();
+		objUT.saveDocumentToPath(path);
+		objUT.loadDocument(path);
+
+		MetricsSnapshot snapshot = metrics.snapshot();
+		assertEquals(2, snapshot.getLatency(WritePhase.LOAD).getCount());
+		assertEquals(2, snapshot.getLatency(WritePhase.MODIFY).getCount());
+		assertEquals(1, snapshot.getLatency(WritePhase.SAVE).getCount());
+		assertEquals(1, snapshot.getDocuments());
+		assertEquals(Files.size(path), snapshot.getBytesWritten());
+		assertEquals(Files.size(path), snapshot.getBytesRead());
+	}
+
+	@Test
+	void getElements_IndexIsKeptUpToDate() {
+		objUT.createDocument();
+		objUT.addMarkdown("Hey Joe");
+
+		assertEquals(0, objUT.getElements(Br.class).size());
+		int textCount = objUT.getElements(Text.class).size();
+
+		objUT.addPageBreak();
+		objUT.addMarkdown("Hey Jude");
+
+		assertEquals(1, objUT.getElements(Br.class).size());
+		assertEquals(textCount + 1, objUT.getElements(Text.class).size());
+		assertEquals(new DocxDataInspector().getAllElements(objUT.getDocument().getMainDocumentPart(), Text.class),
+				objUT.getElements(Text.class));
+	}
+
 	private SdtBlock getTocFromObjUtDocument() {
 		TocFinder tocFinder = new TocFinder();
 		tocFinder.walkJAXBElements(objUT.getDocument().getMainDocumentPart());
@@ -0,0 +1,177 @@
+package org.ingomohr.docwriter.docx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestSyntheticDocumentGenerator {
+
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{var\\.\\d+\\}");
+
+	private SyntheticDocumentGenerator objUT;
+
+	@BeforeEach
+	void prep() {
+		objUT = new SyntheticDocumentGenerator(42);
+		objUT.setParagraphCount(30);
+	}
+
+	@Test
+	void createDocument_SameSeed_SameContent() throws Exception {
+		objUT.setRunsPerParagraph(3);
+		objUT.setPlaceholderDensity(0.5);
+		objUT.setTableCount(2);
+
+		SyntheticDocumentGenerator other = new SyntheticDocumentGenerator(42);
+		other.setParagraphCount(30);
+		other.setRunsPerParagraph(3);
+		other.setPlaceholderDensity(0.5);
+		other.setTableCount(2);
+
+		assertEquals(getBodyXml(objUT.createDocument()), getBodyXml(other.createDocument()));
+		assertEquals(getBodyXml(objUT.createDocument()), getBodyXml(objUT.createDocument()));
+	}
+
+	@Test
+	void createDocument_OtherSeed_OtherContent() throws Exception {
+		SyntheticDocumentGenerator other = new SyntheticDocumentGenerator(43);
+		other.setParagraphCount(30);
+
+		assertNotEquals(getBodyXml(objUT.createDocument()), getBodyXml(other.createDocument()));
+	}
+
+	@Test
+	void createDocument_CountsMatchParameters() throws Exception {
+		objUT.setTableCount(3);
+		objUT.setTableRows(5);
+		objUT.setTableColumns(2);
+		objUT.setImageCount(2);
+
+		WordprocessingMLPackage doc = objUT.createDocument();
+
+		List<Object> contents = doc.getMainDocumentPart().getContent();
+		assertEquals(30 + 2, contents.stream().filter(P.class::isInstance).count());
+		List<Tbl> tables = contents.stream().filter(Tbl.class::isInstance).map(Tbl.class::cast)
+				.collect(Collectors.toList());
+		assertEquals(3, tables.size());
+		assertEquals(5, tables.get(0).getContent().size());
+		assertEquals(2, doc.getParts().getParts().values().stream().filter(BinaryPartAbstractImage.class::isInstance)
+				.count());
+	}
+
+	@Test
+	void createDocument_RunsPerParagraph_ParagraphsAreFragmented() throws Exception {
+		objUT.setHeadingDepth(0);
+		objUT.setRunsPerParagraph(5);
+
+		for (Object obj : objUT.createDocument().getMainDocumentPart().getContent()) {
+			assertEquals(5, new DocxDataInspector().getAllElements(obj, R.class).size());
+		}
+	}
+
+	@Test
+	void createDocument_FullPlaceholderDensity_EveryParagraphHasPlaceholder() throws Exception {
+		objUT.setHeadingDepth(0);
+		objUT.setPlaceholderDensity(1);
+
+		for (Object obj : objUT.createDocument().getMainDocumentPart().getContent()) {
+			assertTrue(PLACEHOLDER.matcher(getText(obj)).find());
+		}
+	}
+
+	@Test
+	void createDocument_NoPlaceholderDensity_NoPlaceholders() throws Exception {
+		for (Object obj : objUT.createDocument().getMainDocumentPart().getContent()) {
+			assertFalse(getText(obj).contains("${"));
+		}
+	}
+
+	@Test
+	void createDocument_HeadingDepth_EveryTenthParagraphIsHeadingUpToDepth() throws Exception {
+		objUT.setHeadingDepth(2);
+
+		List<Object> contents = objUT.createDocument().getMainDocumentPart().getContent();
+		for (int i = 0; i < contents.size(); i++) {
+			P paragraph = (P) contents.get(i);
+			if (i % 10 == 0) {
+				String style = paragraph.getPPr().getPStyle().getVal();
+				assertTrue(style.equals("Heading1") || style.equals("Heading2"), style);
+			} else {
+				assertTrue(paragraph.getPPr() == null);
+			}
+		}
+		assertEquals("Heading1", ((P) contents.get(0)).getPPr().getPStyle().getVal());
+	}
+
+	@Test
+	void createMarkdown_SameSeed_SameContent() {
+		objUT.setRunsPerParagraph(4);
+		objUT.setPlaceholderDensity(0.3);
+
+		assertEquals(objUT.createMarkdown(), objUT.createMarkdown());
+	}
+
+	@Test
+	void createMarkdown_PlaceholdersAreNeverSplit() {
+		objUT.setHeadingDepth(0);
+		objUT.setRunsPerParagraph(10);
+		objUT.setPlaceholderDensity(1);
+
+		Matcher matcher = PLACEHOLDER.matcher(objUT.createMarkdown());
+		int count = 0;
+		while (matcher.find()) {
+			count++;
+		}
+		assertEquals(30, count);
+	}
+
+	@Test
+	void createMarkdown_HasHeadingsAndTables() {
+		objUT.setTableCount(2);
+		objUT.setTableRows(3);
+		objUT.setTableColumns(2);
+
+		String markdown = objUT.createMarkdown();
+
+		assertTrue(markdown.startsWith("# "));
+		assertEquals(2, markdown.split("\\|---\\|---\\|\n", -1).length - 1);
+	}
+
+	@Test
+	void setters_InvalidValues_Throw() {
+		assertThrows(IllegalArgumentException.class, () -> objUT.setParagraphCount(-1));
+		assertThrows(IllegalArgumentException.class, () -> objUT.setRunsPerParagraph(0));
+		assertThrows(IllegalArgumentException.class, () -> objUT.setPlaceholderDensity(1.5));
+		assertThrows(IllegalArgumentException.class, () -> objUT.setTableRows(0));
+		assertThrows(IllegalArgumentException.class, () -> objUT.setHeadingDepth(10));
+		assertThrows(IllegalArgumentException.class, () -> objUT.setImageSize(0));
+	}
+
+	private static String getText(Object obj) {
+		return new DocxDataInspector().getAllElements(obj, Text.class).stream().map(Text::getValue)
+				.collect(Collectors.joining());
+	}
+
+	private static String getBodyXml(WordprocessingMLPackage doc) {
+		return XmlUtils.marshaltoString(doc.getMainDocumentPart().getJaxbElement(), true, false);
+	}
+
+}
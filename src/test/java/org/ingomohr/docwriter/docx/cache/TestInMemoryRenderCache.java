@@ -0,0 +1,80 @@
+package org.ingomohr.docwriter.docx.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestInMemoryRenderCache {
+
+	private InMemoryRenderCache objUT;
+
+	@BeforeEach
+	void prep() {
+		objUT = new InMemoryRenderCache(10);
+	}
+
+	@Test
+	void get_StoredDocument_ReturnsDocumentAndCountsHit() {
+		byte[] document = new byte[4];
+		objUT.put("a", document);
+
+		assertSame(document, objUT.get("a"));
+		assertNull(objUT.get("b"));
+
+		assertEquals(1, objUT.getHits());
+		assertEquals(1, objUT.getMisses());
+	}
+
+	@Test
+	void put_LimitExceeded_LeastRecentlyUsedAreDropped() {
+		objUT.put("a", new byte[4]);
+		objUT.put("b", new byte[4]);
+		objUT.get("a");
+
+		objUT.put("c", new byte[4]);
+
+		assertNotNull(objUT.get("a"));
+		assertNull(objUT.get("b"));
+		assertNotNull(objUT.get("c"));
+		assertEquals(8, objUT.getBytes());
+	}
+
+	@Test
+	void put_SameKey_ReplacesDocument() {
+		objUT.put("a", new byte[4]);
+		objUT.put("a", new byte[6]);
+
+		assertEquals(1, objUT.size());
+		assertEquals(6, objUT.getBytes());
+	}
+
+	@Test
+	void put_DocumentLargerThanLimit_NotStored() {
+		objUT.put("a", new byte[4]);
+		objUT.put("b", new byte[11]);
+
+		assertEquals(1, objUT.size());
+		assertNull(objUT.get("b"));
+	}
+
+	@Test
+	void clear_AllDocumentsRemoved() {
+		objUT.put("a", new byte[4]);
+
+		objUT.clear();
+
+		assertEquals(0, objUT.size());
+		assertEquals(0, objUT.getBytes());
+	}
+
+	@Test
+	void new_InvalidLimit_Throws() {
+		assertThrows(IllegalArgumentException.class, () -> new InMemoryRenderCache(0));
+	}
+
+}
@@ -0,0 +1,78 @@
+package org.ingomohr.docwriter.docx.daemon;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.ingomohr.docwriter.DocWriterException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestRenderClient {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void run_JobArguments_DocumentIsWritten() throws Exception {
+		Path tokenFile = dir.resolve("daemon.token");
+		RenderDaemon daemon = new RenderDaemon(0, 1);
+		daemon.setWarmingUp(false);
+		daemon.setTokenFile(tokenFile);
+		daemon.setOutputRoot(dir);
+		daemon.start();
+		try {
+			Path markdown = Files.writeString(dir.resolve("text.md"), "Hello ${name}");
+			Path output = dir.resolve("out.docx");
+
+			String message = RenderClient.run(new String[] { "--port", String.valueOf(daemon.getPort()),
+					"--token-file", tokenFile.toString(), "--markdown", markdown.toString(), "--set", "name=Jane",
+					output.toString() });
+
+			assertThat(message, containsString(output.toString()));
+			assertTrue(Files.size(output) > 0);
+		} finally {
+			daemon.stop();
+		}
+	}
+
+	@Test
+	void run_NoOutput_Throws() {
+		assertThrows(IllegalArgumentException.class, () -> RenderClient.run(new String[] { "--set", "a=b" }));
+	}
+
+	@Test
+	void run_InvalidArguments_Throws() {
+		assertThrows(IllegalArgumentException.class, () -> RenderClient.run(new String[] { "--unknown", "x" }));
+		assertThrows(IllegalArgumentException.class, () -> RenderClient.run(new String[] { "--set", "novalue" }));
+		assertThrows(IllegalArgumentException.class, () -> RenderClient.run(new String[] { "a.docx", "b.docx" }));
+		assertThrows(IllegalArgumentException.class, () -> RenderClient.run(new String[] { "--port" }));
+	}
+
+	@Test
+	void submit_NoDaemon_Throws() throws Exception {
+		RenderJob job = new RenderJob();
+		job.setOutput(dir.resolve("out.docx"));
+		Path tokenFile = Files.writeString(dir.resolve("daemon.token"), "token");
+
+		// Port 1 is reserved - nothing listens there.
+		DocWriterException e = assertThrows(DocWriterException.class,
+				() -> new RenderClient(1, tokenFile).submit(job));
+		assertThat(e.getMessage(), containsString("Cannot reach"));
+	}
+
+	@Test
+	void submit_NoTokenFile_Throws() {
+		RenderJob job = new RenderJob();
+		job.setOutput(dir.resolve("out.docx"));
+
+		DocWriterException e = assertThrows(DocWriterException.class,
+				() -> new RenderClient(1, dir.resolve("missing.token")).submit(job));
+		assertThat(e.getMessage(), containsString("token file"));
+	}
+
+}
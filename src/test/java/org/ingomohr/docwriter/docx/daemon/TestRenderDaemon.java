@@ -0,0 +1,261 @@
+package org.ingomohr.docwriter.docx.daemon;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.DocWriterException;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestRenderDaemon {
+
+	@TempDir
+	Path dir;
+
+	private Path template;
+
+	private Path tokenFile;
+
+	private RenderDaemon objUT;
+
+	private RenderClient client;
+
+	@BeforeEach
+	void prep() throws Exception {
+		template = dir.resolve("template.docx");
+		writeTemplate("Hello ${name}");
+
+		tokenFile = dir.resolve("daemon.token");
+		objUT = new RenderDaemon(0, 4);
+		objUT.setWarmingUp(false);
+		objUT.setTokenFile(tokenFile);
+		objUT.setOutputRoot(dir);
+		objUT.start();
+		client = new RenderClient(objUT.getPort(), tokenFile);
+	}
+
+	@AfterEach
+	void tearDown() {
+		objUT.stop();
+	}
+
+	@Test
+	void submit_TemplateWithValues_DocumentIsWritten() throws Exception {
+		RenderJob job = createJob("out.docx", "Jane");
+
+		client.submit(job);
+
+		assertEquals("Hello Jane", getText(job.getOutput()));
+	}
+
+	@Test
+	void submit_Markdown_MarkdownIsAppended() throws Exception {
+		RenderJob job = createJob("out.docx", "Jane");
+		job.setMarkdown("# Chapter\n\nSome text");
+
+		client.submit(job);
+
+		assertEquals("Hello JaneChapterSome text", getText(job.getOutput()));
+	}
+
+	@Test
+	void submit_NoTemplate_DefaultTemplateIsUsed() throws Exception {
+		RenderJob job = new RenderJob();
+		job.setOutput(dir.resolve("out.docx"));
+		job.setMarkdown("Just markdown");
+
+		client.submit(job);
+
+		assertThat(getText(job.getOutput()), containsString("Just markdown"));
+	}
+
+	@Test
+	void submit_ConcurrentJobs_AllDocumentsAreWritten() throws Exception {
+		List<RenderJob> jobs = new ArrayList<>();
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			RenderJob job = createJob("out" + i + ".docx", "Person " + i);
+			job.setMarkdown("Text " + i);
+			jobs.add(job);
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return client.submit(job);
+				} catch (DocWriterException e) {
+					throw new CompletionException(e);
+				}
+			}));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(2, TimeUnit.MINUTES);
+
+		for (int i = 0; i < jobs.size(); i++) {
+			assertEquals("Hello Person " + i + "Text " + i, getText(jobs.get(i).getOutput()));
+		}
+	}
+
+	@Test
+	void submit_TemplateModified_ModifiedTemplateIsUsedAfterReload() throws Exception {
+		client.submit(createJob("first.docx", "Jane"));
+
+		writeTemplate("Goodbye ${name}");
+
+		// The template is reloaded in the background.
+		RenderJob job = createJob("second.docx", "Jane");
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		do {
+			Thread.sleep(100);
+			client.submit(job);
+		} while (!"Goodbye Jane".equals(getText(job.getOutput())) && System.nanoTime() < deadline);
+
+		assertEquals("Goodbye Jane", getText(job.getOutput()));
+	}
+
+	@Test
+	void submit_MissingTemplate_ThrowsWithMessageOfDaemon() throws Exception {
+		RenderJob job = createJob("out.docx", "Jane");
+		job.setTemplate(dir.resolve("missing.docx"));
+
+		DocWriterException e = assertThrows(DocWriterException.class, () -> client.submit(job));
+
+		assertThat(e.getMessage(), containsString("missing.docx"));
+		assertTrue(Files.notExists(job.getOutput()));
+	}
+
+	@Test
+	void shutdownDaemon_DaemonStops() throws Exception {
+		client.shutdownDaemon();
+
+		objUT.awaitStop();
+		assertThrows(DocWriterException.class, () -> client.submit(createJob("out.docx", "Jane")));
+	}
+
+	@Test
+	void submit_WrongToken_IsRejected() throws Exception {
+		Path otherTokenFile = Files.writeString(dir.resolve("other.token"), "wrong");
+		RenderJob job = createJob("out.docx", "Jane");
+
+		DocWriterException e = assertThrows(DocWriterException.class,
+				() -> new RenderClient(objUT.getPort(), otherTokenFile).submit(job));
+
+		assertThat(e.getMessage(), containsString("token"));
+		assertTrue(Files.notExists(job.getOutput()));
+	}
+
+	@Test
+	void submit_OutputOutsideOfRoot_IsRejected() throws Exception {
+		RenderJob job = createJob("out.docx", "Jane");
+		job.setOutput(dir.resolve("sub").resolve("..").resolve("..").resolve("escaped.docx"));
+
+		DocWriterException e = assertThrows(DocWriterException.class, () -> client.submit(job));
+
+		assertThat(e.getMessage(), containsString("not below"));
+		assertTrue(Files.notExists(job.getOutput().normalize()));
+	}
+
+	@Test
+	void post_RequestFromBrowser_IsRejected() throws Exception {
+		HttpRequest request = createRequest("/render", "text/plain").header("Origin", "http://example.com")
+				.POST(HttpRequest.BodyPublishers.ofString(createJobBody())).build();
+
+		assertEquals(403, send(request).statusCode());
+		assertTrue(Files.notExists(dir.resolve("out.docx")));
+	}
+
+	@Test
+	void post_FormBody_IsRejected() throws Exception {
+		HttpRequest request = createRequest("/render", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(createJobBody())).build();
+
+		assertEquals(415, send(request).statusCode());
+		assertTrue(Files.notExists(dir.resolve("out.docx")));
+	}
+
+	@Test
+	void post_ShutdownWithoutToken_IsRejected() throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + objUT.getPort() + "/shutdown"))
+				.header("Content-Type", "text/plain").POST(HttpRequest.BodyPublishers.noBody()).build();
+
+		assertEquals(401, send(request).statusCode());
+		client.submit(createJob("out.docx", "Jane"));
+	}
+
+	@Test
+	void start_TokenFileIsOnlyReadableByOwner() throws Exception {
+		assumeTrue(tokenFile.getFileSystem().supportedFileAttributeViews().contains("posix"));
+
+		assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(tokenFile));
+		assertFalse(Files.readString(tokenFile).isBlank());
+	}
+
+	@Test
+	void stop_TokenFileIsDeleted() {
+		objUT.stop();
+
+		assertTrue(Files.notExists(tokenFile));
+	}
+
+	@Test
+	void start_Twice_Throws() {
+		assertThrows(IllegalStateException.class, () -> objUT.start());
+	}
+
+	private RenderJob createJob(String output, String name) {
+		RenderJob job = new RenderJob();
+		job.setTemplate(template);
+		job.setOutput(dir.resolve(output));
+		job.getValues().put("name", name);
+		return job;
+	}
+
+	private HttpRequest.Builder createRequest(String path, String contentType) throws Exception {
+		return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + objUT.getPort() + path))
+				.header(RenderDaemon.TOKEN_HEADER, Files.readString(tokenFile)).header("Content-Type", contentType);
+	}
+
+	private String createJobBody() throws Exception {
+		StringWriter body = new StringWriter();
+		createJob("out.docx", "Jane").toProperties().store(body, null);
+		return body.toString();
+	}
+
+	private static HttpResponse<String> send(HttpRequest request) throws Exception {
+		return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private void writeTemplate(String text) throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText(text);
+		doc.save(template.toFile());
+	}
+
+	private static String getText(Path document) throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.load(document.toFile());
+		return new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).collect(Collectors.joining());
+	}
+
+}
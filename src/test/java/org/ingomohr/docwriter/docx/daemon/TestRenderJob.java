@@ -0,0 +1,64 @@
+package org.ingomohr.docwriter.docx.daemon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+class TestRenderJob {
+
+	@Test
+	void toProperties_FromProperties_RoundTrip() throws Exception {
+		RenderJob job = new RenderJob();
+		job.setTemplate(Paths.get("/templates/letter.docx"));
+		job.setOutput(Paths.get("/out/letter.docx"));
+		job.setMarkdown("# Title\n\nÄrger über €");
+		job.getValues().put("name", "Jane Doe");
+		job.getValues().put("city", "Zürich");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		job.toProperties().store(bytes, null);
+		Properties properties = new Properties();
+		properties.load(new ByteArrayInputStream(bytes.toByteArray()));
+		RenderJob copy = RenderJob.fromProperties(properties);
+
+		assertEquals(job.getTemplate(), copy.getTemplate());
+		assertEquals(job.getOutput(), copy.getOutput());
+		assertEquals(job.getMarkdown(), copy.getMarkdown());
+		assertEquals(Map.of("name", "Jane Doe", "city", "Zürich"), copy.getValues());
+	}
+
+	@Test
+	void fromProperties_OnlyOutput_DefaultsForTheRest() {
+		Properties properties = new Properties();
+		properties.setProperty("output", "out.docx");
+
+		RenderJob job = RenderJob.fromProperties(properties);
+
+		assertEquals(Paths.get("out.docx"), job.getOutput());
+		assertNull(job.getTemplate());
+		assertNull(job.getMarkdown());
+		assertEquals(Map.of(), job.getValues());
+	}
+
+	@Test
+	void fromProperties_NoOutput_Throws() {
+		Properties properties = new Properties();
+		properties.setProperty("template", "letter.docx");
+
+		assertThrows(IllegalArgumentException.class, () -> RenderJob.fromProperties(properties));
+	}
+
+	@Test
+	void toProperties_NoOutput_Throws() {
+		assertThrows(IllegalStateException.class, () -> new RenderJob().toProperties());
+	}
+
+}
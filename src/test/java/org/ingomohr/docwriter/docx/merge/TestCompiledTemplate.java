@@ -0,0 +1,149 @@
+package org.ingomohr.docwriter.docx.merge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPrBase;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestCompiledTemplate {
+
+	private CompiledTemplate objUT;
+
+	@BeforeEach
+	void prep() throws Exception {
+		WordprocessingMLPackage template = WordprocessingMLPackage.createPackage();
+		template.getMainDocumentPart().addParagraphOfText("Dear ${name},");
+		template.getMainDocumentPart().addParagraphOfText("you owe ${amount} to ${name}. ${unknown}");
+
+		objUT = CompiledTemplate.compile(template);
+	}
+
+	@Test
+	void getVariableNames_InOrderOfFirstOccurrence() {
+		assertEquals(new LinkedHashSet<>(Arrays.asList("name", "amount", "unknown")), objUT.getVariableNames());
+	}
+
+	@Test
+	void fill_VariablesAreReplaced() throws Exception {
+		Map<String, Object> values = new HashMap<>();
+		values.put("name", "Jane");
+		values.put("amount", 42);
+
+		assertEquals("Dear Jane,you owe 42 to Jane. ${unknown}", fill(values));
+	}
+
+	@Test
+	void fill_ValuesAreEscaped() throws Exception {
+		Map<String, Object> values = new HashMap<>();
+		values.put("name", "<Jane & \"John\">");
+		values.put("amount", "$1");
+
+		assertEquals("Dear <Jane & \"John\">,you owe $1 to <Jane & \"John\">. ${unknown}", fill(values));
+	}
+
+	@Test
+	void fill_InvalidXmlCharacters_AreDropped() throws Exception {
+		Map<String, Object> values = new HashMap<>();
+		values.put("name", "Ja\u0001ne\u0007");
+		values.put("amount", "\ud800 42 \ud83d\ude00");
+
+		assertEquals("Dear Jane,you owe  42 \ud83d\ude00 to Jane. ${unknown}", fill(values));
+	}
+
+	@Test
+	void fill_ValueWithOuterSpaces_SpacesArePreserved() throws Exception {
+		WordprocessingMLPackage template = WordprocessingMLPackage.createPackage();
+		template.getMainDocumentPart().addParagraphOfText("${name}");
+		objUT = CompiledTemplate.compile(template);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		objUT.fill(Map.of("name", " Jane "), out);
+
+		WordprocessingMLPackage doc = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+		Text text = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).get(0);
+		assertEquals(" Jane ", text.getValue());
+		assertEquals("preserve", text.getSpace());
+	}
+
+	@Test
+	void fill_VariableInAttribute_IsNotReplaced() throws Exception {
+		WordprocessingMLPackage template = WordprocessingMLPackage.createPackage();
+		P paragraph = template.getMainDocumentPart().addParagraphOfText("Dear ${name}");
+		ObjectFactory factory = new ObjectFactory();
+		PPrBase.PStyle style = factory.createPPrBasePStyle();
+		style.setVal("${name}");
+		paragraph.setPPr(factory.createPPr());
+		paragraph.getPPr().setPStyle(style);
+		objUT = CompiledTemplate.compile(template);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		objUT.fill(Map.of("name", "\"Jane\""), out);
+
+		WordprocessingMLPackage doc = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals("Dear \"Jane\"", getText(out));
+		assertEquals("${name}", new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), P.class).get(0)
+				.getPPr().getPStyle().getVal());
+	}
+
+	@Test
+	void fill_Pojo_GettersAreUsed() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		objUT.fill(new Debt("Jane", 7), out);
+
+		assertEquals("Dear Jane,you owe 7 to Jane. ${unknown}", getText(out));
+	}
+
+	@Test
+	void fill_SeveralTimes_SameResult() throws Exception {
+		Map<String, Object> values = Map.of("name", "Jane", "amount", 1);
+
+		assertEquals(fill(values), fill(values));
+	}
+
+	private String fill(Map<String, ?> values) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		objUT.fill(values, out);
+		return getText(out);
+	}
+
+	private static String getText(ByteArrayOutputStream out) throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+		return new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).collect(Collectors.joining());
+	}
+
+	public static class Debt {
+
+		private final String name;
+		private final int amount;
+
+		public Debt(String name, int amount) {
+			this.name = name;
+			this.amount = amount;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getAmount() {
+			return amount;
+		}
+
+	}
+
+}
@@ -0,0 +1,222 @@
+package org.ingomohr.docwriter.docx.merge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestMailMergeEngine {
+
+	private Map<Long, ByteArrayOutputStream> outputs;
+
+	private MailMergeEngine objUT;
+
+	@BeforeEach
+	void prep() throws Exception {
+		WordprocessingMLPackage template = WordprocessingMLPackage.createPackage();
+		template.getMainDocumentPart().addParagraphOfText("Hello ${name}");
+
+		outputs = new ConcurrentHashMap<>();
+		objUT = new MailMergeEngine(template);
+		objUT.setWorkerCount(2);
+	}
+
+	@Test
+	void merge_MapRecords_VariablesAreFilled() throws Exception {
+		List<Map<String, Object>> records = List.of(Map.of("name", "Jane"), Map.of("name", "John"));
+
+		MergeReport report = objUT.merge(records.iterator(), this::open);
+
+		assertTrue(report.isSuccessful());
+		assertEquals(2, report.getSucceededCount());
+		assertEquals("Hello Jane", getText(0));
+		assertEquals("Hello John", getText(1));
+	}
+
+	@Test
+	void createDocument_DocumentsAreIndependent() throws Exception {
+		WordprocessingMLPackage first = objUT.createDocument();
+		first.getMainDocumentPart().addParagraphOfText("Added");
+
+		WordprocessingMLPackage second = objUT.createDocument();
+
+		assertEquals(2, first.getMainDocumentPart().getContent().size());
+		assertEquals(1, second.getMainDocumentPart().getContent().size());
+	}
+
+	@Test
+	void merge_PojoRecords_VariablesAreFilled() throws Exception {
+		MergeReport report = objUT.merge(List.of(new Person("Jane")).stream(), this::open);
+
+		assertTrue(report.isSuccessful());
+		assertEquals("Hello Jane", getText(0));
+	}
+
+	@Test
+	void merge_FailingRecord_OtherRecordsAreWritten() throws Exception {
+		List<Map<String, Object>> records = IntStream.range(0, 5).mapToObj(i -> Map.<String, Object>of("name", i))
+				.collect(Collectors.toList());
+
+		MergeReport report = objUT.merge(records.iterator(), (record, index) -> {
+			if (index == 2) {
+				throw new IOException("disk full");
+			}
+			return open(record, index);
+		});
+
+		assertFalse(report.isSuccessful());
+		assertEquals(4, report.getSucceededCount());
+		assertEquals(1, report.getFailures().size());
+		assertEquals(2, report.getFailures().get(0).getIndex());
+		assertEquals("disk full", report.getFailures().get(0).getCause().getMessage());
+		assertEquals("Hello 4", getText(4));
+	}
+
+	@Test
+	void merge_RecordFailsWithError_FailureIsReported() throws Exception {
+		List<Map<String, Object>> records = IntStream.range(0, 3).mapToObj(i -> Map.<String, Object>of("name", i))
+				.collect(Collectors.toList());
+
+		MergeReport report = objUT.merge(records.iterator(), (record, index) -> {
+			if (index == 1) {
+				throw new AssertionError("broken");
+			}
+			return open(record, index);
+		});
+
+		assertEquals(2, report.getSucceededCount());
+		assertEquals(1, report.getFailures().size());
+		assertEquals("broken", report.getFailures().get(0).getCause().getMessage());
+	}
+
+	@Test
+	void merge_RecordsThrow_WorkersAreStopped() throws Exception {
+		Iterator<Map<String, Object>> records = new Iterator<>() {
+
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				if (next == 2) {
+					throw new IllegalStateException("connection lost");
+				}
+				return true;
+			}
+
+			@Override
+			public Map<String, Object> next() {
+				return Map.of("name", next++);
+			}
+		};
+
+		IllegalStateException e = assertThrows(IllegalStateException.class,
+				() -> objUT.merge(records, this::open));
+		assertEquals("connection lost", e.getMessage());
+
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (hasMergeThreads() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertFalse(hasMergeThreads());
+	}
+
+	private static boolean hasMergeThreads() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.anyMatch(thread -> thread.isAlive() && thread.getName().startsWith("docwriter-merge-"));
+	}
+
+	@Test
+	void merge_MaxInFlight_IsNotExceeded() throws Exception {
+		objUT.setWorkerCount(4);
+		objUT.setMaxInFlight(2);
+
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxSeen = new AtomicInteger();
+
+		List<Object> records = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			records.add(Map.of("name", i));
+		}
+
+		Iterator<Object> source = records.iterator();
+		Iterator<Object> counting = new Iterator<>() {
+
+			@Override
+			public boolean hasNext() {
+				return source.hasNext();
+			}
+
+			@Override
+			public Object next() {
+				maxSeen.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				return source.next();
+			}
+		};
+
+		MergeReport report = objUT.merge(counting, (record, index) -> {
+			ByteArrayOutputStream out = open(record, index);
+			inFlight.decrementAndGet();
+			return out;
+		});
+
+		assertEquals(10, report.getSucceededCount());
+		assertTrue(maxSeen.get() <= 2, "max in flight: " + maxSeen.get());
+	}
+
+	@Test
+	void merge_MarkdownField_MarkdownIsAppended() throws Exception {
+		objUT.setMarkdownField("body");
+
+		MergeReport report = objUT.merge(List.of(Map.of("name", "Jane", "body", "Some text")).iterator(),
+				this::open);
+
+		assertTrue(report.isSuccessful());
+		assertEquals("Hello JaneSome text", getText(0));
+	}
+
+	private ByteArrayOutputStream open(Object record, long index) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		outputs.put(index, out);
+		return out;
+	}
+
+	private String getText(long index) throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage
+				.load(new ByteArrayInputStream(outputs.get(index).toByteArray()));
+		return new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).collect(Collectors.joining());
+	}
+
+	public static class Person {
+
+		private final String name;
+
+		public Person(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+	}
+
+}
@@ -0,0 +1,213 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.CTMarkupRange;
+import org.docx4j.wml.FldChar;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.STFldCharType;
+import org.docx4j.wml.SdtBlock;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestConditionalSectionRule {
+
+	private final ObjectFactory factory = new ObjectFactory();
+
+	private WordprocessingMLPackage doc;
+
+	@BeforeEach
+	void prep() throws Exception {
+		doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("Intro");
+		doc.getMainDocumentPart().addParagraphOfText("${?a}");
+		doc.getMainDocumentPart().addParagraphOfText("A1");
+		doc.getMainDocumentPart().addParagraphOfText("${?b}");
+		doc.getMainDocumentPart().addParagraphOfText("B1");
+		doc.getMainDocumentPart().addParagraphOfText("${/?b}");
+		doc.getMainDocumentPart().addParagraphOfText("A2");
+		doc.getMainDocumentPart().addParagraphOfText("${/?a}");
+		doc.getMainDocumentPart().addParagraphOfText("${?c}");
+		doc.getMainDocumentPart().addParagraphOfText("C1");
+		doc.getMainDocumentPart().addParagraphOfText("${/?c}");
+		doc.getMainDocumentPart().addParagraphOfText("Outro");
+	}
+
+	@Test
+	void apply_AllKept_OnlyMarkersAreRemoved() {
+		new ConditionalSectionRule(name -> true).apply(doc);
+
+		assertEquals(Arrays.asList("Intro", "A1", "B1", "A2", "C1", "Outro"), getParagraphTexts());
+	}
+
+	@Test
+	void apply_MissingFlag_SectionIsRemoved() {
+		new ConditionalSectionRule(Map.of("a", true, "b", true)).apply(doc);
+
+		assertEquals(Arrays.asList("Intro", "A1", "B1", "A2", "Outro"), getParagraphTexts());
+	}
+
+	@Test
+	void apply_InnerSectionRemoved_OuterSectionIsKept() {
+		new ConditionalSectionRule(Map.of("a", true, "b", false, "c", true)).apply(doc);
+
+		assertEquals(Arrays.asList("Intro", "A1", "A2", "C1", "Outro"), getParagraphTexts());
+	}
+
+	@Test
+	void apply_OuterSectionRemoved_InnerSectionIsRemovedToo() {
+		new ConditionalSectionRule(Map.of("a", false, "b", true, "c", true)).apply(doc);
+
+		assertEquals(Arrays.asList("Intro", "C1", "Outro"), getParagraphTexts());
+	}
+
+	@Test
+	void apply_UnclosedSection_ThrowsAndDocumentIsUnchanged() throws Exception {
+		doc.getMainDocumentPart().addParagraphOfText("${?d}");
+
+		ConditionalSectionRule objUT = new ConditionalSectionRule(name -> false);
+		assertThrows(IllegalStateException.class, () -> objUT.apply(doc));
+		assertEquals(13, getParagraphTexts().size());
+	}
+
+	@Test
+	void apply_EndOfOtherSection_Throws() throws Exception {
+		doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("${?a}");
+		doc.getMainDocumentPart().addParagraphOfText("${/?b}");
+
+		ConditionalSectionRule objUT = new ConditionalSectionRule(name -> false);
+		assertThrows(IllegalStateException.class, () -> objUT.apply(doc));
+	}
+
+	@Test
+	void apply_BookmarkCutByRemovedSection_OtherHalfIsRemoved() {
+		List<Object> contents = doc.getMainDocumentPart().getContent();
+		// Bookmark 1 starts in section c and ends in the outro.
+		((P) contents.get(9)).getContent().add(0, factory.createPBookmarkStart(createBookmark(1, "_Toc1")));
+		((P) contents.get(11)).getContent().add(factory.createPBookmarkEnd(createBookmarkEnd(1)));
+		// Bookmark 2 starts in the intro and ends in section c.
+		((P) contents.get(0)).getContent().add(0, factory.createPBookmarkStart(createBookmark(2, "_Toc2")));
+		((P) contents.get(9)).getContent().add(factory.createPBookmarkEnd(createBookmarkEnd(2)));
+		// Bookmark 3 is in the intro only.
+		((P) contents.get(0)).getContent().add(0, factory.createPBookmarkStart(createBookmark(3, "_Toc3")));
+		((P) contents.get(0)).getContent().add(factory.createPBookmarkEnd(createBookmarkEnd(3)));
+
+		new ConditionalSectionRule(Map.of("a", true, "b", true)).apply(doc);
+
+		List<CTBookmark> starts = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), CTBookmark.class);
+		assertEquals(Arrays.asList("_Toc3"), starts.stream().map(CTBookmark::getName).collect(Collectors.toList()));
+		List<CTMarkupRange> ends = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(),
+				CTMarkupRange.class);
+		assertEquals(Arrays.asList(BigInteger.valueOf(3)),
+				ends.stream().map(CTMarkupRange::getId).collect(Collectors.toList()));
+	}
+
+	@Test
+	void apply_TocEntryForRemovedHeading_IsRemoved() {
+		List<Object> contents = doc.getMainDocumentPart().getContent();
+		((P) contents.get(4)).getContent().add(0, factory.createPBookmarkStart(createBookmark(1, "_TocB")));
+		((P) contents.get(4)).getContent().add(factory.createPBookmarkEnd(createBookmarkEnd(1)));
+		((P) contents.get(9)).getContent().add(0, factory.createPBookmarkStart(createBookmark(2, "_TocC")));
+		((P) contents.get(9)).getContent().add(factory.createPBookmarkEnd(createBookmarkEnd(2)));
+
+		contents.add(0, createHyperlinkEntry("Entry B", "_TocB"));
+		contents.add(1, createPageRefEntry("Entry C", "_TocC"));
+		contents.add(2, createPageRefEntry("Entry X", "_TocX"));
+
+		new ConditionalSectionRule(Map.of("a", true, "b", true)).apply(doc);
+
+		assertEquals(Arrays.asList("Entry B", "Entry X", "Intro", "A1", "B1", "A2", "Outro"), getParagraphTexts());
+	}
+
+	@Test
+	void apply_FirstTocEntryRemoved_TocFieldIsKept() throws Exception {
+		doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("${?a}");
+		doc.getMainDocumentPart().addStyledParagraphOfText("Heading1", "A");
+		doc.getMainDocumentPart().addParagraphOfText("${/?a}");
+		doc.getMainDocumentPart().addStyledParagraphOfText("Heading1", "B");
+		SdtBlock toc = new TocBuilder().insertToc(doc, 0);
+
+		new ConditionalSectionRule(name -> false).apply(doc);
+
+		List<STFldCharType> fldChars = new DocxDataInspector().getAllElements(toc, FldChar.class).stream()
+				.map(FldChar::getFldCharType).collect(Collectors.toList());
+		assertEquals(Arrays.asList(STFldCharType.BEGIN, STFldCharType.SEPARATE, STFldCharType.END), fldChars);
+
+		List<String> texts = new DocxDataInspector().getAllElements(toc, Text.class).stream().map(Text::getValue)
+				.map(String::trim).collect(Collectors.toList());
+		assertEquals(Arrays.asList(TocBuilder.DEFAULT_HEADING_TEXT, TocBuilder.DEFAULT_TOC_SWITCHES, "B"), texts);
+	}
+
+	private P createHyperlinkEntry(String text, String anchor) {
+		P.Hyperlink hyperlink = factory.createPHyperlink();
+		hyperlink.setAnchor(anchor);
+		hyperlink.getContent().add(createRun(text));
+
+		P paragraph = factory.createP();
+		paragraph.getContent().add(hyperlink);
+		return paragraph;
+	}
+
+	private P createPageRefEntry(String text, String bookmarkName) {
+		Text instr = factory.createText();
+		instr.setValue(" PAGEREF " + bookmarkName + " \\h ");
+		R instrRun = factory.createR();
+		instrRun.getContent().add(factory.createRInstrText(instr));
+
+		P paragraph = factory.createP();
+		paragraph.getContent().add(createRun(text));
+		paragraph.getContent().add(instrRun);
+		return paragraph;
+	}
+
+	private R createRun(String value) {
+		Text text = factory.createText();
+		text.setValue(value);
+		R run = factory.createR();
+		run.getContent().add(text);
+		return run;
+	}
+
+	private CTBookmark createBookmark(int id, String name) {
+		CTBookmark bookmark = factory.createCTBookmark();
+		bookmark.setId(BigInteger.valueOf(id));
+		bookmark.setName(name);
+		return bookmark;
+	}
+
+	private CTMarkupRange createBookmarkEnd(int id) {
+		CTMarkupRange range = factory.createCTMarkupRange();
+		range.setId(BigInteger.valueOf(id));
+		return range;
+	}
+
+	private List<String> getParagraphTexts() {
+		return doc.getMainDocumentPart().getContent().stream().map(XmlUtils::unwrap).filter(P.class::isInstance)
+				.map(p -> {
+					StringBuilder builder = new StringBuilder();
+					for (Text text : new DocxDataInspector().getAllElements(p, Text.class)) {
+						if (!text.getValue().contains("PAGEREF")) {
+							builder.append(text.getValue());
+						}
+					}
+					return builder.toString();
+				}).collect(Collectors.toList());
+	}
+
+}
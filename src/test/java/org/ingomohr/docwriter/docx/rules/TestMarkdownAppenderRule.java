@@ -1,12 +1,18 @@
 package org.ingomohr.docwriter.docx.rules;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.mock;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.vladsch.flexmark.util.data.MutableDataSet;
+
 class TestMarkdownAppenderRule {
 
 	private MarkdownAppenderRule objUT;
@@ -42,4 +48,52 @@ class TestMarkdownAppenderRule {
 		assertEquals("Hello 42", objUT.getNewValue());
 	}
 
+	@Test
+	void getNewValue_DuringWrite_SupplierIsCalledOnce() {
+		AtomicInteger calls = new AtomicInteger();
+		objUT.setValueSupplier(() -> "Hello " + calls.incrementAndGet());
+
+		objUT.beginWrite();
+		try {
+			assertEquals("Hello 1", objUT.getCacheKey());
+			assertEquals("Hello 1", objUT.getNewValue());
+		} finally {
+			objUT.endWrite();
+		}
+
+		assertEquals("Hello 2", objUT.getNewValue());
+	}
+
+	@Test
+	void getCacheKey_Subclass_ReturnsNull() {
+		objUT = new MarkdownAppenderRule(() -> "Hello") {
+
+			@Override
+			public void apply(Object object) {
+			}
+
+		};
+
+		assertNull(objUT.getCacheKey());
+		assertEquals("Hello", new MarkdownAppenderRule(() -> "Hello").getCacheKey());
+	}
+
+	@Test
+	void getParserAndRenderer_CalledTwice_BuiltOnceFromOptions() {
+		AtomicInteger optionsCreated = new AtomicInteger();
+		objUT = new MarkdownAppenderRule() {
+
+			@Override
+			protected MutableDataSet createOptions() {
+				optionsCreated.incrementAndGet();
+				return super.createOptions();
+			}
+
+		};
+
+		assertSame(objUT.getParser(), objUT.getParser());
+		assertSame(objUT.getRenderer(), objUT.getRenderer());
+		assertEquals(1, optionsCreated.get());
+	}
+
 }
@@ -0,0 +1,214 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.CTMarkupRange;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.BodyIndex;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestRepeatingSectionRule {
+
+	private WordprocessingMLPackage doc;
+
+	@BeforeEach
+	void prep() throws Exception {
+		doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("Dear ${customer},");
+		doc.getMainDocumentPart().addParagraphOfText("${#items}");
+		doc.getMainDocumentPart().addParagraphOfText("Item: ${name}");
+		doc.getMainDocumentPart().addParagraphOfText("Price: ${price} (${customer})");
+		doc.getMainDocumentPart().addParagraphOfText("${/items}");
+		doc.getMainDocumentPart().addParagraphOfText("Bye");
+	}
+
+	@Test
+	void apply_SectionIsRepeatedPerItem() {
+		List<Map<String, Object>> items = Arrays.asList(Map.of("name", "Apple", "price", 1),
+				Map.of("name", "Pear", "price", 2));
+
+		new RepeatingSectionRule("items", items).apply(doc);
+
+		assertEquals(Arrays.asList("Dear ${customer},", "Item: Apple", "Price: 1 (${customer})", "Item: Pear",
+				"Price: 2 (${customer})", "Bye"), getParagraphTexts());
+	}
+
+	@Test
+	void apply_PojoItems_GettersAreUsed() {
+		new RepeatingSectionRule("items", Arrays.asList(new Item("Plum", "3"))).apply(doc);
+
+		assertEquals(Arrays.asList("Dear ${customer},", "Item: Plum", "Price: 3 (${customer})", "Bye"),
+				getParagraphTexts());
+	}
+
+	@Test
+	void apply_NoItems_SectionIsRemoved() {
+		new RepeatingSectionRule("items", Collections.emptyList()).apply(doc);
+
+		assertEquals(Arrays.asList("Dear ${customer},", "Bye"), getParagraphTexts());
+	}
+
+	@Test
+	void apply_NoMarkers_NothingChanges() {
+		new RepeatingSectionRule("other", Arrays.asList(Map.of("name", "x"))).apply(doc);
+
+		assertEquals(6, getParagraphTexts().size());
+	}
+
+	@Test
+	void apply_EndBeforeStart_Throws() throws Exception {
+		doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("${/items}");
+		doc.getMainDocumentPart().addParagraphOfText("${#items}");
+
+		RepeatingSectionRule objUT = new RepeatingSectionRule("items", Collections.emptyList());
+		assertThrows(IllegalStateException.class, () -> objUT.apply(doc));
+	}
+
+	@Test
+	void apply_CopiesShareProperties() {
+		P original = (P) XmlUtils.unwrap(doc.getMainDocumentPart().getContent().get(2));
+		original.setPPr(new PPr());
+
+		new RepeatingSectionRule("items", Arrays.asList(Map.of(), Map.of())).apply(doc);
+
+		P first = (P) doc.getMainDocumentPart().getContent().get(1);
+		P second = (P) doc.getMainDocumentPart().getContent().get(3);
+		assertNotSame(first, second);
+		assertSame(original.getPPr(), first.getPPr());
+		assertSame(original.getPPr(), second.getPPr());
+	}
+
+	@Test
+	void apply_VariableAndBookmarkInHyperlink_AreHandledPerCopy() {
+		ObjectFactory factory = new ObjectFactory();
+		P paragraph = (P) XmlUtils.unwrap(doc.getMainDocumentPart().getContent().get(2));
+		P.Hyperlink hyperlink = factory.createPHyperlink();
+		hyperlink.setAnchor("_Toc100");
+		hyperlink.getContent().addAll(paragraph.getContent());
+		CTBookmark start = factory.createCTBookmark();
+		start.setId(BigInteger.valueOf(7));
+		start.setName("_Toc200");
+		CTMarkupRange end = factory.createCTMarkupRange();
+		end.setId(BigInteger.valueOf(7));
+		hyperlink.getContent().add(0, factory.createPBookmarkStart(start));
+		hyperlink.getContent().add(factory.createPBookmarkEnd(end));
+		paragraph.getContent().clear();
+		paragraph.getContent().add(factory.createPHyperlink(hyperlink));
+
+		new RepeatingSectionRule("items", Arrays.asList(Map.of("name", "Apple"), Map.of("name", "Pear"))).apply(doc);
+
+		assertEquals(Arrays.asList("Dear ${customer},", "Item: Apple", "Price: ${price} (${customer})", "Item: Pear",
+				"Price: ${price} (${customer})", "Bye"), getParagraphTexts());
+		List<CTBookmark> starts = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(),
+				CTBookmark.class);
+		assertEquals(Arrays.asList("_Toc200", "_Toc200_2"),
+				starts.stream().map(CTBookmark::getName).collect(Collectors.toList()));
+		P.Hyperlink copy = (P.Hyperlink) XmlUtils
+				.unwrap(((P) doc.getMainDocumentPart().getContent().get(3)).getContent().get(0));
+		assertEquals("_Toc100", copy.getAnchor());
+	}
+
+	@Test
+	void apply_SharedBodyIndex_IsInvalidated() {
+		BodyIndex index = new BodyIndex(doc.getMainDocumentPart().getContent());
+		RepeatingSectionRule objUT = new RepeatingSectionRule("items", Arrays.asList(Map.of("name", "Fig")));
+		objUT.setBodyIndex(index);
+
+		objUT.apply(doc);
+
+		assertEquals(3, index.indexOfParagraph("Bye"));
+		assertEquals(1, index.indexOfParagraph("Item: Fig"));
+	}
+
+	@Test
+	void apply_BookmarkedHeading_BookmarksAreUniquePerCopy() {
+		ObjectFactory factory = new ObjectFactory();
+		P heading = (P) XmlUtils.unwrap(doc.getMainDocumentPart().getContent().get(2));
+		CTBookmark start = factory.createCTBookmark();
+		start.setId(BigInteger.valueOf(7));
+		start.setName("_Toc100");
+		CTMarkupRange end = factory.createCTMarkupRange();
+		end.setId(BigInteger.valueOf(7));
+		heading.getContent().add(0, factory.createPBookmarkStart(start));
+		heading.getContent().add(factory.createPBookmarkEnd(end));
+
+		new RepeatingSectionRule("items", Arrays.asList(Map.of(), Map.of(), Map.of())).apply(doc);
+
+		DocxDataInspector inspector = new DocxDataInspector();
+		List<CTBookmark> starts = inspector.getAllElements(doc.getMainDocumentPart(), CTBookmark.class);
+		List<CTMarkupRange> ends = inspector.getAllElements(doc.getMainDocumentPart(), CTMarkupRange.class);
+		assertEquals(Arrays.asList("_Toc100", "_Toc100_2", "_Toc100_3"),
+				starts.stream().map(CTBookmark::getName).collect(Collectors.toList()));
+		assertEquals(Arrays.asList(BigInteger.valueOf(7), BigInteger.valueOf(8), BigInteger.valueOf(9)),
+				starts.stream().map(CTBookmark::getId).collect(Collectors.toList()));
+		assertEquals(starts.stream().map(CTBookmark::getId).collect(Collectors.toList()),
+				ends.stream().map(CTMarkupRange::getId).collect(Collectors.toList()));
+	}
+
+	@Test
+	void apply_BookmarkCutBySection_IsNotRepeated() {
+		ObjectFactory factory = new ObjectFactory();
+		P inside = (P) XmlUtils.unwrap(doc.getMainDocumentPart().getContent().get(2));
+		CTBookmark start = factory.createCTBookmark();
+		start.setId(BigInteger.ONE);
+		start.setName("cut");
+		inside.getContent().add(0, factory.createPBookmarkStart(start));
+		P outside = (P) XmlUtils.unwrap(doc.getMainDocumentPart().getContent().get(5));
+		CTMarkupRange end = factory.createCTMarkupRange();
+		end.setId(BigInteger.ONE);
+		outside.getContent().add(factory.createPBookmarkEnd(end));
+
+		new RepeatingSectionRule("items", Arrays.asList(Map.of(), Map.of())).apply(doc);
+
+		List<CTBookmark> starts = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(),
+				CTBookmark.class);
+		assertEquals(1, starts.size());
+	}
+
+	private List<String> getParagraphTexts() {
+		return doc.getMainDocumentPart().getContent().stream()
+				.map(p -> new DocxDataInspector().getAllElements(p, Text.class).stream().map(Text::getValue)
+						.collect(Collectors.joining()))
+				.collect(Collectors.toList());
+	}
+
+	public static class Item {
+
+		private final String name;
+		private final String price;
+
+		public Item(String name, String price) {
+			this.name = name;
+			this.price = price;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getPrice() {
+			return price;
+		}
+
+	}
+
+}
@@ -0,0 +1,73 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestRunNormalizationRule {
+
+	private RunNormalizationRule objUT;
+
+	@BeforeEach
+	void prep() {
+		objUT = new RunNormalizationRule();
+	}
+
+	@Test
+	void appliesTo() {
+		assertEquals(false, objUT.appliesTo(null));
+		assertEquals(false, objUT.appliesTo("wrong-type"));
+		assertEquals(true, objUT.appliesTo(mock(WordprocessingMLPackage.class)));
+	}
+
+	@Test
+	void apply_SplitVariable_CanBeReplaced() throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		P paragraph = new ObjectFactory().createP();
+		paragraph.getContent().add(createRun("Dear ${na"));
+		paragraph.getContent().add(new ObjectFactory().createProofErr());
+		paragraph.getContent().add(createRun("me}"));
+		doc.getMainDocumentPart().getContent().add(paragraph);
+
+		objUT.apply(doc);
+
+		DocxDataInspector inspector = new DocxDataInspector();
+		VariableReplacementRule replacement = new VariableReplacementRule(Map.of("name", "Jane"));
+		for (Text text : inspector.getAllElements(doc.getMainDocumentPart(), Text.class)) {
+			if (replacement.appliesTo(text)) {
+				replacement.apply(text);
+			}
+		}
+
+		List<String> texts = inspector.getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.map(Text::getValue).collect(Collectors.toList());
+		assertEquals(List.of("Dear Jane"), texts);
+	}
+
+	@Test
+	void getCacheKey_IsConstant() {
+		assertEquals(objUT.getCacheKey(), new RunNormalizationRule().getCacheKey());
+	}
+
+	private static R createRun(String value) {
+		ObjectFactory factory = new ObjectFactory();
+		R run = factory.createR();
+		Text text = factory.createText();
+		text.setValue(value);
+		run.getContent().add(factory.createRT(text));
+		return run;
+	}
+
+}
@@ -0,0 +1,159 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
+import org.ingomohr.docwriter.docx.AbstractRuleBasedDocxWriter;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestTableRule {
+
+	private static final List<TableColumn> COLUMNS = Arrays.asList(new TableColumn("Name", 3000),
+			new TableColumn("Amount", 1500));
+
+	private WordprocessingMLPackage doc;
+
+	@BeforeEach
+	void prep() throws Exception {
+		doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("Before");
+		doc.getMainDocumentPart().addParagraphOfText("${table}");
+		doc.getMainDocumentPart().addParagraphOfText("After");
+	}
+
+	@Test
+	void apply_PlaceholderIsReplacedWithTable() {
+		TableRule objUT = new TableRule("${table}", COLUMNS, createRows(3));
+
+		objUT.apply(doc);
+
+		List<Object> contents = doc.getMainDocumentPart().getContent();
+		assertEquals(3, contents.size());
+		assertTrue(XmlUtils.unwrap(contents.get(1)) instanceof Tbl);
+
+		List<Tr> rows = new DocxDataInspector().getAllElements(contents.get(1), Tr.class);
+		assertEquals(4, rows.size());
+		assertEquals(Arrays.asList("Name", "Amount", "name0", "0", "name1", "1", "name2", "2"),
+				getTexts(contents.get(1)));
+	}
+
+	@Test
+	void apply_NoPlaceholder_TableIsAppended() {
+		TableRule objUT = new TableRule(null, COLUMNS, createRows(1));
+
+		objUT.apply(doc);
+
+		List<Object> contents = doc.getMainDocumentPart().getContent();
+		assertEquals(4, contents.size());
+		assertTrue(XmlUtils.unwrap(contents.get(3)) instanceof Tbl);
+	}
+
+	@Test
+	void apply_RowsShareTemplateProperties() {
+		TableRule objUT = new TableRule("${table}", COLUMNS, createRows(2));
+
+		objUT.apply(doc);
+
+		List<Tc> cells = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Tc.class);
+		// header (2 cells), row 1 (2 cells), row 2 (2 cells)
+		assertSame(cells.get(2).getTcPr(), cells.get(4).getTcPr());
+		assertSame(cells.get(3).getTcPr(), cells.get(5).getTcPr());
+	}
+
+	@Test
+	void writeRows_StreamingRows_SameTableAsWithoutStreaming() throws Exception {
+		TableRule objUT = new TableRule("${table}", COLUMNS, createRows(100));
+		objUT.setStreamingRows(true);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		createWriter(objUT).write(null, out);
+
+		WordprocessingMLPackage result = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+		List<Object> contents = result.getMainDocumentPart().getContent();
+		assertEquals(3, contents.size());
+		assertEquals("Before", getTexts(contents.get(0)).get(0));
+
+		List<String> texts = getTexts(contents.get(1));
+		assertEquals(202, texts.size());
+		assertEquals("name99", texts.get(200));
+		assertEquals("99", texts.get(201));
+		assertEquals("After", getTexts(contents.get(2)).get(0));
+	}
+
+	@Test
+	void writeRows_ValuesAreEscaped() throws Exception {
+		TableRule objUT = new TableRule("${table}", COLUMNS,
+				Arrays.<List<?>>asList(Arrays.asList("<a & b>", null)).iterator());
+		objUT.setStreamingRows(true);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		createWriter(objUT).write(null, out);
+
+		WordprocessingMLPackage result = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+		List<String> texts = getTexts(result.getMainDocumentPart().getContent().get(1));
+		assertEquals(Arrays.asList("Name", "Amount", "<a & b>", ""), texts);
+	}
+
+	@Test
+	void writeRows_TwoStreamingTablesWithPrefixMarkers_BothAreWritten() throws Exception {
+		doc.getMainDocumentPart().addParagraphOfText("${table2}");
+
+		TableRule first = new TableRule("${table2}", COLUMNS, createRows(2), "DOCWRITER-ROWS-1");
+		TableRule second = new TableRule("${table}", COLUMNS, createRows(3), "DOCWRITER-ROWS-10");
+		first.setStreamingRows(true);
+		second.setStreamingRows(true);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		createWriter(first, second).write(null, out);
+
+		WordprocessingMLPackage result = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+		List<Object> contents = result.getMainDocumentPart().getContent();
+		assertEquals(4, contents.size());
+		assertEquals(Arrays.asList("Name", "Amount", "name0", "0", "name1", "1", "name2", "2"),
+				getTexts(contents.get(1)));
+		assertEquals("After", getTexts(contents.get(2)).get(0));
+		assertEquals(Arrays.asList("Name", "Amount", "name0", "0", "name1", "1"), getTexts(contents.get(3)));
+	}
+
+	private AbstractRuleBasedDocxWriter createWriter(TableRule... rules) {
+		return new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(rules);
+			}
+
+			@Override
+			protected WordprocessingMLPackage createDefaultDocument() {
+				return doc;
+			}
+		};
+	}
+
+	private static Iterator<List<?>> createRows(int count) {
+		return IntStream.range(0, count).<List<?>>mapToObj(i -> Arrays.asList("name" + i, i)).iterator();
+	}
+
+	private static List<String> getTexts(Object element) {
+		return new DocxDataInspector().getAllElements(element, Text.class).stream().map(Text::getValue)
+				.collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,180 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.P;
+import org.docx4j.wml.SdtBlock;
+import org.docx4j.wml.Text;
+import org.hamcrest.CoreMatchers;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vladsch.flexmark.docx.converter.DocxRenderer;
+
+class TestTocBuilder {
+
+	private TocBuilder objUT;
+
+	@BeforeEach
+	void prep() {
+		objUT = new TocBuilder();
+	}
+
+	@Test
+	void defaultConstructor() {
+		assertEquals("Table of Contents", objUT.getHeadingText());
+		assertEquals("TOC \\o \"1-3\" \\n 1-3 \\h \\z \\u", objUT.getTocSwitches());
+		assertEquals(true, objUT.isSkippingPageNumbering());
+	}
+
+	@Test
+	void insertToc_EntryPerHeadingInLevelRange() {
+		WordprocessingMLPackage doc = createDocWithHeadings();
+
+		SdtBlock toc = objUT.insertToc(doc, 0);
+
+		List<Object> contents = new DocxDataInspector().getContents(doc);
+		assertSame(toc, contents.get(0));
+		assertTrue(TocBuilder.isToc(toc));
+
+		List<String> entryStyles = getEntryStyles(toc);
+		assertEquals(List.of("TOC1", "TOC2", "TOC3"), entryStyles);
+	}
+
+	@Test
+	void insertToc_IndexOutOfRange_TocIsAppended() {
+		WordprocessingMLPackage doc = createDocWithHeadings();
+		int size = new DocxDataInspector().getContents(doc).size();
+
+		SdtBlock toc = objUT.insertToc(doc, -1);
+
+		List<Object> contents = new DocxDataInspector().getContents(doc);
+		assertEquals(size + 1, contents.size());
+		assertSame(toc, contents.get(size));
+	}
+
+	@Test
+	void insertToc_HeadingsGetBookmarks() {
+		WordprocessingMLPackage doc = createDocWithHeadings();
+
+		objUT.insertToc(doc, 0);
+
+		List<CTBookmark> bookmarks = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(),
+				CTBookmark.class);
+		List<String> names = bookmarks.stream().map(CTBookmark::getName).collect(Collectors.toList());
+		assertEquals(3, names.stream().filter(name -> name.startsWith("_Toc")).distinct().count());
+	}
+
+	@Test
+	void insertToc_HeadingTextPerInstance() {
+		WordprocessingMLPackage doc1 = createDocWithHeadings();
+		WordprocessingMLPackage doc2 = createDocWithHeadings();
+
+		SdtBlock toc1 = new TocBuilder("Contents A", TocBuilder.DEFAULT_TOC_SWITCHES, true).insertToc(doc1, 0);
+		SdtBlock toc2 = new TocBuilder("Contents B", TocBuilder.DEFAULT_TOC_SWITCHES, true).insertToc(doc2, 0);
+
+		assertThat(getTexts(toc1), CoreMatchers.hasItem("Contents A"));
+		assertThat(getTexts(toc2), CoreMatchers.hasItem("Contents B"));
+		assertFalse(getTexts(toc1).contains("Contents B"));
+	}
+
+	@Test
+	void insertToc_NoHeadingText_TocHasNoHeading() {
+		WordprocessingMLPackage doc = createDocWithHeadings();
+
+		SdtBlock toc = new TocBuilder(null, TocBuilder.DEFAULT_TOC_SWITCHES, true).insertToc(doc, 0);
+
+		assertFalse(getTexts(toc).contains("Table of Contents"));
+	}
+
+	@Test
+	void updateToc_NoToc_ReturnsNull() {
+		WordprocessingMLPackage doc = createDocWithHeadings();
+
+		assertNull(objUT.updateToc(doc));
+	}
+
+	@Test
+	void updateToc_NewHeadingsAreListed() {
+		WordprocessingMLPackage doc = createDocWithHeadings();
+		SdtBlock toc = objUT.insertToc(doc, 0);
+
+		new MarkdownAppenderRule(() -> "# Appendix").apply(doc);
+
+		SdtBlock updated = objUT.updateToc(doc);
+
+		assertSame(toc, updated);
+		assertEquals(List.of("TOC1", "TOC2", "TOC3", "TOC1"), getEntryStyles(updated));
+		assertThat(getTexts(updated), CoreMatchers.hasItem("Appendix"));
+		assertThat(getTexts(updated), CoreMatchers.hasItem("Table of Contents"));
+	}
+
+	@Test
+	void insertToc_ConcurrentBuildsWithDifferentHeadings() throws Exception {
+		final int count = 16;
+
+		List<WordprocessingMLPackage> docs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			docs.add(createDocWithHeadings());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<SdtBlock>> futures = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				final WordprocessingMLPackage doc = docs.get(i);
+				final String heading = "Contents " + i;
+				futures.add(executor.submit(
+						() -> new TocBuilder(heading, TocBuilder.DEFAULT_TOC_SWITCHES, true).insertToc(doc, 0)));
+			}
+
+			for (int i = 0; i < count; i++) {
+				SdtBlock toc = futures.get(i).get();
+				assertNotNull(toc);
+				assertThat(getTexts(toc), CoreMatchers.hasItem("Contents " + i));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private WordprocessingMLPackage createDocWithHeadings() {
+		final WordprocessingMLPackage doc = DocxRenderer.getDefaultTemplate();
+
+		new MarkdownAppenderRule(() -> "# H1").apply(doc);
+		new MarkdownAppenderRule(() -> "Some text").apply(doc);
+		new MarkdownAppenderRule(() -> "## H2").apply(doc);
+		new MarkdownAppenderRule(() -> "### H3").apply(doc);
+		new MarkdownAppenderRule(() -> "#### H4").apply(doc);
+		return doc;
+	}
+
+	private List<String> getEntryStyles(SdtBlock toc) {
+		return toc.getSdtContent().getContent().stream().filter(obj -> obj instanceof P).map(obj -> (P) obj)
+				.filter(p -> p.getPPr() != null && p.getPPr().getPStyle() != null)
+				.map(p -> p.getPPr().getPStyle().getVal()).filter(style -> style.matches("TOC[1-9]"))
+				.collect(Collectors.toList());
+	}
+
+	private List<String> getTexts(SdtBlock toc) {
+		return new DocxDataInspector().getAllElements(toc, Text.class).stream().map(Text::getValue)
+				.collect(Collectors.toList());
+	}
+
+}
@@ -9,6 +9,7 @@ import java.util.List;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.wml.P;
 import org.docx4j.wml.SdtBlock;
+import org.docx4j.wml.Text;
 import org.ingomohr.docwriter.docx.util.DocxDataInspector;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -107,4 +108,35 @@ class TestTocInsertionRule {
 		assertTrue(contents.get(size1) instanceof SdtBlock);
 	}
 
+	@Test
+	void apply_WithPageNumbers_EntriesHavePageReferences() {
+		final WordprocessingMLPackage doc = DocxRenderer.getDefaultTemplate();
+		new MarkdownAppenderRule(() -> "# H1").apply(doc);
+		new MarkdownAppenderRule(() -> "## H2").apply(doc);
+
+		objUT.setTocSwitches("TOC \\o \"1-3\" \\h \\z \\u");
+		objUT.setSkippingPageNumbering(false);
+		objUT.apply(doc);
+
+		assertEquals(false, objUT.isSkippingPageNumbering());
+		assertEquals(2, countPageReferences(doc));
+	}
+
+	@Test
+	void apply_DefaultSettings_EntriesHaveNoPageReferences() {
+		final WordprocessingMLPackage doc = DocxRenderer.getDefaultTemplate();
+		new MarkdownAppenderRule(() -> "# H1").apply(doc);
+
+		objUT.setSkippingPageNumbering(false);
+		objUT.apply(doc);
+
+		// The default switches omit the page numbers of all levels.
+		assertEquals(0, countPageReferences(doc));
+	}
+
+	static long countPageReferences(WordprocessingMLPackage doc) {
+		return new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class).stream()
+				.filter(text -> text.getValue() != null && text.getValue().contains("PAGEREF")).count();
+	}
+
 }
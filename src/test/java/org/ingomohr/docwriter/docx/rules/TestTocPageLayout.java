@@ -0,0 +1,117 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.Br;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.STBrType;
+import org.docx4j.wml.SdtBlock;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestTocPageLayout {
+
+	private TocPageLayout objUT;
+
+	@BeforeEach
+	void prep() {
+		objUT = new TocPageLayout();
+	}
+
+	@Test
+	void getShared_ReturnsSameInstance() {
+		assertSame(TocPageLayout.getShared(), TocPageLayout.getShared());
+	}
+
+	@Test
+	void computePageNumbers_PageBreak_NextParagraphOnNextPage() throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		MainDocumentPart mdp = doc.getMainDocumentPart();
+
+		P first = mdp.addStyledParagraphOfText("Heading1", "First");
+		addPageBreak(mdp.addParagraphOfText("Some text"));
+		P second = mdp.addStyledParagraphOfText("Heading1", "Second");
+
+		Map<P, Integer> pageNumbers = objUT.computePageNumbers(doc, List.of(first, second));
+
+		assertEquals(1, pageNumbers.get(first));
+		assertEquals(2, pageNumbers.get(second));
+	}
+
+	@Test
+	void computePageNumbers_LongText_FlowsToFollowingPages() throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		MainDocumentPart mdp = doc.getMainDocumentPart();
+
+		P first = mdp.addStyledParagraphOfText("Heading1", "First");
+		for (int i = 0; i < 200; i++) {
+			mdp.addParagraphOfText("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.");
+		}
+		P last = mdp.addStyledParagraphOfText("Heading1", "Last");
+
+		Map<P, Integer> pageNumbers = objUT.computePageNumbers(doc, List.of(first, last));
+
+		assertEquals(1, pageNumbers.get(first));
+		assertTrue(pageNumbers.get(last) > 2);
+	}
+
+	@Test
+	void computePageNumbers_UnknownParagraph_NotContained() throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		P unknown = new P();
+
+		Map<P, Integer> pageNumbers = objUT.computePageNumbers(doc, List.of(unknown));
+
+		assertNull(pageNumbers.get(unknown));
+	}
+
+	@Test
+	void insertToc_NotSkippingPageNumbering_PageNumbersAreFilledIn() throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		MainDocumentPart mdp = doc.getMainDocumentPart();
+
+		mdp.addStyledParagraphOfText("Heading1", "First");
+		addPageBreak(mdp.addParagraphOfText("Some text"));
+		mdp.addStyledParagraphOfText("Heading1", "Second");
+
+		SdtBlock toc = new TocBuilder(null, "TOC \\o \"1-3\"", false, objUT).insertToc(doc, 0);
+
+		List<String> texts = new DocxDataInspector().getAllElements(toc, Text.class).stream().map(Text::getValue)
+				.collect(Collectors.toList());
+		assertEquals(List.of(" TOC \\o \"1-3\" ", "First", " PAGEREF _Toc1 \\h ", "1", "Second",
+				" PAGEREF _Toc2 \\h ", "2"), texts);
+	}
+
+	@Test
+	void insertToc_NoPageLayout_PageNumbersAreLeftEmpty() throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addStyledParagraphOfText("Heading1", "First");
+
+		SdtBlock toc = new TocBuilder(null, "TOC \\o \"1-3\"", false, null).insertToc(doc, 0);
+
+		List<String> texts = new DocxDataInspector().getAllElements(toc, Text.class).stream().map(Text::getValue)
+				.collect(Collectors.toList());
+		assertEquals(List.of(" TOC \\o \"1-3\" ", "First", " PAGEREF _Toc1 \\h ", ""), texts);
+	}
+
+	private static void addPageBreak(P p) {
+		Br br = new Br();
+		br.setType(STBrType.PAGE);
+		R run = new R();
+		run.getContent().add(br);
+		p.getContent().add(run);
+	}
+
+}
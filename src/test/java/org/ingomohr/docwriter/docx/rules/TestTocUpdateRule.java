@@ -71,4 +71,20 @@ class TestTocUpdateRule {
 
 	}
 
+	@Test
+	void apply_WithPageNumbers_EntriesHavePageReferences() {
+		final WordprocessingMLPackage doc = DocxRenderer.getDefaultTemplate();
+		TocInsertionRule insertionRule = new TocInsertionRule();
+		insertionRule.setTocSwitches("TOC \\o \"1-3\" \\h \\z \\u");
+		insertionRule.apply(doc);
+		new MarkdownAppenderRule(() -> "# H1").apply(doc);
+		new MarkdownAppenderRule(() -> "## H2").apply(doc);
+
+		objUT.setSkippingPageNumbering(false);
+		objUT.apply(doc);
+
+		assertEquals(false, objUT.isSkippingPageNumbering());
+		assertEquals(2, TestTocInsertionRule.countPageReferences(doc));
+	}
+
 }
@@ -0,0 +1,141 @@
+package org.ingomohr.docwriter.docx.rules;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.docx4j.wml.Text;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestVariableReplacementRule {
+
+	private Map<String, Object> values;
+
+	private VariableReplacementRule objUT;
+
+	@BeforeEach
+	void prep() {
+		values = new HashMap<>();
+		values.put("name", "Jane");
+		values.put("amount", 42);
+		values.put("price", "$1.50 \\ unit");
+
+		objUT = new VariableReplacementRule(values);
+	}
+
+	@Test
+	void appliesTo_TextWithVariable_ReturnsTrue() {
+		assertTrue(objUT.appliesTo(mkText("Hello ${name}")));
+	}
+
+	@Test
+	void getCacheKey_SameValuesInOtherOrder_SameKey() {
+		Map<String, Object> other = new LinkedHashMap<>();
+		other.put("price", "$1.50 \\ unit");
+		other.put("amount", 42);
+		other.put("name", "Jane");
+
+		assertEquals(objUT.getCacheKey(), new VariableReplacementRule(other).getCacheKey());
+
+		other.put("name", "John");
+		assertNotEquals(objUT.getCacheKey(), new VariableReplacementRule(other).getCacheKey());
+	}
+
+	@Test
+	void apply_DuringWrite_ValuesAreConvertedOnce() {
+		AtomicInteger conversions = new AtomicInteger();
+		values.put("count", new Object() {
+
+			@Override
+			public String toString() {
+				return String.valueOf(conversions.incrementAndGet());
+			}
+
+		});
+		Text first = mkText("${count}");
+		Text second = mkText("${count}");
+
+		objUT.beginWrite();
+		try {
+			objUT.getCacheKey();
+			objUT.apply(first);
+			objUT.apply(second);
+		} finally {
+			objUT.endWrite();
+		}
+
+		assertEquals(1, conversions.get());
+		assertEquals("1", first.getValue());
+		assertEquals("1", second.getValue());
+	}
+
+	@Test
+	void apply_ValueAddedDuringWrite_IsNotReplaced() {
+		Text text = mkText("${name} ${late}");
+
+		objUT.beginWrite();
+		try {
+			values.put("late", "value");
+			objUT.apply(text);
+		} finally {
+			objUT.endWrite();
+		}
+
+		assertEquals("Jane ${late}", text.getValue());
+	}
+
+	@Test
+	void getCacheKey_Subclass_ReturnsNull() {
+		objUT = new VariableReplacementRule(values) {
+		};
+
+		assertNull(objUT.getCacheKey());
+	}
+
+	@Test
+	void appliesTo_TextWithoutVariable_ReturnsFalse() {
+		assertFalse(objUT.appliesTo(mkText("Hello name")));
+		assertFalse(objUT.appliesTo(new Text()));
+	}
+
+	@Test
+	void appliesTo_WrongObjectType_ReturnsFalse() {
+		assertFalse(objUT.appliesTo("${name}"));
+	}
+
+	@Test
+	void apply_AllVariablesAreReplaced() {
+		Text text = mkText("Dear ${name}, you owe ${amount}.");
+		objUT.apply(text);
+		assertEquals("Dear Jane, you owe 42.", text.getValue());
+	}
+
+	@Test
+	void apply_ValuesAreInsertedLiterally() {
+		Text text = mkText("Price: ${price}");
+		objUT.apply(text);
+		assertEquals("Price: $1.50 \\ unit", text.getValue());
+	}
+
+	@Test
+	void apply_UnknownVariable_IsLeftUntouched() {
+		Text text = mkText("${unknown} and ${name}");
+		objUT.apply(text);
+		assertEquals("${unknown} and Jane", text.getValue());
+	}
+
+	private static Text mkText(String value) {
+		Text text = new Text();
+		text.setValue(value);
+		return text;
+	}
+
+}
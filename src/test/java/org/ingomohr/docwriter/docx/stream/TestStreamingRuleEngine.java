@@ -0,0 +1,78 @@
+package org.ingomohr.docwriter.docx.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Text;
+import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
+import org.ingomohr.docwriter.docx.rules.RegexReplacementRule;
+import org.ingomohr.docwriter.docx.rules.VariableReplacementRule;
+import org.ingomohr.docwriter.docx.util.DocxDataInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestStreamingRuleEngine {
+
+	private byte[] input;
+
+	@BeforeEach
+	void prep() throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		doc.getMainDocumentPart().addParagraphOfText("Dear ${name},");
+		doc.getMainDocumentPart().addParagraphOfText("PLACEHOLDER");
+		doc.getMainDocumentPart().addParagraphOfText("<unchanged> & more");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		doc.save(out);
+		input = out.toByteArray();
+	}
+
+	@Test
+	void apply_TextRulesAreApplied() throws Exception {
+		StreamingRuleEngine objUT = new StreamingRuleEngine(
+				Arrays.asList(new VariableReplacementRule(Map.of("name", "Jane & John")),
+						new RegexReplacementRule("PLACEHOLDER", () -> " replaced ")));
+
+		List<Text> texts = apply(objUT);
+
+		assertEquals(3, texts.size());
+		assertEquals("Dear Jane & John,", texts.get(0).getValue());
+		assertEquals(" replaced ", texts.get(1).getValue());
+		assertEquals("preserve", texts.get(1).getSpace());
+		assertEquals("<unchanged> & more", texts.get(2).getValue());
+	}
+
+	@Test
+	void apply_NoRules_DocumentIsUnchanged() throws Exception {
+		List<Text> texts = apply(new StreamingRuleEngine(Collections.emptyList()));
+
+		assertEquals(Arrays.asList("Dear ${name},", "PLACEHOLDER", "<unchanged> & more"),
+				texts.stream().map(Text::getValue).collect(Collectors.toList()));
+	}
+
+	@Test
+	void new_RuleNeedsTree_Throws() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> new StreamingRuleEngine(Arrays.asList(new MarkdownAppenderRule(() -> "x"))));
+		assertTrue(e.getMessage().contains("streaming mode"));
+	}
+
+	private List<Text> apply(StreamingRuleEngine objUT) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		objUT.apply(new ByteArrayInputStream(input), out);
+
+		WordprocessingMLPackage doc = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+		return new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class);
+	}
+
+}
@@ -0,0 +1,118 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.docx4j.jaxb.Context;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Text;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestBodyIndex {
+
+	private List<Object> contents;
+
+	private BodyIndex objUT;
+
+	@BeforeEach
+	void prep() {
+		contents = new ArrayList<>();
+		objUT = new BodyIndex(contents);
+	}
+
+	@Test
+	void indexOfParagraph_SingleRun() {
+		contents.add(createP("Hello"));
+		contents.add(createP("$(toc)"));
+
+		assertEquals(1, objUT.indexOfParagraph("$(toc)"));
+	}
+
+	@Test
+	void indexOfParagraph_TextSplitIntoRuns() {
+		contents.add(createP("$(", "toc", ")"));
+
+		assertEquals(0, objUT.indexOfParagraph("$(toc)"));
+	}
+
+	@Test
+	void indexOfParagraph_FirstOfSeveralMatches() {
+		contents.add(createP("a", "b"));
+		contents.add(createP("ab"));
+		contents.add(createP("a", "b"));
+
+		assertEquals(0, objUT.indexOfParagraph("ab"));
+	}
+
+	@Test
+	void indexOfParagraph_OnlyPrefixMatches_NotFound() {
+		contents.add(createP("$(toc)", " and more"));
+		contents.add(new Tbl());
+
+		assertEquals(-1, objUT.indexOfParagraph("$(toc)"));
+	}
+
+	@Test
+	void indexOfParagraph_ContentsModified_IndexIsRebuilt() {
+		contents.add(createP("Hello"));
+		assertEquals(-1, objUT.indexOfParagraph("$(toc)"));
+
+		contents.add(0, createP("$(toc)"));
+
+		assertEquals(0, objUT.indexOfParagraph("$(toc)"));
+	}
+
+	@Test
+	void indexOfParagraph_ReplacedInPlaceAndInvalidated_IndexIsRebuilt() {
+		contents.add(createP("Hello"));
+		assertEquals(-1, objUT.indexOfParagraph("$(toc)"));
+
+		contents.set(0, createP("$(toc)"));
+		objUT.invalidate();
+
+		assertEquals(0, objUT.indexOfParagraph("$(toc)"));
+	}
+
+	@Test
+	void indexOfBookmark() {
+		ObjectFactory factory = Context.getWmlObjectFactory();
+		P p = createP("Heading");
+		CTBookmark bookmark = factory.createCTBookmark();
+		bookmark.setName("anchor");
+		p.getContent().add(0, factory.createPBookmarkStart(bookmark));
+
+		contents.add(createP("Hello"));
+		contents.add(p);
+
+		assertEquals(1, objUT.indexOfBookmark("anchor"));
+		assertEquals(-1, objUT.indexOfBookmark("other"));
+	}
+
+	@Test
+	void getText() {
+		assertEquals("Hello World", BodyIndex.getText(createP("Hello", " ", "World")));
+		assertNull(BodyIndex.getText(new Tbl()));
+	}
+
+	private static P createP(String... values) {
+		ObjectFactory factory = Context.getWmlObjectFactory();
+		P p = factory.createP();
+		for (String value : values) {
+			Text text = factory.createText();
+			text.setValue(value);
+			R run = factory.createR();
+			run.getContent().add(factory.createRT(text));
+			p.getContent().add(run);
+		}
+		return p;
+	}
+
+}
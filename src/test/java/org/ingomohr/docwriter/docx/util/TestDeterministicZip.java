@@ -0,0 +1,80 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+class TestDeterministicZip {
+
+	@Test
+	void rewrite_DifferentTimesAndOrder_SameBytes() throws Exception {
+		byte[] first = createZip(LocalDateTime.of(2020, 5, 1, 10, 0), "b.xml", "a.xml");
+		byte[] second = createZip(LocalDateTime.of(2024, 2, 3, 4, 5), "a.xml", "b.xml");
+
+		assertArrayEquals(rewrite(first), rewrite(second));
+	}
+
+	@Test
+	void rewrite_EntriesAreSortedWithFixedTimeAndContent() throws Exception {
+		byte[] zip = rewrite(createZip(LocalDateTime.of(2020, 5, 1, 10, 0), "word/b.xml", "[Content_Types].xml"));
+
+		List<String> names = new ArrayList<>();
+		try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+			for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+				names.add(entry.getName());
+				assertEquals(DeterministicZip.ENTRY_TIME, entry.getTimeLocal());
+				assertNull(entry.getExtra());
+				assertEquals(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+		assertEquals(Arrays.asList("[Content_Types].xml", "word/b.xml"), names);
+	}
+
+	@Test
+	void rewrite_TargetIsNotClosed() throws Exception {
+		ByteArrayOutputStream target = new ByteArrayOutputStream() {
+
+			@Override
+			public void close() {
+				throw new AssertionError("closed");
+			}
+
+		};
+
+		DeterministicZip.rewrite(createZip(LocalDateTime.of(2020, 5, 1, 10, 0), "a.xml"), target);
+	}
+
+	private static byte[] rewrite(byte[] zip) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DeterministicZip.rewrite(zip, out);
+		return out.toByteArray();
+	}
+
+	private static byte[] createZip(LocalDateTime time, String... names) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+			for (String name : names) {
+				ZipEntry entry = new ZipEntry(name);
+				entry.setTimeLocal(time);
+				out.putNextEntry(entry);
+				out.write(name.getBytes(StandardCharsets.UTF_8));
+				out.closeEntry();
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+}
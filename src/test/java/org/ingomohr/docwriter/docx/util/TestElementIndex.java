@@ -0,0 +1,122 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.docx4j.jaxb.Context;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Text;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestElementIndex {
+
+	private Body body;
+
+	private ElementIndex objUT;
+
+	@BeforeEach
+	void prep() {
+		body = Context.getWmlObjectFactory().createBody();
+		body.getContent().add(createP("a", "b"));
+		body.getContent().add(Context.getWmlObjectFactory().createTbl());
+		body.getContent().add(createP("c"));
+
+		objUT = new ElementIndex(body);
+	}
+
+	@Test
+	void getElements_SameResultAsDataInspector() {
+		DocxDataInspector inspector = new DocxDataInspector();
+
+		assertEquals(inspector.getAllElements(body, Text.class), objUT.getElements(Text.class));
+		assertEquals(inspector.getAllElements(body, P.class), objUT.getElements(P.class));
+		assertEquals(inspector.getAllElements(body, Tbl.class), objUT.getElements(Tbl.class));
+		assertEquals(inspector.getAllElements(body, Object.class), objUT.getElements(Object.class));
+		assertEquals(inspector.getAllElements(body, Body.class), objUT.getElements(Body.class));
+	}
+
+	@Test
+	void getElements_DocumentOrder() {
+		List<Text> texts = objUT.getElements(Text.class);
+
+		assertEquals(3, texts.size());
+		assertEquals("a", texts.get(0).getValue());
+		assertEquals("c", texts.get(2).getValue());
+	}
+
+	@Test
+	void getElements_UnknownType_Empty() {
+		assertTrue(objUT.getElements(String.class).isEmpty());
+	}
+
+	@Test
+	void elementsAppended_SubtreeIsIndexed() {
+		assertEquals(3, objUT.getElements(Text.class).size());
+
+		P p = createP("d");
+		body.getContent().add(p);
+		objUT.elementsAppended(p);
+
+		assertEquals(4, objUT.getElements(Text.class).size());
+		assertEquals("d", objUT.getElements(Text.class).get(3).getValue());
+		assertSame(p, objUT.getElements(P.class).get(2));
+	}
+
+	@Test
+	void elementsAppended_EarlierResultIsUnchanged() {
+		List<Text> texts = objUT.getElements(Text.class);
+		Iterator<Text> iterator = texts.iterator();
+		iterator.next();
+
+		P p = createP("d");
+		body.getContent().add(p);
+		objUT.elementsAppended(p);
+
+		assertEquals(3, texts.size());
+		assertEquals("b", iterator.next().getValue());
+	}
+
+	@Test
+	void elementsRemoved_SubtreeIsRemoved() {
+		assertEquals(3, objUT.getElements(Text.class).size());
+
+		Object first = body.getContent().remove(0);
+		objUT.elementsRemoved(first);
+
+		assertEquals(1, objUT.getElements(Text.class).size());
+		assertEquals(1, objUT.getElements(P.class).size());
+	}
+
+	@Test
+	void invalidate_IndexIsRebuilt() {
+		assertEquals(3, objUT.getElements(Text.class).size());
+
+		body.getContent().clear();
+		objUT.invalidate();
+
+		assertTrue(objUT.getElements(Text.class).isEmpty());
+	}
+
+	private static P createP(String... values) {
+		ObjectFactory factory = Context.getWmlObjectFactory();
+		P p = factory.createP();
+		for (String value : values) {
+			Text text = factory.createText();
+			text.setValue(value);
+			R run = factory.createR();
+			run.getContent().add(factory.createRT(text));
+			p.getContent().add(run);
+		}
+		return p;
+	}
+
+}
@@ -0,0 +1,137 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.docx4j.jaxb.Context;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Text;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestElementSpliterator {
+
+	private Body body;
+
+	@BeforeEach
+	void prep() {
+		body = Context.getWmlObjectFactory().createBody();
+		for (int i = 0; i < 100; i++) {
+			body.getContent().add(createP("text" + i, "more" + i));
+		}
+	}
+
+	@Test
+	void streamElements_SameResultAsGetAllElements() {
+		body.getContent().add(Context.getWmlObjectFactory().createTbl());
+		DocxDataInspector inspector = new DocxDataInspector();
+
+		assertEquals(inspector.getAllElements(body, Text.class),
+				inspector.streamElements(body, Text.class).collect(Collectors.toList()));
+		assertEquals(inspector.getAllElements(body, P.class),
+				inspector.streamElements(body, P.class).collect(Collectors.toList()));
+		assertEquals(inspector.getAllElements(body, Tbl.class),
+				inspector.streamElements(body, Tbl.class).collect(Collectors.toList()));
+		assertEquals(inspector.getAllElements(body, Object.class),
+				inspector.streamElements(body, Object.class).collect(Collectors.toList()));
+	}
+
+	@Test
+	void tryAdvance_StopsAtFirstMatch() {
+		AtomicInteger visitedBlocks = new AtomicInteger();
+
+		List<Object> counting = new ArrayList<Object>(body.getContent()) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Object get(int index) {
+				visitedBlocks.incrementAndGet();
+				return super.get(index);
+			}
+		};
+
+		ElementSpliterator<Text> objUT = new ElementSpliterator<>(new ListHolder(counting), Text.class);
+		objUT.tryAdvance(text -> assertEquals("text0", text.getValue()));
+
+		assertEquals(1, visitedBlocks.get());
+	}
+
+	@Test
+	void trySplit_SplitsAtBlocks_KeepsOrder() {
+		ElementSpliterator<Text> objUT = new ElementSpliterator<>(body, Text.class);
+
+		Spliterator<Text> prefix = objUT.trySplit();
+		assertNotNull(prefix);
+
+		List<String> values = new ArrayList<>();
+		prefix.forEachRemaining(text -> values.add(text.getValue()));
+		assertEquals(100, values.size());
+		assertEquals("text0", values.get(0));
+		assertEquals("more49", values.get(99));
+
+		objUT.forEachRemaining(text -> values.add(text.getValue()));
+		assertEquals(200, values.size());
+		assertEquals("text50", values.get(100));
+	}
+
+	@Test
+	void trySplit_SingleBlock_NoSplit() {
+		Body single = Context.getWmlObjectFactory().createBody();
+		single.getContent().add(createP("a"));
+
+		assertNull(new ElementSpliterator<>(single, Text.class).trySplit());
+	}
+
+	@Test
+	void parallelStream_SameResultAsSequential() {
+		DocxDataInspector inspector = new DocxDataInspector();
+
+		List<Text> sequential = inspector.streamElements(body, Text.class).collect(Collectors.toList());
+		List<Text> parallel = inspector.streamElements(body, Text.class).parallel().collect(Collectors.toList());
+
+		assertEquals(sequential, parallel);
+	}
+
+	/**
+	 * Simple content holder to start the traversal at.
+	 */
+	private static final class ListHolder implements ContentAccessor {
+
+		private final List<Object> content;
+
+		ListHolder(List<Object> content) {
+			this.content = content;
+		}
+
+		@Override
+		public List<Object> getContent() {
+			return content;
+		}
+	}
+
+	private static P createP(String... values) {
+		ObjectFactory factory = Context.getWmlObjectFactory();
+		P p = factory.createP();
+		for (String value : values) {
+			Text text = factory.createText();
+			text.setValue(value);
+			R run = factory.createR();
+			run.getContent().add(factory.createRT(text));
+			p.getContent().add(run);
+		}
+		return p;
+	}
+
+}
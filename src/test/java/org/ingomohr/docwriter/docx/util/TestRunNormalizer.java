@@ -0,0 +1,151 @@
+package org.ingomohr.docwriter.docx.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.BooleanDefaultTrue;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.FldChar;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.ProofErr;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.STFldCharType;
+import org.docx4j.wml.Text;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestRunNormalizer {
+
+	private final ObjectFactory factory = new ObjectFactory();
+
+	private RunNormalizer objUT;
+
+	@BeforeEach
+	void prep() {
+		objUT = new RunNormalizer();
+	}
+
+	@Test
+	void normalize_RunsWithEqualFormatting_AreMerged() {
+		P paragraph = factory.createP();
+		paragraph.getContent().add(createRun("Hello ", null));
+		paragraph.getContent().add(createRun("${na", null));
+		paragraph.getContent().add(createRun("me}, ", null));
+
+		assertEquals(2, objUT.normalize(paragraph));
+
+		assertEquals(1, paragraph.getContent().size());
+		assertEquals(List.of("Hello ${name}, "), getTexts(paragraph));
+		assertEquals("preserve", getTextElements(paragraph).get(0).getSpace());
+	}
+
+	@Test
+	void normalize_RunsWithDifferentFormatting_AreKept() {
+		P paragraph = factory.createP();
+		paragraph.getContent().add(createRun("plain ", null));
+		paragraph.getContent().add(createRun("bold", createBold()));
+		paragraph.getContent().add(createRun(" text", createBold()));
+
+		assertEquals(1, objUT.normalize(paragraph));
+
+		assertEquals(List.of("plain ", "bold text"), getTexts(paragraph));
+	}
+
+	@Test
+	void normalize_ProofErrAndRsids_AreRemoved() {
+		P paragraph = factory.createP();
+		paragraph.setRsidR("00A1B2C3");
+		paragraph.setRsidRDefault("00A1B2C3");
+		ProofErr proofErr = factory.createProofErr();
+		paragraph.getContent().add(proofErr);
+		R run = createRun("Helo", null);
+		run.setRsidR("00D4E5F6");
+		paragraph.getContent().add(run);
+		paragraph.getContent().add(factory.createProofErr());
+		paragraph.getContent().add(createRun(" world", null));
+
+		assertEquals(3, objUT.normalize(paragraph));
+
+		assertEquals(List.of(run), paragraph.getContent());
+		assertEquals(List.of("Helo world"), getTexts(paragraph));
+		assertNull(paragraph.getRsidR());
+		assertNull(paragraph.getRsidRDefault());
+		assertNull(run.getRsidR());
+	}
+
+	@Test
+	void normalize_Bookmark_IsKeptAndSeparatesRuns() {
+		P paragraph = factory.createP();
+		paragraph.getContent().add(createRun("before", null));
+		CTBookmark bookmark = factory.createCTBookmark();
+		bookmark.setName("mark");
+		paragraph.getContent().add(factory.createPBookmarkStart(bookmark));
+		paragraph.getContent().add(createRun("after", null));
+
+		assertEquals(0, objUT.normalize(paragraph));
+
+		assertEquals(3, paragraph.getContent().size());
+		assertEquals(List.of("before", "after"), getTexts(paragraph));
+	}
+
+	@Test
+	void normalize_RunWithField_IsNotMerged() {
+		P paragraph = factory.createP();
+		paragraph.getContent().add(createRun("text", null));
+		R fieldRun = factory.createR();
+		FldChar fldChar = factory.createFldChar();
+		fldChar.setFldCharType(STFldCharType.BEGIN);
+		fieldRun.getContent().add(factory.createRFldChar(fldChar));
+		paragraph.getContent().add(fieldRun);
+
+		assertEquals(0, objUT.normalize(paragraph));
+
+		assertEquals(2, paragraph.getContent().size());
+	}
+
+	@Test
+	void normalize_Document_NormalizesNestedContents() throws Exception {
+		WordprocessingMLPackage doc = WordprocessingMLPackage.createPackage();
+		P paragraph = factory.createP();
+		paragraph.getContent().add(createRun("Hello ", null));
+		paragraph.getContent().add(factory.createProofErr());
+		paragraph.getContent().add(createRun("world", null));
+		doc.getMainDocumentPart().getContent().add(paragraph);
+
+		assertEquals(2, objUT.normalize(doc));
+
+		List<String> texts = new DocxDataInspector().getAllElements(doc.getMainDocumentPart(), Text.class)
+				.stream().map(Text::getValue).collect(Collectors.toList());
+		assertEquals(List.of("Hello world"), texts);
+	}
+
+	private R createRun(String value, RPr properties) {
+		R run = factory.createR();
+		run.setRPr(properties);
+		Text text = factory.createText();
+		text.setValue(value);
+		run.getContent().add(factory.createRT(text));
+		return run;
+	}
+
+	private RPr createBold() {
+		RPr properties = factory.createRPr();
+		properties.setB(new BooleanDefaultTrue());
+		return properties;
+	}
+
+	private static List<Text> getTextElements(P paragraph) {
+		return new DocxDataInspector().getAllElements(paragraph, Text.class);
+	}
+
+	private static List<String> getTexts(P paragraph) {
+		return getTextElements(paragraph).stream().map(Text::getValue).collect(Collectors.toList());
+	}
+
+}
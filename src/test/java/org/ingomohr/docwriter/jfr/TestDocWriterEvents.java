@@ -0,0 +1,132 @@
+package org.ingomohr.docwriter.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.ingomohr.docwriter.docx.AbstractRuleBasedDocxWriter;
+import org.ingomohr.docwriter.docx.rules.DocumentRule;
+import org.ingomohr.docwriter.docx.rules.MarkdownAppenderRule;
+import org.ingomohr.docwriter.docx.rules.RegexReplacementRule;
+import org.ingomohr.docwriter.docx.rules.TocInsertionRule;
+import org.ingomohr.docwriter.metrics.InMemoryMetrics;
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class TestDocWriterEvents {
+
+	private static final String MARKDOWN = "# Heading\n\nSome **text**.";
+
+	@Test
+	void write_EventsAreRecordedForAllPhases() throws Exception {
+		AbstractRuleBasedDocxWriter writer = new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(new MarkdownAppenderRule(() -> MARKDOWN), new TocInsertionRule());
+			}
+		};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		List<RecordedEvent> events = record(() -> writer.write(null, out));
+
+		RecordedEvent load = getSingle(events, TemplateLoadEvent.NAME);
+		assertEquals(0L, load.getLong("bytes"));
+
+		List<RecordedEvent> rulePhases = getAll(events, RulePhaseEvent.NAME);
+		assertEquals(Arrays.asList(RulePhaseEvent.PHASE_DOCUMENT, RulePhaseEvent.PHASE_PART,
+				RulePhaseEvent.PHASE_ELEMENTS),
+				rulePhases.stream().map(event -> event.getString("phase")).collect(Collectors.toList()));
+		assertEquals(2, rulePhases.get(0).getInt("rules"));
+
+		RecordedEvent parse = getSingle(events, MarkdownParseEvent.NAME);
+		assertEquals(MARKDOWN.length(), parse.getInt("characters"));
+		assertTrue(parse.getInt("nodes") > 0);
+
+		assertEquals(2, getSingle(events, MarkdownRenderEvent.NAME).getInt("elements"));
+
+		RecordedEvent toc = getSingle(events, TocGenerationEvent.NAME);
+		assertFalse(toc.getBoolean("update"));
+		assertEquals(1, toc.getInt("entries"));
+		assertEquals(3, toc.getInt("elements"));
+
+		RecordedEvent save = getSingle(events, SaveEvent.NAME);
+		assertEquals(out.size(), save.getLong("bytes"));
+		assertEquals(3, save.getInt("elements"));
+	}
+
+	@Test
+	void write_ElementsPhaseCountsAllElementsBelowPart() throws Exception {
+		AbstractRuleBasedDocxWriter writer = new AbstractRuleBasedDocxWriter() {
+
+			@Override
+			protected List<DocumentRule> initRules() {
+				return Arrays.asList(new RegexReplacementRule("first", () -> "1st"));
+			}
+		};
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		writer.setMetrics(metrics);
+		WordprocessingMLPackage template = WordprocessingMLPackage.createPackage();
+		template.getMainDocumentPart().addParagraphOfText("first");
+		template.getMainDocumentPart().addParagraphOfText("second");
+		ByteArrayOutputStream input = new ByteArrayOutputStream();
+		template.save(input);
+
+		List<RecordedEvent> events = record(
+				() -> writer.write(new ByteArrayInputStream(input.toByteArray()), new ByteArrayOutputStream()));
+
+		RecordedEvent elementsPhase = getAll(events, RulePhaseEvent.NAME).stream()
+				.filter(event -> RulePhaseEvent.PHASE_ELEMENTS.equals(event.getString("phase"))).findFirst()
+				.orElseThrow();
+		// Document and body plus paragraph, run and text per paragraph.
+		assertEquals(2 + 2 * 3, elementsPhase.getInt("elements"));
+		assertEquals(metrics.snapshot().getElements(), elementsPhase.getInt("elements"));
+	}
+
+	private static List<RecordedEvent> record(Action action) throws Exception {
+		Path file = Files.createTempFile("docwriter", ".jfr");
+		try (Recording recording = new Recording()) {
+			for (String name : Arrays.asList(TemplateLoadEvent.NAME, RulePhaseEvent.NAME, MarkdownParseEvent.NAME,
+					MarkdownRenderEvent.NAME, TocGenerationEvent.NAME, SaveEvent.NAME)) {
+				recording.enable(name);
+			}
+			recording.start();
+			action.run();
+			recording.stop();
+			recording.dump(file);
+			return RecordingFile.readAllEvents(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static List<RecordedEvent> getAll(List<RecordedEvent> events, String name) {
+		return events.stream().filter(event -> name.equals(event.getEventType().getName()))
+				.collect(Collectors.toList());
+	}
+
+	private static RecordedEvent getSingle(List<RecordedEvent> events, String name) {
+		List<RecordedEvent> matching = getAll(events, name);
+		assertEquals(1, matching.size(), name);
+		return matching.get(0);
+	}
+
+	private interface Action {
+
+		void run() throws Exception;
+
+	}
+
+}
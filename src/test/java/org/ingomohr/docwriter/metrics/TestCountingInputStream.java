@@ -0,0 +1,24 @@
+package org.ingomohr.docwriter.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.jupiter.api.Test;
+
+class TestCountingInputStream {
+
+	@Test
+	void getCount_CountsReadAndSkippedBytes() throws Exception {
+		try (CountingInputStream objUT = new CountingInputStream(new ByteArrayInputStream(new byte[10]))) {
+			objUT.read();
+			objUT.read(new byte[4], 0, 4);
+			objUT.skip(2);
+			objUT.readAllBytes();
+			objUT.read();
+
+			assertEquals(10, objUT.getCount());
+		}
+	}
+
+}
@@ -0,0 +1,24 @@
+package org.ingomohr.docwriter.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+class TestCountingOutputStream {
+
+	@Test
+	void getCount_CountsWrittenBytes() throws Exception {
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		try (CountingOutputStream objUT = new CountingOutputStream(target)) {
+			objUT.write(1);
+			objUT.write(new byte[] { 2, 3, 4, 5 }, 1, 2);
+
+			assertEquals(3, objUT.getCount());
+		}
+		assertArrayEquals(new byte[] { 1, 3, 4 }, target.toByteArray());
+	}
+
+}
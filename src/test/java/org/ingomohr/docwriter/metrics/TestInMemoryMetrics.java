@@ -0,0 +1,114 @@
+package org.ingomohr.docwriter.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestInMemoryMetrics {
+
+	private InMemoryMetrics objUT;
+
+	@BeforeEach
+	void prep() {
+		objUT = new InMemoryMetrics();
+	}
+
+	@Test
+	void snapshot_NothingRecorded_AllZero() {
+		MetricsSnapshot snapshot = objUT.snapshot();
+
+		assertEquals(0, snapshot.getDocuments());
+		assertEquals(0, snapshot.getBytesRead());
+		for (WritePhase phase : WritePhase.values()) {
+			assertEquals(0, snapshot.getLatency(phase).getCount());
+			assertEquals(0, snapshot.getLatency(phase).getPercentile(99));
+		}
+	}
+
+	@Test
+	void snapshot_CountersAreSummedUp() {
+		objUT.recordBytesRead(100);
+		objUT.recordBytesRead(50);
+		objUT.recordBytesWritten(70);
+		objUT.recordElements(12);
+		objUT.recordDocument();
+		objUT.recordDocument();
+
+		MetricsSnapshot snapshot = objUT.snapshot();
+
+		assertEquals(150, snapshot.getBytesRead());
+		assertEquals(70, snapshot.getBytesWritten());
+		assertEquals(12, snapshot.getElements());
+		assertEquals(2, snapshot.getDocuments());
+		assertTrue(snapshot.getDocumentsPerSecond() > 0);
+	}
+
+	@Test
+	void snapshot_PercentilesArePerPhase() {
+		for (int i = 1; i <= 100; i++) {
+			objUT.recordPhase(WritePhase.SAVE, i * 1_000_000L);
+		}
+		objUT.recordPhase(WritePhase.LOAD, 5);
+
+		LatencySnapshot save = objUT.snapshot().getLatency(WritePhase.SAVE);
+
+		assertEquals(100, save.getCount());
+		assertEquals(50_500_000L, save.getMean());
+		assertEquals(100_000_000L, save.getMax());
+		assertWithin(50_000_000L, save.getPercentile(50));
+		assertWithin(99_000_000L, save.getPercentile(99));
+		assertEquals(save.getMax(), save.getPercentile(100));
+
+		assertEquals(1, objUT.snapshot().getLatency(WritePhase.LOAD).getCount());
+		assertEquals(0, objUT.snapshot().getLatency(WritePhase.MODIFY).getCount());
+	}
+
+	@Test
+	void snapshot_IsNotChangedByLaterRecords() {
+		objUT.recordPhase(WritePhase.LOAD, 10);
+		MetricsSnapshot snapshot = objUT.snapshot();
+
+		objUT.recordPhase(WritePhase.LOAD, 10);
+		objUT.recordDocument();
+
+		assertEquals(1, snapshot.getLatency(WritePhase.LOAD).getCount());
+		assertEquals(0, snapshot.getDocuments());
+	}
+
+	@Test
+	void reset_ClearsEverything() {
+		objUT.recordPhase(WritePhase.MODIFY, 10);
+		objUT.recordBytesWritten(10);
+		objUT.recordDocument();
+
+		objUT.reset();
+
+		MetricsSnapshot snapshot = objUT.snapshot();
+		assertEquals(0, snapshot.getLatency(WritePhase.MODIFY).getCount());
+		assertEquals(0, snapshot.getLatency(WritePhase.MODIFY).getMax());
+		assertEquals(0, snapshot.getBytesWritten());
+		assertEquals(0, snapshot.getDocuments());
+	}
+
+	@Test
+	void getPercentile_OutOfRange_Throws() {
+		LatencySnapshot snapshot = objUT.snapshot().getLatency(WritePhase.LOAD);
+
+		assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentile(-1));
+		assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentile(101));
+	}
+
+	@Test
+	void getDefault_IsShared() {
+		assertSame(InMemoryMetrics.getDefault(), InMemoryMetrics.getDefault());
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue(actual >= expected && actual <= expected * 1.125, expected + " vs " + actual);
+	}
+
+}
@@ -0,0 +1,39 @@
+package org.ingomohr.docwriter.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TestLatencyHistogram {
+
+	@Test
+	void getBucket_SmallValues_HaveOwnBuckets() {
+		for (int i = 0; i < 16; i++) {
+			assertEquals(i, LatencyHistogram.getBucket(i));
+			assertEquals(i, LatencyHistogram.getUpperBound(i));
+		}
+	}
+
+	@Test
+	void getUpperBound_ContainsValueWithinOneEighth() {
+		long[] values = { 16, 17, 100, 1_000, 123_456, 1_000_000_007L, Long.MAX_VALUE };
+		for (long value : values) {
+			long upper = LatencyHistogram.getUpperBound(LatencyHistogram.getBucket(value));
+			assertTrue(upper >= value, value + " > " + upper);
+			assertTrue(upper - value <= value / LatencyHistogram.SUB_BUCKETS, value + " vs " + upper);
+		}
+	}
+
+	@Test
+	void record_NegativeValue_CountsAsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		histogram.record(-5);
+
+		LatencySnapshot snapshot = histogram.snapshot();
+		assertEquals(1, snapshot.getCount());
+		assertEquals(0, snapshot.getMax());
+	}
+
+}